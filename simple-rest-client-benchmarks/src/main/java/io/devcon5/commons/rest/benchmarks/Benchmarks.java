@@ -0,0 +1,22 @@
+package io.devcon5.commons.rest.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that the allocation rate is reported alongside the throughput. Accepts
+ * the command line options of JMH, i.e. a regular expression selecting the benchmarks to run.
+ */
+public final class Benchmarks {
+
+   private Benchmarks() {
+   }
+
+   public static void main(String... args) throws Exception {
+      final Options options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build();
+      new Runner(options).run();
+   }
+}
@@ -0,0 +1,58 @@
+package io.devcon5.commons.rest.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import io.devcon5.commons.rest.SimpleRestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of a single client shared by 16 threads sending small requests to the local server, synchronously and
+ * asynchronously. The JDK keeps at most <code>http.maxConnections</code> idle connections per host, so it's raised to
+ * the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=16")
+@Threads(16)
+public class ConcurrencyBenchmark {
+
+   private LocalServer server;
+   private SimpleRestClient client;
+
+   @Setup
+   public void setup() throws IOException {
+      server = LocalServer.start(16).respond("/small", "application/json", "{\"id\":42,\"name\":\"small\"}".getBytes(StandardCharsets.UTF_8));
+      client = SimpleRestClient.builder().baseUrl(server.getBaseUrl()).build();
+   }
+
+   @TearDown
+   public void tearDown() {
+      server.close();
+   }
+
+   @Benchmark
+   public byte[] get() {
+      return client.request("/small").get().asBytes();
+   }
+
+   @Benchmark
+   public byte[] getAsync() {
+      return client.request("/small").getAsync().thenApply(SimpleRestClient.Response::asBytes).join();
+   }
+}
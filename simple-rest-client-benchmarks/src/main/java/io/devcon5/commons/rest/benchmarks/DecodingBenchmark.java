@@ -0,0 +1,59 @@
+package io.devcon5.commons.rest.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import io.devcon5.commons.rest.SimpleRestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding a response body as String without I/O, comparing {@link SimpleRestClient.Response#asString(int...)} with the
+ * former implementation that read the body line by line and joined the lines
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodingBenchmark {
+
+   @Param({"1024", "65536", "1048576"})
+   public int size;
+
+   private SimpleRestClient client;
+
+   @Setup
+   public void setup() {
+      client = SimpleRestClient.builder()
+                               .transport(new InMemoryTransport(200, "text/plain; charset=UTF-8", LocalServer.text(size)))
+                               .build();
+   }
+
+   @Benchmark
+   public String asString() {
+      return client.request("http://localhost/text").get().asString();
+   }
+
+   @Benchmark
+   public String legacyAsString() throws IOException {
+      try (InputStream in = client.request("http://localhost/text").get().asInputStream();
+           BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+         return reader.lines().collect(Collectors.joining(System.lineSeparator()));
+      }
+   }
+}
@@ -0,0 +1,85 @@
+package io.devcon5.commons.rest.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import io.devcon5.commons.rest.SimpleRestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Round trips to the local server parsing an XML response into an entity using the JAXBEntityReader
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityBenchmark {
+
+   @Param({"10", "1000"})
+   public int items;
+
+   private LocalServer server;
+   private SimpleRestClient client;
+
+   @Setup
+   public void setup() throws IOException {
+      server = LocalServer.start(4).respond("/catalog", "application/xml", catalog(items));
+      client = SimpleRestClient.builder().baseUrl(server.getBaseUrl()).build();
+   }
+
+   @TearDown
+   public void tearDown() {
+      server.close();
+   }
+
+   @Benchmark
+   public Catalog as() {
+      return client.request("/catalog").accept("application/xml").get().as(Catalog.class).orElseThrow(IllegalStateException::new);
+   }
+
+   private static byte[] catalog(int items) {
+      final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><catalog>");
+      for (int i = 0; i < items; i++) {
+         xml.append("<item id=\"").append(i).append("\"><name>item ").append(i).append("</name><price>")
+            .append(i * 1.25).append("</price></item>");
+      }
+      return xml.append("</catalog>").toString().getBytes(StandardCharsets.UTF_8);
+   }
+
+   @XmlRootElement(name = "catalog")
+   public static class Catalog {
+
+      @XmlElement(name = "item")
+      public List<Item> items = new ArrayList<>();
+   }
+
+   public static class Item {
+
+      @XmlAttribute
+      public int id;
+      @XmlElement
+      public String name;
+      @XmlElement
+      public double price;
+   }
+}
@@ -0,0 +1,91 @@
+package io.devcon5.commons.rest.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import io.devcon5.commons.rest.Transport;
+import io.devcon5.commons.rest.TransportRequest;
+import io.devcon5.commons.rest.TransportResponse;
+
+/**
+ * {@link Transport} answering every request with the same response without any I/O, so that benchmarks measure only the
+ * client itself
+ */
+public final class InMemoryTransport implements Transport {
+
+   private final int statusCode;
+   private final String contentType;
+   private final byte[] body;
+
+   /**
+    * @param statusCode
+    *  the status code of the responses
+    * @param contentType
+    *  the content type of the responses
+    * @param body
+    *  the body of the responses
+    */
+   public InMemoryTransport(final int statusCode, final String contentType, final byte[] body) {
+      this.statusCode = statusCode;
+      this.contentType = contentType;
+      this.body = body;
+   }
+
+   @Override
+   public TransportResponse send(final TransportRequest request) throws IOException {
+      request.getBody().ifPresent(b -> {
+         try {
+            b.writeTo(NullOutputStream.INSTANCE);
+         } catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      });
+      final InputStream in = new ByteArrayInputStream(body);
+      return new TransportResponse() {
+         @Override
+         public int getStatusCode() {
+            return statusCode;
+         }
+
+         @Override
+         public String getMessage() {
+            return "OK";
+         }
+
+         @Override
+         public String getHeader(final String name) {
+            if ("Content-Type".equalsIgnoreCase(name)) {
+               return contentType;
+            }
+            if ("Content-Length".equalsIgnoreCase(name)) {
+               return Integer.toString(body.length);
+            }
+            return null;
+         }
+
+         @Override
+         public InputStream getBody() {
+            return in;
+         }
+
+         @Override
+         public void close() {
+         }
+      };
+   }
+
+   private static final class NullOutputStream extends OutputStream {
+
+      static final NullOutputStream INSTANCE = new NullOutputStream();
+
+      @Override
+      public void write(final int b) {
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) {
+      }
+   }
+}
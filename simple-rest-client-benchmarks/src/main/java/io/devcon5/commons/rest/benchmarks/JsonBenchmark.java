@@ -0,0 +1,100 @@
+package io.devcon5.commons.rest.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import io.devcon5.commons.rest.JsonParser;
+import io.devcon5.commons.rest.SimpleRestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Binding a JSON response without I/O, comparing the JsonEntityReader parsing straight from the response stream with
+ * reading the body into a String first and parsing the String, and streaming the items of the catalog one by one
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+   @Param({"10", "1000", "100000"})
+   public int items;
+
+   private SimpleRestClient client;
+   private SimpleRestClient itemsClient;
+
+   @Setup
+   public void setup() {
+      client = SimpleRestClient.builder()
+                               .transport(new InMemoryTransport(200, "application/json", catalog(items)))
+                               .build();
+      itemsClient = SimpleRestClient.builder()
+                                    .transport(new InMemoryTransport(200, "application/json", itemArray(items)))
+                                    .build();
+   }
+
+   @Benchmark
+   public Catalog as() {
+      return client.request("http://localhost/catalog").get().as(Catalog.class).orElseThrow(IllegalStateException::new);
+   }
+
+   @Benchmark
+   public Catalog parseString() throws IOException {
+      final String json = client.request("http://localhost/catalog").get().asString();
+      try (JsonParser parser = JsonParser.create(new StringReader(json))) {
+         parser.next();
+         return parser.read(Catalog.class);
+      }
+   }
+
+   @Benchmark
+   public double asStream() {
+      try (Stream<Item> stream = itemsClient.request("http://localhost/items").get().asStream(Item.class)) {
+         return stream.mapToDouble(item -> item.price).sum();
+      }
+   }
+
+   private static byte[] catalog(int items) {
+      return ("{\"name\":\"catalog\",\"items\":" + new String(itemArray(items), StandardCharsets.UTF_8) + "}")
+            .getBytes(StandardCharsets.UTF_8);
+   }
+
+   private static byte[] itemArray(int items) {
+      final StringBuilder json = new StringBuilder("[");
+      for (int i = 0; i < items; i++) {
+         json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"item ").append(i)
+             .append("\",\"price\":").append(i * 1.25).append(",\"tags\":[\"a\",\"b\"]}");
+      }
+      return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+   }
+
+   public static class Catalog {
+
+      public String name;
+      public List<Item> items;
+   }
+
+   public static class Item {
+
+      public int id;
+      public String name;
+      public double price;
+      public List<String> tags;
+   }
+}
@@ -0,0 +1,131 @@
+package io.devcon5.commons.rest.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-process HTTP server on the loopback interface serving static responses, so that the benchmarks don't depend on
+ * the network or external services
+ */
+public final class LocalServer implements AutoCloseable {
+
+   private final HttpServer server;
+   private final ExecutorService executor;
+
+   private LocalServer(final HttpServer server, final ExecutorService executor) {
+      this.server = server;
+      this.executor = executor;
+   }
+
+   /**
+    * Starts a server on a free port
+    * @param threads
+    *  the number of threads handling requests
+    * @return
+    *  the started server
+    * @throws IOException
+    *  if the server could not be bound
+    */
+   public static LocalServer start(int threads) throws IOException {
+      final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+      final ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+         final Thread t = new Thread(r, "local-server");
+         t.setDaemon(true);
+         return t;
+      });
+      server.setExecutor(executor);
+      server.start();
+      return new LocalServer(server, executor);
+   }
+
+   /**
+    * @return
+    *  the base URL of the server, i.e. <code>http://127.0.0.1:43210</code>
+    */
+   public String getBaseUrl() {
+      return "http://" + server.getAddress().getHostString() + ':' + server.getAddress().getPort();
+   }
+
+   /**
+    * Serves a static response for all requests to the path, the request body is discarded
+    * @param path
+    *  the path of the resource
+    * @param contentType
+    *  the content type of the response
+    * @param body
+    *  the body of the response
+    * @return
+    *  this server
+    */
+   public LocalServer respond(String path, String contentType, byte[] body) {
+      server.createContext(path, exchange -> {
+         try (InputStream in = exchange.getRequestBody()) {
+            discard(in);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+               out.write(body);
+            }
+         } finally {
+            exchange.close();
+         }
+      });
+      return this;
+   }
+
+   /**
+    * Accepts all requests to the path with an empty response after reading the request body
+    * @param path
+    *  the path of the resource
+    * @return
+    *  this server
+    */
+   public LocalServer accept(String path) {
+      server.createContext(path, exchange -> {
+         try (InputStream in = exchange.getRequestBody()) {
+            discard(in);
+            exchange.sendResponseHeaders(204, -1);
+         } finally {
+            exchange.close();
+         }
+      });
+      return this;
+   }
+
+   private static void discard(InputStream in) throws IOException {
+      final byte[] buffer = new byte[65536];
+      int read;
+      do {
+         read = in.read(buffer);
+      } while (read != -1);
+   }
+
+   /**
+    * Creates a text body of lines with 80 characters
+    * @param size
+    *  the size of the body in bytes
+    * @return
+    *  the UTF-8 encoded body
+    */
+   public static byte[] text(int size) {
+      final StringBuilder text = new StringBuilder(size);
+      while (text.length() < size) {
+         text.append(text.length() % 81 == 80 ? '\n' : (char) ('a' + text.length() % 26));
+      }
+      return text.toString().getBytes(StandardCharsets.UTF_8);
+   }
+
+   @Override
+   public void close() {
+      server.stop(0);
+      executor.shutdownNow();
+   }
+}
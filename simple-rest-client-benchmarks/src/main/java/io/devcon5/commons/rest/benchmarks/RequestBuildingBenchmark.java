@@ -0,0 +1,66 @@
+package io.devcon5.commons.rest.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import io.devcon5.commons.rest.SimpleRestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overhead of building and dispatching a request, measured with a transport that answers without any I/O
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBuildingBenchmark {
+
+   private static final byte[] PAYLOAD = "{\"name\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+
+   private SimpleRestClient client;
+
+   @Setup
+   public void setup() {
+      client = SimpleRestClient.builder()
+                               .baseUrl("http://localhost:8080/api")
+                               .defaultHeader("User-Agent", "benchmark")
+                               .transport(new InMemoryTransport(204, "application/json", new byte[0]))
+                               .build();
+   }
+
+   @Benchmark
+   public int get() {
+      try (SimpleRestClient.Response response = client.request("/resources/42").acceptJson().get()) {
+         return response.getStatusCode();
+      }
+   }
+
+   @Benchmark
+   public int getWithHeaders() {
+      try (SimpleRestClient.Response response = client.request("/resources/42")
+                                                      .acceptJson()
+                                                      .auth("token")
+                                                      .addHeader("X-Request-Id", "0815")
+                                                      .get()) {
+         return response.getStatusCode();
+      }
+   }
+
+   @Benchmark
+   public int post() {
+      try (SimpleRestClient.Response response = client.request("/resources").sendJson().post(PAYLOAD)) {
+         return response.getStatusCode();
+      }
+   }
+}
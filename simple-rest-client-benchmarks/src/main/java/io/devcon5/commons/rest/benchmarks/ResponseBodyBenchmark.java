@@ -0,0 +1,57 @@
+package io.devcon5.commons.rest.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.devcon5.commons.rest.SimpleRestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Round trips to the local server reading the response body as String and as byte array
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseBodyBenchmark {
+
+   @Param({"1024", "65536", "1048576"})
+   public int size;
+
+   private LocalServer server;
+   private SimpleRestClient client;
+
+   @Setup
+   public void setup() throws IOException {
+      server = LocalServer.start(4).respond("/text", "text/plain; charset=UTF-8", LocalServer.text(size));
+      client = SimpleRestClient.builder().baseUrl(server.getBaseUrl()).build();
+   }
+
+   @TearDown
+   public void tearDown() {
+      server.close();
+   }
+
+   @Benchmark
+   public String asString() {
+      return client.request("/text").get().asString();
+   }
+
+   @Benchmark
+   public byte[] asBytes() {
+      return client.request("/text").get().asBytes();
+   }
+}
@@ -0,0 +1,79 @@
+package io.devcon5.commons.rest.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import io.devcon5.commons.rest.SimpleRestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Uploads of large bodies to the local server from a byte array, a stream of unknown length and a file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadBenchmark {
+
+   @Param({"1048576", "16777216"})
+   public int size;
+
+   private LocalServer server;
+   private SimpleRestClient client;
+   private byte[] data;
+   private Path file;
+
+   @Setup
+   public void setup() throws IOException {
+      server = LocalServer.start(4).accept("/upload");
+      client = SimpleRestClient.builder().baseUrl(server.getBaseUrl()).build();
+      data = new byte[size];
+      ThreadLocalRandom.current().nextBytes(data);
+      file = Files.createTempFile("upload", ".bin");
+      Files.write(file, data);
+   }
+
+   @TearDown
+   public void tearDown() throws IOException {
+      server.close();
+      Files.deleteIfExists(file);
+   }
+
+   @Benchmark
+   public int postBytes() {
+      try (SimpleRestClient.Response response = client.request("/upload").post(data)) {
+         return response.getStatusCode();
+      }
+   }
+
+   @Benchmark
+   public int postStream() {
+      try (SimpleRestClient.Response response = client.request("/upload").post(new ByteArrayInputStream(data))) {
+         return response.getStatusCode();
+      }
+   }
+
+   @Benchmark
+   public int postFile() {
+      try (SimpleRestClient.Response response = client.request("/upload").post(file)) {
+         return response.getStatusCode();
+      }
+   }
+}
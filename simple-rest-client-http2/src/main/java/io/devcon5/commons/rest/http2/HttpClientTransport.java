@@ -0,0 +1,354 @@
+package io.devcon5.commons.rest.http2;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.devcon5.commons.rest.AsyncExecutors;
+import io.devcon5.commons.rest.DeadlineExceededException;
+import io.devcon5.commons.rest.RequestBody;
+import io.devcon5.commons.rest.RequestTrace;
+import io.devcon5.commons.rest.Transport;
+import io.devcon5.commons.rest.TransportRequest;
+import io.devcon5.commons.rest.TransportResponse;
+
+/**
+ * {@link Transport} based on the {@link HttpClient} of Java 11. Requests to the same host are multiplexed over a shared
+ * HTTP/2 connection if the server supports it, otherwise the client falls back to HTTP/1.1.
+ * <br>
+ * The connect timeout and the redirect policy are properties of the {@link HttpClient} and therefore can not be set per
+ * request. The read timeout of a request is applied as the timeout of the request. If the request has a deadline, the body
+ * of the response is closed once the deadline passes before it has been read completely.
+ */
+public class HttpClientTransport implements Transport {
+
+   /**
+    * headers that are set by the HttpClient itself and must not be set on a request
+    */
+   private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+   private static final int PIPE_BUFFER_SIZE = 65536;
+
+   private final HttpClient client;
+
+   /**
+    * Executor for writing streamed request bodies into the HttpClient, the shared pool is used so that transports don't
+    * have to be shut down
+    */
+   private final Executor bodyWriters = AsyncExecutors.defaultExecutor();
+
+   /**
+    * Creates a transport with a HttpClient that prefers HTTP/2 and follows redirects except from https to http.
+    */
+   public HttpClientTransport() {
+      this(HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).followRedirects(HttpClient.Redirect.NORMAL).build());
+   }
+
+   /**
+    * Creates a transport with a custom HttpClient
+    * @param client
+    *  the client to send all requests with
+    */
+   public HttpClientTransport(final HttpClient client) {
+      this.client = Objects.requireNonNull(client, "client must not be null");
+   }
+
+   @Override
+   public TransportResponse send(final TransportRequest request) throws IOException {
+
+      if (request.isExpired()) {
+         throw deadlineExceeded(request, null);
+      }
+      try {
+         return new HttpClientResponse(client.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofInputStream()), request);
+      } catch (HttpTimeoutException e) {
+         throw request.isExpired() ? deadlineExceeded(request, e) : e;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while waiting for response");
+      }
+   }
+
+   /**
+    * Sends the request using the non-blocking API of the HttpClient, the executor is not used. Timeouts of requests whose
+    * deadline passed fail with a {@link DeadlineExceededException}, as for {@link #send(TransportRequest)}.
+    */
+   @Override
+   public CompletableFuture<TransportResponse> sendAsync(final TransportRequest request, final Executor executor) {
+
+      final HttpRequest httpRequest;
+      try {
+         if (request.isExpired()) {
+            throw deadlineExceeded(request, null);
+         }
+         httpRequest = toHttpRequest(request);
+      } catch (IOException e) {
+         final CompletableFuture<TransportResponse> failed = new CompletableFuture<>();
+         failed.completeExceptionally(new RuntimeException(e));
+         return failed;
+      }
+      return client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream())
+                   .handle((response, e) -> {
+                      if (e == null) {
+                         return new HttpClientResponse(response, request);
+                      }
+                      final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                      if (cause instanceof HttpTimeoutException && request.isExpired()) {
+                         throw new RuntimeException(deadlineExceeded(request, (HttpTimeoutException) cause));
+                      }
+                      throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                   });
+   }
+
+   private static DeadlineExceededException deadlineExceeded(TransportRequest request, IOException cause) {
+      final DeadlineExceededException expired = new DeadlineExceededException("Deadline exceeded for " + request.getMethod() + " "
+                                                                                 + request.getUrl());
+      expired.initCause(cause);
+      return expired;
+   }
+
+   private HttpRequest toHttpRequest(final TransportRequest request) throws IOException {
+
+      final HttpRequest.Builder builder;
+      try {
+         builder = HttpRequest.newBuilder(request.getUrl().toURI());
+      } catch (URISyntaxException e) {
+         throw new IOException(e);
+      }
+      builder.method(request.getMethod(), publisher(request.getBody(), request.getTrace()));
+      if (request.getReadTimeout() > 0) {
+         builder.timeout(Duration.ofMillis(request.getReadTimeout()));
+      }
+      request.getHeaders().forEach((name, value) -> {
+         if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+            builder.header(name, value);
+         }
+      });
+
+      return builder.build();
+   }
+
+   private HttpRequest.BodyPublisher publisher(Optional<RequestBody> body, RequestTrace trace) {
+      if (!body.isPresent()) {
+         return HttpRequest.BodyPublishers.noBody();
+      }
+      final HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(() -> pipe(body.get(), trace));
+      final long length = body.get().getContentLength();
+      return length < 0 ? stream : HttpRequest.BodyPublishers.fromPublisher(stream, length);
+   }
+
+   /**
+    * Streams the body through a pipe written by a separate thread, so that the body is never buffered completely in memory.
+    * The body is reported as written to the trace once the HttpClient has read it completely from the pipe.
+    */
+   private InputStream pipe(RequestBody body, RequestTrace trace) {
+      final BodyPipe pipe = new BodyPipe(trace);
+      try {
+         final PipedOutputStream out = new PipedOutputStream(pipe);
+         bodyWriters.execute(() -> {
+            try {
+               body.writeTo(out);
+            } catch (IOException | RuntimeException e) {
+               //recorded before the pipe is closed, so the reader never mistakes the failure for the end of the body
+               pipe.failure = e;
+            } finally {
+               try {
+                  out.close();
+               } catch (IOException e) {
+                  //the reader fails on its own if the pipe is broken
+               }
+            }
+         });
+      } catch (IOException e) {
+         pipe.failure = e;
+      }
+      return pipe;
+   }
+
+   /**
+    * Pipe that fails the reader if the writer of the body failed
+    */
+   private static final class BodyPipe extends PipedInputStream {
+
+      volatile Exception failure;
+      private final RequestTrace trace;
+      private long count;
+      private boolean eof;
+
+      BodyPipe(final RequestTrace trace) {
+         super(PIPE_BUFFER_SIZE);
+         this.trace = trace;
+      }
+
+      @Override
+      public synchronized int read() throws IOException {
+         final int b = super.read();
+         if (b == -1) {
+            return checkFailure(b);
+         }
+         count++;
+         return b;
+      }
+
+      @Override
+      public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+         final int read = super.read(b, off, len);
+         if (read == -1) {
+            return checkFailure(read);
+         }
+         count += read;
+         return read;
+      }
+
+      private int checkFailure(int eof) throws IOException {
+         if (failure != null) {
+            throw new IOException("Writing request body failed", failure);
+         }
+         if (!this.eof) {
+            this.eof = true;
+            trace.requestBodyWritten(count);
+         }
+         return eof;
+      }
+   }
+
+   static class HttpClientResponse implements TransportResponse {
+
+      private final HttpResponse<InputStream> response;
+      private final InputStream body;
+
+      HttpClientResponse(final HttpResponse<InputStream> response, final TransportRequest request) {
+         this.response = response;
+         this.body = request.getDeadline().isPresent() ? new DeadlineInputStream(response.body(), request) : response.body();
+      }
+
+      /**
+       * @return
+       *  the protocol version the response was received with
+       */
+      HttpClient.Version getVersion() {
+         return response.version();
+      }
+
+      @Override
+      public int getStatusCode() {
+         return response.statusCode();
+      }
+
+      @Override
+      public String getMessage() {
+         //HTTP/2 has no reason phrase
+         return null;
+      }
+
+      @Override
+      public String getHeader(final String name) {
+         return response.headers().firstValue(name).orElse(null);
+      }
+
+      @Override
+      public Map<String, List<String>> getHeaders() {
+         return response.headers().map();
+      }
+
+      @Override
+      public InputStream getBody() {
+         return body;
+      }
+
+      @Override
+      public void close() throws IOException {
+         body.close();
+      }
+   }
+
+   /**
+    * Stream of a response body that is closed once the deadline of the request passes, which cancels the exchange. The
+    * timer is cancelled once the body has been read or closed, so it doesn't keep the response reachable until the
+    * deadline.
+    */
+   private static final class DeadlineInputStream extends FilterInputStream {
+
+      private final TransportRequest request;
+      private final AtomicBoolean done = new AtomicBoolean();
+      private final ScheduledFuture<?> timer;
+      private volatile boolean expired;
+
+      DeadlineInputStream(final InputStream in, final TransportRequest request) {
+         super(in);
+         this.request = request;
+         final long delay = Math.max(0, request.getDeadline().getAsLong() - System.nanoTime());
+         this.timer = AsyncExecutors.schedule(this::expire, delay, TimeUnit.NANOSECONDS);
+      }
+
+      private void expire() {
+         if (done.compareAndSet(false, true)) {
+            expired = true;
+            try {
+               in.close();
+            } catch (IOException e) {
+               //the exchange is cancelled anyway
+            }
+         }
+      }
+
+      private void complete() {
+         if (done.compareAndSet(false, true)) {
+            timer.cancel(false);
+         }
+      }
+
+      @Override
+      public int read() throws IOException {
+         try {
+            final int b = super.read();
+            if (b == -1) {
+               complete();
+            }
+            return b;
+         } catch (IOException e) {
+            throw expired ? deadlineExceeded(request, e) : e;
+         }
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+         try {
+            final int read = super.read(b, off, len);
+            if (read == -1) {
+               complete();
+            }
+            return read;
+         } catch (IOException e) {
+            throw expired ? deadlineExceeded(request, e) : e;
+         }
+      }
+
+      @Override
+      public void close() throws IOException {
+         complete();
+         super.close();
+      }
+   }
+}
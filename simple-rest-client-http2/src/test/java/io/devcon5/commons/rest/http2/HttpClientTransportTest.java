@@ -0,0 +1,134 @@
+package io.devcon5.commons.rest.http2;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.devcon5.commons.rest.Ports;
+import io.devcon5.commons.rest.SimpleRestClient;
+import io.devcon5.commons.rest.Transport;
+import io.devcon5.commons.rest.TransportRequest;
+import io.devcon5.commons.rest.TransportResponse;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class HttpClientTransportTest {
+
+   @Rule
+   public WireMockRule wireMockRule = new WireMockRule(Ports.findAvailablePort());
+
+   private SimpleRestClient client;
+
+   @Before
+   public void setUp() throws Exception {
+      this.client = SimpleRestClient.builder()
+                                    .baseUrl("http://localhost:" + wireMockRule.getOptions().portNumber())
+                                    .transport(new HttpClientTransport())
+                                    .build();
+   }
+
+   @Test
+   public void get_asString_returnsString() {
+      stubFor(get(urlEqualTo("/my/resource")).withHeader("Accept", equalTo("text/xml"))
+                                             .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "text/xml").withBody("<response>Some content</response>")));
+
+      String result = client.request("/my/resource").accept("text/xml").get().asString(200);
+
+      assertEquals("<response>Some content</response>", result);
+   }
+
+   @Test
+   public void post_returnsOK() {
+      stubFor(post(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withBody("created")));
+
+      String result = client.request("/my/resource").contentType("text/plain").post(os -> os.write("test".getBytes())).asString();
+
+      assertEquals("created", result);
+      verify(postRequestedFor(urlEqualTo("/my/resource")).withRequestBody(equalTo("test")).withHeader("Content-Type", equalTo("text/plain")));
+   }
+
+   @Test
+   public void get_notFound_returnsStatusCode() {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(404)));
+
+      assertEquals(404, client.request("/my/resource").get().getStatusCode());
+   }
+
+   @Test
+   public void get_notFound_asString_fails() {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(404)));
+
+      try {
+         client.request("/my/resource").get().asString();
+         fail("the error response was read as valid response");
+      } catch (IllegalStateException e) {
+         //HTTP/2 responses have no reason phrase
+         assertEquals("Server returned 404", e.getMessage());
+      }
+   }
+
+   @Test
+   public void get_h2cServer_usesHttp2() throws Exception {
+      final Server server = new Server();
+      final HttpConfiguration config = new HttpConfiguration();
+      final ServerConnector connector = new ServerConnector(server, new HttpConnectionFactory(config), new HTTP2CServerConnectionFactory(config));
+      connector.setPort(Ports.findAvailablePort());
+      server.addConnector(connector);
+      server.setHandler(new AbstractHandler() {
+         @Override
+         public void handle(final String target, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response)
+               throws IOException {
+            response.setStatus(200);
+            response.getOutputStream().write("Some content".getBytes(StandardCharsets.UTF_8));
+            baseRequest.setHandled(true);
+         }
+      });
+      server.start();
+      try {
+         final HttpClientTransport transport = new HttpClientTransport();
+         final AtomicReference<HttpClient.Version> version = new AtomicReference<>();
+         final SimpleRestClient client = SimpleRestClient.builder()
+                                                         .baseUrl("http://localhost:" + connector.getPort())
+                                                         .transport(new Transport() {
+                                                            @Override
+                                                            public TransportResponse send(final TransportRequest request) throws IOException {
+                                                               final TransportResponse response = transport.send(request);
+                                                               version.set(((HttpClientTransport.HttpClientResponse) response).getVersion());
+                                                               return response;
+                                                            }
+                                                         })
+                                                         .build();
+
+         String result = client.request("/my/resource").get().asString();
+
+         assertEquals("Some content", result);
+         assertEquals(HttpClient.Version.HTTP_2, version.get());
+      } finally {
+         server.stop();
+      }
+   }
+}
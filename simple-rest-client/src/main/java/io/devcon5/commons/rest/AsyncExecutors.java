@@ -0,0 +1,111 @@
+package io.devcon5.commons.rest;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for running asynchronous requests.
+ */
+public final class AsyncExecutors {
+
+   private AsyncExecutors() {
+   }
+
+   /**
+    * Provides the shared default executor for asynchronous requests. As requests block while waiting for the server, the
+    * executor is an unbounded pool of daemon threads that are released after being idle for a minute. As it's shared by
+    * all clients, its lifecycle is not exposed.
+    * @return
+    *  the shared default executor
+    */
+   public static Executor defaultExecutor() {
+      return DefaultHolder.INSTANCE;
+   }
+
+   /**
+    * Creates an executor that starts a new virtual thread for each task. Virtual threads are only available on Java 21+.
+    * @return
+    *  a new executor using virtual threads or an empty optional if the runtime doesn't support virtual threads
+    */
+   public static Optional<ExecutorService> virtualThreadPerTask() {
+      try {
+         final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return Optional.of((ExecutorService) factory.invoke(null));
+      } catch (ReflectiveOperationException e) {
+         return Optional.empty();
+      }
+   }
+
+   /**
+    * Runs a task on the shared scheduler after a delay, i.e. to enforce the deadline of a request in a custom
+    * {@link Transport}. The task must not block but hand over to an executor instead. Cancelled tasks are removed from the
+    * scheduler at once.
+    * @param task
+    *  the task to run
+    * @param delay
+    *  the delay after which the task is run
+    * @param unit
+    *  the unit of the delay
+    * @return
+    *  the future of the task for cancelling it
+    */
+   public static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+      return scheduler().schedule(task, delay, unit);
+   }
+
+   /**
+    * @return
+    *  the shared scheduler for delaying asynchronous operations, i.e. retries. Scheduled tasks must not block but hand
+    *  over to an executor instead.
+    */
+   static ScheduledExecutorService scheduler() {
+      return SchedulerHolder.INSTANCE;
+   }
+
+   private static final class DefaultHolder {
+
+      //only the execute method of the pool is exposed, so it can't be shut down
+      static final Executor INSTANCE = Executors.newCachedThreadPool(new DaemonThreadFactory("simple-rest-client-async-"))::execute;
+   }
+
+   private static final class SchedulerHolder {
+
+      static final ScheduledExecutorService INSTANCE = create();
+
+      /**
+       * Most timers, i.e. of deadlines and hedged requests, are cancelled long before they are due. Cancelled timers are
+       * removed from the queue at once, so they don't keep their connections and requests until their delay has passed.
+       */
+      private static ScheduledExecutorService create() {
+         final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("simple-rest-client-scheduler-"));
+         scheduler.setRemoveOnCancelPolicy(true);
+         return Executors.unconfigurableScheduledExecutorService(scheduler);
+      }
+   }
+
+   static final class DaemonThreadFactory implements ThreadFactory {
+
+      private final String prefix;
+      private final AtomicInteger count = new AtomicInteger();
+
+      DaemonThreadFactory(final String prefix) {
+         this.prefix = prefix;
+      }
+
+      @Override
+      public Thread newThread(final Runnable r) {
+         final Thread t = new Thread(r, prefix + count.incrementAndGet());
+         t.setDaemon(true);
+         return t;
+      }
+   }
+}
@@ -0,0 +1,457 @@
+package io.devcon5.commons.rest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import io.devcon5.commons.rest.SimpleRestClient.RequestBuilder;
+
+/**
+ * Executes a large number of requests concurrently with a bounded number of requests in flight, in total and per host.
+ * A failing request doesn't abort the batch, instead each request produces an {@link Item} with either its result or
+ * the error.
+ * <pre>
+ * Batch.Result&lt;Integer&gt; result = client.batch().concurrency(32).build()
+ *                                     .execute(fixtures.stream().map(f -&gt; Batch.request(client.request("/items").sendJson(),
+ *                                                                                      r -&gt; r.post(f::writeTo).getStatusCode())));
+ * </pre>
+ * Requests are started in the order of the input, the calling thread blocks while the concurrency limit is reached.
+ * Instances are thread-safe and can be reused for multiple batches.
+ */
+public final class Batch {
+
+   private final int concurrency;
+   private final int perHostConcurrency;
+   private final Ordering ordering;
+   private final Executor executor;
+
+   Batch(Builder builder) {
+      this.concurrency = builder.concurrency;
+      this.perHostConcurrency = builder.perHostConcurrency;
+      this.ordering = builder.ordering;
+      this.executor = builder.executor;
+   }
+
+   /**
+    * Creates a builder for a batch using the shared default executor
+    * @return
+    *  a new builder
+    */
+   public static Builder builder() {
+      return new Builder(AsyncExecutors.defaultExecutor());
+   }
+
+   /**
+    * Creates a single request of a batch
+    * @param request
+    *  the prepared request
+    * @param exchange
+    *  the function that sends the request and maps the response to the result of the request, i.e.
+    *  <code>r -&gt; r.post(body).getStatusCode()</code>
+    * @param <R>
+    *  the type of the result
+    * @return
+    *  the request of the batch
+    */
+   public static <R> Request<R> request(RequestBuilder request, Function<RequestBuilder, R> exchange) {
+      return new Request<>(request, exchange);
+   }
+
+   /**
+    * Executes all requests of the collection
+    * @param requests
+    *  the requests to execute
+    * @param <R>
+    *  the type of the results
+    * @return
+    *  the result of the batch once all requests are completed
+    */
+   public <R> Result<R> execute(Collection<Request<R>> requests) {
+      return execute(requests.stream());
+   }
+
+   /**
+    * Executes all requests of the stream. The stream is consumed lazily, so it may provide more requests than could be held
+    * in memory at once, however the results of all requests are kept.
+    * @param requests
+    *  the requests to execute
+    * @param <R>
+    *  the type of the results
+    * @return
+    *  the result of the batch once all requests are completed
+    * @throws Error
+    *  if a request failed with an error, i.e. an {@link OutOfMemoryError}. No further requests are started then.
+    */
+   public <R> Result<R> execute(Stream<Request<R>> requests) {
+
+      final Semaphore permits = new Semaphore(concurrency);
+      final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+      final ConcurrentLinkedQueue<Item<R>> completed = new ConcurrentLinkedQueue<>();
+      final AtomicReference<Error> fatal = new AtomicReference<>();
+      final AtomicInteger index = new AtomicInteger();
+      final long start = System.nanoTime();
+
+      try {
+         requests.forEachOrdered(request -> {
+            final int i = index.getAndIncrement();
+            final Semaphore hostPermit = hostPermits.computeIfAbsent(request.hostKey(), h -> new Semaphore(perHostConcurrency));
+            acquire(hostPermit);
+            acquire(permits);
+            if (fatal.get() != null) {
+               permits.release();
+               hostPermit.release();
+               throw fatal.get();
+            }
+            try {
+               executor.execute(() -> {
+                  try {
+                     completed.add(request.execute(i));
+                  } catch (Error e) {
+                     fatal.compareAndSet(null, e);
+                  } finally {
+                     permits.release();
+                     hostPermit.release();
+                  }
+               });
+            } catch (RejectedExecutionException e) {
+               completed.add(new Item<>(i, null, e, 0));
+               permits.release();
+               hostPermit.release();
+            }
+         });
+      } finally {
+         //wait for all requests in flight, even if the batch is aborted, so that their tasks don't outlive it
+         permits.acquireUninterruptibly(concurrency);
+      }
+      if (fatal.get() != null) {
+         throw fatal.get();
+      }
+      final long duration = System.nanoTime() - start;
+
+      final List<Item<R>> items = new ArrayList<>(completed);
+      if (ordering == Ordering.INPUT) {
+         items.sort(Comparator.comparingInt(Item::getIndex));
+      }
+      return new Result<>(items, duration);
+   }
+
+   private static void acquire(Semaphore semaphore) {
+      try {
+         semaphore.acquire();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException("Interrupted while waiting for batch requests", e);
+      }
+   }
+
+   /**
+    * The order of the items in the result of a batch
+    */
+   public enum Ordering {
+      /**
+       * the items are in the order of the input requests
+       */
+      INPUT,
+      /**
+       * the items are in the order in which their requests completed
+       */
+      COMPLETION
+   }
+
+   /**
+    * Builder for a batch
+    */
+   public static class Builder {
+
+      private int concurrency = 16;
+      private int perHostConcurrency = Integer.MAX_VALUE;
+      private Ordering ordering = Ordering.INPUT;
+      private Executor executor;
+
+      Builder(final Executor executor) {
+         this.executor = executor;
+      }
+
+      /**
+       * Sets the maximum number of concurrent requests of the batch, default is 16
+       * @param concurrency
+       *  the maximum number of requests in flight
+       * @return
+       *  this builder
+       */
+      public Builder concurrency(int concurrency) {
+
+         this.concurrency = requirePositive(concurrency);
+         return this;
+      }
+
+      /**
+       * Sets the maximum number of concurrent requests of the batch to the same host and port, unlimited by default
+       * @param concurrency
+       *  the maximum number of requests in flight per host
+       * @return
+       *  this builder
+       */
+      public Builder perHostConcurrency(int concurrency) {
+
+         this.perHostConcurrency = requirePositive(concurrency);
+         return this;
+      }
+
+      /**
+       * Sets the ordering of the result items, default is the input order
+       * @param ordering
+       *  the ordering of the items
+       * @return
+       *  this builder
+       */
+      public Builder ordering(Ordering ordering) {
+
+         this.ordering = Objects.requireNonNull(ordering, "ordering must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the executor running the requests. The executor must be able to run as many tasks concurrently as
+       * the concurrency of the batch.
+       * @param executor
+       *  the executor
+       * @return
+       *  this builder
+       */
+      public Builder executor(Executor executor) {
+
+         this.executor = Objects.requireNonNull(executor, "executor must not be null");
+         return this;
+      }
+
+      /**
+       * @return
+       *  the new batch
+       */
+      public Batch build() {
+         return new Batch(this);
+      }
+
+      private static int requirePositive(int concurrency) {
+         if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive");
+         }
+         return concurrency;
+      }
+   }
+
+   /**
+    * A single request of a batch
+    * @param <R>
+    *  the type of the result
+    */
+   public static final class Request<R> {
+
+      private final RequestBuilder request;
+      private final Function<RequestBuilder, R> exchange;
+
+      Request(final RequestBuilder request, final Function<RequestBuilder, R> exchange) {
+         this.request = Objects.requireNonNull(request, "request must not be null");
+         this.exchange = Objects.requireNonNull(exchange, "exchange must not be null");
+      }
+
+      String hostKey() {
+         return Hosts.key(request.getUrl());
+      }
+
+      Item<R> execute(int index) {
+         final long start = System.nanoTime();
+         try {
+            final R result = exchange.apply(request);
+            return new Item<>(index, result, null, System.nanoTime() - start);
+         } catch (RuntimeException e) {
+            return new Item<>(index, null, e, System.nanoTime() - start);
+         }
+      }
+   }
+
+   /**
+    * The outcome of a single request of a batch, either a result or an error
+    * @param <R>
+    *  the type of the result
+    */
+   public static final class Item<R> {
+
+      private final int index;
+      private final R result;
+      private final Throwable error;
+      private final long latencyNanos;
+
+      Item(final int index, final R result, final Throwable error, final long latencyNanos) {
+         this.index = index;
+         this.result = result;
+         this.error = error;
+         this.latencyNanos = latencyNanos;
+      }
+
+      /**
+       * @return
+       *  the position of the request in the input of the batch
+       */
+      public int getIndex() {
+         return index;
+      }
+
+      /**
+       * @return
+       *  true if the request completed without error
+       */
+      public boolean isSuccess() {
+         return error == null;
+      }
+
+      /**
+       * @return
+       *  the result of the request, empty if the request failed or the result was null
+       */
+      public Optional<R> getResult() {
+         return Optional.ofNullable(result);
+      }
+
+      /**
+       * @return
+       *  the error of the request, empty if the request succeeded
+       */
+      public Optional<Throwable> getError() {
+         return Optional.ofNullable(error);
+      }
+
+      /**
+       * @param unit
+       *  the time unit of the latency
+       * @return
+       *  the time between sending the request and receiving its result
+       */
+      public long getLatency(TimeUnit unit) {
+         return unit.convert(latencyNanos, TimeUnit.NANOSECONDS);
+      }
+   }
+
+   /**
+    * The result of a batch with the items of all requests and summary statistics
+    * @param <R>
+    *  the type of the results
+    */
+   public static final class Result<R> {
+
+      private final List<Item<R>> items;
+      private final long durationNanos;
+      private final long[] sortedLatencies;
+
+      Result(final List<Item<R>> items, final long durationNanos) {
+         this.items = Collections.unmodifiableList(items);
+         this.durationNanos = durationNanos;
+         this.sortedLatencies = items.stream().mapToLong(i -> i.latencyNanos).toArray();
+         Arrays.sort(sortedLatencies);
+      }
+
+      /**
+       * @return
+       *  the items of all requests, in the order defined by the {@link Ordering} of the batch
+       */
+      public List<Item<R>> getItems() {
+         return items;
+      }
+
+      /**
+       * @return
+       *  the number of requests of the batch
+       */
+      public int getCount() {
+         return items.size();
+      }
+
+      /**
+       * @return
+       *  the number of requests that failed
+       */
+      public int getFailureCount() {
+         return (int) items.stream().filter(i -> !i.isSuccess()).count();
+      }
+
+      /**
+       * @param unit
+       *  the time unit of the duration
+       * @return
+       *  the time between starting the first and completing the last request
+       */
+      public long getDuration(TimeUnit unit) {
+         return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+      }
+
+      /**
+       * @return
+       *  the number of completed requests per second
+       */
+      public double getThroughput() {
+         return durationNanos == 0 ? 0 : items.size() * 1e9 / durationNanos;
+      }
+
+      /**
+       * Provides a percentile of the request latencies
+       * @param percentile
+       *  the percentile between 0 and 100, i.e. 99 for the 99th percentile
+       * @param unit
+       *  the time unit of the latency
+       * @return
+       *  the latency, 0 for an empty batch
+       */
+      public long getLatencyPercentile(double percentile, TimeUnit unit) {
+         if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+         }
+         if (sortedLatencies.length == 0) {
+            return 0;
+         }
+         final int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+         return unit.convert(sortedLatencies[Math.max(rank - 1, 0)], TimeUnit.NANOSECONDS);
+      }
+
+      /**
+       * @param unit
+       *  the time unit of the latency
+       * @return
+       *  the mean latency of all requests, 0 for an empty batch
+       */
+      public long getMeanLatency(TimeUnit unit) {
+         return unit.convert((long) Arrays.stream(sortedLatencies).average().orElse(0), TimeUnit.NANOSECONDS);
+      }
+
+      @Override
+      public String toString() {
+         return String.format(Locale.ROOT,
+                              "%d requests (%d failed) in %d ms, %.1f req/s, latency mean=%d ms p50=%d ms p99=%d ms max=%d ms",
+                              getCount(),
+                              getFailureCount(),
+                              getDuration(TimeUnit.MILLISECONDS),
+                              getThroughput(),
+                              getMeanLatency(TimeUnit.MILLISECONDS),
+                              getLatencyPercentile(50, TimeUnit.MILLISECONDS),
+                              getLatencyPercentile(99, TimeUnit.MILLISECONDS),
+                              getLatencyPercentile(100, TimeUnit.MILLISECONDS));
+      }
+   }
+}
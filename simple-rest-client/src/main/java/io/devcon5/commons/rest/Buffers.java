@@ -0,0 +1,159 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Scratch buffers reused per thread for copying response bodies, so that copying doesn't allocate a new buffer for each
+ * response.
+ */
+final class Buffers {
+
+   static final int BUFFER_SIZE = 16384;
+
+   /**
+    * the maximum size of an array, some VMs reserve header words in an array
+    */
+   private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+   /**
+    * the maximum size of the array allocated upfront for the expected length, so that a wrong or malicious length doesn't
+    * allocate a large array before any content has been received
+    */
+   private static final int MAX_INITIAL_SIZE = 1024 * 1024;
+
+   private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+   private Buffers() {
+   }
+
+   /**
+    * @return
+    *  the scratch buffer of the current thread. It must not be used beyond the current method call as subsequent calls on the
+    *  same thread receive the same buffer.
+    */
+   static byte[] scratch() {
+      return SCRATCH.get();
+   }
+
+   /**
+    * Copies the input to the output using the scratch buffer of the current thread
+    * @param in
+    *  the stream to read until its end
+    * @param out
+    *  the stream to write to
+    * @return
+    *  the number of bytes copied
+    * @throws IOException
+    *  if reading or writing failed
+    */
+   static long copy(InputStream in, OutputStream out) throws IOException {
+      final byte[] buffer = scratch();
+      long count = 0;
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+         out.write(buffer, 0, read);
+         count += read;
+      }
+      return count;
+   }
+
+   /**
+    * Reads the stream completely into a byte array. If the expected length is known, the array is allocated with that size
+    * upfront, up to 1 MB, so that the content is not copied again. Larger arrays grow towards the expected length while the
+    * content is received.
+    * @param in
+    *  the stream to read until its end
+    * @param expectedLength
+    *  the expected number of bytes, i.e. from the Content-Length header, or -1 if unknown
+    * @return
+    *  the content of the stream
+    * @throws IOException
+    *  if reading failed
+    */
+   static byte[] readFully(InputStream in, long expectedLength) throws IOException {
+      byte[] data = new byte[expectedLength >= 0 ? (int) Math.min(expectedLength, MAX_INITIAL_SIZE) : BUFFER_SIZE];
+      int count = 0;
+      while (true) {
+         if (count == data.length && count < expectedLength && count < MAX_ARRAY_SIZE) {
+            //doubling the array but not beyond the expected length, so that the array has the size of the content at the end
+            data = Arrays.copyOf(data, (int) Math.min(Math.min(expectedLength, MAX_ARRAY_SIZE), (long) count * 2));
+         }
+         if (count == data.length) {
+            //the array is full, either the length was unknown or the stream is longer than expected
+            final int next = in.read();
+            if (next == -1) {
+               return data;
+            }
+            data = grow(data, count + 1);
+            data[count++] = (byte) next;
+         }
+         final int read = in.read(data, count, data.length - count);
+         if (read == -1) {
+            return count == data.length ? data : Arrays.copyOf(data, count);
+         }
+         count += read;
+      }
+   }
+
+   /**
+    * Creates a stream reading the remaining content of the buffer. The position of the buffer is not modified, so the same
+    * buffer may be read by several streams concurrently.
+    * @param buffer
+    *  the buffer to read, may be a direct or memory-mapped buffer
+    * @return
+    *  the stream of the buffer content
+    */
+   static InputStream newInputStream(ByteBuffer buffer) {
+      return new ByteBufferInputStream(buffer.duplicate());
+   }
+
+   private static byte[] grow(byte[] data, int minCapacity) {
+      if (minCapacity > MAX_ARRAY_SIZE) {
+         throw new OutOfMemoryError("Response body exceeds maximum array size");
+      }
+      final int capacity = (int) Math.min(MAX_ARRAY_SIZE, Math.max((long) data.length * 2, Math.max(minCapacity, BUFFER_SIZE)));
+      return Arrays.copyOf(data, capacity);
+   }
+
+   private static final class ByteBufferInputStream extends InputStream {
+
+      private final ByteBuffer buffer;
+
+      ByteBufferInputStream(final ByteBuffer buffer) {
+         this.buffer = buffer;
+      }
+
+      @Override
+      public int read() {
+         return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) {
+         if (len == 0) {
+            return 0;
+         }
+         if (!buffer.hasRemaining()) {
+            return -1;
+         }
+         final int count = Math.min(len, buffer.remaining());
+         buffer.get(b, off, count);
+         return count;
+      }
+
+      @Override
+      public long skip(final long n) {
+         final int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+         buffer.position(buffer.position() + count);
+         return count;
+      }
+
+      @Override
+      public int available() {
+         return buffer.remaining();
+      }
+   }
+}
@@ -0,0 +1,445 @@
+package io.devcon5.commons.rest;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An immutable response stored in a {@link HttpCache}. The body is kept as read-only buffer, either on the heap or mapped
+ * from a file of the disk tier.
+ */
+final class CacheEntry {
+
+   /**
+    * version 2 stores digests of credentials, entries of version 1 are rejected and deleted when they are read
+    */
+   private static final int MAGIC = 0x48434532;
+
+   /**
+    * the stored responses depend on the credentials of the request, even if the server doesn't declare it
+    */
+   private static final String AUTHORIZATION = "authorization";
+
+   /**
+    * the lower-case names of request header fields containing credentials, only their digest is stored
+    */
+   private static final Set<String> CREDENTIALS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(AUTHORIZATION,
+                                                                                                        "proxy-authorization",
+                                                                                                        "cookie")));
+
+   final String key;
+   /**
+    * the values of the request header fields the response varies on, by their lower-case name. Credentials are stored as
+    * digest, so they are neither kept in memory nor written to the disk tier.
+    */
+   private final Map<String, String> vary;
+   private final int status;
+   private final String message;
+   private final Map<String, List<String>> headers;
+   private final long freshUntil;
+   private final ByteBuffer body;
+
+   private CacheEntry(final String key,
+                      final Map<String, String> vary,
+                      final int status,
+                      final String message,
+                      final Map<String, List<String>> headers,
+                      final long freshUntil,
+                      final ByteBuffer body) {
+      this.key = key;
+      this.vary = vary;
+      this.status = status;
+      this.message = message;
+      this.headers = headers;
+      this.freshUntil = freshUntil;
+      this.body = body.asReadOnlyBuffer();
+   }
+
+   /**
+    * Creates an entry for a response received from the server
+    * @param key
+    *  the cache key of the request
+    * @param request
+    *  the request that was sent
+    * @param status
+    *  the status code of the response
+    * @param message
+    *  the status message of the response, may be null
+    * @param headers
+    *  the header fields of the response
+    * @param body
+    *  the body of the response as received, it's not copied
+    * @param now
+    *  the time the response was received in epoch millis
+    * @return
+    *  the new entry
+    */
+   static CacheEntry of(String key,
+                        TransportRequest request,
+                        int status,
+                        String message,
+                        Map<String, List<String>> headers,
+                        ByteBuffer body,
+                        long now) {
+      final Map<String, List<String>> stored = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      headers.forEach((name, values) -> {
+         if (!isHopByHop(name)) {
+            stored.put(name, Collections.unmodifiableList(new ArrayList<>(values)));
+         }
+      });
+      final Map<String, String> vary = new HashMap<>();
+      vary.put(AUTHORIZATION, varyValue(request, AUTHORIZATION));
+      for (String name : varyNames(stored)) {
+         vary.put(name, varyValue(request, name));
+      }
+      return new CacheEntry(key, vary, status, message, stored, freshUntil(stored, now), body);
+   }
+
+   /**
+    * Creates an updated entry after the server confirmed this entry with a 304 Not Modified response
+    * @param updates
+    *  the header fields of the 304 response, replacing the stored fields of the same name
+    * @param now
+    *  the time the 304 response was received in epoch millis
+    * @return
+    *  the updated entry
+    */
+   CacheEntry revalidated(Map<String, List<String>> updates, long now) {
+      final Map<String, List<String>> merged = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      merged.putAll(headers);
+      updates.forEach((name, values) -> {
+         if (!isHopByHop(name) && !"content-length".equalsIgnoreCase(name)) {
+            merged.put(name, Collections.unmodifiableList(new ArrayList<>(values)));
+         }
+      });
+      return new CacheEntry(key, vary, status, message, merged, freshUntil(merged, now), body);
+   }
+
+   /**
+    * @param request
+    *  the request to serve
+    * @return
+    *  true if the request has the same values as the stored request for all header fields the response varies on
+    */
+   boolean matches(TransportRequest request) {
+      for (Map.Entry<String, String> field : vary.entrySet()) {
+         if (!Objects.equals(field.getValue(), varyValue(request, field.getKey()))) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @param now
+    *  the current time in epoch millis
+    * @return
+    *  true if the entry may be served without revalidation
+    */
+   boolean isFresh(long now) {
+      return now < freshUntil;
+   }
+
+   /**
+    * @return
+    *  true if the entry has an ETag or Last-Modified header, so it can be revalidated with a conditional request
+    */
+   boolean hasValidators() {
+      return getHeader("ETag") != null || getHeader("Last-Modified") != null;
+   }
+
+   String getHeader(String name) {
+      final List<String> values = headers.get(name);
+      return values == null || values.isEmpty() ? null : values.get(0);
+   }
+
+   /**
+    * @return
+    *  the size of the body in bytes
+    */
+   int size() {
+      return body.remaining();
+   }
+
+   /**
+    * @return
+    *  a new response handle serving this entry
+    */
+   TransportResponse toResponse() {
+      return new CachedResponse(this);
+   }
+
+   /**
+    * Writes the entry including its body. The body is written last, so that it can be mapped from the end of a file.
+    * @param out
+    *  the stream to write to
+    * @throws IOException
+    *  if writing failed
+    */
+   void writeTo(OutputStream out) throws IOException {
+      final DataOutputStream data = new DataOutputStream(out);
+      data.writeInt(MAGIC);
+      data.writeUTF(key);
+      data.writeInt(status);
+      data.writeBoolean(message != null);
+      data.writeUTF(message == null ? "" : message);
+      data.writeLong(freshUntil);
+      data.writeInt(vary.size());
+      for (Map.Entry<String, String> field : vary.entrySet()) {
+         data.writeUTF(field.getKey());
+         data.writeBoolean(field.getValue() != null);
+         data.writeUTF(field.getValue() == null ? "" : field.getValue());
+      }
+      data.writeInt(headers.size());
+      for (Map.Entry<String, List<String>> field : headers.entrySet()) {
+         data.writeUTF(field.getKey());
+         data.writeInt(field.getValue().size());
+         for (String value : field.getValue()) {
+            data.writeUTF(value);
+         }
+      }
+      data.writeInt(body.remaining());
+      final ByteBuffer content = body.duplicate();
+      final byte[] buffer = Buffers.scratch();
+      while (content.hasRemaining()) {
+         final int count = Math.min(buffer.length, content.remaining());
+         content.get(buffer, 0, count);
+         data.write(buffer, 0, count);
+      }
+      data.flush();
+   }
+
+   /**
+    * Reads the key of an entry without reading the rest of it
+    * @param in
+    *  the stream of the written entry
+    * @return
+    *  the key of the entry
+    * @throws IOException
+    *  if the stream doesn't contain an entry
+    */
+   static String readKey(InputStream in) throws IOException {
+      final DataInputStream data = new DataInputStream(in);
+      if (data.readInt() != MAGIC) {
+         throw new IOException("Not a cache entry");
+      }
+      return data.readUTF();
+   }
+
+   /**
+    * Reads an entry written by {@link #writeTo(OutputStream)}. The body of the entry is a slice of the buffer, so the
+    * buffer is not copied.
+    * @param buffer
+    *  the buffer containing the entry, i.e. a memory-mapped file
+    * @return
+    *  the entry
+    * @throws IOException
+    *  if the buffer doesn't contain a valid entry
+    */
+   static CacheEntry readFrom(ByteBuffer buffer) throws IOException {
+      final DataInputStream data = new DataInputStream(Buffers.newInputStream(buffer));
+      final String key = readKey(data);
+      final int status = data.readInt();
+      final boolean hasMessage = data.readBoolean();
+      final String message = data.readUTF();
+      final long freshUntil = data.readLong();
+      final int varyCount = data.readInt();
+      final Map<String, String> vary = new HashMap<>();
+      for (int i = 0; i < varyCount; i++) {
+         final String name = data.readUTF();
+         final boolean present = data.readBoolean();
+         final String value = data.readUTF();
+         vary.put(name, present ? value : null);
+      }
+      final int headerCount = data.readInt();
+      final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      for (int i = 0; i < headerCount; i++) {
+         final String name = data.readUTF();
+         final int valueCount = data.readInt();
+         final List<String> values = new ArrayList<>(valueCount);
+         for (int j = 0; j < valueCount; j++) {
+            values.add(data.readUTF());
+         }
+         headers.put(name, Collections.unmodifiableList(values));
+      }
+      final int bodyLength = data.readInt();
+      if (bodyLength < 0 || bodyLength > buffer.remaining()) {
+         throw new IOException("Corrupt cache entry " + key);
+      }
+      final ByteBuffer body = buffer.duplicate();
+      body.position(body.limit() - bodyLength);
+      return new CacheEntry(key, vary, status, hasMessage ? message : null, headers, freshUntil, body.slice());
+   }
+
+   /**
+    * Parses the directives of a Cache-Control header
+    * @param cacheControl
+    *  the value of the header, may be null
+    * @return
+    *  the directives by their lower-case name, directives without argument are mapped to an empty string
+    */
+   static Map<String, String> directives(String cacheControl) {
+      if (cacheControl == null) {
+         return Collections.emptyMap();
+      }
+      final Map<String, String> directives = new HashMap<>();
+      for (String directive : cacheControl.split(",")) {
+         final int eq = directive.indexOf('=');
+         final String name = (eq == -1 ? directive : directive.substring(0, eq)).trim().toLowerCase(Locale.ROOT);
+         final String value = eq == -1 ? "" : directive.substring(eq + 1).trim().replace("\"", "");
+         if (!name.isEmpty()) {
+            directives.put(name, value);
+         }
+      }
+      return directives;
+   }
+
+   /**
+    * @param headers
+    *  the header fields of a response
+    * @return
+    *  the lower-case names of the request header fields the response varies on
+    */
+   static List<String> varyNames(Map<String, List<String>> headers) {
+      final List<String> names = new ArrayList<>();
+      for (String value : headers.getOrDefault("Vary", Collections.emptyList())) {
+         for (String name : value.split(",")) {
+            if (!name.trim().isEmpty()) {
+               names.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+         }
+      }
+      return names;
+   }
+
+   /**
+    * Determines until when a response is fresh based on its max-age directive or its Expires header. Responses without
+    * explicit expiration are stale immediately and have to be revalidated.
+    */
+   private static long freshUntil(Map<String, List<String>> headers, long now) {
+      final Map<String, String> cacheControl = directives(joined(headers, "Cache-Control"));
+      if (cacheControl.containsKey("no-cache")) {
+         return now;
+      }
+      final long maxAge = seconds(cacheControl.get("max-age"));
+      if (maxAge >= 0) {
+         final long age = Math.max(0, seconds(joined(headers, "Age")));
+         return now + (maxAge - age) * 1000;
+      }
+      final String expires = joined(headers, "Expires");
+      if (expires != null) {
+         final long expiresAt = HttpDates.parse(expires);
+         final long date = HttpDates.parse(joined(headers, "Date"));
+         //an invalid date, i.e. "0", means already expired
+         return expiresAt < 0 ? now : now + expiresAt - (date < 0 ? now : date);
+      }
+      return now;
+   }
+
+   private static String joined(Map<String, List<String>> headers, String name) {
+      final List<String> values = headers.get(name);
+      return values == null || values.isEmpty() ? null : String.join(",", values);
+   }
+
+   private static long seconds(String value) {
+      if (value == null) {
+         return -1;
+      }
+      try {
+         return Long.parseLong(value.trim());
+      } catch (NumberFormatException e) {
+         return -1;
+      }
+   }
+
+   /**
+    * @return
+    *  the value of the request header field as stored in the vary map, the SHA-256 digest of credentials
+    */
+   private static String varyValue(TransportRequest request, String name) {
+      final String value = headerValue(request, name);
+      if (value == null || !CREDENTIALS.contains(name)) {
+         return value;
+      }
+      try {
+         final byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+         return Base64.getEncoder().encodeToString(digest);
+      } catch (NoSuchAlgorithmException e) {
+         //every Java platform supports SHA-256
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private static String headerValue(TransportRequest request, String name) {
+      for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+         if (header.getKey().equalsIgnoreCase(name)) {
+            return header.getValue();
+         }
+      }
+      return null;
+   }
+
+   private static boolean isHopByHop(String name) {
+      return "connection".equalsIgnoreCase(name) || "keep-alive".equalsIgnoreCase(name) || "transfer-encoding".equalsIgnoreCase(name);
+   }
+
+   /**
+    * Response handle serving a cache entry, it doesn't hold any resources
+    */
+   private static final class CachedResponse implements TransportResponse {
+
+      private final CacheEntry entry;
+
+      CachedResponse(final CacheEntry entry) {
+         this.entry = entry;
+      }
+
+      @Override
+      public int getStatusCode() {
+         return entry.status;
+      }
+
+      @Override
+      public String getMessage() {
+         return entry.message;
+      }
+
+      @Override
+      public String getHeader(final String name) {
+         return entry.getHeader(name);
+      }
+
+      @Override
+      public Map<String, List<String>> getHeaders() {
+         return Collections.unmodifiableMap(entry.headers);
+      }
+
+      @Override
+      public InputStream getBody() {
+         return Buffers.newInputStream(entry.body);
+      }
+
+      @Override
+      public void close() {
+         //nothing to release
+      }
+   }
+}
@@ -0,0 +1,68 @@
+package io.devcon5.commons.rest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a {@link HttpCache} about how cacheable requests have been served.
+ */
+public final class CacheStats {
+
+   private final LongAdder hits = new LongAdder();
+   private final LongAdder misses = new LongAdder();
+   private final LongAdder revalidations = new LongAdder();
+   private final LongAdder evictions = new LongAdder();
+
+   void hit() {
+      hits.increment();
+   }
+
+   void miss() {
+      misses.increment();
+   }
+
+   void revalidated() {
+      revalidations.increment();
+   }
+
+   void evicted() {
+      evictions.increment();
+   }
+
+   /**
+    * @return
+    *  the number of requests served from the cache without contacting the server
+    */
+   public long getHits() {
+      return hits.sum();
+   }
+
+   /**
+    * @return
+    *  the number of requests for which the server sent a full response
+    */
+   public long getMisses() {
+      return misses.sum();
+   }
+
+   /**
+    * @return
+    *  the number of requests served from the cache after the server confirmed the cached response with a 304 Not Modified
+    */
+   public long getRevalidations() {
+      return revalidations.sum();
+   }
+
+   /**
+    * @return
+    *  the number of responses removed from the cache because its size limit was exceeded
+    */
+   public long getEvictions() {
+      return evictions.sum();
+   }
+
+   @Override
+   public String toString() {
+      return "CacheStats{hits=" + getHits() + ", misses=" + getMisses() + ", revalidations=" + getRevalidations()
+            + ", evictions=" + getEvictions() + '}';
+   }
+}
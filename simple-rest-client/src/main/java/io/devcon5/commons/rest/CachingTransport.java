@@ -0,0 +1,355 @@
+package io.devcon5.commons.rest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Transport} that serves GET requests from a {@link HttpCache} and stores cacheable responses of the underlying
+ * transport while their body is read. A response is only stored once its body has been read completely, that is
+ * once the announced Content-Length has been read or the end of the body is reached, before or when it's closed.
+ * Requests with unsafe methods invalidate the cached response of their URL.
+ */
+class CachingTransport implements Transport {
+
+   /**
+    * requests with conditions of the caller are passed through, as their response is not the complete resource
+    */
+   private static final Set<String> CONDITIONAL_HEADERS = new HashSet<>(Arrays.asList("if-none-match",
+                                                                                       "if-modified-since",
+                                                                                       "if-range",
+                                                                                       "range"));
+
+   private final Transport transport;
+   private final HttpCache cache;
+
+   CachingTransport(final Transport transport, final HttpCache cache) {
+      this.transport = transport;
+      this.cache = cache;
+   }
+
+   @Override
+   public TransportResponse send(final TransportRequest request) throws IOException {
+
+      if (!isCacheable(request)) {
+         invalidate(request);
+         return transport.send(request);
+      }
+      final CacheEntry entry = lookup(request);
+      if (entry != null && entry.isFresh(System.currentTimeMillis()) && !requiresRevalidation(request)) {
+         cache.getStats().hit();
+         return entry.toResponse();
+      }
+      final CacheEntry validated = entry != null && entry.hasValidators() ? entry : null;
+      return complete(request, validated, transport.send(conditional(request, validated)));
+   }
+
+   @Override
+   public CompletableFuture<TransportResponse> sendAsync(final TransportRequest request, final Executor executor) {
+
+      if (!isCacheable(request)) {
+         invalidate(request);
+         return transport.sendAsync(request, executor);
+      }
+      final CacheEntry entry = lookup(request);
+      if (entry != null && entry.isFresh(System.currentTimeMillis()) && !requiresRevalidation(request)) {
+         cache.getStats().hit();
+         return CompletableFuture.completedFuture(entry.toResponse());
+      }
+      final CacheEntry validated = entry != null && entry.hasValidators() ? entry : null;
+      return transport.sendAsync(conditional(request, validated), executor).thenApply(response -> {
+         try {
+            return complete(request, validated, response);
+         } catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      });
+   }
+
+   private CacheEntry lookup(TransportRequest request) {
+      final CacheEntry entry = cache.get(key(request));
+      return entry != null && entry.matches(request) ? entry : null;
+   }
+
+   private void invalidate(TransportRequest request) {
+      switch (request.getMethod()) {
+         case "POST":
+         case "PUT":
+         case "PATCH":
+         case "DELETE":
+            cache.remove(key(request));
+            break;
+         default:
+            break;
+      }
+   }
+
+   private static TransportRequest conditional(TransportRequest request, CacheEntry entry) {
+      if (entry == null) {
+         return request;
+      }
+      TransportRequest conditional = request;
+      final String etag = entry.getHeader("ETag");
+      if (etag != null) {
+         conditional = conditional.withHeader("If-None-Match", etag);
+      }
+      final String lastModified = entry.getHeader("Last-Modified");
+      if (lastModified != null) {
+         conditional = conditional.withHeader("If-Modified-Since", lastModified);
+      }
+      return conditional;
+   }
+
+   private TransportResponse complete(TransportRequest request, CacheEntry entry, TransportResponse response) throws IOException {
+      final int status = response.getStatusCode();
+      if (entry != null && status == 304) {
+         final Map<String, List<String>> headers = response.getHeaders();
+         response.close();
+         final CacheEntry revalidated = entry.revalidated(headers, System.currentTimeMillis());
+         cache.put(revalidated);
+         cache.getStats().revalidated();
+         return revalidated.toResponse();
+      }
+      cache.getStats().miss();
+      if (isStorable(response)) {
+         return new StoringResponse(response, request);
+      }
+      if (status == 200) {
+         //the current response replaces the cached one, even if it may not be cached itself
+         cache.remove(key(request));
+      }
+      return response;
+   }
+
+   /**
+    * Requests are served from the cache if they are GET requests without a body, that don't opt out of caching and don't
+    * contain conditions of the caller.
+    */
+   private static boolean isCacheable(TransportRequest request) {
+      if (!"GET".equals(request.getMethod()) || request.getBody().isPresent()) {
+         return false;
+      }
+      for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+         final String name = header.getKey();
+         if ("Cache-Control".equalsIgnoreCase(name) && CacheEntry.directives(header.getValue()).containsKey("no-store")) {
+            return false;
+         }
+         if (CONDITIONAL_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static boolean requiresRevalidation(TransportRequest request) {
+      for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+         if ("Cache-Control".equalsIgnoreCase(header.getKey())) {
+            final Map<String, String> directives = CacheEntry.directives(header.getValue());
+            return directives.containsKey("no-cache") || "0".equals(directives.get("max-age"));
+         }
+         if ("Pragma".equalsIgnoreCase(header.getKey()) && header.getValue().contains("no-cache")) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private boolean isStorable(TransportResponse response) throws IOException {
+      if (response.getStatusCode() != 200) {
+         return false;
+      }
+      final Map<String, List<String>> headers = response.getHeaders();
+      if (headers.isEmpty() || CacheEntry.varyNames(headers).contains("*")) {
+         return false;
+      }
+      final Map<String, String> cacheControl = CacheEntry.directives(response.getHeader("Cache-Control"));
+      if (cacheControl.containsKey("no-store")) {
+         return false;
+      }
+      final String contentLength = response.getHeader("Content-Length");
+      if (contentLength != null && parseLength(contentLength) > cache.getMaxEntryBytes()) {
+         return false;
+      }
+      return cacheControl.containsKey("max-age")
+            || response.getHeader("Expires") != null
+            || response.getHeader("ETag") != null
+            || response.getHeader("Last-Modified") != null;
+   }
+
+   private static long parseLength(String contentLength) {
+      try {
+         return Long.parseLong(contentLength.trim());
+      } catch (NumberFormatException e) {
+         return -1;
+      }
+   }
+
+   private static String key(TransportRequest request) {
+      return request.getUrl().toString();
+   }
+
+   /**
+    * Response handle that stores the response in the cache once its body has been read completely
+    */
+   private final class StoringResponse implements TransportResponse {
+
+      private final TransportResponse response;
+      private final TransportRequest request;
+      private InputStream body;
+
+      StoringResponse(final TransportResponse response, final TransportRequest request) {
+         this.response = response;
+         this.request = request;
+      }
+
+      @Override
+      public int getStatusCode() throws IOException {
+         return response.getStatusCode();
+      }
+
+      @Override
+      public String getMessage() throws IOException {
+         return response.getMessage();
+      }
+
+      @Override
+      public String getHeader(final String name) {
+         return response.getHeader(name);
+      }
+
+      @Override
+      public Map<String, List<String>> getHeaders() {
+         return response.getHeaders();
+      }
+
+      @Override
+      public synchronized InputStream getBody() throws IOException {
+         if (body == null) {
+            final long length = parseLength(String.valueOf(response.getHeader("Content-Length")));
+            body = new StoringInputStream(response.getBody(), length, this);
+         }
+         return body;
+      }
+
+      @Override
+      public void close() throws IOException {
+         response.close();
+      }
+
+      void store(byte[] data, int length) throws IOException {
+         cache.put(CacheEntry.of(key(request),
+                                 request,
+                                 response.getStatusCode(),
+                                 response.getMessage(),
+                                 response.getHeaders(),
+                                 ByteBuffer.wrap(data, 0, length),
+                                 System.currentTimeMillis()));
+      }
+   }
+
+   /**
+    * Stream that copies the body while it's read, up to the maximum entry size of the cache. Decoding streams such as
+    * {@link java.util.zip.GZIPInputStream} stop reading at the end of their content and never see the end of the
+    * body, so the copy is stored as soon as the Content-Length is reached or when the stream is closed after the
+    * complete body has been read.
+    */
+   private final class StoringInputStream extends FilterInputStream {
+
+      private final StoringResponse response;
+      private final long expectedLength;
+      private byte[] data;
+      private int count;
+
+      StoringInputStream(final InputStream in, final long expectedLength, final StoringResponse response) {
+         super(in);
+         this.expectedLength = expectedLength;
+         this.data = new byte[(int) Math.min(expectedLength > 0 ? expectedLength : 4096, cache.getMaxEntryBytes())];
+         this.response = response;
+      }
+
+      @Override
+      public int read() throws IOException {
+         final int b = super.read();
+         if (b == -1) {
+            complete();
+         } else if (ensureCapacity(1)) {
+            data[count++] = (byte) b;
+            completeIfExpectedLength();
+         }
+         return b;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+         final int read = super.read(b, off, len);
+         if (read == -1) {
+            complete();
+         } else if (ensureCapacity(read)) {
+            System.arraycopy(b, off, data, count, read);
+            count += read;
+            completeIfExpectedLength();
+         }
+         return read;
+      }
+
+      @Override
+      public long skip(final long n) throws IOException {
+         //skipped content can't be stored
+         data = null;
+         return super.skip(n);
+      }
+
+      @Override
+      public void close() throws IOException {
+         try {
+            //without a Content-Length only the end of the body tells whether it has been read completely
+            if (data != null && super.read() == -1) {
+               complete();
+            }
+         } catch (IOException e) {
+            //the body is incomplete and not stored
+         } finally {
+            data = null;
+            super.close();
+         }
+      }
+
+      private boolean ensureCapacity(int additional) {
+         if (data == null) {
+            return false;
+         }
+         final long required = (long) count + additional;
+         if (required > cache.getMaxEntryBytes() || expectedLength >= 0 && required > expectedLength) {
+            data = null;
+            return false;
+         }
+         if (required > data.length) {
+            data = Arrays.copyOf(data, (int) Math.min(cache.getMaxEntryBytes(), Math.max(required, (long) data.length * 2)));
+         }
+         return true;
+      }
+
+      private void completeIfExpectedLength() throws IOException {
+         if (count == expectedLength) {
+            complete();
+         }
+      }
+
+      private void complete() throws IOException {
+         if (data != null) {
+            final byte[] content = data;
+            data = null;
+            response.store(content, count);
+         }
+      }
+   }
+}
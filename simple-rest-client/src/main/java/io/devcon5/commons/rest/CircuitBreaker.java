@@ -0,0 +1,419 @@
+package io.devcon5.commons.rest;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Keeps a circuit per host and port that stops sending requests to a host that is failing, set on a client using
+ * {@link SimpleRestClient.ClientBuilder#circuitBreaker(CircuitBreaker)}.
+ * <br>
+ * A circuit is {@link State#CLOSED} as long as the rate of failed calls and the rate of slow calls within a sliding
+ * window of the most recent calls stay below their thresholds. Once one of the thresholds is reached, the circuit opens
+ * and all requests to the host fail immediately with a {@link CircuitBreakerOpenException} without opening a connection.
+ * After a wait duration, the circuit is {@link State#HALF_OPEN} and permits a limited number of trial calls. Depending on
+ * the outcome of the trial calls, the circuit either closes or opens again.
+ * <br>
+ * A call fails if sending the request fails or the server responds with a status code recorded as failure, by default
+ * any 5xx status. A call is slow if receiving the status of the response takes longer than the slow call duration.
+ * <br>
+ * A circuit breaker may be shared by several clients. Instances are thread-safe.
+ */
+public final class CircuitBreaker {
+
+   private final int failureRateThreshold;
+   private final int slowCallRateThreshold;
+   private final long slowCallDurationNanos;
+   private final int slidingWindowSize;
+   private final int minimumCalls;
+   private final long waitDurationNanos;
+   private final int permittedCallsInHalfOpen;
+   private final IntPredicate failureStatus;
+   private final Listener listener;
+   private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+   CircuitBreaker(Builder builder) {
+      this.failureRateThreshold = builder.failureRateThreshold;
+      this.slowCallRateThreshold = builder.slowCallRateThreshold;
+      this.slowCallDurationNanos = builder.slowCallDurationNanos;
+      this.slidingWindowSize = builder.slidingWindowSize;
+      this.minimumCalls = Math.min(builder.minimumCalls, builder.slidingWindowSize);
+      this.waitDurationNanos = builder.waitDurationNanos;
+      this.permittedCallsInHalfOpen = builder.permittedCallsInHalfOpen;
+      this.failureStatus = builder.failureStatus;
+      this.listener = builder.listener;
+   }
+
+   /**
+    * Creates a builder for a circuit breaker that opens if at least 50% of the last 100 calls failed, with a minimum of
+    * 20 calls, stays open for 30 seconds and permits 5 trial calls when half-open. Slow calls don't open the circuit by
+    * default.
+    * @return
+    *  a new builder
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   /**
+    * @param url
+    *  a URL of the host
+    * @return
+    *  the state of the circuit of the host and port of the URL
+    */
+   public State getState(URL url) {
+      final Circuit circuit = circuits.get(Hosts.key(url));
+      return circuit == null ? State.CLOSED : circuit.getState();
+   }
+
+   /**
+    * @return
+    *  the states of all circuits by host and port, i.e. <code>localhost:8080</code>
+    */
+   public Map<String, State> getStates() {
+      final Map<String, State> states = new TreeMap<>();
+      circuits.forEach((host, circuit) -> states.put(host, circuit.getState()));
+      return Collections.unmodifiableMap(states);
+   }
+
+   /**
+    * Acquires the permission to send a request to the host
+    * @param url
+    *  the URL of the request
+    * @return
+    *  the permission, which has to be completed with the outcome of the call
+    * @throws CircuitBreakerOpenException
+    *  if the circuit of the host doesn't permit the call
+    */
+   Permission acquire(URL url) throws CircuitBreakerOpenException {
+      final String host = Hosts.key(url);
+      final Circuit circuit = circuits.computeIfAbsent(host, Circuit::new);
+      final long generation = circuit.tryAcquire(System.nanoTime());
+      if (generation < 0) {
+         throw new CircuitBreakerOpenException(host);
+      }
+      return new Permission(circuit, generation, System.nanoTime());
+   }
+
+   /**
+    * The state of a circuit
+    */
+   public enum State {
+      /**
+       * requests are sent and their outcome is recorded
+       */
+      CLOSED,
+      /**
+       * requests fail immediately
+       */
+      OPEN,
+      /**
+       * a limited number of trial requests are sent to decide whether to close or open the circuit
+       */
+      HALF_OPEN
+   }
+
+   /**
+    * Listener for the state transitions of the circuits. It's invoked by the thread whose call caused the transition and
+    * should not block.
+    */
+   @FunctionalInterface
+   public interface Listener {
+
+      /**
+       * @param host
+       *  the host and port of the circuit, i.e. <code>localhost:8080</code>
+       * @param from
+       *  the previous state
+       * @param to
+       *  the new state
+       */
+      void onTransition(String host, State from, State to);
+   }
+
+   /**
+    * The permission for a single call, completed with the outcome of the call
+    */
+   final class Permission {
+
+      private final Circuit circuit;
+      private final long generation;
+      private final long start;
+
+      Permission(final Circuit circuit, final long generation, final long start) {
+         this.circuit = circuit;
+         this.generation = generation;
+         this.start = start;
+      }
+
+      /**
+       * Records a call that received a response
+       * @param statusCode
+       *  the status code of the response
+       */
+      void onResponse(int statusCode) {
+         circuit.record(generation, failureStatus.test(statusCode), System.nanoTime() - start > slowCallDurationNanos);
+      }
+
+      /**
+       * Records a call that failed without response
+       */
+      void onError() {
+         circuit.record(generation, true, System.nanoTime() - start > slowCallDurationNanos);
+      }
+   }
+
+   /**
+    * The circuit of a single host. The outcomes of the calls are kept in a ring buffer of the size of the sliding window.
+    * Each transition starts a new generation, outcomes of calls permitted in a previous generation are ignored.
+    */
+   private final class Circuit {
+
+      private static final byte FAILURE = 1;
+      private static final byte SLOW = 2;
+
+      private final String host;
+      private final byte[] outcomes = new byte[slidingWindowSize];
+      private State state = State.CLOSED;
+      private long generation;
+      private int next;
+      private int calls;
+      private int failures;
+      private int slowCalls;
+      private long openedAt;
+      private int trialPermits;
+
+      Circuit(final String host) {
+         this.host = host;
+      }
+
+      synchronized State getState() {
+         return state;
+      }
+
+      /**
+       * @return
+       *  the generation of the permitted call or -1 if the call is not permitted
+       */
+      long tryAcquire(long now) {
+         State from = null;
+         final long permitted;
+         synchronized (this) {
+            if (state == State.OPEN && now - openedAt >= waitDurationNanos) {
+               from = transitionTo(State.HALF_OPEN, now);
+            }
+            if (state == State.CLOSED) {
+               permitted = generation;
+            } else if (state == State.HALF_OPEN && trialPermits < permittedCallsInHalfOpen) {
+               trialPermits++;
+               permitted = generation;
+            } else {
+               permitted = -1;
+            }
+         }
+         notifyTransition(from, State.HALF_OPEN);
+         return permitted;
+      }
+
+      void record(long callGeneration, boolean failure, boolean slow) {
+         State from = null;
+         final State to;
+         synchronized (this) {
+            if (callGeneration != generation || state == State.OPEN) {
+               return;
+            }
+            add((byte) ((failure ? FAILURE : 0) | (slow ? SLOW : 0)));
+            final int required = Math.min(state == State.HALF_OPEN ? permittedCallsInHalfOpen : minimumCalls, outcomes.length);
+            if (calls >= required) {
+               if (failures * 100 >= failureRateThreshold * calls || slowCalls * 100 >= slowCallRateThreshold * calls) {
+                  from = transitionTo(State.OPEN, System.nanoTime());
+               } else if (state == State.HALF_OPEN) {
+                  from = transitionTo(State.CLOSED, System.nanoTime());
+               }
+            }
+            to = state;
+         }
+         notifyTransition(from, to);
+      }
+
+      private void add(byte outcome) {
+         if (calls == outcomes.length) {
+            //the oldest outcome drops out of the window
+            final byte oldest = outcomes[next];
+            failures -= oldest & FAILURE;
+            slowCalls -= (oldest & SLOW) >> 1;
+         } else {
+            calls++;
+         }
+         outcomes[next] = outcome;
+         failures += outcome & FAILURE;
+         slowCalls += (outcome & SLOW) >> 1;
+         next = (next + 1) % outcomes.length;
+      }
+
+      private State transitionTo(State target, long now) {
+         final State from = state;
+         state = target;
+         generation++;
+         next = 0;
+         calls = 0;
+         failures = 0;
+         slowCalls = 0;
+         trialPermits = 0;
+         openedAt = now;
+         return from;
+      }
+
+      private void notifyTransition(State from, State to) {
+         if (from != null && listener != null) {
+            listener.onTransition(host, from, to);
+         }
+      }
+   }
+
+   /**
+    * Builder for a circuit breaker
+    */
+   public static class Builder {
+
+      private int failureRateThreshold = 50;
+      private int slowCallRateThreshold = 100;
+      private long slowCallDurationNanos = Long.MAX_VALUE;
+      private int slidingWindowSize = 100;
+      private int minimumCalls = 20;
+      private long waitDurationNanos = TimeUnit.SECONDS.toNanos(30);
+      private int permittedCallsInHalfOpen = 5;
+      private IntPredicate failureStatus = status -> status >= 500;
+      private Listener listener;
+
+      Builder() {
+      }
+
+      /**
+       * Sets the rate of failed calls at which the circuit opens, default is 50%
+       * @param percent
+       *  the failure rate in percent between 1 and 100
+       * @return
+       *  this builder
+       */
+      public Builder failureRateThreshold(int percent) {
+
+         this.failureRateThreshold = requirePercent(percent);
+         return this;
+      }
+
+      /**
+       * Sets the rate of slow calls at which the circuit opens
+       * @param percent
+       *  the slow call rate in percent between 1 and 100
+       * @param slowCallDuration
+       *  the duration after which a call is considered slow
+       * @param unit
+       *  the time unit of the duration
+       * @return
+       *  this builder
+       */
+      public Builder slowCallRateThreshold(int percent, long slowCallDuration, TimeUnit unit) {
+
+         this.slowCallRateThreshold = requirePercent(percent);
+         this.slowCallDurationNanos = unit.toNanos(slowCallDuration);
+         return this;
+      }
+
+      /**
+       * Sets the size of the sliding window of recent calls per host and the minimum number of calls in the window before
+       * the rates are evaluated
+       * @param size
+       *  the number of calls in the window, default is 100
+       * @param minimumCalls
+       *  the minimum number of calls, default is 20
+       * @return
+       *  this builder
+       */
+      public Builder slidingWindow(int size, int minimumCalls) {
+         if (size < 1 || minimumCalls < 1) {
+            throw new IllegalArgumentException("size and minimumCalls must be positive");
+         }
+         this.slidingWindowSize = size;
+         this.minimumCalls = minimumCalls;
+         return this;
+      }
+
+      /**
+       * Sets the duration a circuit stays open before permitting trial calls, default is 30 seconds
+       * @param waitDuration
+       *  the duration
+       * @param unit
+       *  the time unit of the duration
+       * @return
+       *  this builder
+       */
+      public Builder waitDurationInOpenState(long waitDuration, TimeUnit unit) {
+
+         this.waitDurationNanos = unit.toNanos(waitDuration);
+         return this;
+      }
+
+      /**
+       * Sets the number of trial calls permitted by a half-open circuit, default is 5
+       * @param calls
+       *  the number of calls
+       * @return
+       *  this builder
+       */
+      public Builder permittedCallsInHalfOpenState(int calls) {
+         if (calls < 1) {
+            throw new IllegalArgumentException("calls must be positive");
+         }
+         this.permittedCallsInHalfOpen = calls;
+         return this;
+      }
+
+      /**
+       * Sets the status codes of responses that are recorded as failed calls, by default all 5xx status codes
+       * @param failureStatus
+       *  the predicate returning true for failure status codes
+       * @return
+       *  this builder
+       */
+      public Builder recordFailureStatus(IntPredicate failureStatus) {
+
+         this.failureStatus = Objects.requireNonNull(failureStatus, "failureStatus must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the listener for state transitions of the circuits
+       * @param listener
+       *  the listener
+       * @return
+       *  this builder
+       */
+      public Builder listener(Listener listener) {
+
+         this.listener = Objects.requireNonNull(listener, "listener must not be null");
+         return this;
+      }
+
+      /**
+       * @return
+       *  the new circuit breaker
+       */
+      public CircuitBreaker build() {
+         return new CircuitBreaker(this);
+      }
+
+      private static int requirePercent(int percent) {
+         if (percent < 1 || percent > 100) {
+            throw new IllegalArgumentException("percent must be between 1 and 100");
+         }
+         return percent;
+      }
+   }
+}
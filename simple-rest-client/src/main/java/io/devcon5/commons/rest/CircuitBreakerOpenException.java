@@ -0,0 +1,30 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+
+/**
+ * Signals that a request was not sent because the {@link CircuitBreaker} of its host is open.
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+   private static final long serialVersionUID = 1L;
+
+   private final String host;
+
+   /**
+    * @param host
+    *  the host and port of the rejected request
+    */
+   public CircuitBreakerOpenException(final String host) {
+      super("Circuit breaker for " + host + " is open");
+      this.host = host;
+   }
+
+   /**
+    * @return
+    *  the host and port of the rejected request, i.e. <code>localhost:8080</code>
+    */
+   public String getHost() {
+      return host;
+   }
+}
@@ -0,0 +1,59 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Transport} that sends requests only if the {@link CircuitBreaker} of their host permits it and records the
+ * outcome of each call. The outcome is known once the status of the response has been received, so the status is
+ * received eagerly.
+ */
+class CircuitBreakingTransport implements Transport {
+
+   private final Transport transport;
+   private final CircuitBreaker circuitBreaker;
+
+   CircuitBreakingTransport(final Transport transport, final CircuitBreaker circuitBreaker) {
+      this.transport = transport;
+      this.circuitBreaker = circuitBreaker;
+   }
+
+   @Override
+   public TransportResponse send(final TransportRequest request) throws IOException {
+
+      final CircuitBreaker.Permission permission = circuitBreaker.acquire(request.getUrl());
+      try {
+         final TransportResponse response = transport.send(request);
+         permission.onResponse(response.getStatusCode());
+         return response;
+      } catch (IOException | RuntimeException e) {
+         permission.onError();
+         throw e;
+      }
+   }
+
+   @Override
+   public CompletableFuture<TransportResponse> sendAsync(final TransportRequest request, final Executor executor) {
+
+      final CircuitBreaker.Permission permission;
+      try {
+         permission = circuitBreaker.acquire(request.getUrl());
+      } catch (CircuitBreakerOpenException e) {
+         final CompletableFuture<TransportResponse> rejected = new CompletableFuture<>();
+         rejected.completeExceptionally(new RuntimeException(e));
+         return rejected;
+      }
+      return transport.sendAsync(request, executor).whenComplete((response, error) -> {
+         if (error != null) {
+            permission.onError();
+            return;
+         }
+         try {
+            permission.onResponse(response.getStatusCode());
+         } catch (IOException e) {
+            permission.onError();
+         }
+      });
+   }
+}
@@ -0,0 +1,366 @@
+package io.devcon5.commons.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Transport} that sends only one of several concurrent identical requests as defined by a
+ * {@link RequestCoalescer}. The first request is sent, the other requests wait for its response. If requests are waiting
+ * when the response is received, it's buffered completely and each request receives its own copy of it, otherwise the
+ * first request receives the response as it is, without buffering it. If the first request fails, the waiting requests
+ * fail with the same error. If the response can't be shared, the waiting requests are sent on their own.
+ * <br>
+ * A request is in flight until its response has been received, later requests start a new call.
+ */
+class CoalescingTransport implements Transport {
+
+   private final Transport transport;
+   private final RequestCoalescer coalescer;
+   private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+   CoalescingTransport(final Transport transport, final RequestCoalescer coalescer) {
+      this.transport = transport;
+      this.coalescer = coalescer;
+   }
+
+   @Override
+   public TransportResponse send(final TransportRequest request) throws IOException {
+
+      if (!coalescer.isCoalescable(request)) {
+         return transport.send(request);
+      }
+      final String key = coalescer.key(request);
+      final Flight flight = new Flight();
+      final Flight current = flights.putIfAbsent(key, flight);
+      if (current == null) {
+         coalescer.onSent();
+         final TransportResponse response;
+         try {
+            response = transport.send(request);
+         } catch (Throwable e) {
+            land(key, flight, null, e);
+            throw e;
+         }
+         return share(key, flight, request, response);
+      }
+      if (!current.join(coalescer.getMaxWaiters())) {
+         if (current.isDeparted()) {
+            //the response has been received just now, the request starts a new flight
+            flights.remove(key, current);
+            return send(request);
+         }
+         coalescer.onOverflow();
+         return transport.send(request);
+      }
+      final CacheEntry shared = await(current, request);
+      if (shared == null) {
+         coalescer.onFallback();
+         return transport.send(request);
+      }
+      coalescer.onCollapsed();
+      return shared.toResponse();
+   }
+
+   /**
+    * The response of the first request is buffered on the thread completing its future, which is a thread of the
+    * executor for transports that send requests on the executor.
+    */
+   @Override
+   public CompletableFuture<TransportResponse> sendAsync(final TransportRequest request, final Executor executor) {
+
+      if (!coalescer.isCoalescable(request)) {
+         return transport.sendAsync(request, executor);
+      }
+      final String key = coalescer.key(request);
+      final Flight flight = new Flight();
+      final Flight current = flights.putIfAbsent(key, flight);
+      if (current == null) {
+         coalescer.onSent();
+         return transport.sendAsync(request, executor).handle((response, error) -> {
+            if (error != null) {
+               land(key, flight, null, unwrap(error));
+               throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            try {
+               return share(key, flight, request, response);
+            } catch (IOException e) {
+               throw new CompletionException(e);
+            }
+         });
+      }
+      if (!current.join(coalescer.getMaxWaiters())) {
+         if (current.isDeparted()) {
+            //the response has been received just now, the request starts a new flight
+            flights.remove(key, current);
+            return sendAsync(request, executor);
+         }
+         coalescer.onOverflow();
+         return transport.sendAsync(request, executor);
+      }
+      final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+      current.result.thenCompose(shared -> {
+         if (shared == null) {
+            coalescer.onFallback();
+            return transport.sendAsync(request, executor);
+         }
+         coalescer.onCollapsed();
+         return CompletableFuture.completedFuture(shared.toResponse());
+      }).whenComplete((response, error) -> {
+         if (error != null) {
+            result.completeExceptionally(error);
+         } else if (!result.complete(response)) {
+            //the deadline has passed before the response was received, nobody else can close it
+            closeQuietly(response);
+         }
+      });
+      final OptionalLong deadline = request.getDeadline();
+      if (deadline.isPresent() && !result.isDone()) {
+         final ScheduledFuture<?> timer = AsyncExecutors.scheduler().schedule(() -> result.completeExceptionally(expired(request)),
+                                                                              deadline.getAsLong() - System.nanoTime(),
+                                                                              TimeUnit.NANOSECONDS);
+         result.whenComplete((response, error) -> timer.cancel(false));
+      }
+      return result;
+   }
+
+   /**
+    * Buffers the response of the first request and hands it over to the waiting requests. If no request is waiting, the
+    * first request receives the response as it is, so that its body is streamed. If the response has no header fields or
+    * its body is too large, the waiting requests are sent on their own and the first request receives the response as it
+    * is.
+    */
+   private TransportResponse share(String key, Flight flight, TransportRequest request, TransportResponse response) throws IOException {
+      if (flight.depart()) {
+         land(key, flight, null, null);
+         return response;
+      }
+      try {
+         final Map<String, List<String>> headers = response.getHeaders();
+         final long contentLength = contentLength(response);
+         final int maxBodyBytes = coalescer.getMaxBodyBytes();
+         if (headers.isEmpty() || contentLength > maxBodyBytes) {
+            land(key, flight, null, null);
+            return response;
+         }
+         //one byte more than allowed is read to detect bodies that are too large
+         final int limit = maxBodyBytes == Integer.MAX_VALUE ? maxBodyBytes : maxBodyBytes + 1;
+         final InputStream body = response.getBody();
+         byte[] data = new byte[(int) Math.min(limit, contentLength >= 0 ? contentLength + 1 : Buffers.BUFFER_SIZE)];
+         int length = 0;
+         int read;
+         while (length < limit) {
+            if (length == data.length) {
+               data = Arrays.copyOf(data, (int) Math.min(limit, data.length * 2L));
+            }
+            if ((read = body.read(data, length, data.length - length)) < 0) {
+               break;
+            }
+            length += read;
+         }
+         if (length > maxBodyBytes) {
+            land(key, flight, null, null);
+            return new PrefixedResponse(response, new SequenceInputStream(new ByteArrayInputStream(data, 0, length), body));
+         }
+         final CacheEntry shared = CacheEntry.of(key,
+                                                 request,
+                                                 response.getStatusCode(),
+                                                 response.getMessage(),
+                                                 headers,
+                                                 ByteBuffer.wrap(data, 0, length),
+                                                 System.currentTimeMillis());
+         closeQuietly(response);
+         land(key, flight, shared, null);
+         return shared.toResponse();
+      } catch (Throwable e) {
+         closeQuietly(response);
+         land(key, flight, null, e);
+         throw e;
+      }
+   }
+
+   /**
+    * Ends the flight, requests arriving from now on start a new flight
+    */
+   private void land(String key, Flight flight, CacheEntry shared, Throwable error) {
+      flights.remove(key, flight);
+      if (error != null) {
+         flight.result.completeExceptionally(error);
+      } else {
+         flight.result.complete(shared);
+      }
+   }
+
+   private static CacheEntry await(Flight flight, TransportRequest request) throws IOException {
+      try {
+         final OptionalLong deadline = request.getDeadline();
+         if (deadline.isPresent()) {
+            return flight.result.get(deadline.getAsLong() - System.nanoTime(), TimeUnit.NANOSECONDS);
+         }
+         return flight.result.get();
+      } catch (TimeoutException e) {
+         throw expired(request);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while waiting for response");
+      } catch (ExecutionException e) {
+         throw rethrow(e.getCause());
+      }
+   }
+
+   private static DeadlineExceededException expired(TransportRequest request) {
+      return new DeadlineExceededException("Deadline exceeded while waiting for " + request.getMethod() + " " + request.getUrl());
+   }
+
+   private static long contentLength(TransportResponse response) {
+      final String contentLength = response.getHeader("Content-Length");
+      if (contentLength == null) {
+         return -1;
+      }
+      try {
+         return Long.parseLong(contentLength.trim());
+      } catch (NumberFormatException e) {
+         return -1;
+      }
+   }
+
+   private static Throwable unwrap(Throwable error) {
+      return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+   }
+
+   private static IOException rethrow(Throwable error) {
+      final Throwable cause = unwrap(error);
+      if (cause instanceof IOException) {
+         return (IOException) cause;
+      }
+      if (cause instanceof RuntimeException && cause.getCause() instanceof IOException) {
+         return (IOException) cause.getCause();
+      }
+      if (cause instanceof RuntimeException) {
+         throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+         throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+   }
+
+   private static void closeQuietly(TransportResponse response) {
+      try {
+         response.close();
+      } catch (IOException e) {
+         //the response is not used
+      }
+   }
+
+   /**
+    * A request in flight and the requests waiting for its response
+    */
+   private static final class Flight {
+
+      private static final int DEPARTED = -1;
+
+      /**
+       * completed with the buffered response, with null if the response can't be shared or exceptionally if the request
+       * failed
+       */
+      final CompletableFuture<CacheEntry> result = new CompletableFuture<>();
+      /**
+       * the number of waiting requests or {@link #DEPARTED}
+       */
+      private final AtomicInteger waiters = new AtomicInteger();
+
+      /**
+       * @param maxWaiters
+       *  the maximum number of waiting requests
+       * @return
+       *  true if the request may wait for the response, false if too many requests are waiting already or the response
+       *  has been received without waiting requests
+       */
+      boolean join(int maxWaiters) {
+         int current;
+         do {
+            current = waiters.get();
+            if (current == DEPARTED || current >= maxWaiters) {
+               return false;
+            }
+         } while (!waiters.compareAndSet(current, current + 1));
+         return true;
+      }
+
+      /**
+       * Ends the flight when the response is received if no request is waiting for it, so it doesn't have to be buffered
+       * @return
+       *  true if no request is waiting and no request can join the flight anymore
+       */
+      boolean depart() {
+         return waiters.compareAndSet(0, DEPARTED);
+      }
+
+      boolean isDeparted() {
+         return waiters.get() == DEPARTED;
+      }
+   }
+
+   /**
+    * Response handle of a response that is too large to be shared, serving the part of the body read so far followed by
+    * the rest of the body
+    */
+   private static final class PrefixedResponse implements TransportResponse {
+
+      private final TransportResponse response;
+      private final InputStream body;
+
+      PrefixedResponse(final TransportResponse response, final InputStream body) {
+         this.response = response;
+         this.body = body;
+      }
+
+      @Override
+      public int getStatusCode() throws IOException {
+         return response.getStatusCode();
+      }
+
+      @Override
+      public String getMessage() throws IOException {
+         return response.getMessage();
+      }
+
+      @Override
+      public String getHeader(final String name) {
+         return response.getHeader(name);
+      }
+
+      @Override
+      public Map<String, List<String>> getHeaders() {
+         return response.getHeaders();
+      }
+
+      @Override
+      public InputStream getBody() {
+         return body;
+      }
+
+      @Override
+      public void close() throws IOException {
+         response.close();
+      }
+   }
+}
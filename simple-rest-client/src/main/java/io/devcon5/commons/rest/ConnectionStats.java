@@ -0,0 +1,44 @@
+package io.devcon5.commons.rest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a transport about how responses have been released. A connection can only be reused for a subsequent
+ * request if the body of its response has been read completely before it's closed, otherwise the connection has to be
+ * discarded.
+ */
+public final class ConnectionStats {
+
+   private final LongAdder released = new LongAdder();
+   private final LongAdder discarded = new LongAdder();
+
+   void released() {
+      released.increment();
+   }
+
+   void discarded() {
+      discarded.increment();
+   }
+
+   /**
+    * @return
+    *  the number of responses that have been read completely, so that their connection was returned for reuse
+    */
+   public long getReleased() {
+      return released.sum();
+   }
+
+   /**
+    * @return
+    *  the number of responses whose connection was discarded because the remaining body exceeded the drain limit or
+    *  could not be read
+    */
+   public long getDiscarded() {
+      return discarded.sum();
+   }
+
+   @Override
+   public String toString() {
+      return "ConnectionStats{released=" + getReleased() + ", discarded=" + getDiscarded() + '}';
+   }
+}
@@ -0,0 +1,29 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decoder for a content encoding of response bodies, such as gzip. Decoders for gzip and deflate are built-in, additional
+ * decoders (i.e. for brotli) can be provided via {@link java.util.ServiceLoader} or registered at the
+ * {@link ContentDecoders}.
+ */
+public interface ContentDecoder {
+
+   /**
+    * @return
+    *  the name of the content encoding as used in the Accept-Encoding and Content-Encoding headers, i.e. <code>gzip</code>
+    */
+   String getEncoding();
+
+   /**
+    * Decodes the encoded stream. Closing the decoded stream must close the encoded stream.
+    * @param encoded
+    *  the encoded, non-empty body
+    * @return
+    *  the stream of the decoded body
+    * @throws IOException
+    *  if the stream could not be decoded
+    */
+   InputStream decode(InputStream encoded) throws IOException;
+}
@@ -0,0 +1,195 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Registry of {@link ContentDecoder}s of a client. The encodings of all registered decoders are advertised in the
+ * Accept-Encoding header of the requests and responses using one of these encodings are decoded transparently.
+ * <br>
+ * Instances are thread-safe.
+ */
+public final class ContentDecoders {
+
+   private static final int BUFFER_SIZE = 8192;
+
+   private volatile Map<String, ContentDecoder> decoders = Collections.emptyMap();
+   private volatile String acceptEncoding;
+
+   private ContentDecoders() {
+   }
+
+   /**
+    * @return
+    *  the shared registry containing the gzip and deflate decoders and all decoders provided via {@link ServiceLoader}
+    */
+   public static ContentDecoders defaults() {
+      return DefaultHolder.INSTANCE;
+   }
+
+   /**
+    * @return
+    *  a new registry without any decoders. A client using it neither advertises nor decodes any content encoding.
+    */
+   public static ContentDecoders empty() {
+      return new ContentDecoders();
+   }
+
+   /**
+    * @return
+    *  a new registry containing the gzip and deflate decoders and all decoders provided via {@link ServiceLoader}
+    */
+   public static ContentDecoders fromServiceLoader() {
+      final ContentDecoders decoders = new ContentDecoders().register(new GzipDecoder()).register(new DeflateDecoder());
+      for (ContentDecoder decoder : ServiceLoader.load(ContentDecoder.class)) {
+         decoders.register(decoder);
+      }
+      return decoders;
+   }
+
+   /**
+    * Registers a decoder. A decoder replaces a previously registered decoder of the same encoding.
+    * @param decoder
+    *  the decoder to register
+    * @return
+    *  this registry
+    */
+   public synchronized ContentDecoders register(ContentDecoder decoder) {
+      Objects.requireNonNull(decoder, "decoder must not be null");
+      final Map<String, ContentDecoder> updated = new LinkedHashMap<>(decoders);
+      updated.put(decoder.getEncoding().toLowerCase(Locale.ROOT), decoder);
+      this.decoders = Collections.unmodifiableMap(updated);
+      this.acceptEncoding = updated.isEmpty() ? null : String.join(", ", updated.keySet());
+      return this;
+   }
+
+   /**
+    * @return
+    *  the value of the Accept-Encoding header listing all supported encodings, empty if there are no decoders
+    */
+   public Optional<String> getAcceptEncoding() {
+      return Optional.ofNullable(acceptEncoding);
+   }
+
+   /**
+    * Checks if all encodings of a Content-Encoding header can be decoded
+    * @param contentEncoding
+    *  the value of the Content-Encoding header, may be null
+    * @return
+    *  true if the body can be decoded
+    */
+   public boolean supports(String contentEncoding) {
+      if (contentEncoding == null) {
+         return true;
+      }
+      final Map<String, ContentDecoder> current = decoders;
+      for (String encoding : contentEncoding.split(",")) {
+         final String name = encoding.trim().toLowerCase(Locale.ROOT);
+         if (!name.isEmpty() && !"identity".equals(name) && !current.containsKey(name)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Decodes a body according to its Content-Encoding header. Multiple encodings are decoded in reverse order of their
+    * application. If any of the encodings is not supported, the body is returned as is.
+    * @param contentEncoding
+    *  the value of the Content-Encoding header, may be null
+    * @param body
+    *  the encoded body
+    * @return
+    *  the decoded body
+    * @throws IOException
+    *  if the body could not be decoded
+    */
+   public InputStream decode(String contentEncoding, InputStream body) throws IOException {
+      if (contentEncoding == null || contentEncoding.isEmpty() || !supports(contentEncoding)) {
+         return body;
+      }
+      final String[] encodings = contentEncoding.split(",");
+      InputStream decoded = body;
+      for (int i = encodings.length - 1; i >= 0; i--) {
+         final String encoding = encodings[i].trim().toLowerCase(Locale.ROOT);
+         if (encoding.isEmpty() || "identity".equals(encoding)) {
+            continue;
+         }
+         final ContentDecoder decoder = decoders.get(encoding);
+         //decoders expect a non-empty stream, responses without body (i.e. HEAD) may declare an encoding anyway
+         final PushbackInputStream in = new PushbackInputStream(decoded, 1);
+         final int first = in.read();
+         if (first == -1) {
+            return in;
+         }
+         in.unread(first);
+         decoded = decoder.decode(in);
+      }
+      return decoded;
+   }
+
+   private static final class DefaultHolder {
+
+      static final ContentDecoders INSTANCE = fromServiceLoader();
+   }
+
+   static final class GzipDecoder implements ContentDecoder {
+
+      @Override
+      public String getEncoding() {
+         return "gzip";
+      }
+
+      @Override
+      public InputStream decode(final InputStream encoded) throws IOException {
+         return new GZIPInputStream(encoded, BUFFER_SIZE);
+      }
+   }
+
+   /**
+    * Decoder for deflate, which should be zlib wrapped data, but some servers send raw deflate data instead, so the decoder
+    * checks for the zlib header.
+    */
+   static final class DeflateDecoder implements ContentDecoder {
+
+      @Override
+      public String getEncoding() {
+         return "deflate";
+      }
+
+      @Override
+      public InputStream decode(final InputStream encoded) throws IOException {
+         final PushbackInputStream in = new PushbackInputStream(encoded, 2);
+         final byte[] header = new byte[2];
+         int read = 0;
+         int n;
+         while (read < 2 && (n = in.read(header, read, 2 - read)) != -1) {
+            read += n;
+         }
+         in.unread(header, 0, read);
+         final boolean zlib = read == 2 && (header[0] & 0x0F) == 8 && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+         final Inflater inflater = new Inflater(!zlib);
+         return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+               try {
+                  super.close();
+               } finally {
+                  inflater.end();
+               }
+            }
+         };
+      }
+   }
+}
@@ -0,0 +1,19 @@
+package io.devcon5.commons.rest;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Signals that a request was aborted because its deadline passed before the response was read completely.
+ */
+public class DeadlineExceededException extends SocketTimeoutException {
+
+   private static final long serialVersionUID = 1L;
+
+   /**
+    * @param message
+    *  the detail message
+    */
+   public DeadlineExceededException(final String message) {
+      super(message);
+   }
+}
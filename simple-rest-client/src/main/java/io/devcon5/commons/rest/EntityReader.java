@@ -2,6 +2,7 @@ package io.devcon5.commons.rest;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.Iterator;
 
 public interface EntityReader {
 
@@ -16,6 +17,21 @@ public interface EntityReader {
     */
    boolean supports(Class<?> targetType, String contentType);
 
+   /**
+    * Checks if the implementor is capable of producing instances of the target type using data of the specified, already
+    * parsed media type. Implementors should override this method to avoid parsing the content type string again, the default
+    * implementation delegates to {@link #supports(Class, String)}.
+    * @param targetType
+    *  the requested target type
+    * @param mediaType
+    *  the parsed content type
+    * @return
+    *  true if the reader can produce entities of the target type with data of the media type
+    */
+   default boolean supports(Class<?> targetType, MediaType mediaType) {
+      return supports(targetType, mediaType.toString());
+   }
+
    /**
     * Reads the input stream which is of the specified content type and produces an instance of the target type
     * @param targetType
@@ -33,4 +49,22 @@ public interface EntityReader {
    default <T> T read(Class<T> targetType, String contentType, byte[] data){
       return read(targetType, contentType, new ByteArrayInputStream(data));
    }
+
+   /**
+    * Reads the input stream, which contains a list of items of the specified content type, lazily item by item, so that
+    * only the current item has to be kept in memory. The default implementation doesn't support reading items.
+    * @param itemType
+    *  the type of the items to produce
+    * @param contentType
+    *  the content type / mimetype of the data input stream
+    * @param data
+    *  the data to read, which is closed by the caller once the items have been read
+    * @param <T>
+    * @return
+    *  an iterator that reads the next item from the data on demand. If the content can not be parsed, the iterator has to
+    *  throw an Exception.
+    */
+   default <T> Iterator<T> readItems(Class<T> itemType, String contentType, InputStream data) {
+      throw new UnsupportedOperationException(getClass().getName() + " doesn't support reading items");
+   }
 }
@@ -0,0 +1,107 @@
+package io.devcon5.commons.rest;
+
+import static java.lang.Integer.getInteger;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of {@link EntityReader}s. The readers provided via {@link ServiceLoader} are loaded once, additional readers
+ * may be registered programmatically with a priority. The reader chosen for a combination of target type and content type
+ * is memoized, so that subsequent lookups for the same combination only cost a single map lookup.
+ * <br>
+ * Instances are thread-safe.
+ */
+public final class EntityReaders {
+
+   /**
+    * The priority of the readers loaded via {@link ServiceLoader}
+    */
+   public static final int SERVICE_PRIORITY = 0;
+
+   /**
+    * Maximum number of memoized (target type, content type) combinations, can be set using the system property
+    * <code>io.devcon5.rest.readers.maxDispatchEntries</code>. Once exceeded, the dispatch table is reset.
+    */
+   static final int MAX_DISPATCH_ENTRIES = getInteger("io.devcon5.rest.readers.maxDispatchEntries", 1024);
+
+   private final MediaTypeRegistry<EntityReader> registry = new MediaTypeRegistry<>(EntityReader::supports, MAX_DISPATCH_ENTRIES);
+
+   private EntityReaders() {
+   }
+
+   /**
+    * @return
+    *  the shared registry containing all readers provided via {@link ServiceLoader}
+    */
+   public static EntityReaders defaults() {
+      return DefaultHolder.INSTANCE;
+   }
+
+   /**
+    * @return
+    *  a new registry without any readers
+    */
+   public static EntityReaders empty() {
+      return new EntityReaders();
+   }
+
+   /**
+    * @return
+    *  a new registry containing all readers provided via {@link ServiceLoader}
+    */
+   public static EntityReaders fromServiceLoader() {
+      final EntityReaders readers = new EntityReaders();
+      for (EntityReader reader : ServiceLoader.load(EntityReader.class)) {
+         readers.register(reader, SERVICE_PRIORITY);
+      }
+      return readers;
+   }
+
+   /**
+    * Registers a reader with the default priority of the service loaded readers. It's consulted after all previously
+    * registered readers of the same priority.
+    * @param reader
+    *  the reader to register
+    * @return
+    *  this registry
+    */
+   public EntityReaders register(EntityReader reader) {
+      return register(reader, SERVICE_PRIORITY);
+   }
+
+   /**
+    * Registers a reader with a specific priority. Readers of higher priority are consulted first, so a reader with a
+    * priority greater than {@link #SERVICE_PRIORITY} overrides the service loaded readers.
+    * @param reader
+    *  the reader to register
+    * @param priority
+    *  the priority of the reader
+    * @return
+    *  this registry
+    */
+   public EntityReaders register(EntityReader reader, int priority) {
+      Objects.requireNonNull(reader, "reader must not be null");
+      registry.register(reader, priority);
+      return this;
+   }
+
+   /**
+    * Finds the reader for the combination of target type and content type.
+    * @param targetType
+    *  the requested target type
+    * @param contentType
+    *  the content type as received from the server
+    * @return
+    *  the reader with the highest priority supporting the combination or an empty optional if there is none
+    */
+   public Optional<EntityReader> find(Class<?> targetType, String contentType) {
+      return registry.find(targetType, contentType);
+   }
+
+   private static final class DefaultHolder {
+
+      static final EntityReaders INSTANCE = fromServiceLoader();
+   }
+}
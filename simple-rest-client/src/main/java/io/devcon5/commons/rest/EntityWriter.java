@@ -0,0 +1,67 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Serializes entities into the body of a request. Writers are the counterpart of {@link EntityReader}s, they write the
+ * entity directly to the output stream of the request, so it doesn't have to be rendered into a String or byte array
+ * first.
+ */
+public interface EntityWriter {
+
+   /**
+    * Checks if the implementor is capable of writing instances of the source type as data of the specified contentType.
+    * @param sourceType
+    *  the type of the entity
+    * @param contentType
+    *  the content type as media-type string (i.e. application/xml)
+    * @return
+    *  true if the writer can write entities of the source type as data of the content type
+    */
+   boolean supports(Class<?> sourceType, String contentType);
+
+   /**
+    * Checks if the implementor is capable of writing instances of the source type as data of the specified, already
+    * parsed media type. Implementors should override this method to avoid parsing the content type string again, the
+    * default implementation delegates to {@link #supports(Class, String)}.
+    * @param sourceType
+    *  the type of the entity
+    * @param mediaType
+    *  the parsed content type
+    * @return
+    *  true if the writer can write entities of the source type as data of the media type
+    */
+   default boolean supports(Class<?> sourceType, MediaType mediaType) {
+      return supports(sourceType, mediaType.toString());
+   }
+
+   /**
+    * Writes the entity as data of the specified content type to the output stream. The writer may be invoked multiple
+    * times for the same entity, i.e. when the request is retried.
+    * @param entity
+    *  the entity to write
+    * @param contentType
+    *  the content type / mimetype of the data, which may declare the charset to use
+    * @param out
+    *  the output stream of the request. The writer must not close the stream
+    * @throws IOException
+    *  if writing to the stream failed
+    */
+   void write(Object entity, String contentType, OutputStream out) throws IOException;
+
+   /**
+    * Provides the number of bytes the entity is written as, if it's known without writing the entity, so that the request
+    * can be sent with a fixed length. The default implementation doesn't know the length.
+    * @param entity
+    *  the entity to write
+    * @param contentType
+    *  the content type / mimetype of the data
+    * @return
+    *  the number of bytes written by {@link #write(Object, String, OutputStream)} or -1 if the length is not known in
+    *  advance, so the request is sent in chunks
+    */
+   default long getContentLength(Object entity, String contentType) {
+      return -1;
+   }
+}
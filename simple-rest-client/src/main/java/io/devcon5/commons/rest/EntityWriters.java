@@ -0,0 +1,107 @@
+package io.devcon5.commons.rest;
+
+import static java.lang.Integer.getInteger;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of {@link EntityWriter}s. The writers provided via {@link ServiceLoader} are loaded once, additional writers
+ * may be registered programmatically with a priority. The writer chosen for a combination of source type and content type
+ * is memoized, so that subsequent lookups for the same combination only cost a single map lookup.
+ * <br>
+ * Instances are thread-safe.
+ */
+public final class EntityWriters {
+
+   /**
+    * The priority of the writers loaded via {@link ServiceLoader}
+    */
+   public static final int SERVICE_PRIORITY = 0;
+
+   /**
+    * Maximum number of memoized (source type, content type) combinations, can be set using the system property
+    * <code>io.devcon5.rest.writers.maxDispatchEntries</code>. Once exceeded, the dispatch table is reset.
+    */
+   static final int MAX_DISPATCH_ENTRIES = getInteger("io.devcon5.rest.writers.maxDispatchEntries", 1024);
+
+   private final MediaTypeRegistry<EntityWriter> registry = new MediaTypeRegistry<>(EntityWriter::supports, MAX_DISPATCH_ENTRIES);
+
+   private EntityWriters() {
+   }
+
+   /**
+    * @return
+    *  the shared registry containing all writers provided via {@link ServiceLoader}
+    */
+   public static EntityWriters defaults() {
+      return DefaultHolder.INSTANCE;
+   }
+
+   /**
+    * @return
+    *  a new registry without any writers
+    */
+   public static EntityWriters empty() {
+      return new EntityWriters();
+   }
+
+   /**
+    * @return
+    *  a new registry containing all writers provided via {@link ServiceLoader}
+    */
+   public static EntityWriters fromServiceLoader() {
+      final EntityWriters writers = new EntityWriters();
+      for (EntityWriter writer : ServiceLoader.load(EntityWriter.class)) {
+         writers.register(writer, SERVICE_PRIORITY);
+      }
+      return writers;
+   }
+
+   /**
+    * Registers a writer with the default priority of the service loaded writers. It's consulted after all previously
+    * registered writers of the same priority.
+    * @param writer
+    *  the writer to register
+    * @return
+    *  this registry
+    */
+   public EntityWriters register(EntityWriter writer) {
+      return register(writer, SERVICE_PRIORITY);
+   }
+
+   /**
+    * Registers a writer with a specific priority. Writers of higher priority are consulted first, so a writer with a
+    * priority greater than {@link #SERVICE_PRIORITY} overrides the service loaded writers.
+    * @param writer
+    *  the writer to register
+    * @param priority
+    *  the priority of the writer
+    * @return
+    *  this registry
+    */
+   public EntityWriters register(EntityWriter writer, int priority) {
+      Objects.requireNonNull(writer, "writer must not be null");
+      registry.register(writer, priority);
+      return this;
+   }
+
+   /**
+    * Finds the writer for the combination of source type and content type.
+    * @param sourceType
+    *  the type of the entity to write
+    * @param contentType
+    *  the content type of the request body
+    * @return
+    *  the writer with the highest priority supporting the combination or an empty optional if there is none
+    */
+   public Optional<EntityWriter> find(Class<?> sourceType, String contentType) {
+      return registry.find(sourceType, contentType);
+   }
+
+   private static final class DefaultHolder {
+
+      static final EntityWriters INSTANCE = fromServiceLoader();
+   }
+}
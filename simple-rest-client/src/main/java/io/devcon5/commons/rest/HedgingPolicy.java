@@ -0,0 +1,287 @@
+package io.devcon5.commons.rest;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Defines when a second, hedged request is sent for a request whose response is late, set on a client using
+ * {@link SimpleRestClient.ClientBuilder#hedging(HedgingPolicy)}. Whichever response arrives first is used, the other one
+ * is closed once it arrives. Hedging reduces the tail latency caused by single slow servers or connections at the cost of
+ * additional load, so only idempotent requests without body are hedged, by default GET and HEAD requests.
+ * <br>
+ * The hedged request is sent after a delay, which is either fixed or the given percentile of the latencies recently
+ * observed for the host, i.e. with the 95th percentile, about 5% of the requests are hedged. The latency of a request is
+ * the time until its response status is received. Until enough latencies have been observed, the initial delay is used.
+ * <br>
+ * A hedging policy may be shared by several clients. Instances are thread-safe.
+ */
+public final class HedgingPolicy {
+
+   /**
+    * the latencies of a host are kept for at least one and at most two windows
+    */
+   private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+   /**
+    * the delay derived from the latencies of a host is recalculated at most this often
+    */
+   private static final long REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+   private final double percentile;
+   private final long delayNanos;
+   private final long minDelayNanos;
+   private final int minSamples;
+   private final Set<String> methods;
+   private final ConcurrentMap<String, Latencies> latencies = new ConcurrentHashMap<>();
+   private final LongAdder hedged = new LongAdder();
+   private final LongAdder hedgeWins = new LongAdder();
+
+   HedgingPolicy(Builder builder) {
+      this.percentile = builder.percentile;
+      this.delayNanos = builder.delayNanos;
+      this.minDelayNanos = builder.minDelayNanos;
+      this.minSamples = builder.minSamples;
+      this.methods = Collections.unmodifiableSet(new HashSet<>(builder.methods));
+   }
+
+   /**
+    * Creates a builder for a policy that hedges GET and HEAD requests after the 95th percentile of the recent latencies of
+    * the host, but not earlier than 10 milliseconds, and after 1 second until 100 latencies have been observed
+    * @return
+    *  a new builder
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   /**
+    * @param request
+    *  the request to send
+    * @return
+    *  true if a hedged request may be sent for the request
+    */
+   boolean isHedgeable(TransportRequest request) {
+      return methods.contains(request.getMethod()) && !request.getBody().isPresent();
+   }
+
+   /**
+    * @param url
+    *  the URL of the request
+    * @return
+    *  the delay in nanoseconds after which the hedged request is sent
+    */
+   long delayNanos(URL url) {
+      if (percentile <= 0) {
+         return delayNanos;
+      }
+      final Latencies host = latencies.get(Hosts.key(url));
+      return host == null ? delayNanos : host.percentileNanos();
+   }
+
+   /**
+    * Records the latency of a request
+    * @param url
+    *  the URL of the request
+    * @param nanos
+    *  the time until the response status was received
+    */
+   void record(URL url, long nanos) {
+      if (percentile > 0) {
+         latencies.computeIfAbsent(Hosts.key(url), host -> new Latencies()).record(nanos);
+      }
+   }
+
+   void onHedged() {
+      hedged.increment();
+   }
+
+   void onHedgeWon() {
+      hedgeWins.increment();
+   }
+
+   /**
+    * @return
+    *  the number of hedged requests that were sent
+    */
+   public long getHedged() {
+      return hedged.sum();
+   }
+
+   /**
+    * @return
+    *  the number of hedged requests whose response arrived before the response of the original request
+    */
+   public long getHedgeWins() {
+      return hedgeWins.sum();
+   }
+
+   @Override
+   public String toString() {
+      return "HedgingPolicy{hedged=" + getHedged() + ", hedgeWins=" + getHedgeWins() + '}';
+   }
+
+   /**
+    * The recent latencies of a host, kept in the histogram of the current window and of the previous window
+    */
+   private final class Latencies {
+
+      private final AtomicReference<Window> window = new AtomicReference<>(new Window(new LatencyHistogram(),
+                                                                                      new LatencyHistogram(),
+                                                                                      System.nanoTime()));
+      private volatile long delay = delayNanos;
+      private volatile long calculatedAt = System.nanoTime() - REFRESH_NANOS;
+
+      void record(long nanos) {
+         current().histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+      }
+
+      long percentileNanos() {
+         final long now = System.nanoTime();
+         if (now - calculatedAt >= REFRESH_NANOS) {
+            calculatedAt = now;
+            delay = calculate();
+         }
+         return delay;
+      }
+
+      private long calculate() {
+         final Window current = current();
+         if (current.histogram.getCount() + current.previous.getCount() < minSamples) {
+            return delayNanos;
+         }
+         final long micros = LatencyHistogram.percentile(percentile, current.histogram, current.previous);
+         return Math.max(minDelayNanos, TimeUnit.MICROSECONDS.toNanos(micros));
+      }
+
+      private Window current() {
+         final Window current = window.get();
+         final long now = System.nanoTime();
+         if (now - current.start < WINDOW_NANOS) {
+            return current;
+         }
+         //only one of the concurrent callers starts the next window
+         final Window next = new Window(new LatencyHistogram(), current.histogram, now);
+         return window.compareAndSet(current, next) ? next : window.get();
+      }
+   }
+
+   private static final class Window {
+
+      final LatencyHistogram histogram;
+      final LatencyHistogram previous;
+      final long start;
+
+      Window(final LatencyHistogram histogram, final LatencyHistogram previous, final long start) {
+         this.histogram = histogram;
+         this.previous = previous;
+         this.start = start;
+      }
+   }
+
+   /**
+    * Builder for a hedging policy
+    */
+   public static class Builder {
+
+      private double percentile = 95;
+      private long delayNanos = TimeUnit.SECONDS.toNanos(1);
+      private long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(10);
+      private int minSamples = 100;
+      private Set<String> methods = new HashSet<>(Arrays.asList("GET", "HEAD"));
+
+      Builder() {
+      }
+
+      /**
+       * Sends the hedged request after the given percentile of the recent latencies of the host
+       * @param percentile
+       *  the percentile, greater than 0 and less than 100
+       * @param minDelay
+       *  the minimum delay, so that requests to fast hosts are not hedged too eagerly
+       * @param unit
+       *  the time unit of the minimum delay
+       * @return
+       *  this builder
+       */
+      public Builder percentile(double percentile, long minDelay, TimeUnit unit) {
+         if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+         }
+         this.percentile = percentile;
+         this.minDelayNanos = unit.toNanos(minDelay);
+         return this;
+      }
+
+      /**
+       * Sets the delay used until enough latencies of a host have been observed
+       * @param initialDelay
+       *  the delay
+       * @param unit
+       *  the time unit of the delay
+       * @param minSamples
+       *  the number of latencies required before the percentile is used
+       * @return
+       *  this builder
+       */
+      public Builder initialDelay(long initialDelay, TimeUnit unit, int minSamples) {
+         if (initialDelay < 0 || minSamples < 1) {
+            throw new IllegalArgumentException("initialDelay must not be negative and minSamples must be positive");
+         }
+         this.delayNanos = unit.toNanos(initialDelay);
+         this.minSamples = minSamples;
+         return this;
+      }
+
+      /**
+       * Sends the hedged request always after a fixed delay instead of a percentile
+       * @param delay
+       *  the delay
+       * @param unit
+       *  the time unit of the delay
+       * @return
+       *  this builder
+       */
+      public Builder fixedDelay(long delay, TimeUnit unit) {
+         if (delay < 0) {
+            throw new IllegalArgumentException("delay must not be negative");
+         }
+         this.percentile = 0;
+         this.delayNanos = unit.toNanos(delay);
+         return this;
+      }
+
+      /**
+       * Sets the methods of the requests that are hedged, default is GET and HEAD. Only idempotent methods should be
+       * hedged, requests with body are never hedged.
+       * @param methods
+       *  the http methods
+       * @return
+       *  this builder
+       */
+      public Builder methods(String... methods) {
+
+         this.methods = new HashSet<>();
+         for (String method : methods) {
+            this.methods.add(Objects.requireNonNull(method, "method must not be null").toUpperCase(Locale.ROOT));
+         }
+         return this;
+      }
+
+      /**
+       * @return
+       *  the new hedging policy
+       */
+      public HedgingPolicy build() {
+         return new HedgingPolicy(this);
+      }
+   }
+}
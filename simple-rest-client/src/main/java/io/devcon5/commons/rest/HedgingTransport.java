@@ -0,0 +1,137 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Transport} that sends a hedged request according to a {@link HedgingPolicy} if the response of a request doesn't
+ * arrive in time. The first response is used and the other one is closed once it arrives. A request only fails if all of
+ * its attempts failed, in which case the error of the original request is reported.
+ * <br>
+ * Both requests are sent asynchronously, so a synchronous request waits for the first response on the calling thread.
+ */
+class HedgingTransport implements Transport {
+
+   private final Transport transport;
+   private final HedgingPolicy policy;
+   private final Executor executor;
+
+   HedgingTransport(final Transport transport, final HedgingPolicy policy, final Executor executor) {
+      this.transport = transport;
+      this.policy = policy;
+      this.executor = executor;
+   }
+
+   @Override
+   public TransportResponse send(final TransportRequest request) throws IOException {
+
+      if (!policy.isHedgeable(request)) {
+         return transport.send(request);
+      }
+      try {
+         return sendAsync(request, executor).get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while waiting for response");
+      } catch (ExecutionException e) {
+         throw rethrow(e.getCause());
+      }
+   }
+
+   @Override
+   public CompletableFuture<TransportResponse> sendAsync(final TransportRequest request, final Executor executor) {
+
+      if (!policy.isHedgeable(request)) {
+         return transport.sendAsync(request, executor);
+      }
+      final Exchange exchange = new Exchange();
+      attempt(request, executor).whenComplete((response, error) -> exchange.onComplete(response, error, false));
+      exchange.hedge = AsyncExecutors.scheduler().schedule(() -> {
+         if (exchange.result.isDone() || request.isExpired()) {
+            return;
+         }
+         exchange.pending.incrementAndGet();
+         policy.onHedged();
+         //the scheduler only hands over the hedged request to the executor
+         executor.execute(() -> attempt(request, executor).whenComplete((response, error) -> exchange.onComplete(response, error, true)));
+      }, policy.delayNanos(request.getUrl()), TimeUnit.NANOSECONDS);
+      return exchange.result;
+   }
+
+   private CompletableFuture<TransportResponse> attempt(TransportRequest request, Executor executor) {
+      final long start = System.nanoTime();
+      return transport.sendAsync(request, executor).whenComplete((response, error) -> {
+         if (response != null) {
+            policy.record(request.getUrl(), System.nanoTime() - start);
+         }
+      });
+   }
+
+   private static IOException rethrow(Throwable error) {
+      final Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+      if (cause instanceof IOException) {
+         return (IOException) cause;
+      }
+      if (cause instanceof RuntimeException && cause.getCause() instanceof IOException) {
+         return (IOException) cause.getCause();
+      }
+      if (cause instanceof RuntimeException) {
+         throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause);
+   }
+
+   /**
+    * The attempts of a single request, completing its result with the first response
+    */
+   private final class Exchange {
+
+      final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+      final AtomicInteger pending = new AtomicInteger(1);
+      volatile ScheduledFuture<?> hedge;
+      private volatile Throwable primaryError;
+
+      void onComplete(TransportResponse response, Throwable error, boolean hedged) {
+         if (response != null) {
+            if (result.complete(response)) {
+               cancelHedge();
+               if (hedged) {
+                  policy.onHedgeWon();
+               }
+            } else {
+               closeQuietly(response);
+            }
+            return;
+         }
+         if (!hedged) {
+            primaryError = error;
+         }
+         if (pending.decrementAndGet() == 0) {
+            cancelHedge();
+            result.completeExceptionally(primaryError != null ? primaryError : error);
+         }
+      }
+
+      private void cancelHedge() {
+         final ScheduledFuture<?> hedge = this.hedge;
+         if (hedge != null) {
+            hedge.cancel(false);
+         }
+      }
+
+      private void closeQuietly(TransportResponse response) {
+         try {
+            response.close();
+         } catch (IOException e) {
+            //the response of the slower attempt is not used
+         }
+      }
+   }
+}
@@ -0,0 +1,24 @@
+package io.devcon5.commons.rest;
+
+import java.net.URL;
+import java.util.Locale;
+
+/**
+ * Identifies the host of a request for limits and state that are kept per host.
+ */
+final class Hosts {
+
+   private Hosts() {
+   }
+
+   /**
+    * @param url
+    *  the URL of a request
+    * @return
+    *  the lower-case host and the port of the URL, i.e. <code>localhost:8080</code>. If the URL has no port, the default
+    *  port of its protocol is used
+    */
+   static String key(URL url) {
+      return url.getHost().toLowerCase(Locale.ROOT) + ':' + (url.getPort() == -1 ? url.getDefaultPort() : url.getPort());
+   }
+}
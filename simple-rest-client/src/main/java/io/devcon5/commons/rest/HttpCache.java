@@ -0,0 +1,393 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A private cache for responses of GET requests, set on a client using
+ * {@link SimpleRestClient.ClientBuilder#cache(HttpCache)}. Responses are stored according to their Cache-Control and
+ * Expires headers and are served from the cache while they are fresh. Stale responses with an ETag or Last-Modified
+ * header are revalidated using a conditional request, and a 304 Not Modified response is served from the cache.
+ * <br>
+ * The cache keeps the responses in memory, bounded by the total size of their bodies. When the size is exceeded, the
+ * least recently used responses are evicted, either to the optional disk tier or out of the cache. Responses of the disk
+ * tier are read by mapping their file into memory, so they are not copied into the heap.
+ * <br>
+ * A cache may be shared by several clients. Instances are thread-safe.
+ */
+public final class HttpCache {
+
+   private static final String ENTRY_SUFFIX = ".entry";
+
+   private final long maxMemoryBytes;
+   private final int maxEntryBytes;
+   private final DiskTier disk;
+   private final CacheStats stats = new CacheStats();
+   private final LinkedHashMap<String, CacheEntry> memory = new LinkedHashMap<>(16, 0.75f, true);
+   private long memoryBytes;
+
+   HttpCache(Builder builder) {
+      this.maxMemoryBytes = builder.maxMemoryBytes;
+      this.maxEntryBytes = builder.maxEntryBytes;
+      try {
+         this.disk = builder.diskDirectory == null ? null : new DiskTier(builder.diskDirectory, builder.maxDiskBytes);
+      } catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Creates a builder for a cache, by default the cache holds up to 32 MB in memory, with at most 1 MB per response, and
+    * has no disk tier.
+    * @return
+    *  a new builder
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   /**
+    * @return
+    *  the counters of hits, misses and revalidations
+    */
+   public CacheStats getStats() {
+      return stats;
+   }
+
+   /**
+    * @return
+    *  the total size of the response bodies held in memory in bytes
+    */
+   public synchronized long getMemorySize() {
+      return memoryBytes;
+   }
+
+   /**
+    * @return
+    *  the total size of the files of the disk tier in bytes, 0 if the cache has no disk tier
+    */
+   public long getDiskSize() {
+      return disk == null ? 0 : disk.size();
+   }
+
+   /**
+    * Removes the response for the URL from the cache
+    * @param url
+    *  the requested URL
+    */
+   public void invalidate(URL url) {
+      remove(url.toString());
+   }
+
+   /**
+    * Removes all responses from the cache, including the files of the disk tier
+    */
+   public void clear() {
+      synchronized (this) {
+         memory.clear();
+         memoryBytes = 0;
+      }
+      if (disk != null) {
+         disk.clear();
+      }
+   }
+
+   int getMaxEntryBytes() {
+      return maxEntryBytes;
+   }
+
+   CacheEntry get(String key) {
+      final CacheEntry entry;
+      synchronized (this) {
+         entry = memory.get(key);
+      }
+      return entry == null && disk != null ? disk.get(key) : entry;
+   }
+
+   void put(CacheEntry entry) {
+      if (entry.size() > maxEntryBytes) {
+         return;
+      }
+      if (disk != null) {
+         //the new response supersedes the one that may have been evicted before
+         disk.remove(entry.key);
+      }
+      final List<CacheEntry> evicted = new ArrayList<>();
+      synchronized (this) {
+         final CacheEntry previous = memory.put(entry.key, entry);
+         if (previous != null) {
+            memoryBytes -= previous.size();
+         }
+         memoryBytes += entry.size();
+         final Iterator<CacheEntry> eldest = memory.values().iterator();
+         while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            final CacheEntry e = eldest.next();
+            eldest.remove();
+            memoryBytes -= e.size();
+            evicted.add(e);
+         }
+      }
+      //the disk is written outside of the lock, so that lookups don't wait for it
+      for (CacheEntry e : evicted) {
+         if (disk == null) {
+            stats.evicted();
+         } else {
+            disk.put(e);
+         }
+      }
+   }
+
+   void remove(String key) {
+      synchronized (this) {
+         final CacheEntry previous = memory.remove(key);
+         if (previous != null) {
+            memoryBytes -= previous.size();
+         }
+      }
+      if (disk != null) {
+         disk.remove(key);
+      }
+   }
+
+   private static long lastModified(Path file) {
+      try {
+         return Files.getLastModifiedTime(file).toMillis();
+      } catch (IOException e) {
+         return 0;
+      }
+   }
+
+   /**
+    * Builder for a cache
+    */
+   public static class Builder {
+
+      private long maxMemoryBytes = 32L * 1024 * 1024;
+      private int maxEntryBytes = 1024 * 1024;
+      private Path diskDirectory;
+      private long maxDiskBytes;
+
+      Builder() {
+      }
+
+      /**
+       * Sets the maximum total size of the response bodies held in memory
+       * @param maxBytes
+       *  the size in bytes
+       * @return
+       *  this builder
+       */
+      public Builder maxMemoryBytes(long maxBytes) {
+
+         this.maxMemoryBytes = requireNonNegative(maxBytes);
+         return this;
+      }
+
+      /**
+       * Sets the maximum size of a single response body, larger responses are not cached.
+       * @param maxBytes
+       *  the size in bytes
+       * @return
+       *  this builder
+       */
+      public Builder maxEntryBytes(int maxBytes) {
+
+         this.maxEntryBytes = (int) requireNonNegative(maxBytes);
+         return this;
+      }
+
+      /**
+       * Adds a disk tier receiving the responses evicted from memory. Responses found in the directory are picked up, so the
+       * disk tier may be reused by subsequent runs.
+       * @param directory
+       *  the directory to store the responses in, it's created if it doesn't exist
+       * @param maxBytes
+       *  the maximum total size of the files of the disk tier in bytes
+       * @return
+       *  this builder
+       */
+      public Builder disk(Path directory, long maxBytes) {
+
+         this.diskDirectory = Objects.requireNonNull(directory, "directory must not be null");
+         this.maxDiskBytes = requireNonNegative(maxBytes);
+         return this;
+      }
+
+      /**
+       * @return
+       *  the new cache
+       */
+      public HttpCache build() {
+         return new HttpCache(this);
+      }
+
+      private static long requireNonNegative(long bytes) {
+         if (bytes < 0) {
+            throw new IllegalArgumentException("size must not be negative");
+         }
+         return bytes;
+      }
+   }
+
+   /**
+    * Stores each response in a file named by the hash of its key. The files are tracked in least recently used order.
+    * Failing to write or read a file is not an error, the response is treated as not cached instead.
+    */
+   private final class DiskTier {
+
+      private final Path directory;
+      private final long maxBytes;
+      private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+      private long bytes;
+
+      DiskTier(final Path directory, final long maxBytes) throws IOException {
+         this.directory = Files.createDirectories(directory);
+         this.maxBytes = maxBytes;
+         final List<Path> existing = new ArrayList<>();
+         try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            entries.forEach(existing::add);
+         }
+         existing.sort(Comparator.comparingLong(HttpCache::lastModified));
+         for (Path file : existing) {
+            if (isEntry(file)) {
+               track(file.getFileName().toString(), Files.size(file));
+            } else {
+               deleteQuietly(file);
+            }
+         }
+      }
+
+      /**
+       * @return
+       *  true if the file contains an entry of the current format, files of other formats may contain credentials
+       */
+      private boolean isEntry(Path file) {
+         try (InputStream in = Files.newInputStream(file)) {
+            CacheEntry.readKey(in);
+            return true;
+         } catch (IOException e) {
+            return false;
+         }
+      }
+
+      synchronized long size() {
+         return bytes;
+      }
+
+      CacheEntry get(String key) {
+         final String name = fileName(key);
+         synchronized (this) {
+            if (files.get(name) == null) {
+               return null;
+            }
+         }
+         try (FileChannel channel = FileChannel.open(directory.resolve(name), StandardOpenOption.READ)) {
+            //the mapping stays valid after the channel is closed
+            final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final CacheEntry entry = CacheEntry.readFrom(mapped);
+            return key.equals(entry.key) ? entry : null;
+         } catch (IOException e) {
+            delete(name);
+            return null;
+         }
+      }
+
+      void put(CacheEntry entry) {
+         final String name = fileName(entry.key);
+         final Path file = directory.resolve(name);
+         final Path temp = directory.resolve(name + ".tmp");
+         try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+               entry.writeTo(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            track(name, Files.size(file));
+         } catch (IOException e) {
+            deleteQuietly(temp);
+            stats.evicted();
+         }
+      }
+
+      void remove(String key) {
+         delete(fileName(key));
+      }
+
+      void clear() {
+         final List<String> names;
+         synchronized (this) {
+            names = new ArrayList<>(files.keySet());
+         }
+         names.forEach(this::delete);
+      }
+
+      private void track(String name, long size) {
+         final List<String> evicted = new ArrayList<>();
+         synchronized (this) {
+            final Long previous = files.put(name, size);
+            bytes += size - (previous == null ? 0 : previous);
+            final Iterator<Map.Entry<String, Long>> eldest = files.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+               final Map.Entry<String, Long> e = eldest.next();
+               eldest.remove();
+               bytes -= e.getValue();
+               evicted.add(e.getKey());
+            }
+         }
+         for (String e : evicted) {
+            deleteQuietly(directory.resolve(e));
+            stats.evicted();
+         }
+      }
+
+      private void delete(String name) {
+         synchronized (this) {
+            final Long size = files.remove(name);
+            if (size == null) {
+               return;
+            }
+            bytes -= size;
+         }
+         deleteQuietly(directory.resolve(name));
+      }
+
+      private void deleteQuietly(Path file) {
+         try {
+            Files.deleteIfExists(file);
+         } catch (IOException e) {
+            //the file is not tracked anymore and is overwritten when the response is stored again
+         }
+      }
+
+      private String fileName(String key) {
+         try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder name = new StringBuilder(hash.length * 2 + ENTRY_SUFFIX.length());
+            for (byte b : hash) {
+               name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.append(ENTRY_SUFFIX).toString();
+         } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+         }
+      }
+   }
+}
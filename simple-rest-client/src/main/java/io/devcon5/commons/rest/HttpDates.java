@@ -0,0 +1,50 @@
+package io.devcon5.commons.rest;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the date and delay values of HTTP headers.
+ */
+final class HttpDates {
+
+   private HttpDates() {
+   }
+
+   /**
+    * @param value
+    *  a date in the format of RFC 1123, i.e. <code>Thu, 01 Jan 2015 00:00:00 GMT</code>, may be null
+    * @return
+    *  the date in epoch millis or -1 if the value is not a valid date
+    */
+   static long parse(String value) {
+      if (value == null) {
+         return -1;
+      }
+      try {
+         return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+      } catch (DateTimeParseException e) {
+         return -1;
+      }
+   }
+
+   /**
+    * @param retryAfter
+    *  the value of a Retry-After header, either a number of seconds or a date, may be null
+    * @return
+    *  the requested delay in milliseconds, 0 if the value is missing or invalid
+    */
+   static long retryAfterMillis(String retryAfter) {
+      if (retryAfter == null) {
+         return 0;
+      }
+      try {
+         return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())));
+      } catch (NumberFormatException e) {
+         final long date = parse(retryAfter);
+         return date < 0 ? 0 : Math.max(0, date - System.currentTimeMillis());
+      }
+   }
+}
@@ -0,0 +1,279 @@
+package io.devcon5.commons.rest;
+
+import static java.lang.Integer.getInteger;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe, bounded cache of {@link JAXBContext}s per target type. Creating a context is expensive (reflection over the
+ * type hierarchy), whereas a context is thread-safe and can be shared. Once the cache is full, the least recently used
+ * context is evicted. {@link Unmarshaller}s and {@link Marshaller}s are
+ * not thread-safe, so each cached context keeps small pools of idle unmarshallers and marshallers that are handed out to
+ * one thread at a time.
+ */
+public final class JAXBContexts {
+
+   /**
+    * Maximum number of cached contexts, can be set using the system property <code>io.devcon5.rest.jaxb.maxContexts</code>
+    */
+   static final int MAX_CONTEXTS = getInteger("io.devcon5.rest.jaxb.maxContexts", 256);
+
+   /**
+    * Maximum number of idle unmarshallers and marshallers kept per context, can be set using the system property
+    * <code>io.devcon5.rest.jaxb.maxPooled</code>
+    */
+   static final int MAX_POOLED = getInteger("io.devcon5.rest.jaxb.maxPooled", 16);
+
+   /**
+    * the resolution of the access times of the contexts, about 1 ms
+    */
+   private static final int ACCESS_TIME_SHIFT = 20;
+
+   private static final Map<Class<?>, Entry> CONTEXTS = new ConcurrentHashMap<>();
+
+   private JAXBContexts() {
+   }
+
+   /**
+    * Creates and caches the contexts for the specified types so that the first request for such a type doesn't have to pay
+    * the initialization cost.
+    * @param types
+    *  the types to create contexts for
+    */
+   public static void warmUp(Class<?>... types) {
+      for (Class<?> type : types) {
+         entry(type);
+      }
+   }
+
+   /**
+    * Provides the cached context for the specified type, creating it if required.
+    * @param type
+    *  the bound type
+    * @return
+    *  the shared context for the type
+    */
+   public static JAXBContext get(Class<?> type) {
+      return entry(type).context;
+   }
+
+   /**
+    * Removes all cached contexts
+    */
+   public static void clear() {
+      CONTEXTS.clear();
+   }
+
+   /**
+    * @return
+    *  the number of currently cached contexts
+    */
+   static int size() {
+      return CONTEXTS.size();
+   }
+
+   /**
+    * @param type
+    *  the bound type
+    * @return
+    *  true if a context for the type is cached
+    */
+   static boolean contains(Class<?> type) {
+      return CONTEXTS.containsKey(type);
+   }
+
+   /**
+    * Runs the function with an unmarshaller for the specified type. The unmarshaller is taken from the pool of the cached
+    * context and returned to it afterwards, it must not escape the function.
+    * @param type
+    *  the bound type
+    * @param function
+    *  the function to apply with the unmarshaller
+    * @param <R>
+    * @return
+    *  the result of the function
+    * @throws JAXBException
+    *  if the unmarshaller could not be created or the function failed
+    */
+   public static <R> R withUnmarshaller(Class<?> type, JAXBFunction<Unmarshaller, R> function) throws JAXBException {
+      final Entry entry = entry(type);
+      final Unmarshaller um = entry.unmarshallers.acquire();
+      try {
+         return function.apply(um);
+      } finally {
+         entry.unmarshallers.release(um);
+      }
+   }
+
+   /**
+    * Runs the function with a marshaller for the specified type. The marshaller is taken from the pool of the cached
+    * context and returned to it afterwards, it must not escape the function. Properties set on the marshaller are kept
+    * in the pool, so the function has to set all properties it depends on.
+    * @param type
+    *  the bound type
+    * @param function
+    *  the function to apply with the marshaller
+    * @param <R>
+    * @return
+    *  the result of the function
+    * @throws JAXBException
+    *  if the marshaller could not be created or the function failed
+    */
+   public static <R> R withMarshaller(Class<?> type, JAXBFunction<Marshaller, R> function) throws JAXBException {
+      final Entry entry = entry(type);
+      final Marshaller m = entry.marshallers.acquire();
+      try {
+         return function.apply(m);
+      } finally {
+         entry.marshallers.release(m);
+      }
+   }
+
+   /**
+    * Derives the name of the XML element bound to the type. The name is defined by the {@link XmlRootElement} annotation,
+    * types without the annotation are bound to the default name.
+    * @param type
+    *  the bound type
+    * @return
+    *  the element name, which is derived from the class name like a bean property by default, i.e. URLItem or item for
+    *  Item
+    */
+   static String elementName(Class<?> type) {
+      final XmlRootElement root = type.getAnnotation(XmlRootElement.class);
+      if (root != null && !"##default".equals(root.name())) {
+         return root.name();
+      }
+      final String name = type.getSimpleName();
+      if (name.length() > 1 && Character.isUpperCase(name.charAt(1))) {
+         return name;
+      }
+      return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+   }
+
+   private static Entry entry(Class<?> type) {
+      Entry entry = CONTEXTS.get(type);
+      if (entry == null) {
+         entry = CONTEXTS.computeIfAbsent(type, JAXBContexts::newEntry);
+         evictOverflow(MAX_CONTEXTS);
+      }
+      entry.touch();
+      return entry;
+   }
+
+   private static Entry newEntry(Class<?> type) {
+      try {
+         return new Entry(JAXBContext.newInstance(type));
+      } catch (JAXBException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Evicts the least recently used contexts until the cache doesn't exceed the maximum size. The lookups don't maintain an
+    * access order but only update the access time of their context, so the eviction scans all contexts, which is cheap for
+    * a bounded cache and only happens when a new context is added.
+    * @param maxContexts
+    *  the maximum number of cached contexts
+    */
+   static synchronized void evictOverflow(int maxContexts) {
+      while (CONTEXTS.size() > maxContexts) {
+         Map.Entry<Class<?>, Entry> eldest = null;
+         for (Map.Entry<Class<?>, Entry> candidate : CONTEXTS.entrySet()) {
+            if (eldest == null || candidate.getValue().lastAccess - eldest.getValue().lastAccess < 0) {
+               eldest = candidate;
+            }
+         }
+         if (eldest == null) {
+            return;
+         }
+         CONTEXTS.remove(eldest.getKey(), eldest.getValue());
+      }
+   }
+
+   /**
+    * A function accepting a JAXB object that may throw a {@link JAXBException}
+    * @param <T>
+    * @param <R>
+    */
+   @FunctionalInterface
+   public interface JAXBFunction<T, R> {
+
+      R apply(T t) throws JAXBException;
+   }
+
+   private static final class Entry {
+
+      final JAXBContext context;
+      final Pool<Unmarshaller> unmarshallers;
+      final Pool<Marshaller> marshallers;
+      volatile long lastAccess = accessTime();
+
+      Entry(final JAXBContext context) {
+         this.context = context;
+         this.unmarshallers = new Pool<>(context::createUnmarshaller);
+         this.marshallers = new Pool<>(context::createMarshaller);
+      }
+
+      /**
+       * Updates the access time, the field is only written once per resolution, so that concurrent lookups of the same
+       * context don't contend on it
+       */
+      void touch() {
+         final long now = accessTime();
+         if (lastAccess != now) {
+            lastAccess = now;
+         }
+      }
+
+      private static long accessTime() {
+         return System.nanoTime() >> ACCESS_TIME_SHIFT;
+      }
+   }
+
+   /**
+    * A bounded pool of idle, non-thread-safe JAXB objects
+    * @param <T>
+    */
+   private static final class Pool<T> {
+
+      private final JAXBSupplier<T> factory;
+      private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+      private final AtomicInteger idleCount = new AtomicInteger();
+
+      Pool(final JAXBSupplier<T> factory) {
+         this.factory = factory;
+      }
+
+      T acquire() throws JAXBException {
+         final T t = idle.poll();
+         if (t == null) {
+            return factory.get();
+         }
+         idleCount.decrementAndGet();
+         return t;
+      }
+
+      void release(T t) {
+         if (idleCount.incrementAndGet() <= MAX_POOLED) {
+            idle.offer(t);
+         } else {
+            idleCount.decrementAndGet();
+         }
+      }
+   }
+
+   @FunctionalInterface
+   private interface JAXBSupplier<T> {
+
+      T get() throws JAXBException;
+   }
+}
@@ -1,29 +1,159 @@
 package io.devcon5.commons.rest;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
 import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public class JAXBEntityReader implements EntityReader {
 
+   /**
+    * The factory is thread-safe once configured. DTDs are not supported, so that documents can't refer to external
+    * entities.
+    */
+   private static final XMLInputFactory XML_INPUT_FACTORY = newXmlInputFactory();
+
+   /**
+    * Creates the JAXB contexts for the specified types upfront, so that reading the first entity of such a type
+    * doesn't have to pay the initialization cost.
+    * @param types
+    *  the types that are expected to be read
+    */
+   public static void warmUp(Class<?>... types) {
+      JAXBContexts.warmUp(types);
+   }
+
    @Override
    public boolean supports(final Class<?> targetType, final String contentType) {
-      return contentType.matches(".+\\/xml(\\+[a-zA-Z0-9]+)?");
+      return supports(targetType, MediaType.parse(contentType));
+   }
+
+   @Override
+   public boolean supports(final Class<?> targetType, final MediaType mediaType) {
+      return mediaType.hasFormat("xml");
    }
 
    @Override
    public <T> T read(final Class<T> targetType, final String contentType, final InputStream data) {
 
       try {
-         final JAXBContext context = JAXBContext.newInstance(targetType);
-         final Unmarshaller um = context.createUnmarshaller();
-         final JAXBElement element = um.unmarshal(new StreamSource(data), targetType);
-         return (T) element.getValue();
+         return JAXBContexts.withUnmarshaller(targetType, um -> um.unmarshal(new StreamSource(data), targetType).getValue());
       } catch (JAXBException e) {
          throw new RuntimeException(e);
       }
    }
+
+   /**
+    * Reads the child elements of the root element of the document as items. The document is scanned using StAX and each
+    * item is unmarshalled on its own. If the item type is annotated with {@link XmlRootElement}, only the child elements
+    * with the name of the annotation are read and other child elements are skipped, otherwise all child elements are read.
+    */
+   @Override
+   public <T> Iterator<T> readItems(final Class<T> itemType, final String contentType, final InputStream data) {
+      try {
+         return new ItemIterator<>(itemType, XML_INPUT_FACTORY.createXMLStreamReader(data));
+      } catch (XMLStreamException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private static XMLInputFactory newXmlInputFactory() {
+      final XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      return factory;
+   }
+
+   /**
+    * Iterates the child elements of the root element, unmarshalling one element at a time
+    */
+   private static final class ItemIterator<T> implements Iterator<T> {
+
+      private final Class<T> itemType;
+      private final String elementName;
+      private final XMLStreamReader reader;
+      private T next;
+      private boolean started;
+      private boolean done;
+
+      ItemIterator(final Class<T> itemType, final XMLStreamReader reader) {
+         this.itemType = itemType;
+         this.elementName = itemType.isAnnotationPresent(XmlRootElement.class) ? JAXBContexts.elementName(itemType) : null;
+         this.reader = reader;
+      }
+
+      @Override
+      public boolean hasNext() {
+         if (next == null && !done) {
+            try {
+               next = advance();
+            } catch (XMLStreamException | JAXBException e) {
+               done = true;
+               throw new RuntimeException(e);
+            }
+            done = next == null;
+         }
+         return next != null;
+      }
+
+      @Override
+      public T next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         final T item = next;
+         next = null;
+         return item;
+      }
+
+      private T advance() throws XMLStreamException, JAXBException {
+         if (!started) {
+            started = true;
+            while (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+               if (!reader.hasNext()) {
+                  return null;
+               }
+               reader.next();
+            }
+            reader.next();
+         }
+         //the reader is positioned within the root element, after the previous item
+         while (true) {
+            switch (reader.getEventType()) {
+               case XMLStreamConstants.START_ELEMENT:
+                  if (elementName == null || elementName.equals(reader.getLocalName())) {
+                     //the unmarshaller leaves the reader at the event following the end of the item
+                     return JAXBContexts.withUnmarshaller(itemType, um -> um.unmarshal(reader, itemType).getValue());
+                  }
+                  skipElement();
+                  break;
+               case XMLStreamConstants.END_ELEMENT:
+               case XMLStreamConstants.END_DOCUMENT:
+                  reader.close();
+                  return null;
+               default:
+                  reader.next();
+            }
+         }
+      }
+
+      private void skipElement() throws XMLStreamException {
+         int depth = 1;
+         while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+               depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+               depth--;
+            }
+         }
+         reader.next();
+      }
+   }
 }
@@ -0,0 +1,56 @@
+package io.devcon5.commons.rest;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes JAXB-bound entities as XML. Entities are marshalled directly to the output stream of the request using pooled
+ * marshallers of the cached JAXB contexts. Entities of types without {@link XmlRootElement} annotation are written as
+ * element with the default name of the type. The length of the document is not known in advance, so it's sent in
+ * chunks.
+ */
+public class JAXBEntityWriter implements EntityWriter {
+
+   @Override
+   public boolean supports(final Class<?> sourceType, final String contentType) {
+      return supports(sourceType, MediaType.parse(contentType));
+   }
+
+   @Override
+   public boolean supports(final Class<?> sourceType, final MediaType mediaType) {
+      return mediaType.hasFormat("xml");
+   }
+
+   @Override
+   public void write(final Object entity, final String contentType, final OutputStream out) throws IOException {
+      final Class<?> type = entity instanceof JAXBElement ? ((JAXBElement<?>) entity).getDeclaredType() : entity.getClass();
+      final String encoding = MediaType.parse(contentType).getCharset().orElse(StandardCharsets.UTF_8).name();
+      try {
+         JAXBContexts.withMarshaller(type, m -> {
+            m.setProperty(Marshaller.JAXB_ENCODING, encoding);
+            m.marshal(toElement(type, entity), out);
+            return null;
+         });
+      } catch (JAXBException e) {
+         //errors of the output stream are reported as I/O errors, so that the request may be retried
+         if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+         }
+         throw new RuntimeException(e);
+      }
+   }
+
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   private static Object toElement(Class<?> type, Object entity) {
+      if (entity instanceof JAXBElement || type.isAnnotationPresent(XmlRootElement.class)) {
+         return entity;
+      }
+      return new JAXBElement(new QName(JAXBContexts.elementName(type)), type, entity);
+   }
+}
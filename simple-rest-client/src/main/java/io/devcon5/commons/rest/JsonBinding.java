@@ -0,0 +1,345 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.devcon5.commons.rest.JsonParser.Token;
+
+/**
+ * Binds JSON values to Java types. Objects are bound to POJOs using their default constructor and their non-static,
+ * non-transient, non-final fields or public setters, which take precedence over fields of the same name. The accessors
+ * of a class are looked up once and are invoked as method handles.
+ */
+final class JsonBinding {
+
+   private static final MethodType CONSTRUCTOR = MethodType.methodType(Object.class);
+   private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+   private static final Map<Class<?>, Pojo> POJOS = new ConcurrentHashMap<>();
+
+   private JsonBinding() {
+   }
+
+   /**
+    * Reads the value starting with the current token of the parser
+    * @param parser
+    *  the parser positioned at the first token of the value
+    * @param type
+    *  the type of the value, which may be a parameterized type
+    * @return
+    *  the value or null for a JSON null
+    * @throws IOException
+    *  if the value doesn't match the type or could not be read
+    */
+   static Object read(JsonParser parser, Type type) throws IOException {
+      final Token token = parser.getToken();
+      if (token == Token.NAME) {
+         parser.next();
+         return read(parser, type);
+      }
+      if (token == Token.NULL) {
+         return null;
+      }
+      final Class<?> raw = rawType(type);
+      if (raw == Object.class) {
+         return parser.readValue();
+      }
+      if (raw == String.class) {
+         if (token == Token.BOOLEAN) {
+            return String.valueOf(parser.getBoolean());
+         }
+         expect(parser, Token.STRING, Token.NUMBER);
+         return parser.getString();
+      }
+      if (raw == boolean.class || raw == Boolean.class) {
+         expect(parser, Token.BOOLEAN);
+         return parser.getBoolean();
+      }
+      if (raw == char.class || raw == Character.class) {
+         expect(parser, Token.STRING);
+         final String value = parser.getString();
+         if (value.length() != 1) {
+            throw parser.syntaxError("Expected a single character");
+         }
+         return value.charAt(0);
+      }
+      if (raw.isPrimitive() || Number.class.isAssignableFrom(raw)) {
+         expect(parser, Token.NUMBER);
+         return number(parser, raw);
+      }
+      if (raw.isEnum()) {
+         expect(parser, Token.STRING);
+         return enumConstant(parser, raw);
+      }
+      if (raw.isArray()) {
+         expect(parser, Token.BEGIN_ARRAY);
+         return readArray(parser, componentType(type));
+      }
+      if (Collection.class.isAssignableFrom(raw)) {
+         expect(parser, Token.BEGIN_ARRAY);
+         return readCollection(parser, raw, typeArgument(type, 0));
+      }
+      if (Map.class.isAssignableFrom(raw)) {
+         expect(parser, Token.BEGIN_OBJECT);
+         return readMap(parser, raw, typeArgument(type, 1));
+      }
+      expect(parser, Token.BEGIN_OBJECT);
+      return readPojo(parser, POJOS.computeIfAbsent(raw, Pojo::new));
+   }
+
+   private static void expect(JsonParser parser, Token... expected) throws IOException {
+      for (Token token : expected) {
+         if (parser.getToken() == token) {
+            return;
+         }
+      }
+      throw parser.syntaxError("Expected " + expected[0] + " but was " + parser.getToken());
+   }
+
+   private static Object number(JsonParser parser, Class<?> type) throws IOException {
+      final String value = parser.getString();
+      try {
+         if (type == int.class || type == Integer.class) {
+            return Integer.valueOf(value);
+         } else if (type == long.class || type == Long.class) {
+            return Long.valueOf(value);
+         } else if (type == double.class || type == Double.class) {
+            return Double.valueOf(value);
+         } else if (type == float.class || type == Float.class) {
+            return Float.valueOf(value);
+         } else if (type == short.class || type == Short.class) {
+            return Short.valueOf(value);
+         } else if (type == byte.class || type == Byte.class) {
+            return Byte.valueOf(value);
+         } else if (type == BigDecimal.class) {
+            return new BigDecimal(value);
+         } else if (type == BigInteger.class) {
+            return new BigInteger(value);
+         } else if (type == Number.class) {
+            return parser.getNumber();
+         }
+      } catch (NumberFormatException e) {
+         throw parser.syntaxError("Number " + value + " can't be converted to " + type.getSimpleName());
+      }
+      throw new IllegalArgumentException("Unsupported number type " + type.getName());
+   }
+
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   private static Object enumConstant(JsonParser parser, Class<?> type) throws IOException {
+      try {
+         return Enum.valueOf((Class<? extends Enum>) type, parser.getString());
+      } catch (IllegalArgumentException e) {
+         throw parser.syntaxError("Unknown constant " + parser.getString() + " of " + type.getSimpleName());
+      }
+   }
+
+   private static Object readArray(JsonParser parser, Type componentType) throws IOException {
+      final List<Object> items = new ArrayList<>();
+      while (parser.next() != Token.END_ARRAY) {
+         items.add(read(parser, componentType));
+      }
+      final Class<?> raw = rawType(componentType);
+      final Object array = Array.newInstance(raw, items.size());
+      for (int i = 0; i < items.size(); i++) {
+         final Object item = items.get(i);
+         //null can't be assigned to primitive components, which keep their default value
+         if (item != null || !raw.isPrimitive()) {
+            Array.set(array, i, item);
+         }
+      }
+      return array;
+   }
+
+   private static Collection<Object> readCollection(JsonParser parser, Class<?> type, Type itemType) throws IOException {
+      final Collection<Object> collection;
+      if (type.isAssignableFrom(ArrayList.class)) {
+         collection = new ArrayList<>();
+      } else if (type.isAssignableFrom(LinkedHashSet.class)) {
+         collection = new LinkedHashSet<>();
+      } else {
+         collection = newInstance(type);
+      }
+      while (parser.next() != Token.END_ARRAY) {
+         collection.add(read(parser, itemType));
+      }
+      return collection;
+   }
+
+   private static Map<Object, Object> readMap(JsonParser parser, Class<?> type, Type valueType) throws IOException {
+      final Map<Object, Object> map;
+      if (type.isAssignableFrom(LinkedHashMap.class)) {
+         map = new LinkedHashMap<>();
+      } else {
+         map = newInstance(type);
+      }
+      while (parser.next() != Token.END_OBJECT) {
+         final String name = parser.getString();
+         parser.next();
+         map.put(name, read(parser, valueType));
+      }
+      return map;
+   }
+
+   private static Object readPojo(JsonParser parser, Pojo pojo) throws IOException {
+      final Object instance = pojo.newInstance();
+      while (parser.next() != Token.END_OBJECT) {
+         final Property property = pojo.properties.get(parser.getString());
+         parser.next();
+         if (property == null) {
+            parser.skipValue();
+            continue;
+         }
+         final Object value = read(parser, property.type);
+         if (value != null || !property.primitive) {
+            property.set(instance, value);
+         }
+      }
+      return instance;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static <T> T newInstance(Class<?> type) {
+      try {
+         return (T) type.getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException e) {
+         throw new IllegalArgumentException("Can't instantiate " + type.getName(), e);
+      }
+   }
+
+   private static Class<?> rawType(Type type) {
+      if (type instanceof Class) {
+         return (Class<?>) type;
+      }
+      if (type instanceof ParameterizedType) {
+         return rawType(((ParameterizedType) type).getRawType());
+      }
+      if (type instanceof GenericArrayType) {
+         return Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+      }
+      if (type instanceof WildcardType) {
+         return rawType(((WildcardType) type).getUpperBounds()[0]);
+      }
+      if (type instanceof TypeVariable) {
+         return rawType(((TypeVariable<?>) type).getBounds()[0]);
+      }
+      return Object.class;
+   }
+
+   private static Type componentType(Type arrayType) {
+      if (arrayType instanceof GenericArrayType) {
+         return ((GenericArrayType) arrayType).getGenericComponentType();
+      }
+      return rawType(arrayType).getComponentType();
+   }
+
+   /**
+    * @return
+    *  the type argument at the index or Object if the type is not parameterized
+    */
+   private static Type typeArgument(Type type, int index) {
+      if (type instanceof ParameterizedType) {
+         final Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+         if (index < arguments.length) {
+            return arguments[index];
+         }
+      }
+      return Object.class;
+   }
+
+   /**
+    * The cached constructor and accessors of a class
+    */
+   private static final class Pojo {
+
+      private final Class<?> type;
+      private final MethodHandle constructor;
+      private final Map<String, Property> properties = new HashMap<>();
+
+      Pojo(final Class<?> type) {
+         this.type = type;
+         final MethodHandles.Lookup lookup = MethodHandles.lookup();
+         try {
+            final Constructor<?> defaultConstructor = type.getDeclaredConstructor();
+            defaultConstructor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(defaultConstructor).asType(CONSTRUCTOR);
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+               for (Field field : c.getDeclaredFields()) {
+                  final int modifiers = field.getModifiers();
+                  if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || Modifier.isFinal(modifiers)
+                        || field.isSynthetic() || properties.containsKey(field.getName())) {
+                     continue;
+                  }
+                  field.setAccessible(true);
+                  properties.put(field.getName(), new Property(field.getGenericType(), lookup.unreflectSetter(field)));
+               }
+            }
+            for (Method method : type.getMethods()) {
+               final String name = method.getName();
+               if (name.length() > 3 && name.startsWith("set") && method.getParameterCount() == 1
+                     && !Modifier.isStatic(method.getModifiers())) {
+                  properties.put(Character.toLowerCase(name.charAt(3)) + name.substring(4),
+                                 new Property(method.getGenericParameterTypes()[0], lookup.unreflect(method)));
+               }
+            }
+         } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " has no default constructor", e);
+         } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("Can't access the properties of " + type.getName(), e);
+         }
+      }
+
+      Object newInstance() {
+         try {
+            return (Object) constructor.invokeExact();
+         } catch (Throwable e) {
+            throw new IllegalArgumentException("Can't instantiate " + type.getName(), e);
+         }
+      }
+   }
+
+   /**
+    * A settable property of a POJO
+    */
+   private static final class Property {
+
+      private final Type type;
+      private final boolean primitive;
+      private final MethodHandle setter;
+
+      Property(final Type type, final MethodHandle setter) {
+         this.type = type;
+         this.primitive = type instanceof Class && ((Class<?>) type).isPrimitive();
+         this.setter = setter.asType(SETTER);
+      }
+
+      void set(Object instance, Object value) {
+         try {
+            setter.invokeExact(instance, value);
+         } catch (Throwable e) {
+            throw new IllegalArgumentException("Can't set property of " + instance.getClass().getName(), e);
+         }
+      }
+   }
+}
@@ -0,0 +1,114 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads JSON documents directly from the response stream using a {@link JsonParser}, without reading the document into
+ * a String first. Objects are bound to {@link java.util.Map}s, POJOs or other types as described by
+ * {@link JsonParser#read(Class)}.
+ */
+public class JsonEntityReader implements EntityReader {
+
+   @Override
+   public boolean supports(final Class<?> targetType, final String contentType) {
+      return supports(targetType, MediaType.parse(contentType));
+   }
+
+   @Override
+   public boolean supports(final Class<?> targetType, final MediaType mediaType) {
+      return mediaType.hasFormat("json");
+   }
+
+   @Override
+   public <T> T read(final Class<T> targetType, final String contentType, final InputStream data) {
+      try (JsonParser parser = JsonParser.create(data, charset(contentType))) {
+         parser.next();
+         final T entity = parser.read(targetType);
+         if (entity == null) {
+            throw parser.syntaxError("Expected an entity but was null");
+         }
+         if (parser.next() != JsonParser.Token.END_DOCUMENT) {
+            throw parser.syntaxError("Unexpected content after the end of the document");
+         }
+         return entity;
+      } catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Reads the elements of the top-level array of the document as items, parsing one element at a time.
+    */
+   @Override
+   public <T> Iterator<T> readItems(final Class<T> itemType, final String contentType, final InputStream data) {
+      return new ItemIterator<>(itemType, JsonParser.create(data, charset(contentType)));
+   }
+
+   private static Charset charset(String contentType) {
+      return MediaType.parse(contentType).getCharset().orElse(StandardCharsets.UTF_8);
+   }
+
+   /**
+    * Iterates the elements of the top-level array, binding one element at a time
+    */
+   private static final class ItemIterator<T> implements Iterator<T> {
+
+      private final Class<T> itemType;
+      private final JsonParser parser;
+      private boolean started;
+      private boolean ready;
+      private boolean done;
+
+      ItemIterator(final Class<T> itemType, final JsonParser parser) {
+         this.itemType = itemType;
+         this.parser = parser;
+      }
+
+      @Override
+      public boolean hasNext() {
+         if (!ready && !done) {
+            try {
+               advance();
+            } catch (IOException e) {
+               done = true;
+               throw new RuntimeException(e);
+            }
+         }
+         return ready;
+      }
+
+      @Override
+      public T next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         ready = false;
+         try {
+            return parser.read(itemType);
+         } catch (IOException e) {
+            done = true;
+            throw new RuntimeException(e);
+         }
+      }
+
+      private void advance() throws IOException {
+         if (!started) {
+            started = true;
+            if (parser.next() != JsonParser.Token.BEGIN_ARRAY) {
+               throw parser.syntaxError("Expected an array but was " + parser.getToken());
+            }
+         }
+         if (parser.next() == JsonParser.Token.END_ARRAY) {
+            done = true;
+            parser.close();
+         } else {
+            ready = true;
+         }
+      }
+   }
+}
@@ -0,0 +1,543 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pull parser reading JSON token by token from a stream, so that documents of any size can be processed with a small,
+ * fixed buffer. Values can either be read token by token or, starting at any token, be read completely into a
+ * {@link Map}, {@link List}, primitive value or POJO.
+ * <br>
+ * Large arrays can be processed item by item
+ * <pre>
+ * try (JsonParser parser = JsonParser.create(response.asInputStream(), StandardCharsets.UTF_8)) {
+ *    parser.next(); //BEGIN_ARRAY
+ *    while (parser.next() != JsonParser.Token.END_ARRAY) {
+ *       process(parser.read(Item.class));
+ *    }
+ * }
+ * </pre>
+ * Malformed documents are reported with an {@link IOException}. A parser is not thread-safe.
+ */
+public final class JsonParser implements AutoCloseable {
+
+   /**
+    * The tokens of a JSON document
+    */
+   public enum Token {
+      BEGIN_OBJECT,
+      END_OBJECT,
+      BEGIN_ARRAY,
+      END_ARRAY,
+      /**
+       * the name of a member of an object
+       */
+      NAME,
+      STRING,
+      NUMBER,
+      BOOLEAN,
+      NULL,
+      END_DOCUMENT
+   }
+
+   private static final int BUFFER_SIZE = 4096;
+
+   /**
+    * the states of the enclosing values, which define the tokens that may follow
+    */
+   private static final int EMPTY_DOCUMENT = 0;
+   private static final int NONEMPTY_DOCUMENT = 1;
+   private static final int EMPTY_ARRAY = 2;
+   private static final int NONEMPTY_ARRAY = 3;
+   private static final int EMPTY_OBJECT = 4;
+   private static final int DANGLING_NAME = 5;
+   private static final int NONEMPTY_OBJECT = 6;
+
+   private final Reader reader;
+   private final char[] buffer = new char[BUFFER_SIZE];
+   private int pos;
+   private int limit;
+   /**
+    * the number of characters read before the current buffer, for error messages
+    */
+   private long consumed;
+
+   private int[] stack = new int[32];
+   private int depth;
+
+   private final StringBuilder text = new StringBuilder();
+   private Token token;
+   private String value;
+   private boolean bool;
+   private boolean integral;
+
+   private JsonParser(final Reader reader) {
+      this.reader = reader;
+      this.stack[depth++] = EMPTY_DOCUMENT;
+   }
+
+   /**
+    * Creates a parser for a stream
+    * @param in
+    *  the JSON document
+    * @param charset
+    *  the charset of the document, usually UTF-8
+    * @return
+    *  a new parser
+    */
+   public static JsonParser create(InputStream in, Charset charset) {
+      return new JsonParser(new InputStreamReader(in, charset));
+   }
+
+   /**
+    * Creates a parser for a reader
+    * @param reader
+    *  the JSON document
+    * @return
+    *  a new parser
+    */
+   public static JsonParser create(Reader reader) {
+      return new JsonParser(reader);
+   }
+
+   /**
+    * Advances to the next token
+    * @return
+    *  the next token, {@link Token#END_DOCUMENT} once the document has been read completely
+    * @throws IOException
+    *  if the document is malformed or could not be read
+    */
+   public Token next() throws IOException {
+      int c = nextNonWhitespace();
+      switch (stack[depth - 1]) {
+         case EMPTY_DOCUMENT:
+            stack[depth - 1] = NONEMPTY_DOCUMENT;
+            break;
+         case NONEMPTY_DOCUMENT:
+            if (c == -1) {
+               return token = Token.END_DOCUMENT;
+            }
+            throw syntaxError("Unexpected content after the end of the document");
+         case EMPTY_ARRAY:
+            stack[depth - 1] = NONEMPTY_ARRAY;
+            if (c == ']') {
+               depth--;
+               return token = Token.END_ARRAY;
+            }
+            break;
+         case NONEMPTY_ARRAY:
+            if (c == ']') {
+               depth--;
+               return token = Token.END_ARRAY;
+            }
+            if (c != ',') {
+               throw syntaxError("Expected ',' or ']'");
+            }
+            c = nextNonWhitespace();
+            break;
+         case EMPTY_OBJECT:
+         case NONEMPTY_OBJECT:
+            if (c == '}') {
+               depth--;
+               return token = Token.END_OBJECT;
+            }
+            if (stack[depth - 1] == NONEMPTY_OBJECT) {
+               if (c != ',') {
+                  throw syntaxError("Expected ',' or '}'");
+               }
+               c = nextNonWhitespace();
+            }
+            if (c != '"') {
+               throw syntaxError("Expected name");
+            }
+            stack[depth - 1] = DANGLING_NAME;
+            value = readString();
+            return token = Token.NAME;
+         case DANGLING_NAME:
+            if (c != ':') {
+               throw syntaxError("Expected ':'");
+            }
+            stack[depth - 1] = NONEMPTY_OBJECT;
+            c = nextNonWhitespace();
+            break;
+         default:
+            throw new IllegalStateException();
+      }
+      return token = readValue(c);
+   }
+
+   private Token readValue(int c) throws IOException {
+      switch (c) {
+         case '{':
+            push(EMPTY_OBJECT);
+            return Token.BEGIN_OBJECT;
+         case '[':
+            push(EMPTY_ARRAY);
+            return Token.BEGIN_ARRAY;
+         case '"':
+            value = readString();
+            return Token.STRING;
+         case 't':
+            readLiteral("rue");
+            bool = true;
+            return Token.BOOLEAN;
+         case 'f':
+            readLiteral("alse");
+            bool = false;
+            return Token.BOOLEAN;
+         case 'n':
+            readLiteral("ull");
+            return Token.NULL;
+         case -1:
+            throw syntaxError("Unexpected end of the document");
+         default:
+            if (c == '-' || c >= '0' && c <= '9') {
+               value = readNumber(c);
+               return Token.NUMBER;
+            }
+            throw syntaxError("Unexpected character '" + (char) c + "'");
+      }
+   }
+
+   /**
+    * @return
+    *  the token returned by the last call of {@link #next()}
+    */
+   public Token getToken() {
+      return token;
+   }
+
+   /**
+    * @return
+    *  the name of a {@link Token#NAME}, the value of a {@link Token#STRING} or the text of a {@link Token#NUMBER}
+    */
+   public String getString() {
+      if (token != Token.NAME && token != Token.STRING && token != Token.NUMBER) {
+         throw new IllegalStateException("The current token " + token + " has no text");
+      }
+      return value;
+   }
+
+   /**
+    * @return
+    *  the value of a {@link Token#BOOLEAN}
+    */
+   public boolean getBoolean() {
+      if (token != Token.BOOLEAN) {
+         throw new IllegalStateException("The current token " + token + " is not a boolean");
+      }
+      return bool;
+   }
+
+   /**
+    * @return
+    *  the value of a {@link Token#NUMBER} as long
+    * @throws NumberFormatException
+    *  if the number is not an integer or exceeds the range of long
+    */
+   public long getLong() {
+      return Long.parseLong(number());
+   }
+
+   /**
+    * @return
+    *  the value of a {@link Token#NUMBER} as double
+    */
+   public double getDouble() {
+      return Double.parseDouble(number());
+   }
+
+   /**
+    * @return
+    *  the exact value of a {@link Token#NUMBER}
+    */
+   public BigDecimal getBigDecimal() {
+      return new BigDecimal(number());
+   }
+
+   /**
+    * @return
+    *  the value of a {@link Token#NUMBER} as {@link Long} if it's an integer within the range of long, as
+    *  {@link BigInteger} if it's a larger integer, otherwise as {@link Double}
+    */
+   public Number getNumber() {
+      final String number = number();
+      if (!integral) {
+         return Double.valueOf(number);
+      }
+      //up to 18 digits always fit into a long
+      if (number.length() < 19) {
+         return Long.valueOf(number);
+      }
+      final BigInteger big = new BigInteger(number);
+      return big.bitLength() < 64 ? (Number) big.longValue() : big;
+   }
+
+   private String number() {
+      if (token != Token.NUMBER) {
+         throw new IllegalStateException("The current token " + token + " is not a number");
+      }
+      return value;
+   }
+
+   /**
+    * Skips the value starting with the current token, i.e. a nested object or array. If the current token is a
+    * {@link Token#NAME}, the value of the member is skipped.
+    * @throws IOException
+    *  if the document is malformed or could not be read
+    */
+   public void skipValue() throws IOException {
+      if (token == Token.NAME) {
+         next();
+      }
+      if (token != Token.BEGIN_OBJECT && token != Token.BEGIN_ARRAY) {
+         return;
+      }
+      final int end = depth - 1;
+      while (depth > end) {
+         if (next() == Token.END_DOCUMENT) {
+            throw syntaxError("Unexpected end of the document");
+         }
+      }
+   }
+
+   /**
+    * Reads the value starting with the current token completely. Objects are read into a {@link LinkedHashMap}, arrays
+    * into an {@link ArrayList} and numbers as described by {@link #getNumber()}.
+    * @return
+    *  the value or null for a {@link Token#NULL}
+    * @throws IOException
+    *  if the document is malformed or could not be read
+    */
+   public Object readValue() throws IOException {
+      switch (token) {
+         case BEGIN_OBJECT:
+            final Map<String, Object> object = new LinkedHashMap<>();
+            while (next() != Token.END_OBJECT) {
+               final String name = value;
+               next();
+               object.put(name, readValue());
+            }
+            return object;
+         case BEGIN_ARRAY:
+            final List<Object> array = new ArrayList<>();
+            while (next() != Token.END_ARRAY) {
+               array.add(readValue());
+            }
+            return array;
+         case STRING:
+            return value;
+         case NUMBER:
+            return getNumber();
+         case BOOLEAN:
+            return bool;
+         case NULL:
+            return null;
+         default:
+            throw syntaxError("Expected a value but was " + token);
+      }
+   }
+
+   /**
+    * Reads the value starting with the current token into an instance of the type. Besides {@link Map}, {@link List},
+    * arrays, strings, numbers, booleans and enums, objects are bound to POJOs by setting their fields or setters with the
+    * names of the members. Members without a matching property are skipped.
+    * @param type
+    *  the type of the value
+    * @param <T>
+    * @return
+    *  the value or null for a {@link Token#NULL}
+    * @throws IOException
+    *  if the document is malformed, doesn't match the type or could not be read
+    */
+   public <T> T read(Class<T> type) throws IOException {
+      @SuppressWarnings("unchecked")
+      final T result = (T) JsonBinding.read(this, type);
+      return result;
+   }
+
+   @Override
+   public void close() throws IOException {
+      reader.close();
+   }
+
+   IOException syntaxError(String message) {
+      return new IOException(message + " at offset " + (consumed + pos));
+   }
+
+   private void push(int state) {
+      if (depth == stack.length) {
+         stack = Arrays.copyOf(stack, depth * 2);
+      }
+      stack[depth++] = state;
+   }
+
+   private boolean fill() throws IOException {
+      consumed += limit;
+      pos = 0;
+      limit = 0;
+      int read;
+      //a reader may return 0 characters
+      while ((read = reader.read(buffer, 0, buffer.length)) == 0) {
+         Thread.yield();
+      }
+      if (read == -1) {
+         return false;
+      }
+      limit = read;
+      return true;
+   }
+
+   private int read() throws IOException {
+      if (pos == limit && !fill()) {
+         return -1;
+      }
+      return buffer[pos++];
+   }
+
+   private int peek() throws IOException {
+      if (pos == limit && !fill()) {
+         return -1;
+      }
+      return buffer[pos];
+   }
+
+   private int nextNonWhitespace() throws IOException {
+      while (true) {
+         if (pos == limit && !fill()) {
+            return -1;
+         }
+         final char c = buffer[pos++];
+         if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+            return c;
+         }
+      }
+   }
+
+   private void readLiteral(String rest) throws IOException {
+      for (int i = 0; i < rest.length(); i++) {
+         if (read() != rest.charAt(i)) {
+            throw syntaxError("Invalid literal");
+         }
+      }
+   }
+
+   private String readString() throws IOException {
+      text.setLength(0);
+      chunks:
+      while (true) {
+         if (pos == limit && !fill()) {
+            throw syntaxError("Unterminated string");
+         }
+         //copy the characters up to the next quote or escape at once
+         final int start = pos;
+         while (pos < limit) {
+            final char c = buffer[pos];
+            if (c == '"') {
+               text.append(buffer, start, pos - start);
+               pos++;
+               return text.toString();
+            }
+            if (c == '\\') {
+               text.append(buffer, start, pos - start);
+               pos++;
+               //reading the escape may refill the buffer, so the next chunk starts after it
+               text.append(readEscape());
+               continue chunks;
+            }
+            if (c < 0x20) {
+               throw syntaxError("Unescaped control character in string");
+            }
+            pos++;
+         }
+         text.append(buffer, start, pos - start);
+      }
+   }
+
+   private char readEscape() throws IOException {
+      final int c = read();
+      switch (c) {
+         case '"':
+         case '\\':
+         case '/':
+            return (char) c;
+         case 'b':
+            return '\b';
+         case 'f':
+            return '\f';
+         case 'n':
+            return '\n';
+         case 'r':
+            return '\r';
+         case 't':
+            return '\t';
+         case 'u':
+            int unicode = 0;
+            for (int i = 0; i < 4; i++) {
+               final int digit = Character.digit(read(), 16);
+               if (digit == -1) {
+                  throw syntaxError("Invalid unicode escape");
+               }
+               unicode = unicode << 4 | digit;
+            }
+            return (char) unicode;
+         default:
+            throw syntaxError("Invalid escape");
+      }
+   }
+
+   private String readNumber(int first) throws IOException {
+      text.setLength(0);
+      text.append((char) first);
+      integral = true;
+      int c = first;
+      if (c == '-') {
+         c = read();
+         if (!isDigit(c)) {
+            throw syntaxError("Expected digit");
+         }
+         text.append((char) c);
+      }
+      if (c == '0' && isDigit(peek())) {
+         throw syntaxError("Leading zeros are not allowed");
+      }
+      appendDigits(false);
+      if (peek() == '.') {
+         integral = false;
+         text.append((char) read());
+         appendDigits(true);
+      }
+      if (peek() == 'e' || peek() == 'E') {
+         integral = false;
+         text.append((char) read());
+         if (peek() == '+' || peek() == '-') {
+            text.append((char) read());
+         }
+         appendDigits(true);
+      }
+      return text.toString();
+   }
+
+   private void appendDigits(boolean required) throws IOException {
+      if (required && !isDigit(peek())) {
+         throw syntaxError("Expected digit");
+      }
+      while (isDigit(peek())) {
+         text.append((char) read());
+      }
+   }
+
+   private static boolean isDigit(int c) {
+      return c >= '0' && c <= '9';
+   }
+}
@@ -0,0 +1,150 @@
+package io.devcon5.commons.rest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies with a fixed memory footprint. Values are recorded in microseconds into buckets of
+ * exponentially growing width, each power of two is split into 8 linear sub-buckets, so that a value is reported with a
+ * relative error of at most 12.5%.
+ */
+final class LatencyHistogram {
+
+   private static final int SUB_BUCKET_BITS = 3;
+   private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+   /**
+    * the values below {@link #SUB_BUCKETS} are counted exactly, each further power of two up to 2^63 has its own sub-buckets
+    */
+   private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+   private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+   private final LongAdder count = new LongAdder();
+   private final LongAdder sum = new LongAdder();
+   private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+   /**
+    * @param micros
+    *  the latency in microseconds, negative values are counted as 0
+    */
+   void record(long micros) {
+      final long value = Math.max(0, micros);
+      counts.incrementAndGet(index(value));
+      count.increment();
+      sum.add(value);
+      max.accumulate(value);
+   }
+
+   /**
+    * @return
+    *  the number of recorded values
+    */
+   long getCount() {
+      return count.sum();
+   }
+
+   /**
+    * @return
+    *  the sum of the recorded values in microseconds
+    */
+   long getSum() {
+      return sum.sum();
+   }
+
+   /**
+    * @return
+    *  the largest recorded value in microseconds
+    */
+   long getMax() {
+      return max.get();
+   }
+
+   /**
+    * @return
+    *  a copy of the counts of all buckets, which may be slightly inconsistent with the count if values are recorded
+    *  concurrently
+    */
+   long[] getCounts() {
+      final long[] copy = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++) {
+         copy[i] = counts.get(i);
+      }
+      return copy;
+   }
+
+   /**
+    * Calculates a percentile over several histograms
+    * @param percentile
+    *  the percentile between 0 and 100
+    * @param histograms
+    *  the histograms to merge
+    * @return
+    *  the upper bound of the bucket containing the percentile in microseconds or -1 if no value has been recorded
+    */
+   static long percentile(double percentile, LatencyHistogram... histograms) {
+      final long[] merged = new long[BUCKETS];
+      for (LatencyHistogram histogram : histograms) {
+         for (int i = 0; i < BUCKETS; i++) {
+            merged[i] += histogram.counts.get(i);
+         }
+      }
+      return percentile(percentile, merged);
+   }
+
+   /**
+    * Calculates a percentile of a copy of the bucket counts
+    * @param percentile
+    *  the percentile between 0 and 100
+    * @param counts
+    *  the counts as returned by {@link #getCounts()}
+    * @return
+    *  the upper bound of the bucket containing the percentile in microseconds or -1 if no value has been recorded
+    */
+   static long percentile(double percentile, long[] counts) {
+      long total = 0;
+      for (long count : counts) {
+         total += count;
+      }
+      if (total == 0) {
+         return -1;
+      }
+      final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+         seen += counts[i];
+         if (seen >= rank) {
+            return upperBound(i);
+         }
+      }
+      return upperBound(counts.length - 1);
+   }
+
+   /**
+    * @param percentile
+    *  the percentile between 0 and 100
+    * @return
+    *  the upper bound of the bucket containing the percentile in microseconds or -1 if no value has been recorded
+    */
+   long percentile(double percentile) {
+      return percentile(percentile, this);
+   }
+
+   static int index(long value) {
+      if (value < SUB_BUCKETS) {
+         return (int) value;
+      }
+      final int exponent = 63 - Long.numberOfLeadingZeros(value);
+      final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+   }
+
+   static long upperBound(int index) {
+      if (index < SUB_BUCKETS) {
+         return index;
+      }
+      final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+      final long width = 1L << (exponent - SUB_BUCKET_BITS);
+      final long lower = (SUB_BUCKETS + index % SUB_BUCKETS) * width;
+      return lower + width - 1;
+   }
+}
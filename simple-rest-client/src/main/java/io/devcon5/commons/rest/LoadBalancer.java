@@ -0,0 +1,485 @@
+package io.devcon5.commons.rest;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+/**
+ * Spreads the requests of a client across several endpoints serving the same API, set on a client using
+ * {@link SimpleRestClient.ClientBuilder#loadBalancer(LoadBalancer)}. The paths of the requests are appended to the
+ * endpoint selected for each request according to the {@link Strategy}. Retries and hedged requests select an endpoint
+ * again, so they may be sent to another endpoint.
+ * <br>
+ * An endpoint is ejected after a number of consecutive failed calls and receives no requests until the ejection time has
+ * passed. Afterwards, a single request is sent to it as passive health check: if it succeeds, the endpoint is recovered,
+ * otherwise it's ejected again for twice the time, up to 32 times the configured ejection time. A call fails if sending
+ * the request fails or the server responds with a status code recorded as failure, by default any 5xx status. If all
+ * endpoints are ejected, requests are spread across all of them.
+ * <br>
+ * Selecting an endpoint doesn't acquire any lock. A load balancer may be shared by several clients. Instances are
+ * thread-safe.
+ */
+public final class LoadBalancer {
+
+   /**
+    * the ejection time doubles with every failed health check up to this factor
+    */
+   private static final int MAX_EJECTION_SHIFT = 5;
+   /**
+    * the weight of the latest latency in the moving average of an endpoint
+    */
+   private static final double LATENCY_WEIGHT = 0.3;
+
+   private final Endpoint[] endpoints;
+   private final Strategy strategy;
+   private final int consecutiveFailures;
+   private final long ejectionNanos;
+   private final IntPredicate failureStatus;
+   private final AtomicInteger next = new AtomicInteger();
+   private final LongAdder ejections = new LongAdder();
+   private final LongAdder recoveries = new LongAdder();
+
+   LoadBalancer(Builder builder) {
+      this.endpoints = new Endpoint[builder.endpoints.size()];
+      for (int i = 0; i < endpoints.length; i++) {
+         endpoints[i] = new Endpoint(builder.endpoints.get(i));
+      }
+      this.strategy = builder.strategy;
+      this.consecutiveFailures = builder.consecutiveFailures;
+      this.ejectionNanos = builder.ejectionNanos;
+      this.failureStatus = builder.failureStatus;
+   }
+
+   /**
+    * Creates a builder for a load balancer that selects the endpoint with the least outstanding requests and ejects
+    * endpoints for 10 seconds after 5 consecutive failed calls
+    * @return
+    *  a new builder
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   /**
+    * @return
+    *  the first endpoint, which is the base URL the paths of the requests are resolved against before an endpoint is
+    *  selected
+    */
+   URL getBaseUrl() {
+      return endpoints[0].url;
+   }
+
+   /**
+    * @param url
+    *  the URL of a request
+    * @return
+    *  true if the URL is relative to the base URL, so that it can be sent to any endpoint
+    */
+   boolean isBalanced(URL url) {
+      return endpoints[0].contains(url.toString());
+   }
+
+   /**
+    * Selects the endpoint for a request. Ejected endpoints are skipped, except for a single request once their ejection
+    * time has passed.
+    * @return
+    *  the selected endpoint
+    */
+   Endpoint select() {
+      final long now = System.nanoTime();
+      for (int attempt = 0; attempt < endpoints.length; attempt++) {
+         final Endpoint endpoint = choose(now, true);
+         if (endpoint == null) {
+            break;
+         }
+         //another request may have taken the health check of the endpoint in the meantime
+         if (endpoint.tryAcquire(now)) {
+            return endpoint;
+         }
+      }
+      return choose(now, false);
+   }
+
+   private Endpoint choose(long now, boolean availableOnly) {
+      final int count = endpoints.length;
+      if (count == 1) {
+         return !availableOnly || endpoints[0].isAvailable(now) ? endpoints[0] : null;
+      }
+      switch (strategy) {
+         case ROUND_ROBIN:
+            return first(next.getAndIncrement(), now, availableOnly);
+         case POWER_OF_TWO_CHOICES:
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final int a = random.nextInt(count);
+            final int b = (a + 1 + random.nextInt(count - 1)) % count;
+            final boolean aAvailable = !availableOnly || endpoints[a].isAvailable(now);
+            final boolean bAvailable = !availableOnly || endpoints[b].isAvailable(now);
+            if (aAvailable && bAvailable) {
+               return endpoints[a].cost() <= endpoints[b].cost() ? endpoints[a] : endpoints[b];
+            }
+            if (aAvailable || bAvailable) {
+               return aAvailable ? endpoints[a] : endpoints[b];
+            }
+            return first(random.nextInt(count), now, availableOnly);
+         case LEAST_OUTSTANDING:
+         default:
+            //starting at a random endpoint spreads the requests across endpoints with the same number of requests
+            final int offset = ThreadLocalRandom.current().nextInt(count);
+            Endpoint least = null;
+            for (int i = 0; i < count; i++) {
+               final Endpoint endpoint = endpoints[(offset + i) % count];
+               if ((!availableOnly || endpoint.isAvailable(now))
+                     && (least == null || endpoint.outstanding.get() < least.outstanding.get())) {
+                  least = endpoint;
+               }
+            }
+            return least;
+      }
+   }
+
+   private Endpoint first(int start, long now, boolean availableOnly) {
+      for (int i = 0; i < endpoints.length; i++) {
+         final Endpoint endpoint = endpoints[Math.floorMod(start + i, endpoints.length)];
+         if (!availableOnly || endpoint.isAvailable(now)) {
+            return endpoint;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * @return
+    *  the endpoints in the order they were added
+    */
+   public List<URL> getEndpoints() {
+      final List<URL> urls = new ArrayList<>(endpoints.length);
+      for (Endpoint endpoint : endpoints) {
+         urls.add(endpoint.url);
+      }
+      return Collections.unmodifiableList(urls);
+   }
+
+   /**
+    * @return
+    *  the number of times an endpoint was ejected, including ejections after a failed health check
+    */
+   public long getEjections() {
+      return ejections.sum();
+   }
+
+   /**
+    * @return
+    *  the number of times an ejected endpoint recovered after a successful health check
+    */
+   public long getRecoveries() {
+      return recoveries.sum();
+   }
+
+   @Override
+   public String toString() {
+      final StringBuilder result = new StringBuilder("LoadBalancer{strategy=").append(strategy)
+                                                                             .append(", ejections=").append(getEjections())
+                                                                             .append(", recoveries=").append(getRecoveries())
+                                                                             .append(", endpoints=[");
+      for (int i = 0; i < endpoints.length; i++) {
+         result.append(i == 0 ? "" : ", ").append(endpoints[i]);
+      }
+      return result.append("]}").toString();
+   }
+
+   /**
+    * The strategy for selecting the endpoint of a request
+    */
+   public enum Strategy {
+      /**
+       * the endpoints are selected in turn
+       */
+      ROUND_ROBIN,
+      /**
+       * the endpoint with the fewest requests waiting for their response is selected
+       */
+      LEAST_OUTSTANDING,
+      /**
+       * of two randomly chosen endpoints, the one with the lower product of outstanding requests and moving average of
+       * its latency is selected. This avoids that all clients send their requests to the same endpoint that currently looks
+       * best, and prefers endpoints that are faster than others.
+       */
+      POWER_OF_TWO_CHOICES
+   }
+
+   /**
+    * A single endpoint and its state. The state is kept in atomic fields, so that selecting an endpoint and recording the
+    * outcome of a call don't block.
+    */
+   final class Endpoint {
+
+      private static final int HEALTHY = 0;
+      private static final int EJECTED = 1;
+      private static final int CHECKING = 2;
+
+      final URL url;
+      /**
+       * the URL without trailing slash, to which the path of a request is appended
+       */
+      private final String prefix;
+      private final AtomicInteger state = new AtomicInteger(HEALTHY);
+      private final AtomicInteger outstanding = new AtomicInteger();
+      private final AtomicInteger failures = new AtomicInteger();
+      private final AtomicInteger ejectionCount = new AtomicInteger();
+      private final AtomicLong latencyBits = new AtomicLong(Double.doubleToRawLongBits(0));
+      private volatile long ejectedUntil;
+
+      Endpoint(final URL url) {
+         this.url = url;
+         final String value = url.toString();
+         this.prefix = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+      }
+
+      boolean contains(String url) {
+         if (!url.startsWith(prefix)) {
+            return false;
+         }
+         if (url.length() == prefix.length()) {
+            return true;
+         }
+         final char separator = url.charAt(prefix.length());
+         return separator == '/' || separator == '?' || separator == '#';
+      }
+
+      /**
+       * @param url
+       *  the URL of a request relative to the base URL of the load balancer
+       * @return
+       *  the URL of the request relative to this endpoint
+       */
+      URL resolve(URL url) throws MalformedURLException {
+         if (this == endpoints[0]) {
+            return url;
+         }
+         return new URL(prefix + url.toString().substring(endpoints[0].prefix.length()));
+      }
+
+      boolean isAvailable(long now) {
+         final int current = state.get();
+         return current == HEALTHY || current == EJECTED && now - ejectedUntil >= 0;
+      }
+
+      /**
+       * @return
+       *  true if the endpoint is healthy or if the request is the health check of the ejected endpoint
+       */
+      boolean tryAcquire(long now) {
+         final int current = state.get();
+         return current == HEALTHY || current == EJECTED && now - ejectedUntil >= 0 && state.compareAndSet(EJECTED, CHECKING);
+      }
+
+      /**
+       * Records a request that is sent to the endpoint
+       * @return
+       *  the start time of the call
+       */
+      long onSend() {
+         outstanding.incrementAndGet();
+         return System.nanoTime();
+      }
+
+      /**
+       * Records a call that received a response
+       * @param statusCode
+       *  the status code of the response
+       * @param start
+       *  the start time of the call
+       */
+      void onResponse(int statusCode, long start) {
+         outstanding.decrementAndGet();
+         recordLatency(System.nanoTime() - start);
+         if (failureStatus.test(statusCode)) {
+            onFailure();
+            return;
+         }
+         failures.set(0);
+         if (state.get() == CHECKING && state.compareAndSet(CHECKING, HEALTHY)) {
+            ejectionCount.set(0);
+            recoveries.increment();
+         }
+      }
+
+      /**
+       * Records a call that failed without response
+       */
+      void onError() {
+         outstanding.decrementAndGet();
+         onFailure();
+      }
+
+      /**
+       * Records a call that was rejected by the client before it was sent, i.e. by its rate limiter or circuit breaker. The
+       * rejection says nothing about the endpoint, so it's not counted as failure.
+       */
+      void onRejected() {
+         outstanding.decrementAndGet();
+         release();
+      }
+
+      /**
+       * Releases the endpoint for another health check if the request that was selected for checking it is not sent
+       */
+      void release() {
+         //the ejection time has passed, so the endpoint is selected for the next health check
+         state.compareAndSet(CHECKING, EJECTED);
+      }
+
+      private void onFailure() {
+         final int current = state.get();
+         if (current == CHECKING || current == HEALTHY && failures.incrementAndGet() >= consecutiveFailures) {
+            //the ejection time is set before the state, so that the state is never ejected with an outdated time
+            final int count = Math.min(ejectionCount.get(), MAX_EJECTION_SHIFT);
+            ejectedUntil = System.nanoTime() + (ejectionNanos << count);
+            if (state.compareAndSet(current, EJECTED)) {
+               ejectionCount.incrementAndGet();
+               failures.set(0);
+               ejections.increment();
+            }
+         }
+      }
+
+      private void recordLatency(long nanos) {
+         long bits;
+         double average;
+         do {
+            bits = latencyBits.get();
+            final double previous = Double.longBitsToDouble(bits);
+            average = previous == 0 ? nanos : previous + LATENCY_WEIGHT * (nanos - previous);
+         } while (!latencyBits.compareAndSet(bits, Double.doubleToRawLongBits(average)));
+      }
+
+      /**
+       * @return
+       *  the expected cost of sending a request to the endpoint, endpoints without observed latency are tried first
+       */
+      double cost() {
+         return Double.longBitsToDouble(latencyBits.get()) * (outstanding.get() + 1);
+      }
+
+      @Override
+      public String toString() {
+         final int current = state.get();
+         return url + "{outstanding=" + outstanding.get()
+               + ", latency=" + TimeUnit.NANOSECONDS.toMillis((long) Double.longBitsToDouble(latencyBits.get())) + "ms"
+               + (current == HEALTHY ? "" : current == EJECTED ? ", ejected" : ", checking")
+               + '}';
+      }
+   }
+
+   /**
+    * Builder for a load balancer
+    */
+   public static class Builder {
+
+      private final List<URL> endpoints = new ArrayList<>();
+      private Strategy strategy = Strategy.LEAST_OUTSTANDING;
+      private int consecutiveFailures = 5;
+      private long ejectionNanos = TimeUnit.SECONDS.toNanos(10);
+      private IntPredicate failureStatus = status -> status >= 500;
+
+      Builder() {
+      }
+
+      /**
+       * Adds an endpoint. The first endpoint is the base URL of the client, the paths of all endpoints should be equal.
+       * @param url
+       *  a string representing the URL of the endpoint. If the url String is not valid, an exception is thrown
+       * @return
+       *  this builder
+       */
+      public Builder endpoint(String url) {
+         try {
+            return endpoint(new URL(url));
+         } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+         }
+      }
+
+      /**
+       * Adds an endpoint. The first endpoint is the base URL of the client, the paths of all endpoints should be equal.
+       * @param url
+       *  the URL of the endpoint
+       * @return
+       *  this builder
+       */
+      public Builder endpoint(URL url) {
+
+         this.endpoints.add(Objects.requireNonNull(url, "url must not be null"));
+         return this;
+      }
+
+      /**
+       * Sets the strategy for selecting the endpoint of a request, default is {@link Strategy#LEAST_OUTSTANDING}
+       * @param strategy
+       *  the strategy
+       * @return
+       *  this builder
+       */
+      public Builder strategy(Strategy strategy) {
+
+         this.strategy = Objects.requireNonNull(strategy, "strategy must not be null");
+         return this;
+      }
+
+      /**
+       * Sets when an endpoint is ejected and for how long, default is 5 consecutive failures and 10 seconds
+       * @param consecutiveFailures
+       *  the number of consecutive failed calls after which the endpoint is ejected
+       * @param ejectionTime
+       *  the time after which the first health check is sent to the ejected endpoint
+       * @param unit
+       *  the time unit of the ejection time
+       * @return
+       *  this builder
+       */
+      public Builder ejection(int consecutiveFailures, long ejectionTime, TimeUnit unit) {
+         if (consecutiveFailures < 1) {
+            throw new IllegalArgumentException("consecutiveFailures must be positive");
+         }
+         if (ejectionTime < 0) {
+            throw new IllegalArgumentException("ejectionTime must not be negative");
+         }
+         this.consecutiveFailures = consecutiveFailures;
+         this.ejectionNanos = unit.toNanos(ejectionTime);
+         return this;
+      }
+
+      /**
+       * Sets the status codes of responses that are recorded as failed calls, by default all 5xx status codes
+       * @param failureStatus
+       *  the predicate returning true for failure status codes
+       * @return
+       *  this builder
+       */
+      public Builder recordFailureStatus(IntPredicate failureStatus) {
+
+         this.failureStatus = Objects.requireNonNull(failureStatus, "failureStatus must not be null");
+         return this;
+      }
+
+      /**
+       * @return
+       *  the new load balancer
+       */
+      public LoadBalancer build() {
+         if (endpoints.isEmpty()) {
+            throw new IllegalStateException("At least one endpoint is required");
+         }
+         return new LoadBalancer(this);
+      }
+   }
+}
@@ -0,0 +1,98 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Transport} that sends requests relative to the base URL of a {@link LoadBalancer} to the endpoint selected by
+ * the load balancer and records the outcome of each call. Other requests are sent as they are. A request is outstanding
+ * until the status of its response has been received, so the status is received eagerly.
+ */
+class LoadBalancingTransport implements Transport {
+
+   private final Transport transport;
+   private final LoadBalancer loadBalancer;
+
+   LoadBalancingTransport(final Transport transport, final LoadBalancer loadBalancer) {
+      this.transport = transport;
+      this.loadBalancer = loadBalancer;
+   }
+
+   @Override
+   public TransportResponse send(final TransportRequest request) throws IOException {
+
+      if (!loadBalancer.isBalanced(request.getUrl())) {
+         return transport.send(request);
+      }
+      final LoadBalancer.Endpoint endpoint = loadBalancer.select();
+      final TransportRequest balanced;
+      try {
+         balanced = request.withUrl(endpoint.resolve(request.getUrl()));
+      } catch (IOException e) {
+         endpoint.release();
+         throw e;
+      }
+      final long start = endpoint.onSend();
+      try {
+         final TransportResponse response = transport.send(balanced);
+         endpoint.onResponse(response.getStatusCode(), start);
+         return response;
+      } catch (IOException | RuntimeException e) {
+         onError(endpoint, e);
+         throw e;
+      }
+   }
+
+   @Override
+   public CompletableFuture<TransportResponse> sendAsync(final TransportRequest request, final Executor executor) {
+
+      if (!loadBalancer.isBalanced(request.getUrl())) {
+         return transport.sendAsync(request, executor);
+      }
+      final LoadBalancer.Endpoint endpoint = loadBalancer.select();
+      final TransportRequest balanced;
+      try {
+         balanced = request.withUrl(endpoint.resolve(request.getUrl()));
+      } catch (IOException e) {
+         endpoint.release();
+         final CompletableFuture<TransportResponse> failed = new CompletableFuture<>();
+         failed.completeExceptionally(new RuntimeException(e));
+         return failed;
+      }
+      final long start = endpoint.onSend();
+      return transport.sendAsync(balanced, executor).whenComplete((response, error) -> {
+         if (error != null) {
+            onError(endpoint, error);
+            return;
+         }
+         try {
+            endpoint.onResponse(response.getStatusCode(), start);
+         } catch (IOException e) {
+            endpoint.onError();
+         }
+      });
+   }
+
+   private static void onError(LoadBalancer.Endpoint endpoint, Throwable error) {
+      if (isRejected(error)) {
+         endpoint.onRejected();
+      } else {
+         endpoint.onError();
+      }
+   }
+
+   /**
+    * @return
+    *  true if the request has not been sent because the rate limiter or the circuit breaker of the client rejected it.
+    *  Asynchronous rejections are wrapped into other exceptions.
+    */
+   private static boolean isRejected(Throwable error) {
+      for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+         if (cause instanceof RateLimitExceededException || cause instanceof CircuitBreakerOpenException) {
+            return true;
+         }
+      }
+      return false;
+   }
+}
@@ -0,0 +1,152 @@
+package io.devcon5.commons.rest;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A parsed media type such as <code>application/atom+xml; charset=UTF-8</code>. Type, subtype and parameter names are
+ * case-insensitive and therefore kept in lower case.
+ */
+public final class MediaType {
+
+   /**
+    * The wildcard media type <code>*&#47;*</code> used if a response doesn't declare a content type.
+    */
+   public static final MediaType ANY = new MediaType("*", "*", Collections.emptyMap());
+
+   private final String type;
+   private final String subtype;
+   private final Map<String, String> parameters;
+
+   private MediaType(final String type, final String subtype, final Map<String, String> parameters) {
+      this.type = type;
+      this.subtype = subtype;
+      this.parameters = parameters;
+   }
+
+   /**
+    * Parses a media type string as found in Content-Type or Accept headers.
+    * @param mediaType
+    *  the media type string. If it's null or empty, the wildcard type is returned
+    * @return
+    *  the parsed media type
+    */
+   public static MediaType parse(String mediaType) {
+      if (mediaType == null || mediaType.trim().isEmpty()) {
+         return ANY;
+      }
+      final String[] segments = mediaType.split(";");
+      final String fullType = segments[0].trim().toLowerCase(Locale.ROOT);
+      final int slash = fullType.indexOf('/');
+      final String type;
+      final String subtype;
+      if (slash < 0) {
+         type = fullType;
+         subtype = "*";
+      } else {
+         type = fullType.substring(0, slash);
+         subtype = fullType.substring(slash + 1);
+      }
+      if (segments.length == 1) {
+         return new MediaType(type, subtype, Collections.emptyMap());
+      }
+      final Map<String, String> parameters = new HashMap<>();
+      for (int i = 1; i < segments.length; i++) {
+         final int eq = segments[i].indexOf('=');
+         if (eq > 0) {
+            parameters.put(segments[i].substring(0, eq).trim().toLowerCase(Locale.ROOT), unquote(segments[i].substring(eq + 1).trim()));
+         }
+      }
+      return new MediaType(type, subtype, Collections.unmodifiableMap(parameters));
+   }
+
+   private static String unquote(String value) {
+      if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+         return value.substring(1, value.length() - 1);
+      }
+      return value;
+   }
+
+   /**
+    * @return
+    *  the primary type, i.e. <code>application</code>
+    */
+   public String getType() {
+      return type;
+   }
+
+   /**
+    * @return
+    *  the subtype including any suffix, i.e. <code>atom+xml</code>
+    */
+   public String getSubtype() {
+      return subtype;
+   }
+
+   /**
+    * Checks if the subtype is or is structured as the specified format, either as suffix (<code>atom+xml</code>) or
+    * as prefix (<code>xml+other</code>).
+    * @param format
+    *  the format name in lower case, i.e. <code>xml</code> or <code>json</code>
+    * @return
+    *  true if the subtype denotes the format
+    */
+   public boolean hasFormat(String format) {
+      return subtype.equals(format) || subtype.endsWith("+" + format) || subtype.startsWith(format + "+");
+   }
+
+   /**
+    * @param name
+    *  the name of the parameter, case-insensitive
+    * @return
+    *  the value of the parameter
+    */
+   public Optional<String> getParameter(String name) {
+      return Optional.ofNullable(parameters.get(name.toLowerCase(Locale.ROOT)));
+   }
+
+   /**
+    * @return
+    *  the charset declared by the charset parameter. If the parameter is missing or the charset isn't supported, the
+    *  optional is empty.
+    */
+   public Optional<Charset> getCharset() {
+      return getParameter("charset").filter(MediaType::isSupportedCharset).map(Charset::forName);
+   }
+
+   private static boolean isSupportedCharset(String charset) {
+      try {
+         return Charset.isSupported(charset);
+      } catch (IllegalArgumentException e) {
+         return false;
+      }
+   }
+
+   @Override
+   public boolean equals(final Object o) {
+      if (this == o) {
+         return true;
+      }
+      if (!(o instanceof MediaType)) {
+         return false;
+      }
+      final MediaType other = (MediaType) o;
+      return type.equals(other.type) && subtype.equals(other.subtype) && parameters.equals(other.parameters);
+   }
+
+   @Override
+   public int hashCode() {
+      return 31 * (31 * type.hashCode() + subtype.hashCode()) + parameters.hashCode();
+   }
+
+   @Override
+   public String toString() {
+      final StringBuilder buf = new StringBuilder(type).append('/').append(subtype);
+      parameters.forEach((k, v) -> buf.append("; ").append(k).append('=').append(v));
+      return buf.toString();
+   }
+}
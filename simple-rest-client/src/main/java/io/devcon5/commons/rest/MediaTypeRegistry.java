@@ -0,0 +1,141 @@
+package io.devcon5.commons.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of entries supporting combinations of entity type and content type, shared by {@link EntityReaders} and
+ * {@link EntityWriters}. The entries are kept in a copy-on-write list sorted by priority, the entry chosen for a
+ * combination is memoized in a dispatch table, so that subsequent lookups for the same combination only cost a single
+ * map lookup. Once the dispatch table exceeds its maximum size, it's reset.
+ * <br>
+ * Instances are thread-safe.
+ * @param <T>
+ *  the type of the entries
+ */
+final class MediaTypeRegistry<T> {
+
+   private final Matcher<T> matcher;
+   private final int maxDispatchEntries;
+   private volatile List<Registration<T>> registrations = Collections.emptyList();
+   private final ConcurrentMap<DispatchKey, Optional<T>> dispatch = new ConcurrentHashMap<>();
+
+   /**
+    * @param matcher
+    *  determines whether an entry supports a combination of entity type and content type
+    * @param maxDispatchEntries
+    *  the maximum number of memoized combinations
+    */
+   MediaTypeRegistry(final Matcher<T> matcher, final int maxDispatchEntries) {
+      this.matcher = matcher;
+      this.maxDispatchEntries = maxDispatchEntries;
+   }
+
+   /**
+    * Registers an entry. Entries of higher priority are consulted first, entries of the same priority in the order of
+    * their registration.
+    * @param entry
+    *  the entry to register
+    * @param priority
+    *  the priority of the entry
+    */
+   synchronized void register(T entry, int priority) {
+      final List<Registration<T>> updated = new ArrayList<>(registrations);
+      updated.add(new Registration<>(entry, priority));
+      //the sort is stable, so entries of same priority keep their registration order
+      updated.sort((r1, r2) -> Integer.compare(r2.priority, r1.priority));
+      this.registrations = Collections.unmodifiableList(updated);
+      this.dispatch.clear();
+   }
+
+   /**
+    * Finds the entry for the combination of entity type and content type.
+    * @param type
+    *  the entity type
+    * @param contentType
+    *  the content type
+    * @return
+    *  the entry with the highest priority supporting the combination or an empty optional if there is none
+    */
+   Optional<T> find(Class<?> type, String contentType) {
+      final DispatchKey key = new DispatchKey(type, contentType);
+      Optional<T> entry = dispatch.get(key);
+      if (entry == null) {
+         if (dispatch.size() >= maxDispatchEntries) {
+            dispatch.clear();
+         }
+         final List<Registration<T>> snapshot = registrations;
+         entry = resolve(snapshot, type, MediaType.parse(contentType));
+         //don't memoize a result of entries that have been replaced by a concurrent registration
+         if (snapshot == registrations) {
+            dispatch.putIfAbsent(key, entry);
+         }
+      }
+      return entry;
+   }
+
+   private Optional<T> resolve(List<Registration<T>> registrations, Class<?> type, MediaType mediaType) {
+      for (Registration<T> registration : registrations) {
+         if (matcher.supports(registration.entry, type, mediaType)) {
+            return Optional.of(registration.entry);
+         }
+      }
+      return Optional.empty();
+   }
+
+   /**
+    * Determines whether an entry supports a combination of entity type and content type
+    * @param <T>
+    *  the type of the entries
+    */
+   @FunctionalInterface
+   interface Matcher<T> {
+
+      boolean supports(T entry, Class<?> type, MediaType mediaType);
+   }
+
+   private static final class Registration<T> {
+
+      final T entry;
+      final int priority;
+
+      Registration(final T entry, final int priority) {
+         this.entry = entry;
+         this.priority = priority;
+      }
+   }
+
+   private static final class DispatchKey {
+
+      final Class<?> type;
+      final String contentType;
+      final int hash;
+
+      DispatchKey(final Class<?> type, final String contentType) {
+         this.type = type;
+         this.contentType = contentType;
+         this.hash = 31 * type.hashCode() + contentType.hashCode();
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         if (this == o) {
+            return true;
+         }
+         if (!(o instanceof DispatchKey)) {
+            return false;
+         }
+         final DispatchKey other = (DispatchKey) o;
+         return type == other.type && contentType.equals(other.contentType);
+      }
+
+      @Override
+      public int hashCode() {
+         return hash;
+      }
+   }
+}
@@ -0,0 +1,191 @@
+package io.devcon5.commons.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link RequestListener} that records the latencies of the phases of requests in histograms per host, method and
+ * status class, set on a client using {@link SimpleRestClient.ClientBuilder#listener(RequestListener)}. The latency of a
+ * phase is the time from the start of the request until the phase was reached, the total latency is the time until the
+ * body of the response was read or the request failed.
+ * <br>
+ * Recording a request is lock-free and doesn't allocate beyond the key of its series. Each series has a fixed size of about
+ * 4 KB per phase, the number of series is limited so that an unbounded number of hosts doesn't exhaust the memory.
+ * Requests to further hosts are recorded in series of the host <code>other</code>.
+ * <br>
+ * A recorder may be shared by several clients. Instances are thread-safe.
+ */
+public final class MetricsRecorder implements RequestListener {
+
+   static final String OTHER_HOST = "other";
+   static final String FAILED = "failed";
+   private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+   private static final RequestTrace.Phase[] PHASES = RequestTrace.Phase.values();
+
+   private final int maxSeries;
+   private final ConcurrentMap<Key, Histograms> series = new ConcurrentHashMap<>();
+
+   private MetricsRecorder(final int maxSeries) {
+      this.maxSeries = maxSeries;
+   }
+
+   /**
+    * Creates a recorder for at most 256 series
+    * @return
+    *  a new recorder
+    */
+   public static MetricsRecorder create() {
+      return create(256);
+   }
+
+   /**
+    * Creates a recorder for a limited number of series
+    * @param maxSeries
+    *  the maximum number of combinations of host, method and status class that are recorded separately
+    * @return
+    *  a new recorder
+    */
+   public static MetricsRecorder create(int maxSeries) {
+      if (maxSeries < 1) {
+         throw new IllegalArgumentException("maxSeries must be positive");
+      }
+      return new MetricsRecorder(maxSeries);
+   }
+
+   @Override
+   public void responseBodyRead(final RequestTrace trace, final long bytes) {
+      final Histograms histograms = histograms(trace, statusClass(trace.getStatusCode()));
+      for (RequestTrace.Phase phase : PHASES) {
+         if (phase != RequestTrace.Phase.ENTITY_PARSED) {
+            histograms.record(phase, trace.getElapsedNanos(phase));
+         }
+      }
+      histograms.total.record(toMicros(trace.getElapsedNanos(RequestTrace.Phase.RESPONSE_BODY_READ)));
+   }
+
+   @Override
+   public void entityParsed(final RequestTrace trace, final Class<?> type) {
+      histograms(trace, statusClass(trace.getStatusCode())).record(RequestTrace.Phase.ENTITY_PARSED,
+                                                                  trace.getElapsedNanos(RequestTrace.Phase.ENTITY_PARSED));
+   }
+
+   @Override
+   public void requestFailed(final RequestTrace trace, final Throwable error) {
+      final Histograms histograms = histograms(trace, FAILED);
+      for (RequestTrace.Phase phase : PHASES) {
+         histograms.record(phase, trace.getElapsedNanos(phase));
+      }
+      histograms.total.record(toMicros(System.nanoTime() - trace.getStartNanos()));
+   }
+
+   /**
+    * Takes a snapshot of the recorded latencies. Requests that are recorded while the snapshot is taken may be contained
+    * only partially.
+    * @return
+    *  the latencies of all series recorded since the recorder was created or reset
+    */
+   public MetricsSnapshot snapshot() {
+      final List<MetricsSnapshot.Series> snapshot = new ArrayList<>(series.size());
+      series.forEach((key, histograms) -> {
+         final MetricsSnapshot.Latency[] phases = new MetricsSnapshot.Latency[PHASES.length];
+         for (int i = 0; i < phases.length; i++) {
+            phases[i] = new MetricsSnapshot.Latency(histograms.phases[i]);
+         }
+         snapshot.add(new MetricsSnapshot.Series(key.host, key.method, key.statusClass, phases,
+                                                 new MetricsSnapshot.Latency(histograms.total)));
+      });
+      return new MetricsSnapshot(snapshot);
+   }
+
+   /**
+    * Removes all recorded series. Requests that complete while the recorder is reset may be lost.
+    */
+   public void reset() {
+      series.clear();
+   }
+
+   private Histograms histograms(RequestTrace trace, String statusClass) {
+      final Key key = new Key(trace.getHost(), trace.getMethod(), statusClass);
+      final Histograms histograms = series.get(key);
+      if (histograms != null) {
+         return histograms;
+      }
+      //the overflow series are created even if the limit is reached, so there are at most a few more series than the limit
+      if (series.size() >= maxSeries) {
+         return series.computeIfAbsent(new Key(OTHER_HOST, trace.getMethod(), statusClass), k -> new Histograms());
+      }
+      return series.computeIfAbsent(key, k -> new Histograms());
+   }
+
+   static String statusClass(int statusCode) {
+      if (statusCode < 100 || statusCode > 599) {
+         return FAILED;
+      }
+      return STATUS_CLASSES[statusCode / 100 - 1];
+   }
+
+   private static long toMicros(long nanos) {
+      return TimeUnit.NANOSECONDS.toMicros(nanos);
+   }
+
+   @Override
+   public String toString() {
+      return "MetricsRecorder{series=" + series.size() + '}';
+   }
+
+   /**
+    * The histograms of a series
+    */
+   private static final class Histograms {
+
+      final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+      final LatencyHistogram total = new LatencyHistogram();
+
+      Histograms() {
+         for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+         }
+      }
+
+      void record(RequestTrace.Phase phase, long elapsedNanos) {
+         //phases that were not reached are not recorded
+         if (elapsedNanos >= 0) {
+            phases[phase.ordinal()].record(toMicros(elapsedNanos));
+         }
+      }
+   }
+
+   private static final class Key {
+
+      final String host;
+      final String method;
+      final String statusClass;
+
+      Key(final String host, final String method, final String statusClass) {
+         this.host = host;
+         this.method = method;
+         this.statusClass = statusClass;
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         if (this == o) {
+            return true;
+         }
+         if (!(o instanceof Key)) {
+            return false;
+         }
+         final Key key = (Key) o;
+         return host.equals(key.host) && method.equals(key.method) && statusClass.equals(key.statusClass);
+      }
+
+      @Override
+      public int hashCode() {
+         return (31 * host.hashCode() + method.hashCode()) * 31 + statusClass.hashCode();
+      }
+   }
+}
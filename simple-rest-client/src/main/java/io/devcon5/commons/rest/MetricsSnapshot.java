@@ -0,0 +1,239 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An immutable snapshot of the latencies recorded by a {@link MetricsRecorder}. The snapshot can be exported in the text
+ * format of Prometheus using {@link #writeTo(Appendable)}, the latencies of each phase are written as a summary named
+ * <code>simple_rest_client_request_seconds</code> with the labels host, method, status and phase.
+ */
+public final class MetricsSnapshot {
+
+   private static final String NAME = "simple_rest_client_request_seconds";
+   private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+   private final List<Series> series;
+
+   MetricsSnapshot(final List<Series> series) {
+      this.series = Collections.unmodifiableList(series);
+   }
+
+   /**
+    * @return
+    *  the series of all combinations of host, method and status class that have been recorded
+    */
+   public List<Series> getSeries() {
+      return series;
+   }
+
+   /**
+    * Writes the snapshot in the text format of Prometheus. Phases without recorded latencies are omitted.
+    * @param out
+    *  the target to write to
+    * @throws IOException
+    *  if writing to the target failed
+    */
+   public void writeTo(Appendable out) throws IOException {
+      out.append("# HELP ").append(NAME).append(" Time from the start of a request until it reached the phase\n");
+      out.append("# TYPE ").append(NAME).append(" summary\n");
+      for (Series s : series) {
+         for (RequestTrace.Phase phase : RequestTrace.Phase.values()) {
+            write(out, s, phase.name().toLowerCase(Locale.ROOT), s.getLatency(phase));
+         }
+         write(out, s, "total", s.getTotal());
+      }
+   }
+
+   private static void write(Appendable out, Series series, String phase, Latency latency) throws IOException {
+      if (latency.getCount() == 0) {
+         return;
+      }
+      final String labels = "host=\"" + escape(series.host) + "\",method=\"" + escape(series.method) + "\",status=\""
+            + series.statusClass + "\",phase=\"" + phase + '"';
+      for (double quantile : QUANTILES) {
+         out.append(NAME).append('{').append(labels).append(",quantile=\"").append(Double.toString(quantile)).append("\"} ")
+            .append(seconds(latency.getPercentileMicros(quantile * 100))).append('\n');
+      }
+      out.append(NAME).append("_sum{").append(labels).append("} ").append(seconds(latency.getSumMicros())).append('\n');
+      out.append(NAME).append("_count{").append(labels).append("} ").append(Long.toString(latency.getCount())).append('\n');
+   }
+
+   private static String seconds(long micros) {
+      return Double.toString(micros / 1e6);
+   }
+
+   private static String escape(String value) {
+      return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+   }
+
+   /**
+    * @return
+    *  the snapshot in the text format of Prometheus
+    */
+   @Override
+   public String toString() {
+      final StringBuilder text = new StringBuilder();
+      try {
+         writeTo(text);
+      } catch (IOException e) {
+         //a StringBuilder doesn't throw
+         throw new UncheckedIOException(e);
+      }
+      return text.toString();
+   }
+
+   /**
+    * The latencies of the requests with the same host, method and status class
+    */
+   public static final class Series {
+
+      private final String host;
+      private final String method;
+      private final String statusClass;
+      private final Latency[] phases;
+      private final Latency total;
+
+      Series(final String host, final String method, final String statusClass, final Latency[] phases, final Latency total) {
+         this.host = host;
+         this.method = method;
+         this.statusClass = statusClass;
+         this.phases = phases;
+         this.total = total;
+      }
+
+      /**
+       * @return
+       *  the host and port of the requests, i.e. <code>localhost:8080</code>, or <code>other</code> for the requests
+       *  exceeding the series limit of the recorder
+       */
+      public String getHost() {
+         return host;
+      }
+
+      /**
+       * @return
+       *  the http method of the requests
+       */
+      public String getMethod() {
+         return method;
+      }
+
+      /**
+       * @return
+       *  the class of the status code of the responses, i.e. <code>2xx</code>, or <code>failed</code> for requests that
+       *  failed
+       */
+      public String getStatusClass() {
+         return statusClass;
+      }
+
+      /**
+       * @return
+       *  the number of completed requests
+       */
+      public long getCount() {
+         return total.getCount();
+      }
+
+      /**
+       * @param phase
+       *  the phase of the requests
+       * @return
+       *  the time from the start of the requests until they reached the phase
+       */
+      public Latency getLatency(RequestTrace.Phase phase) {
+         return phases[phase.ordinal()];
+      }
+
+      /**
+       * @return
+       *  the time from the start of the requests until the body of the response was read or the request failed
+       */
+      public Latency getTotal() {
+         return total;
+      }
+
+      @Override
+      public String toString() {
+         return "Series{" + method + " " + host + " " + statusClass + ", total=" + total + '}';
+      }
+   }
+
+   /**
+    * The distribution of latencies in microseconds. Percentiles are reported as the upper bound of the bucket containing
+    * the percentile, with a relative error of at most 12.5%.
+    */
+   public static final class Latency {
+
+      private final long count;
+      private final long sum;
+      private final long max;
+      private final long[] counts;
+
+      Latency(final LatencyHistogram histogram) {
+         this.counts = histogram.getCounts();
+         this.sum = histogram.getSum();
+         this.max = histogram.getMax();
+         long count = 0;
+         //consistent with the copied buckets even if values were recorded concurrently
+         for (long c : counts) {
+            count += c;
+         }
+         this.count = count;
+      }
+
+      /**
+       * @return
+       *  the number of recorded latencies
+       */
+      public long getCount() {
+         return count;
+      }
+
+      /**
+       * @return
+       *  the sum of the recorded latencies in microseconds
+       */
+      public long getSumMicros() {
+         return sum;
+      }
+
+      /**
+       * @return
+       *  the largest recorded latency in microseconds
+       */
+      public long getMaxMicros() {
+         return max;
+      }
+
+      /**
+       * @return
+       *  the mean of the recorded latencies in microseconds, 0 if no latency has been recorded
+       */
+      public double getMeanMicros() {
+         return count == 0 ? 0 : (double) sum / count;
+      }
+
+      /**
+       * @param percentile
+       *  the percentile between 0 and 100
+       * @return
+       *  the percentile of the recorded latencies in microseconds, -1 if no latency has been recorded
+       */
+      public long getPercentileMicros(double percentile) {
+         //the upper bound of the last bucket may exceed the largest value
+         final long value = LatencyHistogram.percentile(percentile, counts);
+         return value < 0 ? value : Math.min(value, max);
+      }
+
+      @Override
+      public String toString() {
+         return "Latency{count=" + count + ", p50=" + getPercentileMicros(50) + "us, p99=" + getPercentileMicros(99) + "us, max="
+               + max + "us}";
+      }
+   }
+}
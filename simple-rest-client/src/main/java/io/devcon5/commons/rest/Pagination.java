@@ -0,0 +1,442 @@
+package io.devcon5.commons.rest;
+
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import io.devcon5.commons.rest.SimpleRestClient.RequestBuilder;
+import io.devcon5.commons.rest.SimpleRestClient.Response;
+
+/**
+ * Iterates lazily over the items of all pages of a paged resource. Each page is read by a {@link PageReader} that
+ * extracts the items of the page and the link to the next page, i.e. from a <code>Link</code> header or from a cursor
+ * in the body of the page.
+ * <pre>
+ * try (Stream&lt;Item&gt; items = client.request("/items").acceptJson()
+ *                                  .paginate(Pagination.linkHeader(Item.class))
+ *                                  .prefetch(2)
+ *                                  .build()
+ *                                  .stream()) {
+ *    items.forEach(this::process);
+ * }
+ * </pre>
+ * While the items of a page are consumed, the next pages are already fetched in the background, up to the prefetch
+ * depth. So the time to process all pages is about the larger of the time to fetch and the time to process them, rather
+ * than their sum. At most the current page and the prefetched pages are kept in memory.
+ * <br>
+ * Instances are thread-safe and each stream or iterator starts again with the first page.
+ */
+public final class Pagination<T> {
+
+   private static final Pattern LINK = Pattern.compile("<([^>]*)>([^,<]*)");
+   private static final Pattern REL = Pattern.compile(";\\s*rel\\s*=\\s*(?:\"([^\"]*)\"|([^\\s;,]+))", Pattern.CASE_INSENSITIVE);
+
+   private final RequestBuilder firstPage;
+   private final PageReader<T> reader;
+   private final int prefetch;
+   private final Executor executor;
+
+   Pagination(Builder<T> builder) {
+      //the template of the requests is never sent, so it can be shared by concurrent iterators
+      this.firstPage = builder.firstPage.withUrl(builder.firstPage.getUrl());
+      this.reader = builder.reader;
+      this.prefetch = builder.prefetch;
+      this.executor = builder.executor;
+   }
+
+   /**
+    * Reads the items of pages linked by a <code>Link</code> header with relation <code>next</code> (RFC 8288). The items
+    * are read using {@link Response#asStream(Class, int...)}, i.e. the elements of a JSON array or the child elements of
+    * the root element of an XML document.
+    * @param itemType
+    *  the type of the items
+    * @param <T>
+    * @return
+    *  the page reader
+    */
+   public static <T> PageReader<T> linkHeader(Class<T> itemType) {
+      Objects.requireNonNull(itemType, "itemType must not be null");
+      return (url, response) -> {
+         final String next = nextLink(response);
+         try (Stream<T> items = response.asStream(itemType)) {
+            return Page.of(items.collect(Collectors.toList()), next == null ? null : new URL(url, next));
+         }
+      };
+   }
+
+   /**
+    * Reads pages that contain the cursor of the next page in their body. The next page is requested with the URL of the
+    * previous page, with the cursor as value of the query parameter.
+    * @param pageType
+    *  the type of the entity of a page
+    * @param items
+    *  the function extracting the items of a page
+    * @param cursor
+    *  the function extracting the cursor of the next page. The last page has no cursor, denoted by null or an empty
+    *  String
+    * @param parameter
+    *  the name of the query parameter the cursor is sent as
+    * @param <P>
+    *  the type of the pages
+    * @param <T>
+    *  the type of the items
+    * @return
+    *  the page reader
+    */
+   public static <P, T> PageReader<T> cursor(Class<P> pageType,
+                                             Function<P, ? extends Collection<T>> items,
+                                             Function<P, String> cursor,
+                                             String parameter) {
+      Objects.requireNonNull(pageType, "pageType must not be null");
+      Objects.requireNonNull(items, "items must not be null");
+      Objects.requireNonNull(cursor, "cursor must not be null");
+      Objects.requireNonNull(parameter, "parameter must not be null");
+      return (url, response) -> {
+         final P page = response.as(pageType)
+                                .orElseThrow(() -> new IllegalStateException("No entity reader for " + pageType.getName()));
+         final String next = cursor.apply(page);
+         final Collection<T> pageItems = items.apply(page);
+         return Page.of(pageItems == null ? Collections.emptyList() : new ArrayList<>(pageItems),
+                        next == null || next.isEmpty() ? null : withParameter(url, parameter, next));
+      };
+   }
+
+   /**
+    * @return
+    *  a lazy, sequential stream of the items of all pages. The stream has to be closed if it's not consumed completely,
+    *  so that no further pages are fetched
+    */
+   public Stream<T> stream() {
+      final PageIterator<T> items = iterator();
+      return StreamSupport.stream(Spliterators.spliteratorUnknownSize(items, Spliterator.ORDERED), false)
+                          .onClose(items::close);
+   }
+
+   /**
+    * @return
+    *  a lazy iterator over the items of all pages. The iterator has to be closed if it's not consumed completely, so that
+    *  no further pages are fetched
+    */
+   public PageIterator<T> iterator() {
+      return new PageIterator<>(this);
+   }
+
+   static String nextLink(Response response) {
+      final Map<String, List<String>> headers = response.response.getHeaders();
+      for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+         if ("Link".equalsIgnoreCase(header.getKey())) {
+            for (String value : header.getValue()) {
+               final String next = nextLink(value);
+               if (next != null) {
+                  return next;
+               }
+            }
+            return null;
+         }
+      }
+      //transports that don't provide all headers still provide the first value
+      return nextLink(response.getHeader("Link"));
+   }
+
+   /**
+    * @param link
+    *  the value of a Link header
+    * @return
+    *  the target of the link with relation type next or null if there is none
+    */
+   static String nextLink(String link) {
+      if (link == null) {
+         return null;
+      }
+      final Matcher matcher = LINK.matcher(link);
+      while (matcher.find()) {
+         final Matcher rel = REL.matcher(matcher.group(2));
+         while (rel.find()) {
+            final String types = rel.group(1) != null ? rel.group(1) : rel.group(2);
+            for (String type : types.trim().split("\\s+")) {
+               if ("next".equalsIgnoreCase(type)) {
+                  return matcher.group(1).trim();
+               }
+            }
+         }
+      }
+      return null;
+   }
+
+   private static URL withParameter(URL url, String name, String value) throws MalformedURLException {
+      final String encodedName = encode(name);
+      final StringBuilder query = new StringBuilder();
+      if (url.getQuery() != null) {
+         for (String parameter : url.getQuery().split("&")) {
+            if (!parameter.equals(encodedName) && !parameter.startsWith(encodedName + "=")) {
+               query.append(parameter).append('&');
+            }
+         }
+      }
+      query.append(encodedName).append('=').append(encode(value));
+      return new URL(url, url.getPath() + '?' + query);
+   }
+
+   private static String encode(String value) {
+      try {
+         return URLEncoder.encode(value, "UTF-8");
+      } catch (UnsupportedEncodingException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * Reads a page of a paged resource
+    * @param <T>
+    *  the type of the items
+    */
+   @FunctionalInterface
+   public interface PageReader<T> {
+
+      /**
+       * Reads the items of a page and the link to the next page. The reader is invoked by a thread of the executor of the
+       * pagination, the response is closed afterwards.
+       * @param url
+       *  the URL of the page, to resolve relative links against
+       * @param response
+       *  the response of the page
+       * @return
+       *  the page
+       * @throws Exception
+       *  if the page could not be read
+       */
+      Page<T> read(URL url, Response response) throws Exception;
+   }
+
+   /**
+    * The items of a page and the link to the next page
+    * @param <T>
+    *  the type of the items
+    */
+   public static final class Page<T> {
+
+      private final List<T> items;
+      private final URL next;
+
+      private Page(final List<T> items, final URL next) {
+         this.items = items;
+         this.next = next;
+      }
+
+      /**
+       * @param items
+       *  the items of the page
+       * @param next
+       *  the URL of the next page or null if it's the last page
+       * @param <T>
+       * @return
+       *  a new page
+       */
+      public static <T> Page<T> of(List<T> items, URL next) {
+         return new Page<>(Objects.requireNonNull(items, "items must not be null"), next);
+      }
+
+      public List<T> getItems() {
+         return items;
+      }
+
+      public URL getNext() {
+         return next;
+      }
+   }
+
+   /**
+    * Iterates over the items of the pages, fetching the next pages in the background. The page that is fetched next is
+    * requested once the previous page has been read and fewer than the prefetch depth of pages are waiting to be
+    * consumed. Failures of fetching a page are thrown once all items of the previous pages have been consumed.
+    * @param <T>
+    *  the type of the items
+    */
+   public static final class PageIterator<T> implements Iterator<T>, AutoCloseable {
+
+      private final Pagination<T> pagination;
+      private final Deque<Page<T>> fetched = new ArrayDeque<>();
+      private Iterator<T> current = Collections.emptyIterator();
+      private boolean started;
+      private boolean fetching;
+      private URL pending;
+      private Throwable failure;
+      private boolean closed;
+
+      PageIterator(final Pagination<T> pagination) {
+         this.pagination = pagination;
+      }
+
+      @Override
+      public boolean hasNext() {
+         while (!current.hasNext()) {
+            final Page<T> page = nextPage();
+            if (page == null) {
+               return false;
+            }
+            current = page.items.iterator();
+         }
+         return true;
+      }
+
+      @Override
+      public T next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         return current.next();
+      }
+
+      /**
+       * Stops fetching further pages. A page that is currently fetched is discarded once it has been read.
+       */
+      @Override
+      public synchronized void close() {
+         closed = true;
+         pending = null;
+         fetched.clear();
+      }
+
+      private synchronized Page<T> nextPage() {
+         if (!started) {
+            started = true;
+            fetch(pagination.firstPage.withUrl(pagination.firstPage.getUrl()));
+         }
+         while (fetched.isEmpty() && fetching && failure == null && !closed) {
+            try {
+               wait();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw new RuntimeException("Interrupted while waiting for the next page", e);
+            }
+         }
+         final Page<T> page = fetched.poll();
+         if (page == null) {
+            if (failure != null && !closed) {
+               final Throwable error = failure;
+               failure = null;
+               closed = true;
+               throw error instanceof RuntimeException ? (RuntimeException) error : new RuntimeException(error);
+            }
+            return null;
+         }
+         fetchPending();
+         return page;
+      }
+
+      /**
+       * Starts fetching the pending page if the prefetch depth allows it, must be invoked while holding the lock
+       */
+      private void fetchPending() {
+         if (pending != null && !fetching && !closed && fetched.size() < pagination.prefetch) {
+            final URL url = pending;
+            pending = null;
+            fetch(pagination.firstPage.withUrl(url));
+         }
+      }
+
+      private void fetch(RequestBuilder request) {
+         fetching = true;
+         try {
+            pagination.executor.execute(() -> read(request));
+         } catch (RejectedExecutionException e) {
+            fetching = false;
+            failure = e;
+         }
+      }
+
+      private void read(RequestBuilder request) {
+         Page<T> page = null;
+         Throwable error = null;
+         try (Response response = request.get()) {
+            page = pagination.reader.read(request.getUrl(), response);
+         } catch (Exception | Error e) {
+            error = e;
+         }
+         synchronized (this) {
+            fetching = false;
+            if (!closed) {
+               if (error != null) {
+                  failure = error;
+               } else {
+                  fetched.add(page);
+                  pending = page.next;
+                  fetchPending();
+               }
+            }
+            notifyAll();
+         }
+      }
+   }
+
+   /**
+    * Builder for a {@link Pagination}
+    * @param <T>
+    *  the type of the items
+    */
+   public static class Builder<T> {
+
+      private final RequestBuilder firstPage;
+      private final PageReader<T> reader;
+      private Executor executor;
+      private int prefetch = 1;
+
+      Builder(final RequestBuilder firstPage, final PageReader<T> reader, final Executor executor) {
+         this.firstPage = firstPage;
+         this.reader = Objects.requireNonNull(reader, "reader must not be null");
+         this.executor = executor;
+      }
+
+      /**
+       * Sets the number of pages that are fetched ahead of the page whose items are currently consumed. Default is 1.
+       * @param prefetch
+       *  the prefetch depth, at least 1
+       * @return
+       *  this builder
+       */
+      public Builder<T> prefetch(int prefetch) {
+         if (prefetch < 1) {
+            throw new IllegalArgumentException("prefetch must be at least 1");
+         }
+         this.prefetch = prefetch;
+         return this;
+      }
+
+      /**
+       * Sets the executor fetching the pages, by default the executor of the client is used
+       * @param executor
+       *  the executor
+       * @return
+       *  this builder
+       */
+      public Builder<T> executor(Executor executor) {
+         this.executor = Objects.requireNonNull(executor, "executor must not be null");
+         return this;
+      }
+
+      public Pagination<T> build() {
+         return new Pagination<>(this);
+      }
+   }
+}
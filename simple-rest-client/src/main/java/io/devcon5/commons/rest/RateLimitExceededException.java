@@ -0,0 +1,31 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+
+/**
+ * Signals that a request was not sent because the {@link RateLimiter} of the client had no token available in time.
+ */
+public class RateLimitExceededException extends IOException {
+
+   private static final long serialVersionUID = 1L;
+
+   private final String bucket;
+
+   /**
+    * @param bucket
+    *  the host and port, optionally followed by the path prefix of the route, whose limit was exceeded
+    */
+   public RateLimitExceededException(final String bucket) {
+      super("Rate limit of " + bucket + " exceeded");
+      this.bucket = bucket;
+   }
+
+   /**
+    * @return
+    *  the host and port, optionally followed by the path prefix of the route, whose limit was exceeded, i.e.
+    *  <code>localhost:8080/api/search</code>
+    */
+   public String getBucket() {
+      return bucket;
+   }
+}
@@ -0,0 +1,502 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the rate of requests a client sends, set on a client using
+ * {@link SimpleRestClient.ClientBuilder#rateLimiter(RateLimiter)}.
+ * <br>
+ * Requests are limited by token buckets. Each host and port has its own bucket and each route, a path prefix on a host,
+ * may have an additional bucket. A request has to take a token from the bucket of its host and from the bucket of the
+ * longest route matching its path. A bucket holds up to <code>burst</code> tokens and is refilled at a steady rate.
+ * <br>
+ * If no token is available, the request either waits for the next token up to a maximum wait time (blocking mode) or
+ * fails immediately (non-blocking mode). Requests that are not permitted fail with a {@link RateLimitExceededException}
+ * without being sent.
+ * <br>
+ * The limiter adapts to the limits announced by the server: a 429 Too Many Requests response pauses the buckets of the
+ * request for the duration of its Retry-After header or halves their rate for a while if there is none. The
+ * <code>RateLimit-Remaining</code> and <code>RateLimit-Reset</code> headers, or their <code>X-RateLimit-</code>
+ * equivalents, pause the buckets until the reset once the quota is used up and otherwise spread the remaining quota
+ * over the time until the reset.
+ * <br>
+ * A rate limiter may be shared by several clients. Instances are thread-safe and don't lock, each bucket is a single
+ * atomic value.
+ */
+public final class RateLimiter {
+
+   /**
+    * the duration the rate of a bucket stays reduced after a 429 response without Retry-After header
+    */
+   private static final long BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(10);
+   /**
+    * the pause of a bucket without configured limit after a 429 response without Retry-After header
+    */
+   private static final long BACKOFF_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+   private final Limit hostLimit;
+   private final List<Route> routes;
+   private final long maxWaitNanos;
+   private final boolean adaptive;
+   private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+   private final LongAdder throttled = new LongAdder();
+   private final LongAdder rejected = new LongAdder();
+
+   RateLimiter(Builder builder) {
+      this.hostLimit = builder.hostLimit;
+      final List<Route> routes = new ArrayList<>(builder.routes);
+      //the longest matching prefix wins
+      routes.sort((r1, r2) -> r2.pathPrefix.length() - r1.pathPrefix.length());
+      this.routes = Collections.unmodifiableList(routes);
+      this.maxWaitNanos = builder.maxWaitNanos;
+      this.adaptive = builder.adaptive;
+   }
+
+   /**
+    * Creates a builder for a rate limiter. Without any configured limit, requests are only limited by the limits the
+    * servers announce. By default, requests wait up to 30 seconds for a token.
+    * @return
+    *  a new builder
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   /**
+    * Takes the tokens for a request without waiting for them
+    * @param url
+    *  the URL of the request
+    * @return
+    *  the reservation of the tokens, which is ready immediately
+    * @throws RateLimitExceededException
+    *  if a bucket has no token available
+    */
+   Reservation tryAcquire(URL url) throws RateLimitExceededException {
+      return reserve(url, 0);
+   }
+
+   /**
+    * Reserves the tokens for a request. The request may be sent once the delay of the reservation has passed.
+    * @param url
+    *  the URL of the request
+    * @return
+    *  the reservation of the tokens
+    * @throws RateLimitExceededException
+    *  if the next token of a bucket is available only after the maximum wait time
+    */
+   Reservation reserve(URL url) throws RateLimitExceededException {
+      return reserve(url, maxWaitNanos);
+   }
+
+   /**
+    * Takes the tokens for a request, waiting for them if necessary
+    * @param url
+    *  the URL of the request
+    * @return
+    *  the reservation of the tokens
+    * @throws RateLimitExceededException
+    *  if the next token of a bucket is available only after the maximum wait time
+    * @throws InterruptedIOException
+    *  if the thread is interrupted while waiting
+    */
+   Reservation acquire(URL url) throws InterruptedIOException, RateLimitExceededException {
+      final Reservation reservation = reserve(url);
+      if (reservation.delayNanos > 0) {
+         try {
+            TimeUnit.NANOSECONDS.sleep(reservation.delayNanos);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+         }
+      }
+      return reservation;
+   }
+
+   private Reservation reserve(URL url, long maxWait) throws RateLimitExceededException {
+      final String host = Hosts.key(url);
+      final TokenBucket hostBucket = buckets.computeIfAbsent(host, key -> new TokenBucket(key, hostLimit));
+      final Route route = route(url.getPath());
+      final TokenBucket routeBucket = route == null ? null : buckets.computeIfAbsent(host + route.pathPrefix,
+                                                                                     key -> new TokenBucket(key, route.limit));
+      final long now = System.nanoTime();
+      final long hostDelay = hostBucket.reserve(now, maxWait);
+      if (hostDelay < 0) {
+         rejected.increment();
+         throw new RateLimitExceededException(hostBucket.name);
+      }
+      long delay = hostDelay;
+      if (routeBucket != null) {
+         final long routeDelay = routeBucket.reserve(now, maxWait);
+         if (routeDelay < 0) {
+            hostBucket.refund();
+            rejected.increment();
+            throw new RateLimitExceededException(routeBucket.name);
+         }
+         delay = Math.max(delay, routeDelay);
+      }
+      if (delay > 0) {
+         throttled.increment();
+      }
+      return new Reservation(hostBucket, routeBucket, delay);
+   }
+
+   private Route route(String path) {
+      for (Route route : routes) {
+         if (path.startsWith(route.pathPrefix)) {
+            return route;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * @return
+    *  the number of requests that had to wait for a token
+    */
+   public long getThrottled() {
+      return throttled.sum();
+   }
+
+   /**
+    * @return
+    *  the number of requests that were not sent because no token was available in time
+    */
+   public long getRejected() {
+      return rejected.sum();
+   }
+
+   @Override
+   public String toString() {
+      return "RateLimiter{throttled=" + getThrottled() + ", rejected=" + getRejected() + '}';
+   }
+
+   /**
+    * The tokens taken for a single request, used to adapt the buckets to the response
+    */
+   final class Reservation {
+
+      private final TokenBucket hostBucket;
+      private final TokenBucket routeBucket;
+      final long delayNanos;
+
+      Reservation(final TokenBucket hostBucket, final TokenBucket routeBucket, final long delayNanos) {
+         this.hostBucket = hostBucket;
+         this.routeBucket = routeBucket;
+         this.delayNanos = delayNanos;
+      }
+
+      /**
+       * Adapts the buckets of the request to the limits announced by the response
+       * @param response
+       *  the response to the request
+       * @throws IOException
+       *  if the status of the response could not be received
+       */
+      void onResponse(TransportResponse response) throws IOException {
+         if (!adaptive) {
+            return;
+         }
+         final long now = System.nanoTime();
+         if (response.getStatusCode() == 429) {
+            final long retryAfter = TimeUnit.MILLISECONDS.toNanos(HttpDates.retryAfterMillis(response.getHeader("Retry-After")));
+            if (retryAfter > 0) {
+               pause(now, retryAfter);
+            } else {
+               hostBucket.backOff(now);
+               if (routeBucket != null) {
+                  routeBucket.backOff(now);
+               }
+            }
+            return;
+         }
+         final long remaining = number(header(response, "RateLimit-Remaining"));
+         final long reset = resetNanos(header(response, "RateLimit-Reset"));
+         if (remaining < 0 || reset <= 0) {
+            return;
+         }
+         if (remaining == 0) {
+            pause(now, reset);
+         } else {
+            limit(now, remaining * 1_000_000_000d / reset, now + reset);
+         }
+      }
+
+      private void pause(long now, long nanos) {
+         hostBucket.pause(now, nanos);
+         if (routeBucket != null) {
+            routeBucket.pause(now, nanos);
+         }
+      }
+
+      private void limit(long now, double permitsPerSecond, long until) {
+         //the announced quota applies to the host, routes keep their own, lower limits
+         if (permitsPerSecond < hostBucket.currentRate(now)) {
+            hostBucket.limit(permitsPerSecond, until);
+         }
+      }
+
+      private String header(TransportResponse response, String name) {
+         final String value = response.getHeader(name);
+         return value != null ? value : response.getHeader("X-" + name);
+      }
+
+      /**
+       * The reset is either a delay in seconds or, in some of the X- variants, an epoch second
+       */
+      private long resetNanos(String value) {
+         final long reset = number(value);
+         if (reset < 0) {
+            return -1;
+         }
+         final long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+         return TimeUnit.SECONDS.toNanos(reset > 1_000_000_000L ? Math.max(0, reset - nowSeconds) : reset);
+      }
+
+      private long number(String value) {
+         if (value == null) {
+            return -1;
+         }
+         try {
+            //the value may carry parameters, i.e. "10;w=60"
+            final int end = value.indexOf(';');
+            return Long.parseLong((end == -1 ? value : value.substring(0, end)).trim());
+         } catch (NumberFormatException e) {
+            return -1;
+         }
+      }
+   }
+
+   /**
+    * A token bucket implemented as generic cell rate algorithm. Instead of the number of tokens, the bucket keeps the
+    * theoretical arrival time of the next request, which moves forward by one emission interval per taken token. A token
+    * is available as long as the arrival time is not more than the burst tolerance ahead of now. This way, taking a token
+    * is a single compare-and-set.
+    */
+   static final class TokenBucket {
+
+      private final String name;
+      private final long configuredInterval;
+      private final int burst;
+      private final AtomicLong arrival;
+      private volatile long interval;
+      private volatile long adaptedUntil;
+
+      TokenBucket(final String name, final Limit limit) {
+         this.name = name;
+         this.configuredInterval = limit == null ? 0 : limit.intervalNanos;
+         this.burst = limit == null ? 1 : limit.burst;
+         this.interval = configuredInterval;
+         this.arrival = new AtomicLong(System.nanoTime());
+      }
+
+      /**
+       * @return
+       *  the delay until the reserved token is available or -1 if it's not available within the maximum wait time, in
+       *  which case no token is taken
+       */
+      long reserve(long now, long maxWait) {
+         final long interval = currentInterval(now);
+         final long tolerance = (burst - 1) * interval;
+         long current;
+         long delay;
+         do {
+            current = arrival.get();
+            final long next = Math.max(current, now);
+            delay = Math.max(0, next - tolerance - now);
+            if (delay > maxWait) {
+               return -1;
+            }
+         } while (!arrival.compareAndSet(current, Math.max(current, now) + interval));
+         return delay;
+      }
+
+      /**
+       * Returns a token taken by {@link #reserve(long, long)}
+       */
+      void refund() {
+         arrival.addAndGet(-currentInterval(System.nanoTime()));
+      }
+
+      /**
+       * Makes no token available before the pause has passed
+       */
+      void pause(long now, long nanos) {
+         final long until = now + nanos + (burst - 1) * currentInterval(now);
+         long current;
+         do {
+            current = arrival.get();
+         } while (current - until < 0 && !arrival.compareAndSet(current, until));
+      }
+
+      /**
+       * Reduces the rate of the bucket until the given time
+       */
+      void limit(double permitsPerSecond, long until) {
+         if (permitsPerSecond <= 0) {
+            return;
+         }
+         this.interval = Math.max(configuredInterval, (long) (1_000_000_000d / permitsPerSecond));
+         this.adaptedUntil = until;
+      }
+
+      /**
+       * Halves the rate of the bucket for a while, a bucket without configured limit pauses instead
+       */
+      void backOff(long now) {
+         if (configuredInterval == 0) {
+            pause(now, BACKOFF_PAUSE_NANOS);
+         } else {
+            limit(currentRate(now) / 2, now + BACKOFF_NANOS);
+         }
+      }
+
+      double currentRate(long now) {
+         final long interval = currentInterval(now);
+         return interval == 0 ? Double.POSITIVE_INFINITY : 1_000_000_000d / interval;
+      }
+
+      private long currentInterval(long now) {
+         final long interval = this.interval;
+         if (interval != configuredInterval && now - adaptedUntil >= 0) {
+            this.interval = configuredInterval;
+            return configuredInterval;
+         }
+         return interval;
+      }
+   }
+
+   /**
+    * A rate with a burst
+    */
+   static final class Limit {
+
+      final long intervalNanos;
+      final int burst;
+
+      Limit(final double permitsPerSecond, final int burst) {
+         if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+         }
+         this.intervalNanos = Math.max(1, (long) (1_000_000_000d / permitsPerSecond));
+         this.burst = burst;
+      }
+   }
+
+   private static final class Route {
+
+      final String pathPrefix;
+      final Limit limit;
+
+      Route(final String pathPrefix, final Limit limit) {
+         this.pathPrefix = pathPrefix;
+         this.limit = limit;
+      }
+   }
+
+   /**
+    * Builder for a rate limiter
+    */
+   public static class Builder {
+
+      private Limit hostLimit;
+      private final List<Route> routes = new ArrayList<>();
+      private long maxWaitNanos = TimeUnit.SECONDS.toNanos(30);
+      private boolean adaptive = true;
+
+      Builder() {
+      }
+
+      /**
+       * Limits the requests to each host and port
+       * @param permitsPerSecond
+       *  the number of requests per second
+       * @param burst
+       *  the number of requests that may be sent at once after being idle
+       * @return
+       *  this builder
+       */
+      public Builder perHost(double permitsPerSecond, int burst) {
+
+         this.hostLimit = new Limit(permitsPerSecond, burst);
+         return this;
+      }
+
+      /**
+       * Limits the requests to a route on each host and port, in addition to the limit of the host
+       * @param pathPrefix
+       *  the prefix of the paths of the route, i.e. <code>/api/search</code>
+       * @param permitsPerSecond
+       *  the number of requests per second
+       * @param burst
+       *  the number of requests that may be sent at once after being idle
+       * @return
+       *  this builder
+       */
+      public Builder route(String pathPrefix, double permitsPerSecond, int burst) {
+
+         Objects.requireNonNull(pathPrefix, "pathPrefix must not be null");
+         this.routes.add(new Route(pathPrefix, new Limit(permitsPerSecond, burst)));
+         return this;
+      }
+
+      /**
+       * Lets requests wait for a token, default is up to 30 seconds
+       * @param maxWait
+       *  the maximum time a request waits, requests whose token is available only later fail immediately
+       * @param unit
+       *  the time unit of the wait time
+       * @return
+       *  this builder
+       */
+      public Builder blocking(long maxWait, TimeUnit unit) {
+         if (maxWait < 0) {
+            throw new IllegalArgumentException("maxWait must not be negative");
+         }
+         this.maxWaitNanos = unit.toNanos(maxWait);
+         return this;
+      }
+
+      /**
+       * Lets requests fail immediately if no token is available
+       * @return
+       *  this builder
+       */
+      public Builder nonBlocking() {
+
+         this.maxWaitNanos = 0;
+         return this;
+      }
+
+      /**
+       * Sets whether the limiter adapts to 429 responses and the RateLimit headers of the server, default is true
+       * @param adaptive
+       *  true to adapt to the server
+       * @return
+       *  this builder
+       */
+      public Builder adaptive(boolean adaptive) {
+
+         this.adaptive = adaptive;
+         return this;
+      }
+
+      /**
+       * @return
+       *  the new rate limiter
+       */
+      public RateLimiter build() {
+         return new RateLimiter(this);
+      }
+   }
+}
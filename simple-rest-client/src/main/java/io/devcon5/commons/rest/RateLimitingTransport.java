@@ -0,0 +1,70 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Transport} that sends requests only once the {@link RateLimiter} grants them and adapts the limiter to the
+ * status and the rate limit headers of the responses. Asynchronous requests don't block while waiting for a token, they
+ * are scheduled to be sent once the token is available.
+ */
+class RateLimitingTransport implements Transport {
+
+   private final Transport transport;
+   private final RateLimiter rateLimiter;
+
+   RateLimitingTransport(final Transport transport, final RateLimiter rateLimiter) {
+      this.transport = transport;
+      this.rateLimiter = rateLimiter;
+   }
+
+   @Override
+   public TransportResponse send(final TransportRequest request) throws IOException {
+
+      final RateLimiter.Reservation reservation = rateLimiter.acquire(request.getUrl());
+      final TransportResponse response = transport.send(request);
+      reservation.onResponse(response);
+      return response;
+   }
+
+   @Override
+   public CompletableFuture<TransportResponse> sendAsync(final TransportRequest request, final Executor executor) {
+
+      final RateLimiter.Reservation reservation;
+      try {
+         reservation = rateLimiter.reserve(request.getUrl());
+      } catch (RateLimitExceededException e) {
+         final CompletableFuture<TransportResponse> rejected = new CompletableFuture<>();
+         rejected.completeExceptionally(new RuntimeException(e));
+         return rejected;
+      }
+      if (reservation.delayNanos == 0) {
+         return adapt(transport.sendAsync(request, executor), reservation);
+      }
+      final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+      //the scheduler only hands over the request to the executor
+      AsyncExecutors.scheduler().schedule(() -> executor.execute(() -> adapt(transport.sendAsync(request, executor), reservation).whenComplete((r, e) -> {
+         if (e != null) {
+            result.completeExceptionally(e);
+         } else {
+            result.complete(r);
+         }
+      })), reservation.delayNanos, TimeUnit.NANOSECONDS);
+      return result;
+   }
+
+   private static CompletableFuture<TransportResponse> adapt(CompletableFuture<TransportResponse> response,
+                                                             RateLimiter.Reservation reservation) {
+      return response.whenComplete((r, e) -> {
+         if (r != null) {
+            try {
+               reservation.onResponse(r);
+            } catch (IOException ignored) {
+               //the error surfaces when the caller reads the response
+            }
+         }
+      });
+   }
+}
@@ -0,0 +1,384 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Factory for {@link RequestBody}s from common sources. Bodies of a known size are sent with a fixed length, all other
+ * bodies are sent in chunks, so the body is never buffered completely in memory.
+ */
+public final class RequestBodies {
+
+   private static final int BUFFER_SIZE = 8192;
+
+   private RequestBodies() {
+   }
+
+   /**
+    * @param data
+    *  the content of the body
+    * @return
+    *  a body of fixed length
+    */
+   public static RequestBody of(byte[] data) {
+      Objects.requireNonNull(data, "data must not be null");
+      return new RequestBody() {
+         @Override
+         public void writeTo(final OutputStream out) throws IOException {
+            out.write(data);
+         }
+
+         @Override
+         public long getContentLength() {
+            return data.length;
+         }
+
+         @Override
+         public boolean isRepeatable() {
+            return true;
+         }
+      };
+   }
+
+   /**
+    * Creates a body of the remaining content of the buffer. The position of the buffer is not modified, so the body can be
+    * written multiple times.
+    * @param data
+    *  the content of the body
+    * @return
+    *  a body of fixed length
+    */
+   public static RequestBody of(ByteBuffer data) {
+      Objects.requireNonNull(data, "data must not be null");
+      return new RequestBody() {
+         @Override
+         public void writeTo(final OutputStream out) throws IOException {
+            final ByteBuffer buffer = data.duplicate();
+            if (buffer.hasArray()) {
+               out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+               final byte[] chunk = new byte[Math.min(BUFFER_SIZE, buffer.remaining())];
+               while (buffer.hasRemaining()) {
+                  final int len = Math.min(chunk.length, buffer.remaining());
+                  buffer.get(chunk, 0, len);
+                  out.write(chunk, 0, len);
+               }
+            }
+         }
+
+         @Override
+         public long getContentLength() {
+            return data.remaining();
+         }
+
+         @Override
+         public boolean isRepeatable() {
+            return true;
+         }
+      };
+   }
+
+   /**
+    * Creates a body of the content of a file. The file is transferred through a {@link FileChannel}, so its content is
+    * not copied into the heap as a whole.
+    * @param file
+    *  the file to send
+    * @return
+    *  a body of the length of the file
+    */
+   public static RequestBody of(Path file) {
+      Objects.requireNonNull(file, "file must not be null");
+      return new RequestBody() {
+         @Override
+         public void writeTo(final OutputStream out) throws IOException {
+            //the channel must not be closed as it would close the output stream of the request
+            final WritableByteChannel target = Channels.newChannel(out);
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+               final long size = source.size();
+               long position = 0;
+               while (position < size) {
+                  final long transferred = source.transferTo(position, size - position, target);
+                  //the content length has already been sent, so a file that shrunk can't be sent anymore
+                  if (transferred == 0 && position >= source.size()) {
+                     throw new IOException("File " + file + " was truncated to " + position + " of " + size + " bytes while sending it");
+                  }
+                  position += transferred;
+               }
+            }
+         }
+
+         @Override
+         public long getContentLength() {
+            try {
+               return Files.size(file);
+            } catch (IOException e) {
+               return -1;
+            }
+         }
+
+         @Override
+         public boolean isRepeatable() {
+            return true;
+         }
+      };
+   }
+
+   /**
+    * Creates a body of unknown length from a stream, which is sent in chunks. The stream is closed once it has been
+    * written.
+    * @param data
+    *  the stream providing the content of the body
+    * @return
+    *  a chunked body that can only be written once
+    */
+   public static RequestBody of(InputStream data) {
+      return of(data, -1);
+   }
+
+   /**
+    * Creates a body from a stream. The stream is closed once it has been written.
+    * @param data
+    *  the stream providing the content of the body
+    * @param length
+    *  the number of bytes provided by the stream or -1 if unknown
+    * @return
+    *  a body that can only be written once
+    */
+   public static RequestBody of(InputStream data, long length) {
+      Objects.requireNonNull(data, "data must not be null");
+      return new RequestBody() {
+         @Override
+         public void writeTo(final OutputStream out) throws IOException {
+            try (InputStream in = data) {
+               final byte[] buffer = new byte[BUFFER_SIZE];
+               int read;
+               while ((read = in.read(buffer)) != -1) {
+                  out.write(buffer, 0, read);
+               }
+            }
+         }
+
+         @Override
+         public long getContentLength() {
+            return length;
+         }
+      };
+   }
+
+   /**
+    * Creates a body of an entity that is serialized by a writer while it's being written, so it's neither rendered into a
+    * String nor buffered. The entity can be written again, the body is sent with a fixed length if the writer knows the
+    * length of the entity, otherwise in chunks.
+    * @param writer
+    *  the writer serializing the entity
+    * @param entity
+    *  the entity to send
+    * @param contentType
+    *  the content type of the body
+    * @return
+    *  a repeatable body
+    */
+   public static RequestBody of(EntityWriter writer, Object entity, String contentType) {
+      Objects.requireNonNull(writer, "writer must not be null");
+      Objects.requireNonNull(entity, "entity must not be null");
+      return new RequestBody() {
+         @Override
+         public void writeTo(final OutputStream out) throws IOException {
+            writer.write(entity, contentType, out);
+         }
+
+         @Override
+         public long getContentLength() {
+            return writer.getContentLength(entity, contentType);
+         }
+
+         @Override
+         public boolean isRepeatable() {
+            return true;
+         }
+      };
+   }
+
+   /**
+    * Creates a body that compresses another body with gzip while it's being written. The length of the compressed body is
+    * not known in advance, so it's sent in chunks.
+    * @param body
+    *  the body to compress
+    * @return
+    *  the compressed body
+    */
+   public static RequestBody gzip(RequestBody body) {
+      Objects.requireNonNull(body, "body must not be null");
+      return new RequestBody() {
+         @Override
+         public void writeTo(final OutputStream out) throws IOException {
+            final GzipOutputStream gzip = new GzipOutputStream(out);
+            try {
+               body.writeTo(gzip);
+               //finish instead of close, the output stream of the request must not be closed
+               gzip.finish();
+            } finally {
+               gzip.end();
+            }
+         }
+
+         @Override
+         public boolean isRepeatable() {
+            return body.isRepeatable();
+         }
+      };
+   }
+
+   /**
+    * Creates a body that can be written again even if the body it wraps can only be written once. The content is recorded
+    * while it's written the first time. If writing to the request fails, the rest of the content is still recorded, so
+    * that the complete body is available for sending it again.
+    * @param body
+    *  the body to record
+    * @param maxBufferSize
+    *  the maximum number of bytes recorded. If the body is larger, it can not be written again
+    * @return
+    *  the body itself if it's repeatable, otherwise a recording body
+    */
+   public static RequestBody replayable(RequestBody body, int maxBufferSize) {
+      Objects.requireNonNull(body, "body must not be null");
+      return body.isRepeatable() ? body : new ReplayableBody(body, maxBufferSize);
+   }
+
+   private static final class ReplayableBody implements RequestBody {
+
+      private final RequestBody body;
+      private final int maxBufferSize;
+      private boolean written;
+      private byte[] recorded;
+      private int recordedLength;
+
+      ReplayableBody(final RequestBody body, final int maxBufferSize) {
+         this.body = body;
+         this.maxBufferSize = maxBufferSize;
+      }
+
+      @Override
+      public synchronized void writeTo(final OutputStream out) throws IOException {
+         if (!written) {
+            written = true;
+            final RecordingOutputStream recording = new RecordingOutputStream(out, maxBufferSize);
+            body.writeTo(recording);
+            //the recording is only complete if the body has been written without an error of its own
+            recorded = recording.data;
+            recordedLength = recording.count;
+            recording.rethrowFailure();
+         } else if (recorded != null) {
+            out.write(recorded, 0, recordedLength);
+         } else {
+            throw new IOException("The request body exceeds the replay buffer of " + maxBufferSize + " bytes and can not be sent again");
+         }
+      }
+
+      @Override
+      public long getContentLength() {
+         return body.getContentLength();
+      }
+
+      @Override
+      public synchronized boolean isRepeatable() {
+         return !written || recorded != null;
+      }
+   }
+
+   /**
+    * Records the written content up to a limit. Failures of the target stream are deferred until the body has been written
+    * completely, so that the recording is complete even if the target failed.
+    */
+   private static final class RecordingOutputStream extends OutputStream {
+
+      private final OutputStream out;
+      private final int maxBufferSize;
+      private byte[] data = new byte[0];
+      private int count;
+      private IOException failure;
+
+      RecordingOutputStream(final OutputStream out, final int maxBufferSize) {
+         this.out = out;
+         this.maxBufferSize = maxBufferSize;
+      }
+
+      @Override
+      public void write(final int b) throws IOException {
+         write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) throws IOException {
+         if (failure == null) {
+            try {
+               out.write(b, off, len);
+            } catch (IOException e) {
+               failure = e;
+            }
+         }
+         record(b, off, len);
+         if (failure != null && data == null) {
+            //the body can neither be sent now nor again
+            throw failure;
+         }
+      }
+
+      @Override
+      public void flush() throws IOException {
+         if (failure == null) {
+            try {
+               out.flush();
+            } catch (IOException e) {
+               failure = e;
+            }
+         }
+      }
+
+      private void record(byte[] b, int off, int len) {
+         if (data == null) {
+            return;
+         }
+         if ((long) count + len > maxBufferSize) {
+            data = null;
+            return;
+         }
+         if (count + len > data.length) {
+            data = Arrays.copyOf(data, (int) Math.min(maxBufferSize, Math.max(count + len, Math.max((long) data.length * 2, BUFFER_SIZE))));
+         }
+         System.arraycopy(b, off, data, count, len);
+         count += len;
+      }
+
+      void rethrowFailure() throws IOException {
+         if (failure != null) {
+            throw failure;
+         }
+      }
+   }
+
+   private static final class GzipOutputStream extends GZIPOutputStream {
+
+      GzipOutputStream(OutputStream out) throws IOException {
+         super(out, BUFFER_SIZE);
+      }
+
+      /**
+       * Releases the native memory of the deflater, which the stream otherwise only releases when it's closed
+       */
+      void end() {
+         def.end();
+      }
+   }
+}
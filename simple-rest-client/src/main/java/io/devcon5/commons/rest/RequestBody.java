@@ -0,0 +1,37 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The body of a request
+ */
+@FunctionalInterface
+public interface RequestBody {
+
+   /**
+    * Writes the content of the body to the output stream of the outgoing request.
+    * @param out
+    *  the output stream of the request. The body must not close the stream
+    * @throws IOException
+    *  if writing the body failed
+    */
+   void writeTo(OutputStream out) throws IOException;
+
+   /**
+    * @return
+    *  the number of bytes written by {@link #writeTo(OutputStream)} or -1 if the length is not known in advance
+    */
+   default long getContentLength() {
+      return -1;
+   }
+
+   /**
+    * @return
+    *  true if the body can be written more than once, which is required to send the request again, i.e. when it's
+    *  retried. Bodies read from a stream can only be written once.
+    */
+   default boolean isRepeatable() {
+      return false;
+   }
+}
@@ -0,0 +1,236 @@
+package io.devcon5.commons.rest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Merges concurrent identical GET and HEAD requests into a single call to the server, set on a client using
+ * {@link SimpleRestClient.ClientBuilder#coalesce(RequestCoalescer)}. The first request is sent, requests that are
+ * identical to it and arrive while it is in flight wait for its response and receive a copy of the buffered response
+ * instead of sending a request of their own. The response is only buffered if requests are waiting for it, otherwise
+ * its body is streamed. Requests arriving after the response has been received are sent again, so the coalescer doesn't
+ * serve stale responses like a cache would.
+ * <br>
+ * Requests are identical if they have the same method, URL and the same values for the configured header fields, by
+ * default Accept, Accept-Encoding, Accept-Language, Authorization, Proxy-Authorization and Cookie. Header fields that
+ * change the response, i.e. for content negotiation or credentials, must be part of the comparison, otherwise a response
+ * may be shared with a request it wasn't meant for.
+ * <br>
+ * The number of requests waiting for a single call is limited, further requests are sent on their own. Responses whose
+ * body exceeds the maximum size are not shared, the waiting requests are sent on their own instead.
+ * <br>
+ * A coalescer may be shared by several clients. Instances are thread-safe.
+ */
+public final class RequestCoalescer {
+
+   /**
+    * the lower-case names of the header fields that distinguish requests
+    */
+   private final String[] headers;
+   private final int maxWaiters;
+   private final int maxBodyBytes;
+   private final LongAdder sent = new LongAdder();
+   private final LongAdder collapsed = new LongAdder();
+   private final LongAdder overflows = new LongAdder();
+   private final LongAdder fallbacks = new LongAdder();
+
+   RequestCoalescer(Builder builder) {
+      this.headers = builder.headers.toArray(new String[0]);
+      this.maxWaiters = builder.maxWaiters;
+      this.maxBodyBytes = builder.maxBodyBytes;
+   }
+
+   /**
+    * Creates a builder for a coalescer that compares the Accept, Accept-Encoding, Accept-Language, Authorization,
+    * Proxy-Authorization and Cookie header fields, lets up to 64 requests wait for a call and shares responses of up to
+    * 1 MiB
+    * @return
+    *  a new builder
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   /**
+    * @param request
+    *  the request to send
+    * @return
+    *  true if the request may share the response of an identical request
+    */
+   boolean isCoalescable(TransportRequest request) {
+      final String method = request.getMethod();
+      return ("GET".equals(method) || "HEAD".equals(method)) && !request.getBody().isPresent();
+   }
+
+   /**
+    * @param request
+    *  the request to send
+    * @return
+    *  the key identifying all requests that are identical to the request
+    */
+   String key(TransportRequest request) {
+      final StringBuilder key = new StringBuilder(128).append(request.getMethod()).append(' ').append(request.getUrl());
+      for (String name : headers) {
+         final String value = headerValue(request.getHeaders(), name);
+         if (value != null) {
+            key.append('\n').append(name).append(':').append(value);
+         }
+      }
+      return key.toString();
+   }
+
+   private static String headerValue(Map<String, String> headers, String name) {
+      for (Map.Entry<String, String> header : headers.entrySet()) {
+         if (name.equalsIgnoreCase(header.getKey())) {
+            return header.getValue();
+         }
+      }
+      return null;
+   }
+
+   int getMaxWaiters() {
+      return maxWaiters;
+   }
+
+   int getMaxBodyBytes() {
+      return maxBodyBytes;
+   }
+
+   void onSent() {
+      sent.increment();
+   }
+
+   void onCollapsed() {
+      collapsed.increment();
+   }
+
+   void onOverflow() {
+      overflows.increment();
+   }
+
+   void onFallback() {
+      fallbacks.increment();
+   }
+
+   /**
+    * @return
+    *  the number of coalescable requests that were sent to the server
+    */
+   public long getSent() {
+      return sent.sum();
+   }
+
+   /**
+    * @return
+    *  the number of requests that received the response of an identical request instead of being sent
+    */
+   public long getCollapsed() {
+      return collapsed.sum();
+   }
+
+   /**
+    * @return
+    *  the number of requests that were sent on their own because too many requests were already waiting
+    */
+   public long getOverflows() {
+      return overflows.sum();
+   }
+
+   /**
+    * @return
+    *  the number of waiting requests that were sent on their own because the response could not be shared
+    */
+   public long getFallbacks() {
+      return fallbacks.sum();
+   }
+
+   @Override
+   public String toString() {
+      return "RequestCoalescer{sent=" + getSent()
+            + ", collapsed=" + getCollapsed()
+            + ", overflows=" + getOverflows()
+            + ", fallbacks=" + getFallbacks()
+            + '}';
+   }
+
+   public static class Builder {
+
+      private List<String> headers = toLowerCase(Arrays.asList("Accept",
+                                                               "Accept-Encoding",
+                                                               "Accept-Language",
+                                                               "Authorization",
+                                                               "Proxy-Authorization",
+                                                               "Cookie"));
+      private int maxWaiters = 64;
+      private int maxBodyBytes = 1024 * 1024;
+
+      Builder() {
+      }
+
+      /**
+       * Sets the header fields whose values must be equal for requests to be identical, replacing the default fields
+       * @param names
+       *  the case-insensitive names of the header fields
+       * @return
+       *  this builder
+       */
+      public Builder headers(String... names) {
+
+         this.headers = toLowerCase(Arrays.asList(names));
+         return this;
+      }
+
+      /**
+       * Sets how many requests may wait for the response of a single call, default is 64. Further identical requests are
+       * sent on their own.
+       * @param maxWaiters
+       *  the maximum number of waiting requests, 0 disables coalescing
+       * @return
+       *  this builder
+       */
+      public Builder maxWaiters(int maxWaiters) {
+         if (maxWaiters < 0) {
+            throw new IllegalArgumentException("maxWaiters must not be negative");
+         }
+         this.maxWaiters = maxWaiters;
+         return this;
+      }
+
+      /**
+       * Sets the maximum size of a response body that is buffered to be shared, default is 1 MiB. Waiting requests are
+       * sent on their own if the body of the response is larger.
+       * @param maxBodyBytes
+       *  the maximum body size in bytes
+       * @return
+       *  this builder
+       */
+      public Builder maxBodyBytes(int maxBodyBytes) {
+         if (maxBodyBytes < 0) {
+            throw new IllegalArgumentException("maxBodyBytes must not be negative");
+         }
+         this.maxBodyBytes = maxBodyBytes;
+         return this;
+      }
+
+      /**
+       * @return
+       *  the new coalescer
+       */
+      public RequestCoalescer build() {
+         return new RequestCoalescer(this);
+      }
+
+      private static List<String> toLowerCase(List<String> names) {
+         final List<String> result = new ArrayList<>(names.size());
+         for (String name : names) {
+            result.add(name.toLowerCase(Locale.ROOT));
+         }
+         return Collections.unmodifiableList(result);
+      }
+   }
+}
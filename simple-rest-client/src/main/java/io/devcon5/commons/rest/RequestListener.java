@@ -0,0 +1,83 @@
+package io.devcon5.commons.rest;
+
+/**
+ * SPI for observing the lifecycle of requests, set on a client using
+ * {@link SimpleRestClient.ClientBuilder#listener(RequestListener)}. The {@link RequestTrace} passed to each event
+ * identifies the request and provides the time elapsed until each phase that has been reached so far.
+ * <br>
+ * The events are invoked by the thread performing the step, so listeners must be thread-safe and should not block.
+ * Exceptions thrown by a listener are ignored. Events that a {@link Transport} doesn't report, i.e. the acquisition of a
+ * connection, are not invoked. If a request is retried or hedged, the events of the transport are invoked for each
+ * attempt.
+ */
+public interface RequestListener {
+
+   /**
+    * Invoked before the request is sent
+    * @param trace
+    *  the trace of the request
+    */
+   default void requestStarted(RequestTrace trace) {
+   }
+
+   /**
+    * Invoked once the transport has a connection for the request
+    * @param trace
+    *  the trace of the request
+    * @param reused
+    *  true if an idle connection was reused, false if a new connection was established
+    */
+   default void connectionAcquired(RequestTrace trace, boolean reused) {
+   }
+
+   /**
+    * Invoked once the body of the request has been written
+    * @param trace
+    *  the trace of the request
+    * @param bytes
+    *  the number of bytes written or -1 if unknown
+    */
+   default void requestBodyWritten(RequestTrace trace, long bytes) {
+   }
+
+   /**
+    * Invoked once the status of the response is available
+    * @param trace
+    *  the trace of the request
+    * @param statusCode
+    *  the status code of the response
+    */
+   default void responseReceived(RequestTrace trace, int statusCode) {
+   }
+
+   /**
+    * Invoked once the body of the response has been read completely or the response has been closed. This is the last
+    * event of a successful request, except for {@link #entityParsed(RequestTrace, Class)}.
+    * @param trace
+    *  the trace of the request
+    * @param bytes
+    *  the number of bytes read, before decoding a compressed body
+    */
+   default void responseBodyRead(RequestTrace trace, long bytes) {
+   }
+
+   /**
+    * Invoked once the body of the response has been parsed into an entity
+    * @param trace
+    *  the trace of the request
+    * @param type
+    *  the type of the entity
+    */
+   default void entityParsed(RequestTrace trace, Class<?> type) {
+   }
+
+   /**
+    * Invoked if sending the request or reading the response failed. This is the last event of a failed request.
+    * @param trace
+    *  the trace of the request
+    * @param error
+    *  the cause of the failure
+    */
+   default void requestFailed(RequestTrace trace, Throwable error) {
+   }
+}
@@ -0,0 +1,224 @@
+package io.devcon5.commons.rest;
+
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * The timeline of a single request, passed to the events of a {@link RequestListener}. The time of each phase is
+ * recorded as the time elapsed since the request was started.
+ * <br>
+ * Transports report the phases only they can observe using {@link #connectionAcquired(boolean)} and
+ * {@link #requestBodyWritten(long)}, all other phases are reported by the client. If the client has no listener, the trace
+ * of its requests is disabled and ignores all reports.
+ */
+public final class RequestTrace {
+
+   private static final RequestTrace DISABLED = new RequestTrace(null, null, null);
+
+   /**
+    * The phases of a request
+    */
+   public enum Phase {
+      /**
+       * the transport has a connection for the request
+       */
+      CONNECTION_ACQUIRED,
+      /**
+       * the body of the request has been written
+       */
+      REQUEST_BODY_WRITTEN,
+      /**
+       * the status of the response is available
+       */
+      FIRST_BYTE,
+      /**
+       * the body of the response has been read completely or the response has been closed
+       */
+      RESPONSE_BODY_READ,
+      /**
+       * the body of the response has been parsed into an entity
+       */
+      ENTITY_PARSED
+   }
+
+   private final RequestListener listener;
+   private final String method;
+   private final URL url;
+   private final String host;
+   private final long start = System.nanoTime();
+   private final AtomicLongArray elapsed = new AtomicLongArray(Phase.values().length);
+   private final AtomicBoolean completed = new AtomicBoolean();
+   private volatile int statusCode = -1;
+   private volatile boolean connectionReused;
+
+   private RequestTrace(final RequestListener listener, final String method, final URL url) {
+      this.listener = listener;
+      this.method = method;
+      this.url = url;
+      this.host = url == null ? null : Hosts.key(url);
+      for (int i = 0; i < elapsed.length(); i++) {
+         elapsed.set(i, -1);
+      }
+   }
+
+   /**
+    * @param listener
+    *  the listener of the client, may be null
+    * @param method
+    *  the http method of the request
+    * @param url
+    *  the URL of the request
+    * @return
+    *  a new trace or the disabled trace if there is no listener
+    */
+   static RequestTrace create(RequestListener listener, String method, URL url) {
+      return listener == null ? DISABLED : new RequestTrace(listener, method, url);
+   }
+
+   /**
+    * @return
+    *  the disabled trace, which ignores all reports
+    */
+   static RequestTrace disabled() {
+      return DISABLED;
+   }
+
+   /**
+    * @return
+    *  true if the phases are recorded, transports may skip measurements otherwise
+    */
+   public boolean isEnabled() {
+      return listener != null;
+   }
+
+   /**
+    * @return
+    *  the http method of the request
+    */
+   public String getMethod() {
+      return method;
+   }
+
+   /**
+    * @return
+    *  the URL of the request
+    */
+   public URL getUrl() {
+      return url;
+   }
+
+   /**
+    * @return
+    *  the host and port of the request, i.e. <code>localhost:8080</code>
+    */
+   public String getHost() {
+      return host;
+   }
+
+   /**
+    * @return
+    *  the {@link System#nanoTime()} at which the request was started
+    */
+   public long getStartNanos() {
+      return start;
+   }
+
+   /**
+    * @param phase
+    *  the phase
+    * @return
+    *  the nanoseconds elapsed from the start of the request until the phase was reached or -1 if it hasn't been reached
+    */
+   public long getElapsedNanos(Phase phase) {
+      return elapsed.get(phase.ordinal());
+   }
+
+   /**
+    * @return
+    *  the status code of the response or -1 if no response has been received
+    */
+   public int getStatusCode() {
+      return statusCode;
+   }
+
+   /**
+    * @return
+    *  true if the transport reported that it reused an idle connection
+    */
+   public boolean isConnectionReused() {
+      return connectionReused;
+   }
+
+   /**
+    * Reports that the transport has a connection for the request, reported by each attempt of the request
+    * @param reused
+    *  true if an idle connection was reused, false if a new connection was established
+    */
+   public void connectionAcquired(boolean reused) {
+      if (isEnabled()) {
+         connectionReused = reused;
+         elapsed.set(Phase.CONNECTION_ACQUIRED.ordinal(), System.nanoTime() - start);
+         notify(l -> l.connectionAcquired(this, reused));
+      }
+   }
+
+   /**
+    * Reports that the transport has written the body of the request, reported by each attempt of the request
+    * @param bytes
+    *  the number of bytes written or -1 if unknown
+    */
+   public void requestBodyWritten(long bytes) {
+      if (isEnabled()) {
+         elapsed.set(Phase.REQUEST_BODY_WRITTEN.ordinal(), System.nanoTime() - start);
+         notify(l -> l.requestBodyWritten(this, bytes));
+      }
+   }
+
+   void started() {
+      if (isEnabled()) {
+         notify(l -> l.requestStarted(this));
+      }
+   }
+
+   void responseReceived(int statusCode) {
+      if (isEnabled() && elapsed.compareAndSet(Phase.FIRST_BYTE.ordinal(), -1, System.nanoTime() - start)) {
+         this.statusCode = statusCode;
+         notify(l -> l.responseReceived(this, statusCode));
+      }
+   }
+
+   void responseBodyRead(long bytes) {
+      if (isEnabled() && completed.compareAndSet(false, true)) {
+         elapsed.set(Phase.RESPONSE_BODY_READ.ordinal(), System.nanoTime() - start);
+         notify(l -> l.responseBodyRead(this, bytes));
+      }
+   }
+
+   void entityParsed(Class<?> type) {
+      if (isEnabled()) {
+         elapsed.set(Phase.ENTITY_PARSED.ordinal(), System.nanoTime() - start);
+         notify(l -> l.entityParsed(this, type));
+      }
+   }
+
+   void failed(Throwable error) {
+      if (isEnabled() && completed.compareAndSet(false, true)) {
+         notify(l -> l.requestFailed(this, error));
+      }
+   }
+
+   private void notify(Consumer<RequestListener> event) {
+      try {
+         event.accept(listener);
+      } catch (RuntimeException e) {
+         //a failing listener must not fail the request
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "RequestTrace{" + method + " " + url + ", status=" + statusCode + '}';
+   }
+}
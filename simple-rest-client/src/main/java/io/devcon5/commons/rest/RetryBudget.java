@@ -0,0 +1,135 @@
+package io.devcon5.commons.rest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the retries of a client relative to its requests, so that retries don't multiply the load on a backend that is
+ * already struggling. Each request deposits a fraction of a retry into the budget and each retry withdraws a whole one.
+ * Additionally, a minimum number of retries per second is granted, so that clients with few requests can still retry.
+ * Once the budget is exhausted, failed requests are not retried until the budget is refilled.
+ * <br>
+ * The budget is lock-free and is shared by all requests of a client, it may also be shared by several clients.
+ */
+public final class RetryBudget {
+
+   /**
+    * the balance is kept in thousandths of a retry
+    */
+   private static final long RETRY = 1000;
+
+   private final long depositPerRequest;
+   private final long refillPerSecond;
+   private final long capacity;
+   /**
+    * the time after which an empty budget is refilled completely
+    */
+   private final long refillNanos;
+   private final AtomicLong balance;
+   private final AtomicLong lastRefill = new AtomicLong(System.nanoTime());
+   private final LongAdder retries = new LongAdder();
+   private final LongAdder exhausted = new LongAdder();
+
+   private RetryBudget(final long depositPerRequest, final long refillPerSecond, final long capacity) {
+      this.depositPerRequest = depositPerRequest;
+      this.refillPerSecond = refillPerSecond;
+      this.capacity = capacity;
+      this.refillNanos = refillPerSecond == 0 ? 0 : (long) Math.ceil((double) capacity / refillPerSecond * 1_000_000_000L);
+      this.balance = new AtomicLong(capacity);
+   }
+
+   /**
+    * Creates a budget
+    * @param ratio
+    *  the number of retries allowed per request, i.e. 0.2 allows 20% additional load caused by retries
+    * @param minRetriesPerSecond
+    *  the number of retries per second that are allowed regardless of the number of requests
+    * @return
+    *  a new budget, which allows a burst of up to 10 seconds worth of the minimum retries but at least 10 retries
+    */
+   public static RetryBudget create(double ratio, int minRetriesPerSecond) {
+      if (ratio < 0 || minRetriesPerSecond < 0) {
+         throw new IllegalArgumentException("ratio and minRetriesPerSecond must not be negative");
+      }
+      return new RetryBudget((long) (ratio * RETRY), minRetriesPerSecond * RETRY, Math.max(10, minRetriesPerSecond * 10L) * RETRY);
+   }
+
+   /**
+    * @return
+    *  a new budget that allows any number of retries
+    */
+   public static RetryBudget unlimited() {
+      return new RetryBudget(0, 0, Long.MAX_VALUE);
+   }
+
+   /**
+    * Records a request that is sent for the first time
+    */
+   void deposit() {
+      if (depositPerRequest > 0) {
+         add(depositPerRequest);
+      }
+   }
+
+   /**
+    * Withdraws a retry from the budget
+    * @return
+    *  true if the retry is allowed, false if the budget is exhausted
+    */
+   boolean tryWithdraw() {
+      refill();
+      long current;
+      do {
+         current = balance.get();
+         if (current < RETRY) {
+            exhausted.increment();
+            return false;
+         }
+      } while (!balance.compareAndSet(current, current - RETRY));
+      retries.increment();
+      return true;
+   }
+
+   private void refill() {
+      if (refillPerSecond == 0) {
+         return;
+      }
+      final long now = System.nanoTime();
+      final long last = lastRefill.get();
+      //the elapsed time is capped, as any longer time refills the budget completely and would overflow the product
+      final long elapsed = Math.min(now - last, refillNanos);
+      final long amount = elapsed == refillNanos ? capacity : (long) ((double) elapsed * refillPerSecond / 1_000_000_000L);
+      //only one of the concurrent callers credits the elapsed time
+      if (amount > 0 && lastRefill.compareAndSet(last, now)) {
+         add(amount);
+      }
+   }
+
+   private void add(long amount) {
+      long current;
+      do {
+         current = balance.get();
+      } while (current < capacity && !balance.compareAndSet(current, Math.min(capacity, current + amount)));
+   }
+
+   /**
+    * @return
+    *  the number of retries granted by the budget
+    */
+   public long getRetries() {
+      return retries.sum();
+   }
+
+   /**
+    * @return
+    *  the number of retries denied because the budget was exhausted
+    */
+   public long getExhausted() {
+      return exhausted.sum();
+   }
+
+   @Override
+   public String toString() {
+      return "RetryBudget{retries=" + getRetries() + ", exhausted=" + getExhausted() + '}';
+   }
+}
@@ -0,0 +1,320 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines which failed requests are sent again and how long to wait before each attempt. A request is retried if the
+ * server responded with one of the retryable status codes or sending the request failed with one of the retryable
+ * exceptions. By default, only idempotent methods are retried, except for failures to connect, as the server didn't
+ * receive the request in that case.
+ * <br>
+ * The delay between attempts grows exponentially and is randomized by a jitter, so that clients failing at the same time
+ * don't retry at the same time. A delay requested by the server with a Retry-After header is respected.
+ * <pre>
+ * SimpleRestClient client = SimpleRestClient.builder()
+ *                                           .retry(RetryPolicy.builder().maxAttempts(5).retryOnStatus(503).build())
+ *                                           .build();
+ * </pre>
+ * Policies are immutable and may be shared by clients and requests.
+ */
+public final class RetryPolicy {
+
+   private static final RetryPolicy NONE = builder().maxAttempts(1).build();
+
+   private final int maxAttempts;
+   private final Set<Integer> statusCodes;
+   private final List<Class<? extends Throwable>> exceptions;
+   private final Set<String> methods;
+   private final long initialDelay;
+   private final double multiplier;
+   private final long maxDelay;
+   private final double jitter;
+   private final long maxRetryAfter;
+   private final int maxReplayBytes;
+
+   RetryPolicy(Builder builder) {
+      this.maxAttempts = builder.maxAttempts;
+      this.statusCodes = Collections.unmodifiableSet(new HashSet<>(builder.statusCodes));
+      this.exceptions = Collections.unmodifiableList(new ArrayList<>(builder.exceptions));
+      this.methods = Collections.unmodifiableSet(new HashSet<>(builder.methods));
+      this.initialDelay = builder.initialDelay;
+      this.multiplier = builder.multiplier;
+      this.maxDelay = builder.maxDelay;
+      this.jitter = builder.jitter;
+      this.maxRetryAfter = builder.maxRetryAfter;
+      this.maxReplayBytes = builder.maxReplayBytes;
+   }
+
+   /**
+    * Creates a builder for a policy that retries idempotent requests up to 3 attempts on connection failures and on the
+    * status codes 429, 502, 503 and 504, starting with a delay of 100 ms.
+    * @return
+    *  a new builder
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   /**
+    * @return
+    *  a policy that never retries, i.e. to disable the retry policy of the client for a single request
+    */
+   public static RetryPolicy none() {
+      return NONE;
+   }
+
+   int getMaxAttempts() {
+      return maxAttempts;
+   }
+
+   int getMaxReplayBytes() {
+      return maxReplayBytes;
+   }
+
+   /**
+    * @param method
+    *  the method of the request
+    * @param statusCode
+    *  the status code of the response
+    * @return
+    *  true if the request should be sent again
+    */
+   boolean isRetryable(String method, int statusCode) {
+      return methods.contains(method) && statusCodes.contains(statusCode);
+   }
+
+   /**
+    * @param method
+    *  the method of the request
+    * @param error
+    *  the error of sending the request
+    * @return
+    *  true if the request should be sent again
+    */
+   boolean isRetryable(String method, Throwable error) {
+      //the thread has been interrupted, which is not a failure of the request
+      if (error.getClass() == InterruptedIOException.class) {
+         return false;
+      }
+      //the request has not been sent, retrying would only hit the open circuit or the exhausted rate limit again
+      if (isRejected(error) || isRejected(error.getCause())) {
+         return false;
+      }
+      final boolean matches = exceptions.stream().anyMatch(type -> type.isInstance(error) || type.isInstance(error.getCause()));
+      return matches && (methods.contains(method) || error instanceof ConnectException || error.getCause() instanceof ConnectException);
+   }
+
+   /**
+    * @param method
+    *  the method of the request
+    * @return
+    *  true if the request may be sent again after its body has been sent. Otherwise it's only retried if connecting to
+    *  the server failed, before the body is sent
+    */
+   boolean isRetryableAfterSending(String method) {
+      return maxAttempts > 1
+             && methods.contains(method)
+             && (!statusCodes.isEmpty() || exceptions.stream().anyMatch(type -> !ConnectException.class.isAssignableFrom(type)));
+   }
+
+   private static boolean isRejected(Throwable error) {
+      return error instanceof CircuitBreakerOpenException || error instanceof RateLimitExceededException;
+   }
+
+   /**
+    * Calculates the delay before the next attempt
+    * @param attempt
+    *  the number of the failed attempt, starting with 1
+    * @param retryAfter
+    *  the value of the Retry-After header of the failed attempt, may be null
+    * @return
+    *  the delay in milliseconds, or -1 if the server requested a delay longer than the maximum
+    */
+   long delayMillis(int attempt, String retryAfter) {
+      final double exponential = initialDelay * Math.pow(multiplier, attempt - 1);
+      final long backoff = (long) (Math.min(maxDelay, exponential) * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+      final long requested = HttpDates.retryAfterMillis(retryAfter);
+      if (requested > maxRetryAfter) {
+         return -1;
+      }
+      return Math.max(backoff, requested);
+   }
+
+   /**
+    * Builder for a retry policy
+    */
+   public static class Builder {
+
+      private int maxAttempts = 3;
+      private Set<Integer> statusCodes = new HashSet<>(Arrays.asList(429, 502, 503, 504));
+      private List<Class<? extends Throwable>> exceptions = new ArrayList<>(Collections.singletonList(IOException.class));
+      private Set<String> methods = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS", "PUT", "DELETE", "TRACE"));
+      private long initialDelay = 100;
+      private double multiplier = 2;
+      private long maxDelay = 10000;
+      private double jitter = 0.5;
+      private long maxRetryAfter = 60000;
+      private int maxReplayBytes = 1024 * 1024;
+
+      Builder() {
+      }
+
+      /**
+       * Sets the maximum number of attempts including the first one, default is 3
+       * @param maxAttempts
+       *  the number of attempts, 1 disables retries
+       * @return
+       *  this builder
+       */
+      public Builder maxAttempts(int maxAttempts) {
+         if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+         }
+         this.maxAttempts = maxAttempts;
+         return this;
+      }
+
+      /**
+       * Sets the status codes of responses that are retried, replacing the defaults 429, 502, 503 and 504
+       * @param statusCodes
+       *  the retryable status codes
+       * @return
+       *  this builder
+       */
+      public Builder retryOnStatus(int... statusCodes) {
+
+         this.statusCodes = new HashSet<>();
+         for (int statusCode : statusCodes) {
+            this.statusCodes.add(statusCode);
+         }
+         return this;
+      }
+
+      /**
+       * Sets the exceptions of sending a request that are retried, replacing the default {@link IOException}. An
+       * exception matches if it or its cause is an instance of one of the types.
+       * @param exceptions
+       *  the retryable exception types
+       * @return
+       *  this builder
+       */
+      @SafeVarargs
+      public final Builder retryOn(Class<? extends Throwable>... exceptions) {
+
+         this.exceptions = new ArrayList<>();
+         for (Class<? extends Throwable> exception : exceptions) {
+            this.exceptions.add(exception);
+         }
+         return this;
+      }
+
+      /**
+       * Sets the methods of requests that are retried, replacing the default idempotent methods GET, HEAD, OPTIONS, PUT,
+       * DELETE and TRACE. Requests with other methods are only retried if connecting to the server failed.
+       * @param methods
+       *  the retryable methods
+       * @return
+       *  this builder
+       */
+      public Builder methods(String... methods) {
+
+         this.methods = new HashSet<>();
+         for (String method : methods) {
+            this.methods.add(method.toUpperCase(Locale.ROOT));
+         }
+         return this;
+      }
+
+      /**
+       * Sets the exponential backoff between attempts. The delay before the n-th retry is
+       * <code>initialDelay * multiplier^(n-1)</code>, limited by the maximum delay.
+       * @param initialDelay
+       *  the delay before the first retry, default is 100 ms
+       * @param multiplier
+       *  the factor applied to the delay for each further retry, default is 2
+       * @param maxDelay
+       *  the maximum delay, default is 10 s
+       * @param unit
+       *  the time unit of the delays
+       * @return
+       *  this builder
+       */
+      public Builder backoff(long initialDelay, double multiplier, long maxDelay, TimeUnit unit) {
+         if (initialDelay < 0 || maxDelay < 0 || multiplier < 1) {
+            throw new IllegalArgumentException("delays must not be negative and multiplier must be at least 1");
+         }
+         this.initialDelay = unit.toMillis(initialDelay);
+         this.multiplier = multiplier;
+         this.maxDelay = unit.toMillis(maxDelay);
+         return this;
+      }
+
+      /**
+       * Sets the jitter randomizing the delay. A delay <code>d</code> is randomized to a value between
+       * <code>d * (1 - jitter)</code> and <code>d</code>.
+       * @param jitter
+       *  the jitter between 0 (no randomization) and 1 (full jitter), default is 0.5
+       * @return
+       *  this builder
+       */
+      public Builder jitter(double jitter) {
+         if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1");
+         }
+         this.jitter = jitter;
+         return this;
+      }
+
+      /**
+       * Sets the maximum delay requested by the server with a Retry-After header that is respected. If the server requests
+       * a longer delay, the request is not retried.
+       * @param maxRetryAfter
+       *  the maximum delay, default is 60 s
+       * @param unit
+       *  the time unit of the delay
+       * @return
+       *  this builder
+       */
+      public Builder maxRetryAfter(long maxRetryAfter, TimeUnit unit) {
+
+         this.maxRetryAfter = unit.toMillis(maxRetryAfter);
+         return this;
+      }
+
+      /**
+       * Sets the maximum size of a streamed request body that is recorded while sending it, so that it can be sent again.
+       * Requests with larger streamed bodies are not retried. Bodies of byte arrays, buffers and files don't need to be
+       * recorded.
+       * @param maxReplayBytes
+       *  the maximum number of recorded bytes, default is 1 MB
+       * @return
+       *  this builder
+       */
+      public Builder maxReplayBytes(int maxReplayBytes) {
+         if (maxReplayBytes < 0) {
+            throw new IllegalArgumentException("maxReplayBytes must not be negative");
+         }
+         this.maxReplayBytes = maxReplayBytes;
+         return this;
+      }
+
+      /**
+       * @return
+       *  the new policy
+       */
+      public RetryPolicy build() {
+         return new RetryPolicy(this);
+      }
+   }
+}
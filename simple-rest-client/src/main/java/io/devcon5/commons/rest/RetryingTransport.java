@@ -0,0 +1,159 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Transport} that sends a request again according to a {@link RetryPolicy} if the server responded with a
+ * retryable status or sending failed. The response of a retried attempt is closed, so that its connection can be reused.
+ * Each retry has to be granted by the {@link RetryBudget} of the client. Requests are not retried if the deadline of the
+ * request passes before the retry. If a retry is not possible, the last response is returned or the last error is thrown.
+ */
+class RetryingTransport implements Transport {
+
+   private final Transport transport;
+   private final RetryPolicy policy;
+   private final RetryBudget budget;
+
+   RetryingTransport(final Transport transport, final RetryPolicy policy, final RetryBudget budget) {
+      this.transport = transport;
+      this.policy = policy;
+      this.budget = budget;
+   }
+
+   @Override
+   public TransportResponse send(final TransportRequest request) throws IOException {
+
+      final TransportRequest replayable = replayable(request);
+      budget.deposit();
+      for (int attempt = 1; ; attempt++) {
+         final long delay;
+         try {
+            final TransportResponse response = transport.send(replayable);
+            delay = retryDelay(replayable, attempt, response);
+            if (delay < 0) {
+               return response;
+            }
+            response.close();
+         } catch (IOException | RuntimeException e) {
+            final long errorDelay = retryDelay(replayable, attempt, e);
+            if (errorDelay < 0) {
+               throw e;
+            }
+            sleep(errorDelay);
+            continue;
+         }
+         sleep(delay);
+      }
+   }
+
+   @Override
+   public CompletableFuture<TransportResponse> sendAsync(final TransportRequest request, final Executor executor) {
+
+      final TransportRequest replayable = replayable(request);
+      budget.deposit();
+      return sendAsync(replayable, executor, 1);
+   }
+
+   private CompletableFuture<TransportResponse> sendAsync(TransportRequest request, Executor executor, int attempt) {
+
+      final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+      transport.sendAsync(request, executor).whenComplete((response, error) -> {
+         final long delay;
+         try {
+            if (error != null) {
+               delay = retryDelay(request, attempt, unwrap(error));
+            } else {
+               delay = retryDelay(request, attempt, response);
+               if (delay >= 0) {
+                  response.close();
+               }
+            }
+         } catch (IOException | RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+         }
+         if (delay < 0) {
+            if (error != null) {
+               result.completeExceptionally(error);
+            } else {
+               result.complete(response);
+            }
+            return;
+         }
+         //the scheduler only hands over the next attempt to the executor
+         AsyncExecutors.scheduler().schedule(() -> executor.execute(() -> sendAsync(request, executor, attempt + 1).whenComplete((r, e) -> {
+            if (e != null) {
+               result.completeExceptionally(e);
+            } else {
+               result.complete(r);
+            }
+         })), delay, TimeUnit.MILLISECONDS);
+      });
+      return result;
+   }
+
+   /**
+    * Streamed bodies are recorded while being sent, so that they can be sent again. Bodies of requests that are only
+    * retried if connecting failed are not recorded, they can be sent again as long as they have not been sent.
+    */
+   private TransportRequest replayable(TransportRequest request) {
+      final Optional<RequestBody> body = request.getBody();
+      if (body.isPresent() && !body.get().isRepeatable() && policy.getMaxAttempts() > 1) {
+         final int maxReplayBytes = policy.isRetryableAfterSending(request.getMethod()) ? policy.getMaxReplayBytes() : 0;
+         return request.withBody(RequestBodies.replayable(body.get(), maxReplayBytes));
+      }
+      return request;
+   }
+
+   /**
+    * @return
+    *  the delay before retrying the request with the response or -1 if the response is final
+    */
+   private long retryDelay(TransportRequest request, int attempt, TransportResponse response) throws IOException {
+      if (attempt >= policy.getMaxAttempts() || !policy.isRetryable(request.getMethod(), response.getStatusCode())) {
+         return -1;
+      }
+      final long delay = policy.delayMillis(attempt, response.getHeader("Retry-After"));
+      return delay >= 0 && canResend(request, delay) && budget.tryWithdraw() ? delay : -1;
+   }
+
+   /**
+    * @return
+    *  the delay before retrying the request after the error or -1 if the error is final
+    */
+   private long retryDelay(TransportRequest request, int attempt, Throwable error) {
+      if (attempt >= policy.getMaxAttempts() || !policy.isRetryable(request.getMethod(), error)) {
+         return -1;
+      }
+      final long delay = policy.delayMillis(attempt, null);
+      return canResend(request, delay) && budget.tryWithdraw() ? delay : -1;
+   }
+
+   private static boolean canResend(TransportRequest request, long delayMillis) {
+      final OptionalLong deadline = request.getDeadline();
+      if (deadline.isPresent() && deadline.getAsLong() - System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(delayMillis) <= 0) {
+         return false;
+      }
+      return request.getBody().map(RequestBody::isRepeatable).orElse(true);
+   }
+
+   private static Throwable unwrap(Throwable error) {
+      return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+   }
+
+   private static void sleep(long millis) throws InterruptedIOException {
+      try {
+         Thread.sleep(millis);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while waiting to retry the request");
+      }
+   }
+}
@@ -10,12 +10,19 @@ import java.security.cert.X509Certificate;
 /**
  * Helper class to globally disable checks for proper certificates on HTTPS connections.
  * Caution: use only for testing purposes.
+ * @deprecated
+ *  changes the defaults of the JVM, use {@link TlsConfiguration.Builder#trustAll()} to disable the checks for a single
+ *  client
  */
+@Deprecated
 public class SSLConfiguration {
 
     /**
      * Disables SSL Certificate checks globally for all HttpsUrlConnections.
+     * @deprecated
+     *  use {@link TlsConfiguration.Builder#trustAll()} and {@link SimpleRestClient.ClientBuilder#tls(TlsConfiguration)}
      */
+    @Deprecated
     public static void ignoreSSL() {
 
         TrustManager[] trustAllCerts = new TrustManager[] {
@@ -1,27 +1,112 @@
 package io.devcon5.commons.rest;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.ServiceLoader;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A simple client to send requests to a REST API using plain Java SE.
+ * <br>
+ * Requests can either be sent using the static {@link #requestTo(String)} methods or using a client instance created
+ * with {@link #builder()}. A client instance holds the configuration shared by all of its requests, such as a base URL,
+ * default headers, timeouts and the entity readers and writers. Client instances are immutable and thread-safe and are intended to be
+ * created once and reused for many requests.
  */
 public class SimpleRestClient {
 
+   private static final Transport DEFAULT_TRANSPORT = new UrlConnectionTransport();
+   private static final SimpleRestClient DEFAULT = builder().build();
+
+   private final URL baseUrl;
+   private final Map<String, String> defaultHeaders;
+   private final int connectTimeout;
+   private final int readTimeout;
+   private final long deadlineNanos;
+   /**
+    * null if the default of the HttpURLConnection applies
+    */
+   private final Boolean followRedirects;
+   private final EntityReaders readers;
+   private final EntityWriters writers;
+   private final Transport transport;
+   private final Executor executor;
+   private final ContentDecoders decoders;
+   private final boolean compressRequests;
+   private final RetryPolicy retryPolicy;
+   private final RetryBudget retryBudget;
+   private final RequestListener listener;
+
+   SimpleRestClient(ClientBuilder builder) {
+      this.baseUrl = builder.loadBalancer != null ? builder.loadBalancer.getBaseUrl() : builder.baseUrl;
+      this.defaultHeaders = Collections.unmodifiableMap(defaultHeaders(builder));
+      this.connectTimeout = builder.connectTimeout;
+      this.readTimeout = builder.readTimeout;
+      this.deadlineNanos = builder.deadlineNanos;
+      this.followRedirects = builder.followRedirects;
+      this.readers = builder.readers;
+      this.writers = builder.writers;
+      this.transport = decorate(builder);
+      this.executor = builder.executor;
+      this.decoders = builder.decoders;
+      this.compressRequests = builder.compressRequests;
+      this.retryPolicy = builder.retryPolicy;
+      this.retryBudget = builder.retryBudget;
+      this.listener = combine(builder.listeners);
+   }
+
+   /**
+    * The encodings of the decoders are advertised as default header, so that requests don't have to add the header
+    * themselves
+    */
+   private static Map<String, String> defaultHeaders(ClientBuilder builder) {
+      final Map<String, String> headers = new HashMap<>(builder.defaultHeaders);
+      final Optional<String> acceptEncoding = builder.decoders.getAcceptEncoding();
+      if (acceptEncoding.isPresent() && headers.keySet().stream().noneMatch("Accept-Encoding"::equalsIgnoreCase)) {
+         headers.put("Accept-Encoding", acceptEncoding.get());
+      }
+      return headers;
+   }
+
+   /**
+    * Creates a builder for a reusable client instance
+    * @return
+    *  a new builder to specify the client configuration
+    */
+   public static ClientBuilder builder() {
+      return new ClientBuilder();
+   }
+
    /**
     * Initiates a new request to the specified URL
     * @param url
@@ -30,215 +115,1323 @@ public class SimpleRestClient {
     *  a new RequestBuilder to specify request parameters
     */
    public static RequestBuilder requestTo(String url) {
+      return DEFAULT.request(url);
+   }
+
+   /**
+    * Initiates a new request to the specified URL
+    * @param url
+    *  the requested URL
+    * @return
+    *  a new RequestBuilder to specify request parameters
+    */
+   public static RequestBuilder requestTo(URL url) {
+
+      return DEFAULT.request(url);
+   }
+
+   /**
+    * Initiates a new request of this client. The request is initialized with the default headers of the client.
+    * @param pathOrUrl
+    *  either an absolute URL or a path that is appended to the base URL of the client. If the resulting URL is not valid, an
+    *  exception is thrown
+    * @return
+    *  a new RequestBuilder to specify request parameters
+    */
+   public RequestBuilder request(String pathOrUrl) {
       try {
-         return new RequestBuilder(new URL(url));
+         return new RequestBuilder(this, resolve(pathOrUrl));
       } catch (MalformedURLException e) {
          throw new RuntimeException(e);
       }
    }
 
    /**
-    * Initiates a new request to the specified URL
+    * Initiates a new request of this client to the specified URL. The base URL of the client is not applied. The request
+    * is initialized with the default headers of the client.
     * @param url
     *  the requested URL
     * @return
     *  a new RequestBuilder to specify request parameters
     */
-   public static RequestBuilder requestTo(URL url) {
+   public RequestBuilder request(URL url) {
+
+      return new RequestBuilder(this, url);
+   }
+
+   /**
+    * Creates a builder for a batch of requests that are executed concurrently on the executor of this client
+    * @return
+    *  a new batch builder
+    */
+   public Batch.Builder batch() {
+      return new Batch.Builder(executor);
+   }
+
+   /**
+    * @return
+    *  the entity readers used to parse the responses of this client
+    */
+   public EntityReaders getReaders() {
+      return readers;
+   }
+
+   /**
+    * @return
+    *  the entity writers used to serialize the entities sent by this client
+    */
+   public EntityWriters getWriters() {
+      return writers;
+   }
+
+   /**
+    * Wraps the transport of the builder with the optional features of the client. The circuit breaker is applied closest
+    * to the transport, so that responses served from the cache don't count as calls to the host and the time spent
+    * waiting for the rate limiter doesn't count as slow call. Hedged requests are limited like any other request, but
+    * responses served from the cache don't count as latencies of the host. Only requests that miss the cache are
+    * coalesced, and a coalesced call is hedged like a single request. The load balancer selects the endpoint of each
+    * hedged request separately, while circuit breaker and rate limiter apply to the selected endpoint.
+    */
+   private static Transport decorate(ClientBuilder builder) {
+      Transport transport = builder.transport;
+      if (builder.tls != null) {
+         if (transport != DEFAULT_TRANSPORT) {
+            throw new IllegalStateException("A TLS configuration can only be set for the default transport, configure the custom transport instead");
+         }
+         transport = new UrlConnectionTransport(builder.tls);
+      }
+      if (builder.circuitBreaker != null) {
+         transport = new CircuitBreakingTransport(transport, builder.circuitBreaker);
+      }
+      if (builder.rateLimiter != null) {
+         transport = new RateLimitingTransport(transport, builder.rateLimiter);
+      }
+      if (builder.loadBalancer != null) {
+         transport = new LoadBalancingTransport(transport, builder.loadBalancer);
+      }
+      if (builder.hedgingPolicy != null) {
+         transport = new HedgingTransport(transport, builder.hedgingPolicy, builder.executor);
+      }
+      if (builder.coalescer != null) {
+         transport = new CoalescingTransport(transport, builder.coalescer);
+      }
+      if (builder.cache != null) {
+         transport = new CachingTransport(transport, builder.cache);
+      }
+      return transport;
+   }
 
-      return new RequestBuilder(url);
+   private static RequestListener combine(List<RequestListener> listeners) {
+      switch (listeners.size()) {
+         case 0:
+            return null;
+         case 1:
+            return listeners.get(0);
+         default:
+            return new CompositeListener(listeners);
+      }
+   }
+
+   private URL resolve(String pathOrUrl) throws MalformedURLException {
+      if (baseUrl == null || pathOrUrl.contains("://")) {
+         return new URL(pathOrUrl);
+      }
+      final String base = baseUrl.toString();
+      if (pathOrUrl.isEmpty()) {
+         return baseUrl;
+      }
+      if (base.endsWith("/") && pathOrUrl.startsWith("/")) {
+         return new URL(base + pathOrUrl.substring(1));
+      }
+      if (!base.endsWith("/") && !pathOrUrl.startsWith("/")) {
+         return new URL(base + '/' + pathOrUrl);
+      }
+      return new URL(base + pathOrUrl);
+   }
+
+   private boolean isFollowRedirects() {
+      //the default is resolved per request, as it may be changed after the client has been created
+      return followRedirects != null ? followRedirects : HttpURLConnection.getFollowRedirects();
    }
 
-   /**
-    * Builder for fluently defining a request
-    */
-   public static class RequestBuilder {
+   /**
+    * Builder for the configuration of a reusable client. The builder itself is not thread-safe.
+    */
+   public static class ClientBuilder {
+
+      private URL baseUrl;
+      private final Map<String, String> defaultHeaders = new HashMap<>();
+      private int connectTimeout;
+      private int readTimeout;
+      private long deadlineNanos;
+      private Boolean followRedirects;
+      private EntityReaders readers = EntityReaders.defaults();
+      private EntityWriters writers = EntityWriters.defaults();
+      private Transport transport = DEFAULT_TRANSPORT;
+      private Executor executor = AsyncExecutors.defaultExecutor();
+      private ContentDecoders decoders = ContentDecoders.defaults();
+      private boolean compressRequests;
+      private HttpCache cache;
+      private RetryPolicy retryPolicy = RetryPolicy.none();
+      private RetryBudget retryBudget = RetryBudget.create(0.2, 10);
+      private CircuitBreaker circuitBreaker;
+      private RateLimiter rateLimiter;
+      private HedgingPolicy hedgingPolicy;
+      private RequestCoalescer coalescer;
+      private LoadBalancer loadBalancer;
+      private TlsConfiguration tls;
+      private final List<RequestListener> listeners = new ArrayList<>();
+
+      ClientBuilder() {
+      }
+
+      /**
+       * Sets the base URL to which the paths of the requests are appended
+       * @param baseUrl
+       *  a string representing an URL. If the url String is not valid, an exception is thrown
+       * @return
+       *  this builder
+       */
+      public ClientBuilder baseUrl(String baseUrl) {
+         try {
+            return baseUrl(new URL(baseUrl));
+         } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+         }
+      }
+
+      /**
+       * Sets the base URL to which the paths of the requests are appended
+       * @param baseUrl
+       *  the base URL
+       * @return
+       *  this builder
+       */
+      public ClientBuilder baseUrl(URL baseUrl) {
+
+         this.baseUrl = baseUrl;
+         return this;
+      }
+
+      /**
+       * Adds a header that is sent with every request of the client. Requests may override the header.
+       * @param name
+       *  the name of the header field
+       * @param value
+       *  the value of the header field
+       * @return
+       *  this builder
+       */
+      public ClientBuilder defaultHeader(String name, String value) {
+
+         defaultHeaders.put(name, value);
+         return this;
+      }
+
+      /**
+       * Sets the timeout for establishing a connection.
+       * @param timeout
+       *  the timeout in milliseconds. 0 denotes the default of the transport, which for the HttpURLConnection is
+       *  infinite unless the system property <code>sun.net.client.defaultConnectTimeout</code> is set
+       * @return
+       *  this builder
+       */
+      public ClientBuilder connectTimeout(int timeout) {
+
+         this.connectTimeout = requireNonNegative(timeout);
+         return this;
+      }
+
+      /**
+       * Sets the timeout for reading from an established connection.
+       * @param timeout
+       *  the timeout in milliseconds. 0 denotes the default of the transport, which for the HttpURLConnection is
+       *  infinite unless the system property <code>sun.net.client.defaultReadTimeout</code> is set
+       * @return
+       *  this builder
+       */
+      public ClientBuilder readTimeout(int timeout) {
+
+         this.readTimeout = requireNonNegative(timeout);
+         return this;
+      }
+
+      /**
+       * Sets the default deadline of requests. The deadline covers the entire request, including writing the request body,
+       * retries and reading the response body. Requests that don't complete in time are aborted and fail with a
+       * {@link DeadlineExceededException} as cause.
+       * @param timeout
+       *  the time from sending the request until the response has been read completely. 0 denotes no deadline
+       * @param unit
+       *  the time unit of the timeout
+       * @return
+       *  this builder
+       */
+      public ClientBuilder deadline(long timeout, TimeUnit unit) {
+
+         this.deadlineNanos = unit.toNanos(requireNonNegative(timeout));
+         return this;
+      }
+
+      /**
+       * Defines whether HTTP redirects are followed automatically. Unless set, the current default of
+       * {@link HttpURLConnection#getFollowRedirects()} applies to each request.
+       * @param followRedirects
+       *  true if redirects should be followed
+       * @return
+       *  this builder
+       */
+      public ClientBuilder followRedirects(boolean followRedirects) {
+
+         this.followRedirects = followRedirects;
+         return this;
+      }
+
+      /**
+       * Sets the entity readers used to parse responses
+       * @param readers
+       *  the entity reader registry
+       * @return
+       *  this builder
+       */
+      public ClientBuilder readers(EntityReaders readers) {
+
+         this.readers = Objects.requireNonNull(readers, "readers must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the entity writers used to serialize the entities of requests
+       * @param writers
+       *  the entity writer registry
+       * @return
+       *  this builder
+       */
+      public ClientBuilder writers(EntityWriters writers) {
+
+         this.writers = Objects.requireNonNull(writers, "writers must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the transport used to send the requests. By default a transport based on {@link HttpURLConnection} is used.
+       * @param transport
+       *  the transport to use for all requests of the client
+       * @return
+       *  this builder
+       */
+      public ClientBuilder transport(Transport transport) {
+
+         this.transport = Objects.requireNonNull(transport, "transport must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the executor for asynchronous requests and for reading responses asynchronously. By default, a shared pool of
+       * daemon threads is used.
+       * @param executor
+       *  the executor to run blocking operations of asynchronous requests
+       * @return
+       *  this builder
+       */
+      public ClientBuilder executor(Executor executor) {
+
+         this.executor = Objects.requireNonNull(executor, "executor must not be null");
+         return this;
+      }
+
+      /**
+       * Runs asynchronous requests each on a new virtual thread if the runtime supports virtual threads (Java 21+). On
+       * older runtimes the configured executor is kept.
+       * @return
+       *  this builder
+       */
+      public ClientBuilder virtualThreads() {
+
+         AsyncExecutors.virtualThreadPerTask().ifPresent(this::executor);
+         return this;
+      }
+
+      /**
+       * Sets the decoders for compressed responses. The encodings of the decoders are advertised in the Accept-Encoding
+       * default header unless the header is set otherwise, and response bodies using one of these encodings are decoded
+       * transparently. By default gzip and deflate are supported, {@link ContentDecoders#empty()} disables compression.
+       * @param decoders
+       *  the content decoders
+       * @return
+       *  this builder
+       */
+      public ClientBuilder decoders(ContentDecoders decoders) {
+
+         this.decoders = Objects.requireNonNull(decoders, "decoders must not be null");
+         return this;
+      }
+
+      /**
+       * Defines whether request bodies are gzip compressed while being sent. The server must support compressed requests.
+       * Compressed bodies are sent in chunks as their length is not known in advance.
+       * @param compressRequests
+       *  true if all request bodies should be compressed
+       * @return
+       *  this builder
+       */
+      public ClientBuilder compressRequests(boolean compressRequests) {
+
+         this.compressRequests = compressRequests;
+         return this;
+      }
+
+      /**
+       * Sets a cache for the responses of GET requests. Cached responses are served without contacting the server while
+       * they are fresh and are revalidated with a conditional request once they are stale. By default, no responses are
+       * cached.
+       * @param cache
+       *  the cache, which may be shared with other clients
+       * @return
+       *  this builder
+       */
+      public ClientBuilder cache(HttpCache cache) {
+
+         this.cache = Objects.requireNonNull(cache, "cache must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the policy for retrying failed requests, which may be overridden per request. By default, requests are not
+       * retried.
+       * @param retryPolicy
+       *  the retry policy for all requests of the client
+       * @return
+       *  this builder
+       */
+      public ClientBuilder retry(RetryPolicy retryPolicy) {
+
+         this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the budget limiting the retries of all requests of the client. By default, retries may add 20% to the
+       * requests of the client plus 10 retries per second.
+       * @param retryBudget
+       *  the retry budget, which may be shared with other clients
+       * @return
+       *  this builder
+       */
+      public ClientBuilder retryBudget(RetryBudget retryBudget) {
+
+         this.retryBudget = Objects.requireNonNull(retryBudget, "retryBudget must not be null");
+         return this;
+      }
+
+      /**
+       * Sets a circuit breaker that stops sending requests to hosts that are failing. Requests to a host whose circuit is
+       * open fail immediately with a {@link CircuitBreakerOpenException} as cause. By default, no circuit breaker is used.
+       * @param circuitBreaker
+       *  the circuit breaker, which may be shared with other clients
+       * @return
+       *  this builder
+       */
+      public ClientBuilder circuitBreaker(CircuitBreaker circuitBreaker) {
+
+         this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "circuitBreaker must not be null");
+         return this;
+      }
+
+      /**
+       * Sets a rate limiter that limits the requests sent to each host and route. Requests that are not granted in time
+       * fail with a {@link RateLimitExceededException} as cause. Responses served from the cache don't count against the
+       * limits. By default, no rate limiter is used.
+       * @param rateLimiter
+       *  the rate limiter, which may be shared with other clients
+       * @return
+       *  this builder
+       */
+      public ClientBuilder rateLimiter(RateLimiter rateLimiter) {
+
+         this.rateLimiter = Objects.requireNonNull(rateLimiter, "rateLimiter must not be null");
+         return this;
+      }
+
+      /**
+       * Sets a hedging policy that sends a second request for idempotent requests whose response is late and uses the
+       * response that arrives first. By default, requests are not hedged.
+       * @param hedgingPolicy
+       *  the hedging policy, which may be shared with other clients
+       * @return
+       *  this builder
+       */
+      public ClientBuilder hedging(HedgingPolicy hedgingPolicy) {
+
+         this.hedgingPolicy = Objects.requireNonNull(hedgingPolicy, "hedgingPolicy must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the TLS configuration for the HTTPS connections of the client, such as trusted certificates, client
+       * certificates and the session cache. The configuration is applied to each connection of the default transport
+       * instead of changing the defaults of the JVM. By default, the default socket factory of
+       * {@link javax.net.ssl.HttpsURLConnection} is used.
+       * @param tls
+       *  the TLS configuration, which may be shared with other clients
+       * @return
+       *  this builder
+       */
+      public ClientBuilder tls(TlsConfiguration tls) {
+
+         this.tls = Objects.requireNonNull(tls, "tls must not be null");
+         return this;
+      }
+
+      /**
+       * Sets a load balancer that spreads the requests across several endpoints. The paths of the requests are appended to
+       * the endpoint selected for each request, the load balancer replaces the base URL of the client. By default, all
+       * requests are sent to the base URL.
+       * @param loadBalancer
+       *  the load balancer, which may be shared with other clients
+       * @return
+       *  this builder
+       */
+      public ClientBuilder loadBalancer(LoadBalancer loadBalancer) {
+
+         this.loadBalancer = Objects.requireNonNull(loadBalancer, "loadBalancer must not be null");
+         return this;
+      }
+
+      /**
+       * Sets a coalescer that merges concurrent identical GET and HEAD requests into a single call and shares the
+       * buffered response with all of them. By default, every request is sent on its own.
+       * @param coalescer
+       *  the coalescer, which may be shared with other clients
+       * @return
+       *  this builder
+       */
+      public ClientBuilder coalesce(RequestCoalescer coalescer) {
+
+         this.coalescer = Objects.requireNonNull(coalescer, "coalescer must not be null");
+         return this;
+      }
+
+      /**
+       * Adds a listener that is notified about the phases of each request of the client, such as the
+       * {@link MetricsRecorder}. Several listeners are notified in the order they were added. By default, requests are not
+       * traced.
+       * @param listener
+       *  the listener, which may be shared with other clients
+       * @return
+       *  this builder
+       */
+      public ClientBuilder listener(RequestListener listener) {
+
+         this.listeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+         return this;
+      }
+
+      /**
+       * Creates the client
+       * @return
+       *  a new, immutable client
+       */
+      public SimpleRestClient build() {
+         return new SimpleRestClient(this);
+      }
+   }
+
+   private static int requireNonNegative(int timeout) {
+      if (timeout < 0) {
+         throw new IllegalArgumentException("timeout must not be negative");
+      }
+      return timeout;
+   }
+
+   private static long requireNonNegative(long timeout) {
+      if (timeout < 0) {
+         throw new IllegalArgumentException("timeout must not be negative");
+      }
+      return timeout;
+   }
+
+   /**
+    * Builder for fluently defining a request. A builder is not thread-safe and is intended to be used for a single request.
+    */
+   public static class RequestBuilder {
+
+      private final SimpleRestClient client;
+      private final URL url;
+      /**
+       * the headers of the request, initially the shared default headers of the client which are copied on first modification
+       */
+      private Map<String, String> headers;
+      private boolean headersCopied;
+      private boolean compressBody;
+      private RetryPolicy retryPolicy;
+      private int connectTimeout;
+      private int readTimeout;
+      private long deadlineNanos;
+
+      RequestBuilder(SimpleRestClient client, URL url) {
+         this.client = client;
+         this.url = url;
+         this.headers = client.defaultHeaders;
+         this.compressBody = client.compressRequests;
+         this.retryPolicy = client.retryPolicy;
+         this.connectTimeout = client.connectTimeout;
+         this.readTimeout = client.readTimeout;
+         this.deadlineNanos = client.deadlineNanos;
+      }
+
+      /**
+       * Specifies basic authentication information to be added to the request
+       * @param username
+       *  the plain text username
+       * @param password
+       *  the plaintext password
+       * @return
+       *  this builder
+       */
+      public RequestBuilder basicAuth(String username, String password) {
+
+         return auth(Base64.getEncoder().encodeToString((username + ":" + password).getBytes()));
+      }
+
+      /**
+       * Specifies a custom auth token to set as Authorization information on the request
+       * @param authToken
+       *  the authToken used as 'Authorization' header
+       * @return
+       *  this builder
+       */
+      public RequestBuilder auth(String authToken) {
+
+         setHeader("Authorization", authToken);
+         return this;
+      }
+
+      /**
+       * Sets the accept content type to application/json
+       * @return
+       *  this builder
+       */
+      public RequestBuilder acceptJson() {
+
+         return accept("application/json");
+      }
+
+      /**
+       * Sets a custom content type as Accept header
+       * @param contentType
+       *  the accepted content type(s)
+       * @return
+       *  this builder
+       */
+      public RequestBuilder accept(String contentType) {
+
+         setHeader("Accept", contentType);
+         return this;
+      }
+
+      /**
+       * Sets the sent content's type to application/json
+       * @return
+       * this builder
+       */
+      public RequestBuilder sendJson() {
+
+         return contentType("application/json");
+      }
+
+      /**
+       * Sets a custom content type as Content-Type header
+       * @param contentType
+       *  the content type to be set
+       * @return
+       *  this builder
+       */
+      public RequestBuilder contentType(String contentType) {
+
+         setHeader("Content-Type", contentType);
+         return this;
+      }
+
+      /**
+       * Adds a custom header to the request
+       * @param name
+       *  the name of the header field
+       * @param value
+       *  the value of the header field
+       * @return
+       *  this builder
+       */
+      public RequestBuilder addHeader(String name, String value) {
+
+         setHeader(name, value);
+         return this;
+      }
+
+      /**
+       * Compresses the body of the request using gzip while it's being sent. The server must support compressed requests.
+       * @return
+       *  this builder
+       */
+      public RequestBuilder compressBody() {
+
+         this.compressBody = true;
+         return this;
+      }
+
+      /**
+       * Sets the policy for retrying the request if it fails, overriding the policy of the client
+       * @param retryPolicy
+       *  the retry policy, {@link RetryPolicy#none()} disables retries for the request
+       * @return
+       *  this builder
+       */
+      public RequestBuilder retry(RetryPolicy retryPolicy) {
+
+         this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the timeout for establishing a connection, overriding the timeout of the client
+       * @param timeout
+       *  the timeout in milliseconds. 0 denotes the default of the transport
+       * @return
+       *  this builder
+       */
+      public RequestBuilder connectTimeout(int timeout) {
+
+         this.connectTimeout = requireNonNegative(timeout);
+         return this;
+      }
+
+      /**
+       * Sets the timeout for reading from an established connection, overriding the timeout of the client
+       * @param timeout
+       *  the timeout in milliseconds. 0 denotes the default of the transport
+       * @return
+       *  this builder
+       */
+      public RequestBuilder readTimeout(int timeout) {
+
+         this.readTimeout = requireNonNegative(timeout);
+         return this;
+      }
+
+      /**
+       * Sets the deadline of the request, overriding the deadline of the client. The deadline starts when the request is
+       * sent and covers writing the request body, retries and reading the response body.
+       * @param timeout
+       *  the time from sending the request until the response has been read completely. 0 denotes no deadline
+       * @param unit
+       *  the time unit of the timeout
+       * @return
+       *  this builder
+       */
+      public RequestBuilder deadline(long timeout, TimeUnit unit) {
+
+         this.deadlineNanos = unit.toNanos(requireNonNegative(timeout));
+         return this;
+      }
+
+      URL getUrl() {
+         return url;
+      }
+
+      /**
+       * Creates a builder for a request to another URL with the same headers, timeouts and policies as this builder
+       * @param url
+       *  the URL of the new request
+       * @return
+       *  a new builder
+       */
+      RequestBuilder withUrl(URL url) {
+         final RequestBuilder copy = new RequestBuilder(client, url);
+         //the headers are shared until either builder modifies them
+         copy.headers = headers;
+         headersCopied = false;
+         copy.compressBody = compressBody;
+         copy.retryPolicy = retryPolicy;
+         copy.connectTimeout = connectTimeout;
+         copy.readTimeout = readTimeout;
+         copy.deadlineNanos = deadlineNanos;
+         return copy;
+      }
+
+      /**
+       * Creates a builder for iterating over the items of all pages of a paged resource, starting with this request
+       * @param reader
+       *  the reader extracting the items and the link to the next page of each response, i.e.
+       *  {@link Pagination#linkHeader(Class)}
+       * @param <T>
+       *  the type of the items
+       * @return
+       *  a new pagination builder using the executor of the client for fetching pages in the background
+       */
+      public <T> Pagination.Builder<T> paginate(Pagination.PageReader<T> reader) {
+
+         return new Pagination.Builder<>(this, reader, client.executor);
+      }
+
+      private String getHeader(String name) {
+         for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+               return header.getValue();
+            }
+         }
+         return null;
+      }
+
+      private void setHeader(String name, String value) {
+         if (!headersCopied) {
+            headers = new HashMap<>(headers);
+            headersCopied = true;
+         }
+         headers.put(name, value);
+      }
+
+      /**
+       * Finalizes and sends a GET request
+       * @return
+       *  the response handle
+       */
+      public Response get() {
+
+         return buildRequest("GET");
+      }
+
+      /**
+       * Finalizes and sends a HEAD request
+       * @return
+       *  the response handle
+       */
+      public Response head() {
+
+         return buildRequest("HEAD");
+      }
+
+      /**
+       * Finalizes and sends a DELETE request
+       * @return
+       *  the response handle
+       */
+      public Response delete() {
+
+         return buildRequest("DELETE");
+      }
+
+      /**
+       * Finalizes and sends a POST request
+       * @param dataProvider
+       *  a data provider that writes to the output stream of the outgoing request
+       * @return
+       *  the response handle
+       */
+      public Response post(CheckedConsumer<OutputStream> dataProvider) {
+
+         return buildRequest("POST", toBody(dataProvider));
+      }
+
+      /**
+       * Finalizes and sends a POST request
+       * @param data
+       *  the content of the body, sent with a fixed length
+       * @return
+       *  the response handle
+       */
+      public Response post(byte[] data) {
+
+         return buildRequest("POST", RequestBodies.of(data));
+      }
+
+      /**
+       * Finalizes and sends a POST request
+       * @param data
+       *  the remaining content of the buffer, sent with a fixed length. The position of the buffer is not modified
+       * @return
+       *  the response handle
+       */
+      public Response post(ByteBuffer data) {
+
+         return buildRequest("POST", RequestBodies.of(data));
+      }
+
+      /**
+       * Finalizes and sends a POST request
+       * @param file
+       *  the file whose content is sent with a fixed length. The file is transferred through a channel without
+       *  copying it into the heap
+       * @return
+       *  the response handle
+       */
+      public Response post(Path file) {
+
+         return buildRequest("POST", RequestBodies.of(file));
+      }
+
+      /**
+       * Finalizes and sends a POST request
+       * @param data
+       *  the stream providing the content of the body, which is sent in chunks. The stream is closed once it has been
+       *  sent
+       * @return
+       *  the response handle
+       */
+      public Response post(InputStream data) {
+
+         return buildRequest("POST", RequestBodies.of(data));
+      }
+
+      /**
+       * Finalizes and sends a POST request
+       * @param data
+       *  the stream providing the content of the body. The stream is closed once it has been sent
+       * @param length
+       *  the number of bytes provided by the stream, the body is sent with a fixed length. If the length is -1, the body is
+       *  sent in chunks
+       * @return
+       *  the response handle
+       */
+      public Response post(InputStream data, long length) {
+
+         return buildRequest("POST", RequestBodies.of(data, length));
+      }
+
+      /**
+       * Finalizes and sends a POST request
+       * @param entity
+       *  the entity to send, which is serialized by the entity writer of the client supporting the type of the entity and
+       *  the content type of the request while it's being sent
+       * @return
+       *  the response handle
+       * @throws IllegalStateException
+       *  if the content type of the request has not been set
+       * @throws IllegalArgumentException
+       *  if no entity writer supports the entity and the content type
+       */
+      public Response post(Object entity) {
+
+         return buildRequest("POST", toBody(entity));
+      }
+
+      /**
+       * Finalizes and sends a PUT request
+       * @param dataProvider
+       *  a data provider that writes to the output stream of the outgoing request
+       * @return
+       *  the response handle
+       */
+      public Response put(CheckedConsumer<OutputStream> dataProvider) {
+
+         return buildRequest("PUT", toBody(dataProvider));
+      }
+
+      /**
+       * Finalizes and sends a PUT request
+       * @param data
+       *  the content of the body, sent with a fixed length
+       * @return
+       *  the response handle
+       */
+      public Response put(byte[] data) {
+
+         return buildRequest("PUT", RequestBodies.of(data));
+      }
+
+      /**
+       * Finalizes and sends a PUT request
+       * @param data
+       *  the remaining content of the buffer, sent with a fixed length. The position of the buffer is not modified
+       * @return
+       *  the response handle
+       */
+      public Response put(ByteBuffer data) {
+
+         return buildRequest("PUT", RequestBodies.of(data));
+      }
+
+      /**
+       * Finalizes and sends a PUT request
+       * @param file
+       *  the file whose content is sent with a fixed length. The file is transferred through a channel without
+       *  copying it into the heap
+       * @return
+       *  the response handle
+       */
+      public Response put(Path file) {
+
+         return buildRequest("PUT", RequestBodies.of(file));
+      }
+
+      /**
+       * Finalizes and sends a PUT request
+       * @param data
+       *  the stream providing the content of the body, which is sent in chunks. The stream is closed once it has been
+       *  sent
+       * @return
+       *  the response handle
+       */
+      public Response put(InputStream data) {
+
+         return buildRequest("PUT", RequestBodies.of(data));
+      }
+
+      /**
+       * Finalizes and sends a PUT request
+       * @param data
+       *  the stream providing the content of the body. The stream is closed once it has been sent
+       * @param length
+       *  the number of bytes provided by the stream, the body is sent with a fixed length. If the length is -1, the body is
+       *  sent in chunks
+       * @return
+       *  the response handle
+       */
+      public Response put(InputStream data, long length) {
+
+         return buildRequest("PUT", RequestBodies.of(data, length));
+      }
+
+      /**
+       * Finalizes and sends a PUT request
+       * @param entity
+       *  the entity to send, which is serialized by the entity writer of the client supporting the type of the entity and
+       *  the content type of the request while it's being sent
+       * @return
+       *  the response handle
+       * @throws IllegalStateException
+       *  if the content type of the request has not been set
+       * @throws IllegalArgumentException
+       *  if no entity writer supports the entity and the content type
+       */
+      public Response put(Object entity) {
+
+         return buildRequest("PUT", toBody(entity));
+      }
+
+      /**
+       * Finalizes and sends a GET request asynchronously
+       * @return
+       *  a future of the response handle, completed once the response has been received
+       */
+      public CompletableFuture<Response> getAsync() {
+
+         return buildRequestAsync("GET", null);
+      }
+
+      /**
+       * Finalizes and sends a HEAD request asynchronously
+       * @return
+       *  a future of the response handle, completed once the response has been received
+       */
+      public CompletableFuture<Response> headAsync() {
+
+         return buildRequestAsync("HEAD", null);
+      }
+
+      /**
+       * Finalizes and sends a DELETE request asynchronously
+       * @return
+       *  a future of the response handle, completed once the response has been received
+       */
+      public CompletableFuture<Response> deleteAsync() {
+
+         return buildRequestAsync("DELETE", null);
+      }
+
+      /**
+       * Finalizes and sends a POST request asynchronously
+       * @param dataProvider
+       *  a data provider that writes to the output stream of the outgoing request. It's invoked by a thread of the client's
+       *  executor
+       * @return
+       *  a future of the response handle, completed once the response has been received
+       */
+      public CompletableFuture<Response> postAsync(CheckedConsumer<OutputStream> dataProvider) {
+
+         return buildRequestAsync("POST", toBody(dataProvider));
+      }
 
-      private URL url;
-      private Map<String, String> headers = new HashMap<>();
+      /**
+       * Finalizes and sends a POST request asynchronously
+       * @param data
+       *  the content of the body, sent with a fixed length
+       * @return
+       *  a future of the response handle, completed once the response has been received
+       */
+      public CompletableFuture<Response> postAsync(byte[] data) {
 
-      RequestBuilder(URL url) {
-         this.url = url;
+         return buildRequestAsync("POST", RequestBodies.of(data));
       }
 
       /**
-       * Specifies basic authentication information to be added to the request
-       * @param username
-       *  the plain text username
-       * @param password
-       *  the plaintext password
+       * Finalizes and sends a POST request asynchronously
+       * @param data
+       *  the remaining content of the buffer, sent with a fixed length. The position of the buffer is not modified
        * @return
-       *  this builder
+       *  a future of the response handle, completed once the response has been received
        */
-      public RequestBuilder basicAuth(String username, String password) {
+      public CompletableFuture<Response> postAsync(ByteBuffer data) {
 
-         return auth(Base64.getEncoder().encodeToString((username + ":" + password).getBytes()));
+         return buildRequestAsync("POST", RequestBodies.of(data));
       }
 
       /**
-       * Specifies a custom auth token to set as Authorization information on the request
-       * @param authToken
-       *  the authToken used as 'Authorization' header
+       * Finalizes and sends a POST request asynchronously
+       * @param file
+       *  the file whose content is sent with a fixed length. The file is transferred through a channel without
+       *  copying it into the heap
        * @return
-       *  this builder
+       *  a future of the response handle, completed once the response has been received
        */
-      public RequestBuilder auth(String authToken) {
+      public CompletableFuture<Response> postAsync(Path file) {
 
-         headers.put("Authorization", authToken);
-         return this;
+         return buildRequestAsync("POST", RequestBodies.of(file));
       }
 
       /**
-       * Sets the accept content type to application/json
+       * Finalizes and sends a POST request asynchronously
+       * @param data
+       *  the stream providing the content of the body, which is sent in chunks. The stream is read by a thread of the
+       *  client's executor and closed once it has been sent
        * @return
-       *  this builder
+       *  a future of the response handle, completed once the response has been received
        */
-      public RequestBuilder acceptJson() {
+      public CompletableFuture<Response> postAsync(InputStream data) {
 
-         return accept("application/json");
+         return buildRequestAsync("POST", RequestBodies.of(data));
       }
 
       /**
-       * Sets a custom content type as Accept header
-       * @param contentType
-       *  the accepted content type(s)
+       * Finalizes and sends a POST request asynchronously
+       * @param data
+       *  the stream providing the content of the body. The stream is read by a thread of the client's executor and closed
+       *  once it has been sent
+       * @param length
+       *  the number of bytes provided by the stream, the body is sent with a fixed length. If the length is -1, the body is
+       *  sent in chunks
        * @return
-       *  this builder
+       *  a future of the response handle, completed once the response has been received
        */
-      public RequestBuilder accept(String contentType) {
+      public CompletableFuture<Response> postAsync(InputStream data, long length) {
 
-         headers.put("Accept", contentType);
-         return this;
+         return buildRequestAsync("POST", RequestBodies.of(data, length));
       }
 
       /**
-       * Sets the sent content's type to application/json
+       * Finalizes and sends a POST request asynchronously
+       * @param entity
+       *  the entity to send, which is serialized by the entity writer of the client supporting the type of the entity and
+       *  the content type of the request while it's being sent
        * @return
-       * this builder
+       *  a future of the response handle, completed once the response has been received
+       * @throws IllegalStateException
+       *  if the content type of the request has not been set
+       * @throws IllegalArgumentException
+       *  if no entity writer supports the entity and the content type
        */
-      public RequestBuilder sendJson() {
+      public CompletableFuture<Response> postAsync(Object entity) {
 
-         return contentType("application/json");
+         return buildRequestAsync("POST", toBody(entity));
       }
 
       /**
-       * Sets a custom content type as Content-Type header
-       * @param contentType
-       *  the content type to be set
+       * Finalizes and sends a PUT request asynchronously
+       * @param dataProvider
+       *  a data provider that writes to the output stream of the outgoing request. It's invoked by a thread of the client's
+       *  executor
        * @return
-       *  this builder
+       *  a future of the response handle, completed once the response has been received
        */
-      public RequestBuilder contentType(String contentType) {
+      public CompletableFuture<Response> putAsync(CheckedConsumer<OutputStream> dataProvider) {
 
-         headers.put("Content-Type", contentType);
-         return this;
+         return buildRequestAsync("PUT", toBody(dataProvider));
       }
 
       /**
-       * Adds a custom header to the request
-       * @param name
-       *  the name of the header field
-       * @param value
-       *  the value of the header field
+       * Finalizes and sends a PUT request asynchronously
+       * @param data
+       *  the content of the body, sent with a fixed length
        * @return
-       *  this builder
+       *  a future of the response handle, completed once the response has been received
        */
-      public RequestBuilder addHeader(String name, String value) {
+      public CompletableFuture<Response> putAsync(byte[] data) {
 
-         headers.put(name, value);
-         return this;
+         return buildRequestAsync("PUT", RequestBodies.of(data));
       }
 
       /**
-       * Finalizes and sends a GET request
+       * Finalizes and sends a PUT request asynchronously
+       * @param data
+       *  the remaining content of the buffer, sent with a fixed length. The position of the buffer is not modified
        * @return
-       *  the response handle
+       *  a future of the response handle, completed once the response has been received
        */
-      public Response get() {
+      public CompletableFuture<Response> putAsync(ByteBuffer data) {
 
-         return buildRequest("GET");
+         return buildRequestAsync("PUT", RequestBodies.of(data));
       }
 
       /**
-       * Finalizes and sends a HEAD request
+       * Finalizes and sends a PUT request asynchronously
+       * @param file
+       *  the file whose content is sent with a fixed length. The file is transferred through a channel without
+       *  copying it into the heap
        * @return
-       *  the response handle
+       *  a future of the response handle, completed once the response has been received
        */
-      public Response head() {
+      public CompletableFuture<Response> putAsync(Path file) {
 
-         return buildRequest("HEAD");
+         return buildRequestAsync("PUT", RequestBodies.of(file));
       }
 
       /**
-       * Finalizes and sends a DELETE request
+       * Finalizes and sends a PUT request asynchronously
+       * @param data
+       *  the stream providing the content of the body, which is sent in chunks. The stream is read by a thread of the
+       *  client's executor and closed once it has been sent
        * @return
-       *  the response handle
+       *  a future of the response handle, completed once the response has been received
        */
-      public Response delete() {
+      public CompletableFuture<Response> putAsync(InputStream data) {
 
-         return buildRequest("DELETE");
+         return buildRequestAsync("PUT", RequestBodies.of(data));
       }
 
       /**
-       * Finalizes and sends a POST request
-       * @param dataProvider
-       *  a data provider that writes to the output stream of the outgoing request
+       * Finalizes and sends a PUT request asynchronously
+       * @param data
+       *  the stream providing the content of the body. The stream is read by a thread of the client's executor and closed
+       *  once it has been sent
+       * @param length
+       *  the number of bytes provided by the stream, the body is sent with a fixed length. If the length is -1, the body is
+       *  sent in chunks
        * @return
-       *  the response handle
+       *  a future of the response handle, completed once the response has been received
        */
-      public Response post(CheckedConsumer<OutputStream> dataProvider) {
+      public CompletableFuture<Response> putAsync(InputStream data, long length) {
 
-         return buildRequest("POST", dataProvider);
+         return buildRequestAsync("PUT", RequestBodies.of(data, length));
       }
+
       /**
-       * Finalizes and sends a PUT request
-       * @param dataProvider
-       *  a data provider that writes to the output stream of the outgoing request
+       * Finalizes and sends a PUT request asynchronously
+       * @param entity
+       *  the entity to send, which is serialized by the entity writer of the client supporting the type of the entity and
+       *  the content type of the request while it's being sent
        * @return
-       *  the response handle
+       *  a future of the response handle, completed once the response has been received
+       * @throws IllegalStateException
+       *  if the content type of the request has not been set
+       * @throws IllegalArgumentException
+       *  if no entity writer supports the entity and the content type
        */
-      public Response put(CheckedConsumer<OutputStream> dataProvider) {
+      public CompletableFuture<Response> putAsync(Object entity) {
 
-         return buildRequest("PUT", dataProvider);
+         return buildRequestAsync("PUT", toBody(entity));
       }
 
       private Response buildRequest(String method) {
 
-         return buildRequest(method, os -> {
-         });
+         return buildRequest(method, null);
       }
 
-      private Response buildRequest(String method, Consumer<OutputStream> dataProvider) {
+      private static RequestBody toBody(Consumer<OutputStream> dataProvider) {
 
-         try {
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setRequestMethod(method);
-            headers.forEach(con::setRequestProperty);
-
-            if (dataProvider != null && ("POST".equals(method) || "PUT".equals(method))) {
-               con.setDoOutput(true);
-               try (OutputStream os = con.getOutputStream()) {
-                  dataProvider.accept(os);
-               }
-            }
+         return dataProvider::accept;
+      }
+
+      private RequestBody toBody(Object entity) {
+
+         Objects.requireNonNull(entity, "entity must not be null");
+         final String contentType = getHeader("Content-Type");
+         if (contentType == null) {
+            throw new IllegalStateException("The content type of the entity has to be set");
+         }
+         final EntityWriter writer = client.writers.find(entity.getClass(), contentType)
+                                                   .orElseThrow(() -> new IllegalArgumentException("No entity writer for "
+                                                                                                   + entity.getClass().getName()
+                                                                                                   + " as " + contentType));
+         return RequestBodies.of(writer, entity, contentType);
+      }
 
-            return new Response(con);
+      private Response buildRequest(String method, RequestBody body) {
+
+         final RequestTrace trace = RequestTrace.create(client.listener, method, url);
+         trace.started();
+         try {
+            return new Response(trace(transport().send(toTransportRequest(method, body, trace)), trace), method, client, trace);
          } catch (IOException e) {
+            trace.failed(e);
             throw new RuntimeException(e);
+         } catch (RuntimeException e) {
+            trace.failed(e);
+            throw e;
+         }
+      }
+
+      private CompletableFuture<Response> buildRequestAsync(String method, RequestBody body) {
+
+         final RequestTrace trace = RequestTrace.create(client.listener, method, url);
+         trace.started();
+         return transport().sendAsync(toTransportRequest(method, body, trace), client.executor).whenComplete((response, error) -> {
+            if (error != null) {
+               trace.failed(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+         }).thenApply(response -> new Response(trace(response, trace), method, client, trace));
+      }
+
+      private static TransportResponse trace(TransportResponse response, RequestTrace trace) {
+         return trace.isEnabled() ? new TracingResponse(response, trace) : response;
+      }
+
+      private Transport transport() {
+         if (retryPolicy.getMaxAttempts() == 1) {
+            return client.transport;
          }
+         return new RetryingTransport(client.transport, retryPolicy, client.retryBudget);
+      }
+
+      private TransportRequest toTransportRequest(String method, RequestBody body, RequestTrace trace) {
+
+         final boolean compress = body != null && compressBody;
+         //the request keeps the current headers, further modifications of this builder have to copy them again
+         headersCopied = false;
+         final TransportRequest request = new TransportRequest(method,
+                                                               url,
+                                                               Collections.unmodifiableMap(headers),
+                                                               compress ? RequestBodies.gzip(body) : body,
+                                                               connectTimeout,
+                                                               readTimeout,
+                                                               client.isFollowRedirects(),
+                                                               deadlineNanos == 0
+                                                               ? OptionalLong.empty()
+                                                               : OptionalLong.of(System.nanoTime() + deadlineNanos),
+                                                               trace);
+         //the encoding only applies to this request, later requests of this builder may not have a body
+         return compress ? request.withHeader("Content-Encoding", "gzip") : request;
       }
    }
 
    /**
-    * A Response handle around a HttpURLConnection
+    * A Response handle around the response received by the {@link Transport}. The connection of the response can only be
+    * reused if the response is closed, which happens implicitly when the body is read completely using one of the
+    * <code>as...</code> methods. Responses whose body is not read, i.e. when only the status code is checked, should be
+    * closed explicitly, preferably using try-with-resources.
     */
-   public static class Response {
+   public static class Response implements AutoCloseable {
 
-      final HttpURLConnection connection;
+      final TransportResponse response;
+      private final String method;
+      private final SimpleRestClient client;
+      private final RequestTrace trace;
+      private boolean closed;
 
-      Response(final HttpURLConnection connection) {
+      Response(final TransportResponse response, final String method, final SimpleRestClient client, final RequestTrace trace) {
 
-         this.connection = connection;
+         this.response = response;
+         this.method = method;
+         this.client = client;
+         this.trace = trace;
       }
 
       /**
@@ -248,7 +1441,7 @@ public class SimpleRestClient {
       public int getStatusCode() {
 
          try {
-            return connection.getResponseCode();
+            return response.getStatusCode();
          } catch (IOException e) {
             throw new RuntimeException(e);
          }
@@ -261,12 +1454,23 @@ public class SimpleRestClient {
       public String getMessage() {
 
          try {
-            return connection.getResponseMessage();
+            return response.getMessage();
          } catch (IOException e) {
             throw new RuntimeException(e);
          }
       }
 
+      /**
+       * @param name
+       *  the name of the header field, case-insensitive
+       * @return
+       *  the value of the header field or null if the response has no such header
+       */
+      public String getHeader(String name) {
+
+         return response.getHeader(name);
+      }
+
       /**
        * Checks if the response code returned by the server is one of the valid response code provided. If the actual code is not valid, an {@link IllegalStateException} is
        * thrown.
@@ -276,7 +1480,7 @@ public class SimpleRestClient {
        */
       public boolean hasValidResponseCode(final int... validResponseCodes) throws IOException {
 
-         final int actualCode = connection.getResponseCode();
+         final int actualCode = response.getStatusCode();
          for (int validCode : validResponseCodes) {
             if (validCode == actualCode) {
                return true;
@@ -294,52 +1498,122 @@ public class SimpleRestClient {
       public InputStream asInputStream(final int... validResponseCodes) {
          validateResponseCode(validResponseCodes);
          try {
-            return connection.getInputStream();
+            return body();
          } catch (IOException e) {
             throw new RuntimeException(e);
          }
       }
 
       /**
-       * Reads the response as String if the response represents is valid (by response code)
+       * Reads the response as String if the response represents is valid (by response code). The body is decoded using the
+       * charset declared in the Content-Type header, or UTF-8 if no charset is declared. Line endings are preserved.
        * @param validResponseCodes
        *  the response codes that denote the response as valid
        * @return
        */
       public String asString(final int... validResponseCodes) {
-         validateResponseCode(validResponseCodes);
 
-         try (InputStream in = connection.getInputStream();
-              BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
-            return reader.lines().collect(Collectors.joining(System.lineSeparator()));
+         final byte[] data = asBytes(validResponseCodes);
+         return new String(data, MediaType.parse(getContentType()).getCharset().orElse(StandardCharsets.UTF_8));
+      }
+      /**
+       * Reads the response as byte array if the response represents is valid (by response code)
+       * @param validResponseCodes
+       *  the response codes that denote the response as valid
+       * @return
+       */
+      public byte[] asBytes(final int... validResponseCodes) {
+         validateResponseCode(validResponseCodes);
+         try (InputStream in = body()) {
+            return Buffers.readFully(in, getExpectedBodyLength());
          } catch (IOException e) {
             throw new RuntimeException(e);
          }
       }
+
       /**
-       * Reads the response as byte array if the response represents is valid (by response code)
+       * Writes the response body to a file if the response represents is valid (by response code). The body is transferred
+       * through a {@link FileChannel} without buffering it in the heap. An existing file is overwritten.
+       * @param file
+       *  the file to write
        * @param validResponseCodes
        *  the response codes that denote the response as valid
        * @return
+       *  the number of bytes written
        */
-      public byte[] asBytes(final int... validResponseCodes) {
+      public long transferTo(Path file, final int... validResponseCodes) {
          validateResponseCode(validResponseCodes);
-         try (InputStream in = connection.getInputStream();
-              ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            final byte[] buffer = new byte[8192];
-            int bytesRead = 0;
-            while ((bytesRead = in.read(buffer)) != -1) {
-               out.write(buffer, 0, bytesRead);
+         try (InputStream in = body();
+              FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ReadableByteChannel source = Channels.newChannel(in);
+            long position = 0;
+            long transferred;
+            while ((transferred = out.transferFrom(source, position, Long.MAX_VALUE - position)) > 0) {
+               position += transferred;
+            }
+            return position;
+         } catch (IOException e) {
+            throw new RuntimeException(e);
+         } finally {
+            close();
+         }
+      }
+
+      /**
+       * Writes the response body to a channel if the response represents is valid (by response code). The channel is not
+       * closed.
+       * @param channel
+       *  the channel to write to
+       * @param validResponseCodes
+       *  the response codes that denote the response as valid
+       * @return
+       *  the number of bytes written
+       */
+      public long transferTo(WritableByteChannel channel, final int... validResponseCodes) {
+         if (channel instanceof FileChannel) {
+            validateResponseCode(validResponseCodes);
+            try (InputStream in = body()) {
+               final FileChannel out = (FileChannel) channel;
+               final ReadableByteChannel source = Channels.newChannel(in);
+               final long start = out.position();
+               long transferred;
+               while ((transferred = out.transferFrom(source, out.position(), Long.MAX_VALUE - out.position())) > 0) {
+                  out.position(out.position() + transferred);
+               }
+               return out.position() - start;
+            } catch (IOException e) {
+               throw new RuntimeException(e);
+            } finally {
+               close();
             }
-            return out.toByteArray();
+         }
+         return transferTo(Channels.newOutputStream(channel), validResponseCodes);
+      }
+
+      /**
+       * Writes the response body to an output stream if the response represents is valid (by response code). The body is
+       * copied using a buffer that is reused per thread. The stream is not closed.
+       * @param out
+       *  the stream to write to
+       * @param validResponseCodes
+       *  the response codes that denote the response as valid
+       * @return
+       *  the number of bytes written
+       */
+      public long transferTo(OutputStream out, final int... validResponseCodes) {
+         validateResponseCode(validResponseCodes);
+         try (InputStream in = body()) {
+            return Buffers.copy(in, out);
          } catch (IOException e) {
             throw new RuntimeException(e);
+         } finally {
+            close();
          }
       }
 
       /**
        * Tries to parse the returned content into the specified target type. In order to parse the data, an {@link EntityReader} must be provided via {@link ServiceLoader}
-       * that supports the received content-type and data.
+       * or registered at the {@link EntityReaders} that supports the received content-type and data.
        * @param targetType
        *  the target type to which the received data should be marshalled
        * @param <T>
@@ -350,26 +1624,204 @@ public class SimpleRestClient {
       public <T> Optional<T> as(Class<T> targetType,final int... validResponseCodes){
          validateResponseCode(validResponseCodes);
          final String contentType = getContentType();
-         for(EntityReader er : ServiceLoader.load(EntityReader.class)){
-            if(er.supports(targetType, contentType)){
-               return Optional.of(er.read(targetType,contentType,asInputStream()));
+         final Optional<T> entity = client.readers.find(targetType, contentType).map(er -> {
+            try {
+               return er.read(targetType, contentType, asInputStream(validResponseCodes));
+            } finally {
+               close();
+            }
+         });
+         entity.ifPresent(e -> trace.entityParsed(targetType));
+         return entity;
+      }
+
+      /**
+       * Reads the items of a list in the response lazily if the response represents is valid (by response code). The items
+       * are parsed one at a time while the stream is consumed, so that only the current item has to be kept in memory,
+       * regardless of the size of the response. An {@link EntityReader} supporting
+       * {@link EntityReader#readItems(Class, String, InputStream)} for the received content-type must be provided, i.e. the
+       * {@link JAXBEntityReader} reads the child elements of the root element of an XML document and the
+       * {@link JsonEntityReader} the elements of a JSON array.
+       * <br>
+       * The response is closed once all items have been read or reading an item failed. A stream that is not consumed
+       * completely has to be closed, preferably using try-with-resources.
+       * @param itemType
+       *  the type of the items
+       * @param validResponseCodes
+       *  the response codes that denote the response as valid
+       * @param <T>
+       * @return
+       *  a lazy, sequential stream of the items. If no entity reader was found, the stream is empty
+       */
+      public <T> Stream<T> asStream(Class<T> itemType, final int... validResponseCodes) {
+         validateResponseCode(validResponseCodes);
+         final String contentType = getContentType();
+         final Optional<EntityReader> reader = client.readers.find(itemType, contentType);
+         if (!reader.isPresent()) {
+            close();
+            return Stream.empty();
+         }
+         final Iterator<T> items;
+         try {
+            items = reader.get().readItems(itemType, contentType, body());
+         } catch (IOException e) {
+            close();
+            throw new RuntimeException(e);
+         } catch (RuntimeException e) {
+            close();
+            throw e;
+         }
+         final Iterator<T> closing = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+               try {
+                  if (items.hasNext()) {
+                     return true;
+                  }
+               } catch (RuntimeException e) {
+                  close();
+                  throw e;
+               }
+               close();
+               trace.entityParsed(itemType);
+               return false;
+            }
+
+            @Override
+            public T next() {
+               try {
+                  return items.next();
+               } catch (RuntimeException e) {
+                  close();
+                  throw e;
+               }
             }
+         };
+         return StreamSupport.stream(Spliterators.spliteratorUnknownSize(closing, Spliterator.ORDERED), false)
+                             .onClose(this::close);
+      }
+
+      /**
+       * Reads the response asynchronously as String if the response represents is valid (by response code)
+       * @param validResponseCodes
+       *  the response codes that denote the response as valid
+       * @return
+       *  a future of the response body, completed exceptionally if the response is not valid
+       */
+      public CompletableFuture<String> asStringAsync(final int... validResponseCodes) {
+
+         return CompletableFuture.supplyAsync(() -> asString(validResponseCodes), client.executor);
+      }
+
+      /**
+       * Reads the response asynchronously as byte array if the response represents is valid (by response code)
+       * @param validResponseCodes
+       *  the response codes that denote the response as valid
+       * @return
+       *  a future of the response body, completed exceptionally if the response is not valid
+       */
+      public CompletableFuture<byte[]> asBytesAsync(final int... validResponseCodes) {
+
+         return CompletableFuture.supplyAsync(() -> asBytes(validResponseCodes), client.executor);
+      }
+
+      /**
+       * Parses the returned content asynchronously into the specified target type, see {@link #as(Class, int...)}
+       * @param targetType
+       *  the target type to which the received data should be marshalled
+       * @param validResponseCodes
+       *  the response codes that denote the response as valid
+       * @param <T>
+       * @return
+       *  a future of the optional instance of the target type
+       */
+      public <T> CompletableFuture<Optional<T>> asAsync(Class<T> targetType, final int... validResponseCodes) {
+
+         return CompletableFuture.supplyAsync(() -> as(targetType, validResponseCodes), client.executor);
+      }
+
+      /**
+       * Closes the response. The remaining body, including the body of an error response, is drained so that the connection
+       * can be reused. Closing a closed response has no effect.
+       */
+      @Override
+      public synchronized void close() {
+         if (closed) {
+            return;
+         }
+         closed = true;
+         try {
+            response.close();
+         } catch (IOException e) {
+            throw new RuntimeException(e);
          }
-         return Optional.empty();
       }
 
       private void validateResponseCode(final int... validResponseCodes) {
          try {
             if (!hasValidResponseCode(validResponseCodes.length == 0 ? new int[]{200, 201, 204} : validResponseCodes)) {
-               throw new IllegalStateException("Server returned " + connection.getResponseCode() + " " + connection.getResponseMessage());
+               //the message is missing with HTTP/2
+               final String message = response.getMessage();
+               final String status = message == null ? String.valueOf(response.getStatusCode()) : response.getStatusCode() + " " + message;
+               close();
+               throw new IllegalStateException("Server returned " + status);
             }
          } catch (IOException e) {
             throw new RuntimeException(e);
          }
       }
 
+      /**
+       * @return
+       *  the body of the response, decoded according to its content encoding
+       */
+      private InputStream body() throws IOException {
+         final InputStream body = response.getBody();
+         final String contentEncoding = response.getHeader("Content-Encoding");
+         if (contentEncoding == null) {
+            return body;
+         }
+         try {
+            return client.decoders.decode(contentEncoding, body);
+         } catch (IOException | RuntimeException e) {
+            body.close();
+            throw e;
+         }
+      }
+
+      /**
+       * @return
+       *  the length of the body as announced by the server or -1 if the announced length doesn't refer to the body read
+       */
+      private long getExpectedBodyLength() {
+         //responses to HEAD requests, 204 and 304 have no body, even though the content length may be announced
+         final int statusCode = getStatusCode();
+         if ("HEAD".equals(method) || statusCode == 204 || statusCode == 304) {
+            return 0;
+         }
+         //the content length refers to the encoded body
+         return isEncoded() ? -1 : getContentLength();
+      }
+
+      private boolean isEncoded() {
+         final String contentEncoding = response.getHeader("Content-Encoding");
+         return contentEncoding != null && client.decoders.supports(contentEncoding);
+      }
+
+      private long getContentLength() {
+         final String contentLength = response.getHeader("Content-Length");
+         if (contentLength == null) {
+            return -1;
+         }
+         try {
+            return Long.parseLong(contentLength.trim());
+         } catch (NumberFormatException e) {
+            return -1;
+         }
+      }
+
       private String getContentType() {
-         String contentType = connection.getHeaderField("Content-Type");
+         String contentType = response.getHeader("Content-Type");
          if (contentType == null) {
             contentType = "*/*";
          }
@@ -377,7 +1829,73 @@ public class SimpleRestClient {
       }
    }
 
-   interface CheckedConsumer<T> extends Consumer<T> {
+   /**
+    * Notifies several listeners of a client in order
+    */
+   private static final class CompositeListener implements RequestListener {
+
+      private final RequestListener[] listeners;
+
+      CompositeListener(final List<RequestListener> listeners) {
+         this.listeners = listeners.toArray(new RequestListener[0]);
+      }
+
+      @Override
+      public void requestStarted(final RequestTrace trace) {
+         for (RequestListener listener : listeners) {
+            listener.requestStarted(trace);
+         }
+      }
+
+      @Override
+      public void connectionAcquired(final RequestTrace trace, final boolean reused) {
+         for (RequestListener listener : listeners) {
+            listener.connectionAcquired(trace, reused);
+         }
+      }
+
+      @Override
+      public void requestBodyWritten(final RequestTrace trace, final long bytes) {
+         for (RequestListener listener : listeners) {
+            listener.requestBodyWritten(trace, bytes);
+         }
+      }
+
+      @Override
+      public void responseReceived(final RequestTrace trace, final int statusCode) {
+         for (RequestListener listener : listeners) {
+            listener.responseReceived(trace, statusCode);
+         }
+      }
+
+      @Override
+      public void responseBodyRead(final RequestTrace trace, final long bytes) {
+         for (RequestListener listener : listeners) {
+            listener.responseBodyRead(trace, bytes);
+         }
+      }
+
+      @Override
+      public void entityParsed(final RequestTrace trace, final Class<?> type) {
+         for (RequestListener listener : listeners) {
+            listener.entityParsed(trace, type);
+         }
+      }
+
+      @Override
+      public void requestFailed(final RequestTrace trace, final Throwable error) {
+         for (RequestListener listener : listeners) {
+            listener.requestFailed(trace, error);
+         }
+      }
+   }
+
+   /**
+    * A consumer that may throw a checked exception, which is rethrown wrapped in a RuntimeException
+    * @param <T>
+    */
+   @FunctionalInterface
+   public interface CheckedConsumer<T> extends Consumer<T> {
 
       @Override
       default void accept(T t) {
@@ -0,0 +1,384 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * The TLS settings of a client, set using {@link SimpleRestClient.ClientBuilder#tls(TlsConfiguration)}. Unlike
+ * {@link SSLConfiguration}, the settings only apply to the connections of the client and don't change the defaults of
+ * the JVM.
+ * <br>
+ * The configuration creates a single {@link SSLContext} with its own session cache and a single
+ * {@link SSLSocketFactory}, which is set on every connection. Sharing the socket factory lets the JDK reuse kept-alive
+ * connections, and sharing the session cache lets new connections resume a previous TLS session with an abbreviated
+ * handshake instead of a full handshake. The counters of full and resumed handshakes show whether sessions are resumed.
+ * A handshake counts as resumed if its session was created before the connection was opened, the counters are updated
+ * shortly after the handshake completed.
+ * <br>
+ * For the HTTP/2 transport, the context and parameters can be set on the <code>java.net.http.HttpClient</code>, the
+ * handshakes are not counted there.
+ * <br>
+ * A configuration may be shared by several clients. Instances are thread-safe.
+ */
+public final class TlsConfiguration {
+
+   private final SSLContext context;
+   private final SSLSocketFactory socketFactory;
+   private final String[] protocols;
+   private final String[] cipherSuites;
+   private final HostnameVerifier hostnameVerifier;
+   private final LongAdder fullHandshakes = new LongAdder();
+   private final LongAdder resumedHandshakes = new LongAdder();
+
+   TlsConfiguration(Builder builder) {
+      try {
+         this.context = SSLContext.getInstance("TLS");
+         context.init(builder.keyManagers(), builder.trustManagers(), null);
+      } catch (GeneralSecurityException e) {
+         throw new RuntimeException(e);
+      }
+      final SSLSessionContext sessions = context.getClientSessionContext();
+      sessions.setSessionCacheSize(builder.sessionCacheSize);
+      sessions.setSessionTimeout(builder.sessionTimeoutSeconds);
+      this.protocols = builder.protocols;
+      this.cipherSuites = builder.cipherSuites;
+      this.hostnameVerifier = builder.hostnameVerifier;
+      this.socketFactory = new ConfiguringSocketFactory(context.getSocketFactory());
+   }
+
+   /**
+    * Creates a builder for a configuration that trusts the default trust store of the JVM, sends no client certificate,
+    * uses the default protocols and cipher suites and caches up to 1000 sessions for 1 hour
+    * @return
+    *  a new builder
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   /**
+    * Applies the configuration to a connection
+    * @param connection
+    *  the connection before it's connected
+    */
+   void configure(HttpsURLConnection connection) {
+      connection.setSSLSocketFactory(socketFactory);
+      if (hostnameVerifier != null) {
+         connection.setHostnameVerifier(hostnameVerifier);
+      }
+   }
+
+   /**
+    * @return
+    *  the context of the configuration
+    */
+   public SSLContext getSSLContext() {
+      return context;
+   }
+
+   /**
+    * @return
+    *  the parameters with the configured protocols and cipher suites, i.e. for a <code>java.net.http.HttpClient</code>
+    */
+   public SSLParameters getSSLParameters() {
+      final SSLParameters parameters = context.getDefaultSSLParameters();
+      if (protocols != null) {
+         parameters.setProtocols(protocols);
+      }
+      if (cipherSuites != null) {
+         parameters.setCipherSuites(cipherSuites);
+      }
+      return parameters;
+   }
+
+   /**
+    * @return
+    *  the socket factory that is shared by all connections using this configuration
+    */
+   public SSLSocketFactory getSocketFactory() {
+      return socketFactory;
+   }
+
+   /**
+    * @return
+    *  the number of handshakes that established a new session
+    */
+   public long getFullHandshakes() {
+      return fullHandshakes.sum();
+   }
+
+   /**
+    * @return
+    *  the number of handshakes that resumed a cached session
+    */
+   public long getResumedHandshakes() {
+      return resumedHandshakes.sum();
+   }
+
+   @Override
+   public String toString() {
+      return "TlsConfiguration{fullHandshakes=" + getFullHandshakes() + ", resumedHandshakes=" + getResumedHandshakes() + '}';
+   }
+
+   /**
+    * Socket factory that applies the protocols and cipher suites to the sockets of the context and counts their
+    * handshakes
+    */
+   private final class ConfiguringSocketFactory extends SSLSocketFactory {
+
+      private final SSLSocketFactory factory;
+
+      ConfiguringSocketFactory(final SSLSocketFactory factory) {
+         this.factory = factory;
+      }
+
+      @Override
+      public String[] getDefaultCipherSuites() {
+         return cipherSuites != null ? cipherSuites.clone() : factory.getDefaultCipherSuites();
+      }
+
+      @Override
+      public String[] getSupportedCipherSuites() {
+         return factory.getSupportedCipherSuites();
+      }
+
+      @Override
+      public Socket createSocket() throws IOException {
+         return configure(factory.createSocket());
+      }
+
+      @Override
+      public Socket createSocket(final Socket socket, final String host, final int port, final boolean autoClose) throws IOException {
+         return configure(factory.createSocket(socket, host, port, autoClose));
+      }
+
+      @Override
+      public Socket createSocket(final String host, final int port) throws IOException {
+         return configure(factory.createSocket(host, port));
+      }
+
+      @Override
+      public Socket createSocket(final String host, final int port, final InetAddress localHost, final int localPort) throws IOException {
+         return configure(factory.createSocket(host, port, localHost, localPort));
+      }
+
+      @Override
+      public Socket createSocket(final InetAddress host, final int port) throws IOException {
+         return configure(factory.createSocket(host, port));
+      }
+
+      @Override
+      public Socket createSocket(final InetAddress address, final int port, final InetAddress localAddress, final int localPort) throws IOException {
+         return configure(factory.createSocket(address, port, localAddress, localPort));
+      }
+
+      private Socket configure(Socket socket) {
+         if (!(socket instanceof SSLSocket)) {
+            return socket;
+         }
+         final SSLSocket sslSocket = (SSLSocket) socket;
+         if (protocols != null) {
+            sslSocket.setEnabledProtocols(protocols);
+         }
+         if (cipherSuites != null) {
+            sslSocket.setEnabledCipherSuites(cipherSuites);
+         }
+         //a resumed session keeps the creation time of the session it resumes
+         final long created = System.currentTimeMillis();
+         sslSocket.addHandshakeCompletedListener(event -> {
+            if (event.getSession().getCreationTime() < created) {
+               resumedHandshakes.increment();
+            } else {
+               fullHandshakes.increment();
+            }
+         });
+         return sslSocket;
+      }
+   }
+
+   /**
+    * Builder for a TLS configuration
+    */
+   public static class Builder {
+
+      private KeyStore trustStore;
+      private TrustManager[] trustManagers;
+      private KeyStore keyStore;
+      private char[] keyPassword;
+      private String[] protocols;
+      private String[] cipherSuites;
+      private HostnameVerifier hostnameVerifier;
+      private int sessionCacheSize = 1000;
+      private int sessionTimeoutSeconds = (int) TimeUnit.HOURS.toSeconds(1);
+
+      Builder() {
+      }
+
+      /**
+       * Sets the certificates that are trusted instead of the default trust store of the JVM
+       * @param trustStore
+       *  the key store containing the trusted certificates
+       * @return
+       *  this builder
+       */
+      public Builder trustStore(KeyStore trustStore) {
+
+         this.trustStore = Objects.requireNonNull(trustStore, "trustStore must not be null");
+         this.trustManagers = null;
+         return this;
+      }
+
+      /**
+       * Trusts all certificates and host names. Caution: use only for testing purposes.
+       * @return
+       *  this builder
+       */
+      public Builder trustAll() {
+
+         this.trustStore = null;
+         this.trustManagers = new TrustManager[] {new TrustingAll()};
+         this.hostnameVerifier = (hostname, session) -> true;
+         return this;
+      }
+
+      /**
+       * Sets the client certificates presented to servers that request client authentication
+       * @param keyStore
+       *  the key store containing the private keys and certificate chains of the client
+       * @param password
+       *  the password of the keys
+       * @return
+       *  this builder
+       */
+      public Builder keyStore(KeyStore keyStore, char[] password) {
+
+         this.keyStore = Objects.requireNonNull(keyStore, "keyStore must not be null");
+         this.keyPassword = password != null ? password.clone() : null;
+         return this;
+      }
+
+      /**
+       * Restricts the enabled protocols, i.e. <code>TLSv1.3</code> and <code>TLSv1.2</code>
+       * @param protocols
+       *  the names of the protocols
+       * @return
+       *  this builder
+       */
+      public Builder protocols(String... protocols) {
+
+         this.protocols = Arrays.copyOf(protocols, protocols.length);
+         return this;
+      }
+
+      /**
+       * Restricts the enabled cipher suites
+       * @param cipherSuites
+       *  the names of the cipher suites
+       * @return
+       *  this builder
+       */
+      public Builder cipherSuites(String... cipherSuites) {
+
+         this.cipherSuites = Arrays.copyOf(cipherSuites, cipherSuites.length);
+         return this;
+      }
+
+      /**
+       * Sets the verifier for host names that don't match the certificate of the server
+       * @param hostnameVerifier
+       *  the verifier
+       * @return
+       *  this builder
+       */
+      public Builder hostnameVerifier(HostnameVerifier hostnameVerifier) {
+
+         this.hostnameVerifier = Objects.requireNonNull(hostnameVerifier, "hostnameVerifier must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the size of the session cache and how long sessions may be resumed, default is 1000 sessions for 1 hour
+       * @param size
+       *  the maximum number of cached sessions, 0 denotes no limit
+       * @param timeout
+       *  the time after which a session is no longer resumed, 0 denotes no limit
+       * @param unit
+       *  the time unit of the timeout
+       * @return
+       *  this builder
+       */
+      public Builder sessionCache(int size, long timeout, TimeUnit unit) {
+         if (size < 0 || timeout < 0) {
+            throw new IllegalArgumentException("size and timeout must not be negative");
+         }
+         this.sessionCacheSize = size;
+         this.sessionTimeoutSeconds = (int) Math.min(Integer.MAX_VALUE, unit.toSeconds(timeout));
+         return this;
+      }
+
+      /**
+       * @return
+       *  the new configuration
+       */
+      public TlsConfiguration build() {
+         return new TlsConfiguration(this);
+      }
+
+      private KeyManager[] keyManagers() throws GeneralSecurityException {
+         if (keyStore == null) {
+            return null;
+         }
+         final KeyManagerFactory factory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+         factory.init(keyStore, keyPassword);
+         return factory.getKeyManagers();
+      }
+
+      private TrustManager[] trustManagers() throws GeneralSecurityException {
+         if (trustManagers != null || trustStore == null) {
+            return trustManagers;
+         }
+         final TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+         factory.init(trustStore);
+         return factory.getTrustManagers();
+      }
+   }
+
+   private static final class TrustingAll implements X509TrustManager {
+
+      @Override
+      public X509Certificate[] getAcceptedIssuers() {
+         return new X509Certificate[0];
+      }
+
+      @Override
+      public void checkClientTrusted(final X509Certificate[] certs, final String authType) {
+         //all clients are trusted
+      }
+
+      @Override
+      public void checkServerTrusted(final X509Certificate[] certs, final String authType) {
+         //all servers are trusted
+      }
+   }
+}
@@ -0,0 +1,132 @@
+package io.devcon5.commons.rest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link TransportResponse} reporting the received status and the completely read body of the response to the
+ * {@link RequestTrace} of its request
+ */
+class TracingResponse implements TransportResponse {
+
+   private final TransportResponse response;
+   private final RequestTrace trace;
+   private CountingInputStream body;
+
+   TracingResponse(final TransportResponse response, final RequestTrace trace) {
+      this.response = response;
+      this.trace = trace;
+   }
+
+   @Override
+   public int getStatusCode() throws IOException {
+      try {
+         final int statusCode = response.getStatusCode();
+         trace.responseReceived(statusCode);
+         return statusCode;
+      } catch (IOException e) {
+         trace.failed(e);
+         throw e;
+      }
+   }
+
+   @Override
+   public String getMessage() throws IOException {
+      return response.getMessage();
+   }
+
+   @Override
+   public String getHeader(final String name) {
+      return response.getHeader(name);
+   }
+
+   @Override
+   public Map<String, List<String>> getHeaders() {
+      return response.getHeaders();
+   }
+
+   @Override
+   public synchronized InputStream getBody() throws IOException {
+      if (body == null) {
+         //the status is received before the body
+         getStatusCode();
+         try {
+            body = new CountingInputStream(response.getBody());
+         } catch (IOException e) {
+            trace.failed(e);
+            throw e;
+         }
+      }
+      return body;
+   }
+
+   @Override
+   public void close() throws IOException {
+      getBody().close();
+   }
+
+   /**
+    * Stream of the response body counting the read bytes
+    */
+   private final class CountingInputStream extends FilterInputStream {
+
+      private long count;
+
+      CountingInputStream(final InputStream in) {
+         super(in);
+      }
+
+      @Override
+      public int read() throws IOException {
+         try {
+            final int b = super.read();
+            if (b == -1) {
+               trace.responseBodyRead(count);
+            } else {
+               count++;
+            }
+            return b;
+         } catch (IOException e) {
+            trace.failed(e);
+            throw e;
+         }
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+         try {
+            final int read = super.read(b, off, len);
+            if (read == -1) {
+               trace.responseBodyRead(count);
+            } else {
+               count += read;
+            }
+            return read;
+         } catch (IOException e) {
+            trace.failed(e);
+            throw e;
+         }
+      }
+
+      @Override
+      public long skip(final long n) throws IOException {
+         final long skipped = super.skip(n);
+         count += skipped;
+         return skipped;
+      }
+
+      @Override
+      public void close() throws IOException {
+         try {
+            super.close();
+         } catch (IOException e) {
+            trace.failed(e);
+            throw e;
+         }
+         trace.responseBodyRead(count);
+      }
+   }
+}
@@ -0,0 +1,46 @@
+package io.devcon5.commons.rest;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * SPI for the transport that sends a request and receives the response. The default transport is based on
+ * {@link java.net.HttpURLConnection}, alternative transports can be set on the {@link SimpleRestClient.ClientBuilder}.
+ * <br>
+ * Implementations must be thread-safe as a single transport is shared by all requests of a client.
+ */
+public interface Transport {
+
+   /**
+    * Sends the request, including its body, and returns a handle to the response. Implementations may defer receiving the
+    * response until the response is accessed.
+    * @param request
+    *  the request to send
+    * @return
+    *  the response handle
+    * @throws IOException
+    *  if the request could not be sent
+    */
+   TransportResponse send(TransportRequest request) throws IOException;
+
+   /**
+    * Sends the request asynchronously. The default implementation runs {@link #send(TransportRequest)} on the executor,
+    * transports with a non-blocking implementation should override this method.
+    * @param request
+    *  the request to send
+    * @param executor
+    *  the executor of the client for running blocking operations
+    * @return
+    *  a future that is completed with the response handle or exceptionally if the request could not be sent
+    */
+   default CompletableFuture<TransportResponse> sendAsync(TransportRequest request, Executor executor) {
+      return CompletableFuture.supplyAsync(() -> {
+         try {
+            return send(request);
+         } catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      }, executor);
+   }
+}
@@ -0,0 +1,233 @@
+package io.devcon5.commons.rest;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable request to be sent by a {@link Transport}
+ */
+public final class TransportRequest {
+
+   /**
+    * the lower-case names of the header fields that describe the body of a request
+    */
+   private static final Set<String> BODY_HEADERS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("content-type",
+                                                                                                          "content-encoding",
+                                                                                                          "content-language",
+                                                                                                          "content-length",
+                                                                                                          "transfer-encoding")));
+
+   private final String method;
+   private final URL url;
+   private final Map<String, String> headers;
+   private final RequestBody body;
+   private final int connectTimeout;
+   private final int readTimeout;
+   private final boolean followRedirects;
+   private final OptionalLong deadline;
+   private final RequestTrace trace;
+
+   TransportRequest(final String method,
+                    final URL url,
+                    final Map<String, String> headers,
+                    final RequestBody body,
+                    final int connectTimeout,
+                    final int readTimeout,
+                    final boolean followRedirects) {
+      this(method, url, headers, body, connectTimeout, readTimeout, followRedirects, OptionalLong.empty());
+   }
+
+   TransportRequest(final String method,
+                    final URL url,
+                    final Map<String, String> headers,
+                    final RequestBody body,
+                    final int connectTimeout,
+                    final int readTimeout,
+                    final boolean followRedirects,
+                    final OptionalLong deadline) {
+      this(method, url, headers, body, connectTimeout, readTimeout, followRedirects, deadline, RequestTrace.disabled());
+   }
+
+   TransportRequest(final String method,
+                    final URL url,
+                    final Map<String, String> headers,
+                    final RequestBody body,
+                    final int connectTimeout,
+                    final int readTimeout,
+                    final boolean followRedirects,
+                    final OptionalLong deadline,
+                    final RequestTrace trace) {
+      this.method = method;
+      this.url = url;
+      this.headers = headers;
+      this.body = body;
+      this.connectTimeout = connectTimeout;
+      this.readTimeout = readTimeout;
+      this.followRedirects = followRedirects;
+      this.deadline = deadline;
+      this.trace = trace;
+   }
+
+   /**
+    * @return
+    *  the http method, i.e. GET
+    */
+   public String getMethod() {
+      return method;
+   }
+
+   /**
+    * @return
+    *  the target URL
+    */
+   public URL getUrl() {
+      return url;
+   }
+
+   /**
+    * @return
+    *  the unmodifiable map of request headers
+    */
+   public Map<String, String> getHeaders() {
+      return headers;
+   }
+
+   /**
+    * @return
+    *  the body of the request, empty for requests without body
+    */
+   public Optional<RequestBody> getBody() {
+      return Optional.ofNullable(body);
+   }
+
+   /**
+    * @return
+    *  the timeout in milliseconds for establishing a connection, 0 denotes the default of the transport. If the
+    *  request has a deadline, the timeout is bounded by the time remaining until the deadline
+    */
+   public int getConnectTimeout() {
+      return bounded(connectTimeout);
+   }
+
+   /**
+    * @return
+    *  the timeout in milliseconds for reading from an established connection, 0 denotes the default of the transport.
+    *  If the request has a deadline, the timeout is bounded by the time remaining until the deadline
+    */
+   public int getReadTimeout() {
+      return bounded(readTimeout);
+   }
+
+   /**
+    * The deadline covers the entire exchange, including writing the request body and reading the response body.
+    * Transports should abort the exchange once the deadline has passed and fail with a {@link DeadlineExceededException}.
+    * @return
+    *  the {@link System#nanoTime()} by which the response has to be read completely, empty if the request has no deadline
+    */
+   public OptionalLong getDeadline() {
+      return deadline;
+   }
+
+   /**
+    * @return
+    *  true if the request has a deadline and the deadline has passed
+    */
+   public boolean isExpired() {
+      return deadline.isPresent() && deadline.getAsLong() - System.nanoTime() <= 0;
+   }
+
+   /**
+    * Transports report the phases of the exchange they can observe to the trace, i.e. when a connection was acquired.
+    * @return
+    *  the trace of the request, which is disabled if the client has no {@link RequestListener}
+    */
+   public RequestTrace getTrace() {
+      return trace;
+   }
+
+   private int bounded(int timeout) {
+      if (!deadline.isPresent()) {
+         return timeout;
+      }
+      final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline.getAsLong() - System.nanoTime());
+      //0 would denote the default timeout of the transport
+      final int bound = (int) Math.max(1, Math.min(Integer.MAX_VALUE, remaining));
+      return timeout == 0 ? bound : Math.min(timeout, bound);
+   }
+
+   /**
+    * @return
+    *  true if redirects should be followed
+    */
+   public boolean isFollowRedirects() {
+      return followRedirects;
+   }
+
+   /**
+    * Creates a copy of this request with an additional header field
+    * @param name
+    *  the name of the header field
+    * @param value
+    *  the value of the header field
+    * @return
+    *  the new request
+    */
+   TransportRequest withHeader(String name, String value) {
+      final Map<String, String> copy = new HashMap<>(headers);
+      copy.put(name, value);
+      return new TransportRequest(method, url, Collections.unmodifiableMap(copy), body, connectTimeout, readTimeout, followRedirects, deadline, trace);
+   }
+
+   /**
+    * Creates a copy of this request with another URL
+    * @param url
+    *  the URL of the new request
+    * @return
+    *  the new request
+    */
+   TransportRequest withUrl(URL url) {
+      return new TransportRequest(method, url, headers, body, connectTimeout, readTimeout, followRedirects, deadline, trace);
+   }
+
+   /**
+    * Creates a copy of this request with another method and body. If the new request has no body, the header fields
+    * describing the body of this request are removed.
+    * @param method
+    *  the http method of the new request
+    * @param body
+    *  the body of the new request or null
+    * @return
+    *  the new request
+    */
+   TransportRequest withMethod(String method, RequestBody body) {
+      final Map<String, String> fields;
+      if (body == null && this.body != null) {
+         final Map<String, String> copy = new HashMap<>(headers);
+         copy.keySet().removeIf(name -> BODY_HEADERS.contains(name.toLowerCase(Locale.ROOT)));
+         fields = Collections.unmodifiableMap(copy);
+      } else {
+         fields = headers;
+      }
+      return new TransportRequest(method, url, fields, body, connectTimeout, readTimeout, followRedirects, deadline, trace);
+   }
+
+   /**
+    * Creates a copy of this request with another body
+    * @param body
+    *  the body of the new request
+    * @return
+    *  the new request
+    */
+   TransportRequest withBody(RequestBody body) {
+      return new TransportRequest(method, url, headers, body, connectTimeout, readTimeout, followRedirects, deadline, trace);
+   }
+}
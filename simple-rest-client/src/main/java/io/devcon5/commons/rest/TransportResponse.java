@@ -0,0 +1,65 @@
+package io.devcon5.commons.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response as received by a {@link Transport}
+ */
+public interface TransportResponse extends Closeable {
+
+   /**
+    * @return
+    *  the http response code
+    * @throws IOException
+    *  if the response could not be received
+    */
+   int getStatusCode() throws IOException;
+
+   /**
+    * @return
+    *  the http response message, may be null if the transport doesn't receive a message (i.e. for HTTP/2)
+    * @throws IOException
+    *  if the response could not be received
+    */
+   String getMessage() throws IOException;
+
+   /**
+    * @param name
+    *  the case-insensitive name of the header field
+    * @return
+    *  the first value of the header field or null if the response doesn't contain the header
+    */
+   String getHeader(String name);
+
+   /**
+    * Provides all header fields of the response. The default implementation returns an empty map, transports should
+    * override it as the header fields are required to cache a response.
+    * @return
+    *  the header fields of the response by their name
+    */
+   default Map<String, List<String>> getHeaders() {
+      return Collections.emptyMap();
+   }
+
+   /**
+    * Provides the body of the response. For error responses the body of the error is returned.
+    * @return
+    *  the stream of the body. If the response has no body, an empty stream is returned
+    * @throws IOException
+    *  if the response could not be received
+    */
+   InputStream getBody() throws IOException;
+
+   /**
+    * Releases the resources of the response.
+    * @throws IOException
+    *  if the resources could not be released
+    */
+   @Override
+   void close() throws IOException;
+}
@@ -0,0 +1,542 @@
+package io.devcon5.commons.rest;
+
+import static java.lang.Long.getLong;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HttpsURLConnection;
+
+/**
+ * The default {@link Transport} based on {@link HttpURLConnection}. Connections are kept alive and reused by the
+ * built-in connection cache of the JDK. A connection is only returned to the cache if the body of its response has been
+ * read completely, so when a response is closed, the remaining body is drained up to a limit. If the remaining body
+ * exceeds the limit, the connection is discarded instead.
+ * <br>
+ * If a request has a deadline, the connection is disconnected once the deadline passes before the response has been read
+ * completely, so that blocked writes and reads fail with a {@link DeadlineExceededException}.
+ * <br>
+ * Without a {@link TlsConfiguration}, HTTPS connections use the default socket factory of {@link HttpsURLConnection}.
+ * <br>
+ * Request bodies are streamed to the connection instead of being buffered in memory. As a HttpURLConnection can't follow
+ * redirects in streaming mode, this transport follows the redirects of requests with a body itself, the same way the
+ * HttpURLConnection does: a POST redirected with a status other than 307 is sent again as GET without body, other
+ * requests are sent again with their body if the body is {@link RequestBody#isRepeatable() repeatable}. Otherwise the
+ * redirect response is returned.
+ */
+public class UrlConnectionTransport implements Transport {
+
+   /**
+    * The default maximum number of bytes drained from a response on close, can be set using the system property
+    * <code>io.devcon5.rest.drainLimit</code>
+    */
+   static final long DEFAULT_DRAIN_LIMIT = getLong("io.devcon5.rest.drainLimit", 65536);
+   /**
+    * The maximum number of redirects followed for a request with a body, the same system property as used by the
+    * HttpURLConnection for other requests
+    */
+   private static final int MAX_REDIRECTS = Integer.getInteger("http.maxRedirects", 20);
+
+   private final long drainLimit;
+   private final TlsConfiguration tls;
+   private final ConnectionStats stats = new ConnectionStats();
+   private final IdleConnections idle = new IdleConnections();
+
+   /**
+    * Creates a transport with the default drain limit
+    */
+   public UrlConnectionTransport() {
+      this(DEFAULT_DRAIN_LIMIT);
+   }
+
+   /**
+    * Creates a transport with a custom drain limit
+    * @param drainLimit
+    *  the maximum number of remaining bytes of a response body that are read on close to reuse the connection
+    */
+   public UrlConnectionTransport(long drainLimit) {
+      this(drainLimit, null);
+   }
+
+   /**
+    * Creates a transport with the default drain limit whose HTTPS connections use a TLS configuration
+    * @param tls
+    *  the TLS configuration, which may be shared with other transports
+    */
+   public UrlConnectionTransport(TlsConfiguration tls) {
+      this(DEFAULT_DRAIN_LIMIT, Objects.requireNonNull(tls, "tls must not be null"));
+   }
+
+   private UrlConnectionTransport(long drainLimit, TlsConfiguration tls) {
+      if (drainLimit < 0) {
+         throw new IllegalArgumentException("drainLimit must not be negative");
+      }
+      this.drainLimit = drainLimit;
+      this.tls = tls;
+   }
+
+   /**
+    * @return
+    *  the counters of released and discarded connections
+    */
+   public ConnectionStats getStats() {
+      return stats;
+   }
+
+   @Override
+   public TransportResponse send(final TransportRequest request) throws IOException {
+      return send(request, 0);
+   }
+
+   private TransportResponse send(final TransportRequest request, final int redirects) throws IOException {
+
+      if (request.isExpired()) {
+         throw new DeadlineExceededException("Deadline exceeded before sending " + request.getMethod() + " " + request.getUrl());
+      }
+      final HttpURLConnection con = (HttpURLConnection) request.getUrl().openConnection();
+      if (tls != null && con instanceof HttpsURLConnection) {
+         tls.configure((HttpsURLConnection) con);
+      }
+      con.setRequestMethod(request.getMethod());
+      //0 keeps the defaults of the sun.net.client.defaultConnectTimeout and defaultReadTimeout system properties
+      if (request.getConnectTimeout() > 0) {
+         con.setConnectTimeout(request.getConnectTimeout());
+      }
+      if (request.getReadTimeout() > 0) {
+         con.setReadTimeout(request.getReadTimeout());
+      }
+      final Optional<RequestBody> body = request.getBody();
+      con.setInstanceFollowRedirects(request.isFollowRedirects() && !body.isPresent());
+      request.getHeaders().forEach(con::setRequestProperty);
+      final Watchdog watchdog = Watchdog.start(con, request);
+
+      final RequestTrace trace = request.getTrace();
+      if (body.isPresent()) {
+         con.setDoOutput(true);
+         //without a streaming mode, the HttpURLConnection buffers the entire body in memory
+         final long length = body.get().getContentLength();
+         if (length >= 0) {
+            con.setFixedLengthStreamingMode(length);
+         } else {
+            con.setChunkedStreamingMode(0);
+         }
+      }
+      if (trace.isEnabled()) {
+         connect(con, watchdog, trace);
+      }
+      if (body.isPresent()) {
+         try (CountingOutputStream os = new CountingOutputStream(con.getOutputStream())) {
+            body.get().writeTo(os);
+            os.flush();
+            trace.requestBodyWritten(os.count);
+         } catch (IOException e) {
+            discard(con, watchdog);
+            throw watchdog.translate(e);
+         } catch (RuntimeException e) {
+            discard(con, watchdog);
+            throw e;
+         }
+      }
+      final UrlConnectionResponse response = new UrlConnectionResponse(con, watchdog, trace.isEnabled() ? Hosts.key(request.getUrl()) : null);
+      if (!body.isPresent() || !request.isFollowRedirects() || redirects >= MAX_REDIRECTS) {
+         return response;
+      }
+      final TransportRequest redirect = redirectOf(request, response);
+      if (redirect == null) {
+         return response;
+      }
+      response.close();
+      return send(redirect, redirects + 1);
+   }
+
+   /**
+    * Determines the request following a redirect response like the HttpURLConnection does for requests without body
+    * @return
+    *  the request to send or null if the response is no redirect that can be followed
+    */
+   private static TransportRequest redirectOf(TransportRequest request, UrlConnectionResponse response) throws IOException {
+      final int status = response.getStatusCode();
+      if (status < 300 || status > 307 || status == 304 || status == 306) {
+         return null;
+      }
+      final String location = response.getHeader("Location");
+      if (location == null) {
+         return null;
+      }
+      final URL url = new URL(request.getUrl(), location);
+      //redirects to another protocol are not followed
+      if (!url.getProtocol().equalsIgnoreCase(request.getUrl().getProtocol())) {
+         return null;
+      }
+      if ("POST".equals(request.getMethod()) && status != 307) {
+         return request.withMethod("GET", null).withUrl(url);
+      }
+      return request.getBody().map(RequestBody::isRepeatable).orElse(true) ? request.withUrl(url) : null;
+   }
+
+   /**
+    * Connects explicitly to report the acquired connection to the trace, otherwise the HttpURLConnection connects lazily.
+    * Whether the connection is reused from the connection cache of the JDK is estimated by the connections this
+    * transport has released to the cache.
+    */
+   private void connect(HttpURLConnection con, Watchdog watchdog, RequestTrace trace) throws IOException {
+      try {
+         con.connect();
+      } catch (IOException e) {
+         discard(con, watchdog);
+         throw watchdog.translate(e);
+      }
+      trace.connectionAcquired(idle.acquire(Hosts.key(con.getURL())));
+   }
+
+   /**
+    * Sends the request on the executor and waits there for the response code, as a HttpURLConnection receives the
+    * response lazily on first access.
+    */
+   @Override
+   public CompletableFuture<TransportResponse> sendAsync(final TransportRequest request, final Executor executor) {
+      return CompletableFuture.supplyAsync(() -> {
+         try {
+            final TransportResponse response = send(request);
+            response.getStatusCode();
+            return response;
+         } catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      }, executor);
+   }
+
+   private void discard(HttpURLConnection connection, Watchdog watchdog) {
+      watchdog.complete();
+      connection.disconnect();
+      stats.discarded();
+   }
+
+   /**
+    * Response handle around a HttpURLConnection
+    */
+   class UrlConnectionResponse implements TransportResponse {
+
+      final HttpURLConnection connection;
+      private final Watchdog watchdog;
+      private final String host;
+      private DrainingInputStream body;
+
+      UrlConnectionResponse(final HttpURLConnection connection, final Watchdog watchdog, final String host) {
+         this.connection = connection;
+         this.watchdog = watchdog;
+         this.host = host;
+      }
+
+      @Override
+      public int getStatusCode() throws IOException {
+         try {
+            return connection.getResponseCode();
+         } catch (IOException e) {
+            throw watchdog.translate(e);
+         }
+      }
+
+      @Override
+      public String getMessage() throws IOException {
+         try {
+            return connection.getResponseMessage();
+         } catch (IOException e) {
+            throw watchdog.translate(e);
+         }
+      }
+
+      @Override
+      public String getHeader(final String name) {
+         return connection.getHeaderField(name);
+      }
+
+      @Override
+      public Map<String, List<String>> getHeaders() {
+         final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+         connection.getHeaderFields().forEach((name, values) -> {
+            //the status line is reported with a null name
+            if (name != null) {
+               headers.put(name, values);
+            }
+         });
+         return headers;
+      }
+
+      @Override
+      public synchronized InputStream getBody() throws IOException {
+         if (body == null) {
+            body = new DrainingInputStream(openBody(), connection, watchdog, host);
+         }
+         return body;
+      }
+
+      private InputStream openBody() throws IOException {
+         try {
+            if (connection.getResponseCode() >= 400) {
+               final InputStream error = connection.getErrorStream();
+               return error == null ? new ByteArrayInputStream(new byte[0]) : error;
+            }
+            return connection.getInputStream();
+         } catch (IOException e) {
+            discard(connection, watchdog);
+            throw watchdog.translate(e);
+         }
+      }
+
+      @Override
+      public void close() throws IOException {
+         getBody().close();
+      }
+   }
+
+   /**
+    * Stream of a response body that drains the remaining body up to the drain limit on close, so that the connection can
+    * be reused.
+    */
+   private class DrainingInputStream extends FilterInputStream {
+
+      private final HttpURLConnection connection;
+      private final Watchdog watchdog;
+      private final String host;
+      private boolean eof;
+      private boolean closed;
+
+      DrainingInputStream(final InputStream in, final HttpURLConnection connection, final Watchdog watchdog, final String host) {
+         super(in);
+         this.connection = connection;
+         this.watchdog = watchdog;
+         this.host = host;
+      }
+
+      @Override
+      public int read() throws IOException {
+         try {
+            final int b = super.read();
+            onRead(b);
+            return b;
+         } catch (IOException e) {
+            throw watchdog.translate(e);
+         }
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+         try {
+            final int read = super.read(b, off, len);
+            onRead(read);
+            return read;
+         } catch (IOException e) {
+            throw watchdog.translate(e);
+         }
+      }
+
+      /**
+       * The connection is returned to the connection cache once the body has been read completely, so the watchdog must
+       * not disconnect it afterwards
+       */
+      private void onRead(int read) {
+         if (read == -1) {
+            eof = true;
+            watchdog.complete();
+         }
+      }
+
+      @Override
+      public synchronized void close() throws IOException {
+         if (closed) {
+            return;
+         }
+         closed = true;
+         try {
+            if (!eof) {
+               drain();
+            }
+         } catch (IOException e) {
+            eof = false;
+         }
+         //a connection disconnected by the watchdog can not be reused
+         if (eof && watchdog.complete()) {
+            super.close();
+            stats.released();
+            if (host != null) {
+               idle.release(host);
+            }
+         } else {
+            discard(connection, watchdog);
+         }
+      }
+
+      private void drain() throws IOException {
+         final byte[] buffer = Buffers.scratch();
+         long remaining = drainLimit;
+         int read;
+         //read one byte beyond the limit to detect the end of the stream
+         while (remaining >= 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining + 1))) != -1) {
+            remaining -= read;
+         }
+         eof = remaining >= 0;
+      }
+   }
+
+   /**
+    * Stream of a request body counting the written bytes
+    */
+   private static final class CountingOutputStream extends FilterOutputStream {
+
+      long count;
+
+      CountingOutputStream(final OutputStream out) {
+         super(out);
+      }
+
+      @Override
+      public void write(final int b) throws IOException {
+         out.write(b);
+         count++;
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) throws IOException {
+         out.write(b, off, len);
+         count += len;
+      }
+   }
+
+   /**
+    * Estimates the idle connections in the connection cache of the JDK per host, counting the connections released by
+    * this transport. The JDK keeps at most <code>http.maxConnections</code> idle connections per host, each for the
+    * keep-alive time of the server, which is assumed to be 5 seconds as with the JDK if the server doesn't send one.
+    */
+   private static final class IdleConnections {
+
+      private static final int MAX_CONNECTIONS = Integer.getInteger("http.maxConnections", 5);
+      private static final long KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+      private final ConcurrentMap<String, Deque<Long>> released = new ConcurrentHashMap<>();
+
+      void release(String host) {
+         final Deque<Long> connections = released.computeIfAbsent(host, h -> new ConcurrentLinkedDeque<>());
+         connections.addFirst(System.nanoTime());
+         while (connections.size() > MAX_CONNECTIONS) {
+            connections.pollLast();
+         }
+      }
+
+      /**
+       * @return
+       *  true if an idle connection was likely reused
+       */
+      boolean acquire(String host) {
+         final Deque<Long> connections = released.get(host);
+         if (connections == null) {
+            return false;
+         }
+         final long now = System.nanoTime();
+         Long releasedAt;
+         //the JDK reuses the most recently released connection
+         while ((releasedAt = connections.pollFirst()) != null) {
+            if (now - releasedAt < KEEP_ALIVE_NANOS) {
+               return true;
+            }
+         }
+         return false;
+      }
+   }
+
+   /**
+    * Disconnects the connection of an exchange once the deadline of its request passes before the exchange is complete
+    */
+   private static final class Watchdog {
+
+      private static final Watchdog NONE = new Watchdog(null, null);
+
+      private static final int ACTIVE = 0;
+      private static final int COMPLETE = 1;
+      private static final int EXPIRED = 2;
+
+      private final HttpURLConnection connection;
+      private final TransportRequest request;
+      private final AtomicInteger state = new AtomicInteger(ACTIVE);
+      private volatile ScheduledFuture<?> timer;
+
+      private Watchdog(final HttpURLConnection connection, final TransportRequest request) {
+         this.connection = connection;
+         this.request = request;
+      }
+
+      static Watchdog start(HttpURLConnection connection, TransportRequest request) {
+         if (!request.getDeadline().isPresent()) {
+            return NONE;
+         }
+         final Watchdog watchdog = new Watchdog(connection, request);
+         final long delay = request.getDeadline().getAsLong() - System.nanoTime();
+         watchdog.timer = AsyncExecutors.scheduler().schedule(watchdog::expire, delay, TimeUnit.NANOSECONDS);
+         return watchdog;
+      }
+
+      private void expire() {
+         if (state.compareAndSet(ACTIVE, EXPIRED)) {
+            connection.disconnect();
+         }
+      }
+
+      /**
+       * Stops the watchdog
+       * @return
+       *  true if the exchange completed before the deadline
+       */
+      boolean complete() {
+         if (this == NONE) {
+            return true;
+         }
+         if (state.compareAndSet(ACTIVE, COMPLETE)) {
+            final ScheduledFuture<?> timer = this.timer;
+            if (timer != null) {
+               timer.cancel(false);
+            }
+            return true;
+         }
+         return state.get() == COMPLETE;
+      }
+
+      /**
+       * @return
+       *  a {@link DeadlineExceededException} if the error was caused by the watchdog, otherwise the error itself
+       */
+      IOException translate(IOException e) {
+         if (this == NONE || e instanceof DeadlineExceededException) {
+            return e;
+         }
+         //the timeouts of the connection are bounded by the deadline, so they may expire just before the watchdog
+         if (state.get() != EXPIRED && !(e instanceof SocketTimeoutException && request.isExpired())) {
+            return e;
+         }
+         final DeadlineExceededException expired = new DeadlineExceededException("Deadline exceeded for " + request.getMethod() + " "
+                                                                                    + request.getUrl());
+         expired.initCause(e);
+         return expired;
+      }
+   }
+}
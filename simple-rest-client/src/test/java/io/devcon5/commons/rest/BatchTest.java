@@ -0,0 +1,120 @@
+package io.devcon5.commons.rest;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BatchTest {
+
+   @Rule
+   public WireMockRule wireMockRule = new WireMockRule(Ports.findAvailablePort());
+
+   private SimpleRestClient client;
+
+   @Before
+   public void setUp() throws Exception {
+      this.client = SimpleRestClient.builder().baseUrl("http://localhost:" + wireMockRule.getOptions().portNumber()).build();
+   }
+
+   @Test
+   public void execute_allRequests_inInputOrder() {
+      stubFor(post(urlMatching("/items/.*")).willReturn(aResponse().withStatus(201).withFixedDelay(10)));
+
+      Batch.Result<String> result = client.batch()
+                                          .concurrency(8)
+                                          .perHostConcurrency(4)
+                                          .build()
+                                          .execute(IntStream.range(0, 50)
+                                                            .mapToObj(i -> Batch.request(client.request("/items/" + i),
+                                                                                         r -> i + ":" + r.post(os -> os.write(i)).getStatusCode())));
+
+      assertEquals(50, result.getCount());
+      assertEquals(0, result.getFailureCount());
+      List<String> results = result.getItems().stream().map(item -> item.getResult().get()).collect(Collectors.toList());
+      assertEquals(IntStream.range(0, 50).mapToObj(i -> i + ":201").collect(Collectors.toList()), results);
+      assertTrue(result.getLatencyPercentile(50, TimeUnit.MILLISECONDS) >= 10);
+      verify(50, postRequestedFor(urlMatching("/items/.*")));
+   }
+
+   @Test
+   public void execute_failingRequest_doesNotAbortBatch() {
+      stubFor(post(urlMatching("/items/.*")).willReturn(aResponse().withStatus(201)));
+      stubFor(post(urlEqualTo("/items/3")).willReturn(aResponse().withStatus(500)));
+
+      Batch.Result<Integer> result = Batch.builder()
+                                          .ordering(Batch.Ordering.COMPLETION)
+                                          .build()
+                                          .execute(IntStream.range(0, 10)
+                                                            .mapToObj(i -> Batch.request(client.request("/items/" + i),
+                                                                                         r -> r.post(os -> os.write(i)).asBytes().length))
+                                                            .collect(Collectors.toList()));
+
+      assertEquals(10, result.getCount());
+      assertEquals(1, result.getFailureCount());
+      Batch.Item<Integer> failed = result.getItems().stream().filter(item -> !item.isSuccess()).findFirst().get();
+      assertEquals(3, failed.getIndex());
+      assertFalse(failed.getResult().isPresent());
+      assertTrue(failed.getError().get() instanceof IllegalStateException);
+   }
+
+   @Test
+   public void execute_failingInput_waitsForRequestsInFlight() {
+      AtomicInteger done = new AtomicInteger();
+      Stream<Batch.Request<Integer>> requests = IntStream.range(0, 3).mapToObj(i -> {
+         if (i == 2) {
+            throw new IllegalStateException("input failed");
+         }
+         return Batch.request(client.request("/items/" + i), r -> {
+            sleep(50);
+            return done.incrementAndGet();
+         });
+      });
+
+      try {
+         Batch.builder().build().execute(requests);
+         fail("the failure of the input was not reported");
+      } catch (IllegalStateException e) {
+         assertEquals(2, done.get());
+      }
+   }
+
+   @Test
+   public void execute_error_isPropagated() {
+      try {
+         Batch.builder().concurrency(1).build().execute(IntStream.range(0, 10).mapToObj(i -> Batch.request(client.request("/items/" + i), r -> {
+            throw new StackOverflowError("request " + i);
+         })));
+         fail("the error was not reported");
+      } catch (StackOverflowError e) {
+         assertEquals("request 0", e.getMessage());
+      }
+   }
+
+   private static void sleep(long millis) {
+      try {
+         Thread.sleep(millis);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
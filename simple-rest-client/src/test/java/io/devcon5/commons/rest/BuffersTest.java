@@ -0,0 +1,64 @@
+package io.devcon5.commons.rest;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BuffersTest {
+
+   private final byte[] content = randomBytes(100000);
+
+   @Test
+   public void readFully_knownLength() throws IOException {
+
+      assertArrayEquals(content, Buffers.readFully(new ByteArrayInputStream(content), content.length));
+   }
+
+   @Test
+   public void readFully_unknownLength() throws IOException {
+
+      assertArrayEquals(content, Buffers.readFully(new ByteArrayInputStream(content), -1));
+   }
+
+   @Test
+   public void readFully_shorterThanExpected() throws IOException {
+
+      assertArrayEquals(content, Buffers.readFully(new ByteArrayInputStream(content), content.length + 10));
+   }
+
+   @Test
+   public void readFully_longerThanExpected() throws IOException {
+
+      assertArrayEquals(content, Buffers.readFully(new ByteArrayInputStream(content), 10));
+   }
+
+   @Test
+   public void readFully_hugeExpectedLength_isNotAllocatedUpfront() throws IOException {
+
+      assertArrayEquals(content, Buffers.readFully(new ByteArrayInputStream(content), Integer.MAX_VALUE - 8));
+   }
+
+   @Test
+   public void readFully_knownLengthBeyondInitialSize() throws IOException {
+      byte[] large = randomBytes(3 * 1024 * 1024 + 17);
+
+      assertArrayEquals(large, Buffers.readFully(new ByteArrayInputStream(large), large.length));
+   }
+
+   @Test
+   public void readFully_empty() throws IOException {
+
+      assertArrayEquals(new byte[0], Buffers.readFully(new ByteArrayInputStream(new byte[0]), 0));
+      assertArrayEquals(new byte[0], Buffers.readFully(new ByteArrayInputStream(new byte[0]), -1));
+   }
+
+   private static byte[] randomBytes(int length) {
+      byte[] data = new byte[length];
+      new Random(42).nextBytes(data);
+      return data;
+   }
+}
@@ -0,0 +1,159 @@
+package io.devcon5.commons.rest;
+
+import static io.devcon5.commons.rest.Stubs.url;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.devcon5.commons.rest.CircuitBreaker.State;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+   private final List<String> transitions = new ArrayList<>();
+
+   private final URL url = url("http://localhost:8080/my/resource");
+
+   @Test
+   public void failureRateReached_opens() throws Exception {
+      CircuitBreaker breaker = breaker(0);
+
+      call(breaker, 200);
+      call(breaker, 500);
+      call(breaker, 200);
+      assertEquals(State.CLOSED, breaker.getState(url));
+      call(breaker, 500);
+
+      assertEquals(State.OPEN, breaker.getState(url));
+      assertEquals(Arrays.asList("localhost:8080 CLOSED->OPEN"), transitions);
+   }
+
+   @Test
+   public void failureRateNotReached_staysClosed() throws Exception {
+      CircuitBreaker breaker = breaker(0);
+
+      for (int i = 0; i < 20; i++) {
+         call(breaker, i % 3 == 0 ? 500 : 200);
+      }
+
+      assertEquals(State.CLOSED, breaker.getState(url));
+   }
+
+   @Test
+   public void failuresOutsideWindow_areNotCounted() throws Exception {
+      CircuitBreaker breaker = breaker(0);
+      call(breaker, 500);
+      call(breaker, 200);
+      call(breaker, 200);
+      call(breaker, 200);
+
+      call(breaker, 500);
+
+      assertEquals(State.CLOSED, breaker.getState(url));
+   }
+
+   @Test(expected = CircuitBreakerOpenException.class)
+   public void open_rejectsCalls() throws Exception {
+      CircuitBreaker breaker = breaker(10000);
+      open(breaker);
+
+      breaker.acquire(url);
+   }
+
+   @Test
+   public void open_otherHost_isNotAffected() throws Exception {
+      CircuitBreaker breaker = breaker(10000);
+      open(breaker);
+
+      breaker.acquire(url("http://localhost:9090/my/resource")).onResponse(200);
+
+      assertEquals(State.CLOSED, breaker.getState(url("http://localhost:9090")));
+   }
+
+   @Test
+   public void halfOpen_successfulTrials_closes() throws Exception {
+      CircuitBreaker breaker = breaker(0);
+      open(breaker);
+
+      CircuitBreaker.Permission first = breaker.acquire(url);
+      CircuitBreaker.Permission second = breaker.acquire(url);
+      assertEquals(State.HALF_OPEN, breaker.getState(url));
+      try {
+         breaker.acquire(url);
+         fail("only 2 trial calls are permitted");
+      } catch (CircuitBreakerOpenException e) {
+         assertEquals("localhost:8080", e.getHost());
+      }
+      first.onResponse(200);
+      second.onResponse(204);
+
+      assertEquals(State.CLOSED, breaker.getState(url));
+      assertEquals(Arrays.asList("localhost:8080 CLOSED->OPEN", "localhost:8080 OPEN->HALF_OPEN", "localhost:8080 HALF_OPEN->CLOSED"),
+                   transitions);
+   }
+
+   @Test
+   public void halfOpen_failedTrial_opensAgain() throws Exception {
+      CircuitBreaker breaker = breaker(0);
+      open(breaker);
+
+      CircuitBreaker.Permission first = breaker.acquire(url);
+      CircuitBreaker.Permission second = breaker.acquire(url);
+      first.onError();
+      second.onResponse(200);
+
+      assertEquals(State.OPEN, breaker.getState(url));
+   }
+
+   @Test
+   public void callOfPreviousState_isIgnored() throws Exception {
+      CircuitBreaker breaker = breaker(0);
+      CircuitBreaker.Permission stale = breaker.acquire(url);
+      open(breaker);
+      breaker.acquire(url).onResponse(200);
+
+      stale.onError();
+      breaker.acquire(url).onResponse(200);
+
+      assertEquals(State.CLOSED, breaker.getState(url));
+   }
+
+   @Test
+   public void slowCallRateReached_opens() throws Exception {
+      CircuitBreaker breaker = CircuitBreaker.builder().slidingWindow(4, 4).slowCallRateThreshold(50, 0, TimeUnit.NANOSECONDS).build();
+
+      for (int i = 0; i < 4; i++) {
+         CircuitBreaker.Permission permission = breaker.acquire(url);
+         Thread.sleep(1);
+         permission.onResponse(200);
+      }
+
+      assertEquals(State.OPEN, breaker.getState(url));
+   }
+
+   private CircuitBreaker breaker(long waitMillis) {
+      return CircuitBreaker.builder()
+                           .slidingWindow(4, 4)
+                           .failureRateThreshold(50)
+                           .waitDurationInOpenState(waitMillis, TimeUnit.MILLISECONDS)
+                           .permittedCallsInHalfOpenState(2)
+                           .listener((host, from, to) -> transitions.add(host + " " + from + "->" + to))
+                           .build();
+   }
+
+   private void open(CircuitBreaker breaker) throws Exception {
+      for (int i = 0; i < 4; i++) {
+         call(breaker, 500);
+      }
+      assertEquals(State.OPEN, breaker.getState(url));
+   }
+
+   private void call(CircuitBreaker breaker, int status) throws Exception {
+      breaker.acquire(url).onResponse(status);
+   }
+}
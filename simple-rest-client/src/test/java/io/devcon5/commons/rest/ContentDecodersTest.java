@@ -0,0 +1,113 @@
+package io.devcon5.commons.rest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+public class ContentDecodersTest {
+
+   private static final byte[] CONTENT = "Some content, Some content, Some content".getBytes();
+
+   private ContentDecoders subject = ContentDecoders.fromServiceLoader();
+
+   @Test
+   public void acceptEncoding_listsBuiltInDecoders() {
+
+      assertEquals(Optional.of("gzip, deflate"), subject.getAcceptEncoding());
+      assertFalse(ContentDecoders.empty().getAcceptEncoding().isPresent());
+   }
+
+   @Test
+   public void decode_gzip() throws IOException {
+
+      assertArrayEquals(CONTENT, read(subject.decode("gzip", new ByteArrayInputStream(gzip(CONTENT)))));
+   }
+
+   @Test
+   public void decode_deflate_zlibAndRaw() throws IOException {
+
+      assertArrayEquals(CONTENT, read(subject.decode("deflate", new ByteArrayInputStream(deflate(CONTENT, false)))));
+      assertArrayEquals(CONTENT, read(subject.decode("deflate", new ByteArrayInputStream(deflate(CONTENT, true)))));
+   }
+
+   @Test
+   public void decode_multipleEncodings_inReverseOrder() throws IOException {
+
+      assertArrayEquals(CONTENT, read(subject.decode("deflate, gzip", new ByteArrayInputStream(gzip(deflate(CONTENT, false))))));
+   }
+
+   @Test
+   public void decode_emptyBody() throws IOException {
+
+      assertArrayEquals(new byte[0], read(subject.decode("gzip", new ByteArrayInputStream(new byte[0]))));
+   }
+
+   @Test
+   public void decode_unsupportedEncoding_returnsBodyAsIs() throws IOException {
+
+      assertFalse(subject.supports("br"));
+      assertArrayEquals(CONTENT, read(subject.decode("br", new ByteArrayInputStream(CONTENT))));
+   }
+
+   @Test
+   public void register_customDecoder() throws IOException {
+      ContentDecoders decoders = ContentDecoders.empty().register(new ContentDecoder() {
+         @Override
+         public String getEncoding() {
+            return "br";
+         }
+
+         @Override
+         public InputStream decode(final InputStream encoded) {
+            return encoded;
+         }
+      });
+
+      assertTrue(decoders.supports("br"));
+      assertEquals(Optional.of("br"), decoders.getAcceptEncoding());
+   }
+
+   @Test
+   public void gzipRequestBody_isDecodable() throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      RequestBodies.gzip(RequestBodies.of(CONTENT)).writeTo(out);
+
+      assertArrayEquals(CONTENT, read(subject.decode("gzip", new ByteArrayInputStream(out.toByteArray()))));
+   }
+
+   static byte[] gzip(byte[] data) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (OutputStream gzip = new GZIPOutputStream(out)) {
+         gzip.write(data);
+      }
+      return out.toByteArray();
+   }
+
+   private static byte[] deflate(byte[] data, boolean raw) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (OutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+         deflate.write(data);
+      }
+      return out.toByteArray();
+   }
+
+   private static byte[] read(InputStream in) throws IOException {
+      try (InputStream is = in) {
+         return Buffers.readFully(is, -1);
+      }
+   }
+}
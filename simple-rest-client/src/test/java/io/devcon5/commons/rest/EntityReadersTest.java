@@ -0,0 +1,73 @@
+package io.devcon5.commons.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class EntityReadersTest {
+
+   @Test
+   public void defaults_containsServiceLoadedReaders() {
+
+      assertTrue(EntityReaders.defaults().find(Object.class, "text/xml").get() instanceof JAXBEntityReader);
+   }
+
+   @Test
+   public void find_unsupportedContentType_isEmpty() {
+
+      assertFalse(EntityReaders.fromServiceLoader().find(Object.class, "text/csv").isPresent());
+   }
+
+   @Test
+   public void find_higherPriority_overridesServiceReader() {
+
+      EntityReader custom = new CountingReader();
+      EntityReaders readers = EntityReaders.fromServiceLoader().register(custom, 10);
+
+      assertSame(custom, readers.find(Object.class, "text/xml").get());
+   }
+
+   @Test
+   public void find_samePriority_keepsRegistrationOrder() {
+
+      EntityReader first = new CountingReader();
+      EntityReaders readers = EntityReaders.empty().register(first).register(new CountingReader());
+
+      assertSame(first, readers.find(Object.class, "text/plain").get());
+   }
+
+   @Test
+   public void find_isMemoized() {
+
+      CountingReader reader = new CountingReader();
+      EntityReaders readers = EntityReaders.empty().register(reader);
+
+      readers.find(String.class, "text/plain");
+      readers.find(String.class, "text/plain");
+      readers.find(String.class, "text/plain");
+
+      assertEquals(1, reader.supportsCalls.get());
+   }
+
+   static class CountingReader implements EntityReader {
+
+      final AtomicInteger supportsCalls = new AtomicInteger();
+
+      @Override
+      public boolean supports(final Class<?> targetType, final String contentType) {
+         supportsCalls.incrementAndGet();
+         return true;
+      }
+
+      @Override
+      public <T> T read(final Class<T> targetType, final String contentType, final InputStream data) {
+         throw new UnsupportedOperationException();
+      }
+   }
+}
@@ -0,0 +1,109 @@
+package io.devcon5.commons.rest;
+
+import static io.devcon5.commons.rest.Stubs.response;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class EntityWritersTest {
+
+   @Test
+   public void defaults_containsServiceLoadedWriters() {
+
+      assertTrue(EntityWriters.defaults().find(Object.class, "text/xml").get() instanceof JAXBEntityWriter);
+   }
+
+   @Test
+   public void find_unsupportedContentType_isEmpty() {
+
+      assertFalse(EntityWriters.fromServiceLoader().find(Object.class, "text/csv").isPresent());
+   }
+
+   @Test
+   public void find_higherPriority_overridesServiceWriter() {
+
+      EntityWriter custom = new TextWriter();
+      EntityWriters writers = EntityWriters.fromServiceLoader().register(custom, 10);
+
+      assertSame(custom, writers.find(Object.class, "text/xml").get());
+   }
+
+   @Test
+   public void find_isMemoized() {
+
+      TextWriter writer = new TextWriter();
+      EntityWriters writers = EntityWriters.empty().register(writer);
+
+      writers.find(String.class, "text/plain");
+      writers.find(String.class, "text/plain");
+
+      assertEquals(1, writer.supportsCalls.get());
+   }
+
+   @Test
+   public void post_entity_isWrittenWithContentTypeAndLength() {
+
+      AtomicReference<TransportRequest> sent = new AtomicReference<>();
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      SimpleRestClient client = SimpleRestClient.builder()
+                                                .baseUrl("http://localhost:8080")
+                                                .writers(EntityWriters.empty().register(new TextWriter()))
+                                                .transport(request -> {
+                                                   sent.set(request);
+                                                   request.getBody().get().writeTo(body);
+                                                   return response(201, "");
+                                                })
+                                                .build();
+
+      assertEquals(201, client.request("/a").contentType("text/plain").post(new StringBuilder("hello")).getStatusCode());
+
+      assertEquals("hello", new String(body.toByteArray(), StandardCharsets.UTF_8));
+      assertEquals(5, sent.get().getBody().get().getContentLength());
+      assertTrue(sent.get().getBody().get().isRepeatable());
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void put_entity_withoutContentType_fails() {
+
+      SimpleRestClient.builder().baseUrl("http://localhost:8080").transport(request -> response(200, "")).build()
+                      .request("/a").put(new StringBuilder("hello"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void put_entity_withoutWriter_fails() {
+
+      SimpleRestClient.builder().baseUrl("http://localhost:8080").transport(request -> response(200, "")).build()
+                      .request("/a").contentType("text/csv").put(new StringBuilder("hello"));
+   }
+
+   static class TextWriter implements EntityWriter {
+
+      final AtomicInteger supportsCalls = new AtomicInteger();
+
+      @Override
+      public boolean supports(final Class<?> sourceType, final String contentType) {
+         supportsCalls.incrementAndGet();
+         return true;
+      }
+
+      @Override
+      public void write(final Object entity, final String contentType, final OutputStream out) throws IOException {
+         out.write(entity.toString().getBytes(StandardCharsets.UTF_8));
+      }
+
+      @Override
+      public long getContentLength(final Object entity, final String contentType) {
+         return entity.toString().getBytes(StandardCharsets.UTF_8).length;
+      }
+   }
+}
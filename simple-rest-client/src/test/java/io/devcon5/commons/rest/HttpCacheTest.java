@@ -0,0 +1,225 @@
+package io.devcon5.commons.rest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpCacheTest {
+
+   private static final long NOW = 1_000_000L;
+
+   private Path directory;
+
+   @Before
+   public void setUp() throws IOException {
+      directory = Files.createTempDirectory("http-cache");
+   }
+
+   @After
+   public void tearDown() throws IOException {
+      try (Stream<Path> files = Files.list(directory)) {
+         for (Path file : (Iterable<Path>) files::iterator) {
+            Files.delete(file);
+         }
+      }
+      Files.delete(directory);
+   }
+
+   @Test
+   public void put_get_memory() throws IOException {
+      HttpCache cache = HttpCache.builder().build();
+
+      cache.put(entry("http://localhost/a", "content", "max-age=60"));
+
+      CacheEntry entry = cache.get("http://localhost/a");
+      assertNotNull(entry);
+      assertArrayEquals("content".getBytes(), Buffers.readFully(entry.toResponse().getBody(), -1));
+      assertEquals(7, cache.getMemorySize());
+   }
+
+   @Test
+   public void put_exceedsMemory_evictsLeastRecentlyUsed() throws IOException {
+      HttpCache cache = HttpCache.builder().maxMemoryBytes(10).build();
+      cache.put(entry("http://localhost/a", "aaaa", "max-age=60"));
+      cache.put(entry("http://localhost/b", "bbbb", "max-age=60"));
+      cache.get("http://localhost/a");
+
+      cache.put(entry("http://localhost/c", "cccc", "max-age=60"));
+
+      assertNotNull(cache.get("http://localhost/a"));
+      assertNull(cache.get("http://localhost/b"));
+      assertNotNull(cache.get("http://localhost/c"));
+      assertEquals(8, cache.getMemorySize());
+      assertEquals(1, cache.getStats().getEvictions());
+   }
+
+   @Test
+   public void put_exceedsEntrySize_isNotStored() throws IOException {
+      HttpCache cache = HttpCache.builder().maxEntryBytes(4).build();
+
+      cache.put(entry("http://localhost/a", "content", "max-age=60"));
+
+      assertNull(cache.get("http://localhost/a"));
+   }
+
+   @Test
+   public void put_exceedsMemory_spillsToDisk() throws IOException {
+      HttpCache cache = HttpCache.builder().maxMemoryBytes(0).disk(directory, 1024 * 1024).build();
+
+      cache.put(entry("http://localhost/a", "content", "max-age=60"));
+
+      assertEquals(0, cache.getMemorySize());
+      assertTrue(cache.getDiskSize() > 0);
+      CacheEntry entry = cache.get("http://localhost/a");
+      assertNotNull(entry);
+      assertEquals(200, entry.toResponse().getStatusCode());
+      assertEquals("text/plain", entry.getHeader("content-type"));
+      assertTrue(entry.isFresh(NOW));
+      assertArrayEquals("content".getBytes(), Buffers.readFully(entry.toResponse().getBody(), -1));
+   }
+
+   @Test
+   public void disk_isReusedByNewCache() throws IOException {
+      HttpCache.builder().maxMemoryBytes(0).disk(directory, 1024 * 1024).build().put(entry("http://localhost/a", "content", "max-age=60"));
+
+      HttpCache cache = HttpCache.builder().disk(directory, 1024 * 1024).build();
+
+      CacheEntry entry = cache.get("http://localhost/a");
+      assertNotNull(entry);
+      assertArrayEquals("content".getBytes(), Buffers.readFully(entry.toResponse().getBody(), -1));
+   }
+
+   @Test
+   public void disk_doesNotStoreCredentials() throws IOException {
+      Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      headers.put("Cache-Control", Collections.singletonList("max-age=60"));
+      TransportRequest request = request("Authorization", "Bearer secret-token");
+      HttpCache.builder().maxMemoryBytes(0).disk(directory, 1024 * 1024).build()
+               .put(CacheEntry.of("http://localhost/a", request, 200, "OK", headers, ByteBuffer.wrap("content".getBytes()), NOW));
+
+      try (Stream<Path> files = Files.list(directory)) {
+         for (Path file : (Iterable<Path>) files::iterator) {
+            assertFalse(new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1).contains("secret-token"));
+         }
+      }
+      CacheEntry entry = HttpCache.builder().disk(directory, 1024 * 1024).build().get("http://localhost/a");
+      assertTrue(entry.matches(request));
+      assertFalse(entry.matches(request("Authorization", "Bearer other-token")));
+      assertFalse(entry.matches(request()));
+   }
+
+   @Test
+   public void disk_exceedsSize_deletesFiles() throws IOException {
+      HttpCache cache = HttpCache.builder().maxMemoryBytes(0).disk(directory, 1).build();
+
+      cache.put(entry("http://localhost/a", "content", "max-age=60"));
+
+      assertNull(cache.get("http://localhost/a"));
+      assertEquals(0, cache.getDiskSize());
+      assertEquals(1, cache.getStats().getEvictions());
+   }
+
+   @Test
+   public void invalidate_removesEntry() throws IOException {
+      HttpCache cache = HttpCache.builder().maxMemoryBytes(0).disk(directory, 1024 * 1024).build();
+      cache.put(entry("http://localhost/a", "content", "max-age=60"));
+
+      cache.invalidate(new URL("http://localhost/a"));
+
+      assertNull(cache.get("http://localhost/a"));
+      assertEquals(0, cache.getDiskSize());
+   }
+
+   @Test
+   public void entry_maxAge_isFresh() throws IOException {
+      CacheEntry entry = entry("http://localhost/a", "content", "max-age=60");
+
+      assertTrue(entry.isFresh(NOW + 59_999));
+      assertFalse(entry.isFresh(NOW + 60_000));
+   }
+
+   @Test
+   public void entry_noCache_isStale() throws IOException {
+      CacheEntry entry = entry("http://localhost/a", "content", "no-cache, max-age=60");
+
+      assertFalse(entry.isFresh(NOW));
+   }
+
+   @Test
+   public void entry_expires_isFreshRelativeToDate() throws IOException {
+      Map<String, List<String>> headers = new HashMap<>();
+      headers.put("Date", Collections.singletonList("Thu, 01 Jan 2015 00:00:00 GMT"));
+      headers.put("Expires", Collections.singletonList("Thu, 01 Jan 2015 00:01:00 GMT"));
+
+      CacheEntry entry = CacheEntry.of("http://localhost/a", request(), 200, "OK", headers, ByteBuffer.allocate(0), NOW);
+
+      assertTrue(entry.isFresh(NOW + 59_999));
+      assertFalse(entry.isFresh(NOW + 60_000));
+   }
+
+   @Test
+   public void entry_revalidated_extendsFreshness() throws IOException {
+      CacheEntry entry = entry("http://localhost/a", "content", "max-age=60");
+
+      CacheEntry revalidated = entry.revalidated(Collections.singletonMap("Cache-Control", Collections.singletonList("max-age=120")),
+                                                 NOW + 100_000);
+
+      assertTrue(revalidated.isFresh(NOW + 219_999));
+      assertEquals("text/plain", revalidated.getHeader("Content-Type"));
+   }
+
+   @Test
+   public void entry_vary_matchesRequestHeaders() throws IOException {
+      Map<String, List<String>> headers = new HashMap<>();
+      headers.put("Vary", Collections.singletonList("Accept"));
+
+      CacheEntry entry = CacheEntry.of("http://localhost/a", request("Accept", "text/xml"), 200, "OK", headers, ByteBuffer.allocate(0), NOW);
+
+      assertTrue(entry.matches(request("accept", "text/xml")));
+      assertFalse(entry.matches(request("Accept", "application/json")));
+      assertFalse(entry.matches(request()));
+   }
+
+   @Test
+   public void entry_differentAuthorization_doesNotMatch() throws IOException {
+      CacheEntry entry = CacheEntry.of("http://localhost/a", request("Authorization", "a"), 200, "OK", new HashMap<>(), ByteBuffer.allocate(0), NOW);
+
+      assertTrue(entry.matches(request("Authorization", "a")));
+      assertFalse(entry.matches(request("Authorization", "b")));
+   }
+
+   private static CacheEntry entry(String key, String body, String cacheControl) throws IOException {
+      Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      headers.put("Content-Type", Collections.singletonList("text/plain"));
+      headers.put("Cache-Control", Collections.singletonList(cacheControl));
+      return CacheEntry.of(key, request(), 200, "OK", headers, ByteBuffer.wrap(body.getBytes()), NOW);
+   }
+
+   private static TransportRequest request(String... headers) throws IOException {
+      Map<String, String> map = new HashMap<>();
+      for (int i = 0; i < headers.length; i += 2) {
+         map.put(headers[i], headers[i + 1]);
+      }
+      return new TransportRequest("GET", new URL("http://localhost/a"), map, null, 0, 0, true);
+   }
+}
@@ -5,6 +5,15 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.annotation.XmlRootElement;
 
 import org.junit.Test;
 
@@ -66,6 +75,91 @@ public class JAXBEntityReaderTest {
 
     }
 
+    @Test
+    public void read_entity_concurrently() throws Exception {
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<CustomEntity>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                final String body = "text" + i;
+                results.add(pool.submit(() -> subject.read(CustomEntity.class,
+                                                           "application/xml",
+                                                           ("<CustomEntity><body>" + body + "</body></CustomEntity>").getBytes())));
+            }
+            for (int i = 0; i < 32; i++) {
+                assertEquals("text" + i, results.get(i).get().getBody());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void readItems_childElements_areReadLazily() {
+
+        Iterator<CustomEntity> items = subject.readItems(CustomEntity.class,
+                                                         "application/xml",
+                                                         new ByteArrayInputStream(("<list><CustomEntity><body>a</body></CustomEntity>"
+                                                                                   + "<CustomEntity><body>b</body></CustomEntity></list>").getBytes()));
+
+        assertTrue(items.hasNext());
+        assertEquals("a", items.next().getBody());
+        assertEquals("b", items.next().getBody());
+        assertFalse(items.hasNext());
+    }
+
+    @Test
+    public void readItems_rootElementType_skipsOtherElements() {
+
+        Iterator<Item> items = subject.readItems(Item.class,
+                                                 "application/xml",
+                                                 new ByteArrayInputStream(("<?xml version=\"1.0\"?><list><total>2</total>"
+                                                                           + "<item><body>a</body></item><other><item><body>x</body></item></other>"
+                                                                           + "<item><body>b</body></item></list>").getBytes()));
+
+        List<String> bodies = new ArrayList<>();
+        items.forEachRemaining(item -> bodies.add(item.body));
+        assertEquals(Arrays.asList("a", "b"), bodies);
+    }
+
+    @Test
+    public void readItems_emptyList() {
+
+        Iterator<Item> items = subject.readItems(Item.class, "application/xml", new ByteArrayInputStream("<list/>".getBytes()));
+
+        assertFalse(items.hasNext());
+    }
+
+    @Test
+    public void warmUp_cachesContext() {
+
+        JAXBContexts.clear();
+        JAXBEntityReader.warmUp(CustomEntity.class);
+
+        assertTrue(JAXBContexts.contains(CustomEntity.class));
+    }
+
+    @Test
+    public void contexts_leastRecentlyUsed_isEvicted() throws InterruptedException {
+
+        JAXBContexts.clear();
+        JAXBContexts.warmUp(Item.class, CustomEntity.class);
+        Thread.sleep(5);
+        JAXBContexts.get(Item.class);
+
+        JAXBContexts.evictOverflow(1);
+
+        assertTrue(JAXBContexts.contains(Item.class));
+        assertFalse(JAXBContexts.contains(CustomEntity.class));
+    }
+
+    @XmlRootElement
+    public static class Item {
+
+        public String body;
+    }
+
     public static class CustomEntity {
 
         private String body;
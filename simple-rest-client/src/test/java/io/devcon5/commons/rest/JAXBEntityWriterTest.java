@@ -0,0 +1,54 @@
+package io.devcon5.commons.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class JAXBEntityWriterTest {
+
+    /**
+     * The class under test
+     */
+    private JAXBEntityWriter subject = new JAXBEntityWriter();
+
+    @Test
+    public void supports_xml() {
+
+        assertTrue(subject.supports(Object.class, "application/xml"));
+        assertTrue(subject.supports(Object.class, "application/atom+xml"));
+        assertFalse(subject.supports(Object.class, "application/json"));
+    }
+
+    @Test
+    public void write_rootElement_canBeRead() throws IOException {
+
+        JAXBEntityReaderTest.Item item = new JAXBEntityReaderTest.Item();
+        item.body = "text";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        subject.write(item, "application/xml", out);
+
+        assertEquals("text", new JAXBEntityReader().read(JAXBEntityReaderTest.Item.class, "application/xml", out.toByteArray()).body);
+        assertEquals(-1, subject.getContentLength(item, "application/xml"));
+    }
+
+    @Test
+    public void write_typeWithoutRootElement_usesDefaultName() throws IOException {
+
+        JAXBEntityReaderTest.CustomEntity entity = new JAXBEntityReaderTest.CustomEntity();
+        entity.setBody("t\u00e4xt");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        subject.write(entity, "application/xml; charset=ISO-8859-1", out);
+
+        String xml = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(xml, xml.contains("<customEntity>"));
+        assertTrue(xml, xml.contains("t\u00e4xt"));
+    }
+}
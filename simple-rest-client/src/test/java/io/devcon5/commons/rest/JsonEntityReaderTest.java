@@ -0,0 +1,175 @@
+package io.devcon5.commons.rest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class JsonEntityReaderTest {
+
+   /**
+    * The class under test
+    */
+   private JsonEntityReader subject = new JsonEntityReader();
+
+   @Test
+   public void supports_applicationJson() {
+
+      assertTrue(subject.supports(Object.class, "application/json"));
+      assertTrue(subject.supports(Object.class, "application/problem+json; charset=utf-8"));
+      assertFalse(subject.supports(Object.class, "application/xml"));
+   }
+
+   @Test
+   public void read_map_preservesOrderAndTypes() {
+
+      Map<?, ?> result = subject.read(Map.class, "application/json",
+                                      bytes("{\"s\":\"a\\\"b\\u00e4\",\"i\":42,\"big\":12345678901234567890,\"d\":-1.5e2,"
+                                            + "\"t\":true,\"n\":null,\"list\":[1,[],{}]}"));
+
+      Map<String, Object> expected = new LinkedHashMap<>();
+      expected.put("s", "a\"b\u00e4");
+      expected.put("i", 42L);
+      expected.put("big", new BigInteger("12345678901234567890"));
+      expected.put("d", -150.0);
+      expected.put("t", true);
+      expected.put("n", null);
+      expected.put("list", Arrays.asList(1L, Collections.emptyList(), Collections.emptyMap()));
+      assertEquals(expected, result);
+      assertEquals(Arrays.asList(expected.keySet().toArray()), Arrays.asList(result.keySet().toArray()));
+   }
+
+   @Test
+   public void read_pojo_bindsFieldsAndSetters() {
+
+      Pojo result = subject.read(Pojo.class, "application/json; charset=ISO-8859-1",
+                                 ("{\"name\":\"\u00e4\",\"count\":3,\"unknown\":{\"a\":[1,2]},\"tags\":[\"x\",\"y\",\"x\"],"
+                                  + "\"kind\":\"SMALL\",\"values\":[1,2],\"children\":[{\"name\":\"child\",\"count\":null}],"
+                                  + "\"label\":\"l\"}").getBytes(StandardCharsets.ISO_8859_1));
+
+      assertEquals("\u00e4", result.name);
+      assertEquals(3, result.count);
+      assertEquals(2, result.tags.size());
+      assertTrue(result.tags.contains("y"));
+      assertEquals(Kind.SMALL, result.kind);
+      assertArrayEquals(new int[] {1, 2}, result.values);
+      assertEquals("child", result.children.get(0).name);
+      assertEquals(0, result.children.get(0).count);
+      assertEquals("label:l", result.label);
+   }
+
+   @Test(expected = RuntimeException.class)
+   public void read_malformed_fails() {
+
+      subject.read(Map.class, "application/json", bytes("{\"a\":1,}"));
+   }
+
+   @Test(expected = RuntimeException.class)
+   public void read_trailingContent_fails() {
+
+      subject.read(Map.class, "application/json", bytes("{} {}"));
+   }
+
+   @Test
+   public void readItems_arrayElements_areReadLazily() {
+
+      Iterator<Pojo> items = subject.readItems(Pojo.class, "application/json", bytes("[{\"name\":\"a\"}, null, {\"name\":\"b\"}, {"));
+
+      assertEquals("a", items.next().name);
+      assertNull(items.next());
+      assertEquals("b", items.next().name);
+      try {
+         items.hasNext();
+         items.next();
+      } catch (RuntimeException e) {
+         //the malformed last item is only detected when it's read
+         return;
+      }
+      throw new AssertionError("the malformed item was read");
+   }
+
+   @Test
+   public void readItems_emptyArray() {
+
+      assertFalse(subject.readItems(Pojo.class, "application/json", bytes(" [ ] ")).hasNext());
+   }
+
+   @Test
+   public void parser_tokens_largeDocument() throws IOException {
+
+      StringBuilder json = new StringBuilder("[");
+      for (int i = 0; i < 10000; i++) {
+         json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"text\":\"").append(Ports.class.getName()).append("\"}");
+      }
+      json.append("]");
+
+      long sum = 0;
+      try (JsonParser parser = JsonParser.create(new StringReader(json.toString()))) {
+         assertEquals(JsonParser.Token.BEGIN_ARRAY, parser.next());
+         JsonParser.Token token;
+         while ((token = parser.next()) != JsonParser.Token.END_DOCUMENT) {
+            if (token == JsonParser.Token.NAME && "id".equals(parser.getString())) {
+               parser.next();
+               sum += parser.getLong();
+            } else if (token == JsonParser.Token.NAME) {
+               parser.skipValue();
+            }
+         }
+      }
+      assertEquals(49995000, sum);
+   }
+
+   @Test
+   public void parser_escapesAtBufferBoundary() throws IOException {
+
+      for (String escape : Arrays.asList("\\n", "\\u00e4")) {
+         String unescaped = escape.equals("\\n") ? "\n" : "\u00e4";
+         for (int length = 4088; length <= 4098; length++) {
+            String prefix = String.join("", Collections.nCopies(length, "a"));
+            try (JsonParser parser = JsonParser.create(new StringReader("\"" + prefix + escape + "xyz\""))) {
+               assertEquals(JsonParser.Token.STRING, parser.next());
+               assertEquals(escape + " after " + length, prefix + unescaped + "xyz", parser.getString());
+            }
+         }
+      }
+   }
+
+   private static ByteArrayInputStream bytes(String json) {
+      return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+   }
+
+   public enum Kind {
+      SMALL, LARGE
+   }
+
+   public static class Pojo {
+
+      private String name;
+      private int count;
+      private Set<String> tags;
+      private Kind kind;
+      private int[] values;
+      private List<Pojo> children;
+      private transient String label;
+
+      public void setLabel(String label) {
+         this.label = "label:" + label;
+      }
+   }
+}
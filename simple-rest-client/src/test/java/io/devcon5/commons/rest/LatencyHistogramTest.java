@@ -0,0 +1,65 @@
+package io.devcon5.commons.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+   @Test
+   public void index_smallValues_areExact() {
+      for (int i = 0; i < 8; i++) {
+         assertEquals(i, LatencyHistogram.index(i));
+         assertEquals(i, LatencyHistogram.upperBound(i));
+      }
+   }
+
+   @Test
+   public void upperBound_isWithinRelativeError() {
+      for (long value = 1; value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+         long upper = LatencyHistogram.upperBound(LatencyHistogram.index(value));
+
+         assertTrue(value + " <= " + upper, value <= upper);
+         assertTrue(value + " ~ " + upper, upper - value <= value / 8);
+      }
+   }
+
+   @Test
+   public void index_largestValue_fits() {
+      assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.index(Long.MAX_VALUE)));
+   }
+
+   @Test
+   public void percentile_empty_isNegative() {
+      assertEquals(-1, new LatencyHistogram().percentile(50));
+   }
+
+   @Test
+   public void percentile_uniformValues() {
+      LatencyHistogram histogram = new LatencyHistogram();
+      for (int i = 1; i <= 1000; i++) {
+         histogram.record(i);
+      }
+
+      assertEquals(1000, histogram.getCount());
+      assertEquals(511, histogram.percentile(50));
+      assertEquals(959, histogram.percentile(95));
+      assertEquals(1023, histogram.percentile(100));
+   }
+
+   @Test
+   public void percentile_mergesHistograms() {
+      LatencyHistogram fast = new LatencyHistogram();
+      LatencyHistogram slow = new LatencyHistogram();
+      for (int i = 0; i < 90; i++) {
+         fast.record(5);
+      }
+      for (int i = 0; i < 10; i++) {
+         slow.record(5000);
+      }
+
+      assertEquals(5, LatencyHistogram.percentile(90, fast, slow));
+      assertTrue(LatencyHistogram.percentile(95, fast, slow) >= 5000);
+   }
+}
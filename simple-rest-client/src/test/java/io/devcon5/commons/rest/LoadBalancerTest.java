@@ -0,0 +1,178 @@
+package io.devcon5.commons.rest;
+
+import static io.devcon5.commons.rest.Stubs.response;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class LoadBalancerTest {
+
+   private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+   private final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+   @Test
+   public void roundRobin_selectsEndpointsInTurn() {
+
+      SimpleRestClient client = client(LoadBalancer.builder()
+                                                   .endpoint("http://a:8080/api")
+                                                   .endpoint("http://b:8080/v1/")
+                                                   .strategy(LoadBalancer.Strategy.ROUND_ROBIN)
+                                                   .build());
+
+      List<String> urls = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+         urls.add(client.request("/items?id=" + i).get().asString());
+      }
+
+      String a = "http://a:8080/api/items?id=";
+      String b = "http://b:8080/v1/items?id=";
+      boolean aFirst = urls.get(0).startsWith(a);
+      for (int i = 0; i < 4; i++) {
+         assertEquals((aFirst == (i % 2 == 0) ? a : b) + i, urls.get(i));
+      }
+   }
+
+   @Test
+   public void otherUrls_areNotBalanced() {
+
+      SimpleRestClient client = client(LoadBalancer.builder().endpoint("http://a/api").endpoint("http://b/api").build());
+
+      assertEquals("http://c/api/items", client.request("http://c/api/items").get().asString());
+      assertEquals("http://a/apix", client.request("http://a/apix").get().asString());
+   }
+
+   @Test
+   public void leastOutstanding_prefersIdleEndpoint() {
+
+      LoadBalancer balancer = LoadBalancer.builder().endpoint("http://a").endpoint("http://b").build();
+      LoadBalancer.Endpoint busy = balancer.select();
+      busy.onSend();
+
+      for (int i = 0; i < 10; i++) {
+         LoadBalancer.Endpoint selected = balancer.select();
+         assertFalse(selected == busy);
+      }
+   }
+
+   @Test
+   public void powerOfTwoChoices_prefersFasterEndpoint() {
+
+      LoadBalancer balancer = LoadBalancer.builder()
+                                          .endpoint("http://a")
+                                          .endpoint("http://b")
+                                          .strategy(LoadBalancer.Strategy.POWER_OF_TWO_CHOICES)
+                                          .build();
+      LoadBalancer.Endpoint slow = balancer.select();
+      slow.onResponse(200, slow.onSend() - TimeUnit.SECONDS.toNanos(1));
+      LoadBalancer.Endpoint fast = balancer.select();
+      fast.onResponse(200, fast.onSend() - TimeUnit.MILLISECONDS.toNanos(1));
+
+      assertFalse(slow == fast);
+      for (int i = 0; i < 10; i++) {
+         assertTrue(balancer.select() == fast);
+      }
+   }
+
+   @Test
+   public void failingEndpoint_isEjected_andRecoveredByHealthCheck() throws Exception {
+
+      LoadBalancer balancer = LoadBalancer.builder()
+                                          .endpoint("http://a")
+                                          .endpoint("http://b")
+                                          .strategy(LoadBalancer.Strategy.ROUND_ROBIN)
+                                          .ejection(2, 100, TimeUnit.MILLISECONDS)
+                                          .build();
+      SimpleRestClient client = client(balancer);
+      failing.add("b");
+
+      for (int i = 0; i < 4; i++) {
+         send(client);
+      }
+      assertEquals(1, balancer.getEjections());
+      assertTrue(balancer.toString(), balancer.toString().contains("http://b{outstanding=0, latency=0ms, ejected}"));
+
+      for (int i = 0; i < 4; i++) {
+         assertEquals("http://a/items", client.request("/items").get().asString());
+      }
+
+      failing.clear();
+      Thread.sleep(150);
+      for (int i = 0; i < 4; i++) {
+         send(client);
+      }
+      assertEquals(1, balancer.getRecoveries());
+      assertTrue(calls.get("b").get() >= 3);
+   }
+
+   @Test
+   public void failedHealthCheck_ejectsAgain() throws Exception {
+
+      LoadBalancer balancer = LoadBalancer.builder().endpoint("http://a").ejection(1, 50, TimeUnit.MILLISECONDS).build();
+      SimpleRestClient client = client(balancer);
+      failing.add("a");
+
+      send(client);
+      //all endpoints are ejected, so the requests are sent anyway
+      send(client);
+      Thread.sleep(60);
+      send(client);
+
+      assertEquals(2, balancer.getEjections());
+      assertEquals(0, balancer.getRecoveries());
+      assertEquals(3, calls.get("a").get());
+   }
+
+   @Test
+   public void rejectedCalls_areNotCountedAsFailure() {
+
+      LoadBalancer balancer = LoadBalancer.builder().endpoint("http://a").endpoint("http://b").ejection(1, 1, TimeUnit.MINUTES).build();
+      SimpleRestClient client = SimpleRestClient.builder().loadBalancer(balancer).transport(request -> {
+         throw new RateLimitExceededException(request.getUrl().getHost());
+      }).build();
+
+      for (int i = 0; i < 4; i++) {
+         send(client);
+      }
+
+      assertEquals(0, balancer.getEjections());
+      assertTrue(balancer.toString(), balancer.toString().contains("http://a{outstanding=0"));
+      assertTrue(balancer.toString(), balancer.toString().contains("http://b{outstanding=0"));
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void build_withoutEndpoint_fails() {
+
+      LoadBalancer.builder().build();
+   }
+
+   private static void send(SimpleRestClient client) {
+      try {
+         client.request("/items").get().close();
+      } catch (RuntimeException e) {
+         //failed calls are recorded by the load balancer
+      }
+   }
+
+   private SimpleRestClient client(LoadBalancer balancer) {
+      return SimpleRestClient.builder().loadBalancer(balancer).transport(request -> {
+         URL url = request.getUrl();
+         calls.computeIfAbsent(url.getHost(), host -> new AtomicInteger()).incrementAndGet();
+         if (failing.contains(url.getHost())) {
+            throw new IOException("connection refused");
+         }
+         return response(200, url.toString());
+      }).build();
+   }
+}
@@ -0,0 +1,52 @@
+package io.devcon5.commons.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.Test;
+
+public class MediaTypeTest {
+
+   @Test
+   public void parse_typeAndSubtype() {
+
+      MediaType mt = MediaType.parse("Application/JSON");
+
+      assertEquals("application", mt.getType());
+      assertEquals("json", mt.getSubtype());
+   }
+
+   @Test
+   public void parse_parameters() {
+
+      MediaType mt = MediaType.parse("text/xml; Charset=\"ISO-8859-1\"; q=0.5");
+
+      assertEquals(Optional.of(StandardCharsets.ISO_8859_1), mt.getCharset());
+      assertEquals(Optional.of("0.5"), mt.getParameter("Q"));
+   }
+
+   @Test
+   public void parse_unsupportedCharset_isEmpty() {
+
+      assertFalse(MediaType.parse("text/xml; charset=no-such-charset").getCharset().isPresent());
+   }
+
+   @Test
+   public void parse_null_isWildcard() {
+
+      assertSame(MediaType.ANY, MediaType.parse(null));
+   }
+
+   @Test
+   public void hasFormat_suffixAndPrefix() {
+
+      assertTrue(MediaType.parse("application/atom+xml").hasFormat("xml"));
+      assertTrue(MediaType.parse("application/xml+other").hasFormat("xml"));
+      assertFalse(MediaType.parse("application/xhtml").hasFormat("xml"));
+   }
+}
@@ -0,0 +1,182 @@
+package io.devcon5.commons.rest;
+
+import static io.devcon5.commons.rest.Stubs.response;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MetricsRecorderTest {
+
+   private final MetricsRecorder recorder = MetricsRecorder.create();
+
+   @Test
+   public void asString_recordsPhasesPerHostMethodAndStatusClass() {
+      SimpleRestClient client = client(request -> {
+         request.getTrace().connectionAcquired(false);
+         return response(200, "hello");
+      });
+
+      assertEquals("hello", client.request("/a").get().asString());
+      assertEquals("hello", client.request("/b").get().asString());
+      client.request("/c").get().close();
+
+      List<MetricsSnapshot.Series> series = recorder.snapshot().getSeries();
+      assertEquals(1, series.size());
+      MetricsSnapshot.Series s = series.get(0);
+      assertEquals("localhost:8080", s.getHost());
+      assertEquals("GET", s.getMethod());
+      assertEquals("2xx", s.getStatusClass());
+      assertEquals(3, s.getCount());
+      assertEquals(3, s.getLatency(RequestTrace.Phase.CONNECTION_ACQUIRED).getCount());
+      assertEquals(3, s.getLatency(RequestTrace.Phase.FIRST_BYTE).getCount());
+      assertEquals(3, s.getLatency(RequestTrace.Phase.RESPONSE_BODY_READ).getCount());
+      assertEquals(0, s.getLatency(RequestTrace.Phase.REQUEST_BODY_WRITTEN).getCount());
+      assertEquals(0, s.getLatency(RequestTrace.Phase.ENTITY_PARSED).getCount());
+      assertTrue(s.getTotal().getPercentileMicros(50) >= 0);
+   }
+
+   @Test
+   public void failedRequest_isRecordedAsFailed() {
+      SimpleRestClient client = client(request -> {
+         throw new ConnectException("refused");
+      });
+
+      try {
+         client.request("/a").get();
+         fail("RuntimeException expected");
+      } catch (RuntimeException e) {
+         assertTrue(e.getCause() instanceof ConnectException);
+      }
+
+      MetricsSnapshot.Series s = recorder.snapshot().getSeries().get(0);
+      assertEquals("failed", s.getStatusClass());
+      assertEquals(1, s.getCount());
+      assertEquals(0, s.getLatency(RequestTrace.Phase.FIRST_BYTE).getCount());
+   }
+
+   @Test
+   public void errorStatus_isRecordedByStatusClass() {
+      SimpleRestClient client = client(request -> response(503, "unavailable"));
+
+      try {
+         client.request("/a").get().asString();
+         fail("IllegalStateException expected");
+      } catch (IllegalStateException e) {
+         //the response is closed by the validation
+      }
+
+      MetricsSnapshot.Series s = recorder.snapshot().getSeries().get(0);
+      assertEquals("5xx", s.getStatusClass());
+      assertEquals(1, s.getCount());
+   }
+
+   @Test
+   public void listener_receivesEventsInOrder() {
+      List<String> events = Collections.synchronizedList(new ArrayList<>());
+      RequestListener listener = new RequestListener() {
+         @Override
+         public void requestStarted(final RequestTrace trace) {
+            events.add("started");
+         }
+
+         @Override
+         public void connectionAcquired(final RequestTrace trace, final boolean reused) {
+            events.add("connection");
+         }
+
+         @Override
+         public void requestBodyWritten(final RequestTrace trace, final long bytes) {
+            events.add("written " + bytes);
+         }
+
+         @Override
+         public void responseReceived(final RequestTrace trace, final int statusCode) {
+            events.add("received " + statusCode);
+         }
+
+         @Override
+         public void responseBodyRead(final RequestTrace trace, final long bytes) {
+            events.add("read " + bytes);
+         }
+      };
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl("http://localhost:8080").transport(request -> {
+         request.getTrace().connectionAcquired(true);
+         request.getTrace().requestBodyWritten(4);
+         return response(201, "created");
+      }).listener(listener).build();
+
+      client.request("/a").post("data".getBytes(StandardCharsets.UTF_8)).asBytes();
+
+      assertEquals(5, events.size());
+      assertEquals("started", events.get(0));
+      assertEquals("connection", events.get(1));
+      assertEquals("written 4", events.get(2));
+      assertEquals("received 201", events.get(3));
+      assertEquals("read 7", events.get(4));
+   }
+
+   @Test
+   public void failingListener_doesNotFailRequest() {
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl("http://localhost:8080").transport(request -> response(200, "ok"))
+                                                .listener(new RequestListener() {
+                                                   @Override
+                                                   public void responseReceived(final RequestTrace trace, final int statusCode) {
+                                                      throw new IllegalStateException("listener failed");
+                                                   }
+                                                }).listener(recorder).build();
+
+      assertEquals("ok", client.request("/a").get().asString());
+      assertEquals(1, recorder.snapshot().getSeries().get(0).getCount());
+   }
+
+   @Test
+   public void maxSeries_exceeded_recordsOtherHost() {
+      MetricsRecorder limited = MetricsRecorder.create(1);
+      SimpleRestClient client = SimpleRestClient.builder().transport(request -> response(200, "ok")).listener(limited).build();
+
+      client.request("http://first:8080/a").get().close();
+      client.request("http://second:8080/a").get().close();
+      client.request("http://third:8080/a").get().close();
+
+      List<MetricsSnapshot.Series> series = limited.snapshot().getSeries();
+      assertEquals(2, series.size());
+      long other = series.stream().filter(s -> "other".equals(s.getHost())).mapToLong(MetricsSnapshot.Series::getCount).sum();
+      assertEquals(2, other);
+   }
+
+   @Test
+   public void writeTo_prometheusFormat() {
+      SimpleRestClient client = client(request -> response(200, "ok"));
+      client.request("/a").get().close();
+
+      String text = recorder.snapshot().toString();
+
+      assertTrue(text.contains("# TYPE simple_rest_client_request_seconds summary"));
+      assertTrue(text.contains("simple_rest_client_request_seconds{host=\"localhost:8080\",method=\"GET\",status=\"2xx\",phase=\"total\",quantile=\"0.99\"}"));
+      assertTrue(text.contains("simple_rest_client_request_seconds_count{host=\"localhost:8080\",method=\"GET\",status=\"2xx\",phase=\"total\"} 1"));
+      assertFalse(text.contains("phase=\"entity_parsed\""));
+   }
+
+   @Test
+   public void reset_removesSeries() {
+      SimpleRestClient client = client(request -> response(200, "ok"));
+      client.request("/a").get().close();
+
+      recorder.reset();
+
+      assertTrue(recorder.snapshot().getSeries().isEmpty());
+   }
+
+   private SimpleRestClient client(Transport transport) {
+      return SimpleRestClient.builder().baseUrl("http://localhost:8080").transport(transport).listener(recorder).build();
+   }
+}
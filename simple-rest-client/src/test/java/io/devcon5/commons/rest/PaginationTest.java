@@ -0,0 +1,165 @@
+package io.devcon5.commons.rest;
+
+import static io.devcon5.commons.rest.Stubs.response;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class PaginationTest {
+
+   private final ExecutorService executor = Executors.newCachedThreadPool();
+   private final Map<String, AtomicInteger> fetches = new ConcurrentHashMap<>();
+
+   @After
+   public void shutdown() {
+      executor.shutdownNow();
+   }
+
+   @Test
+   public void nextLink_findsRelationNext() {
+
+      assertEquals("/items?page=2", Pagination.nextLink("</items?page=2>; rel=\"next\", </items?page=9>; rel=\"last\""));
+      assertEquals("/b", Pagination.nextLink("</a>; rel=prev, </b>; title=\"x\"; rel=\"prefetch next\""));
+      assertNull(Pagination.nextLink("</a>; rel=\"prev\""));
+      assertNull(Pagination.nextLink((String) null));
+   }
+
+   @Test
+   public void linkHeader_stream_readsAllPages() {
+
+      SimpleRestClient client = client(3, 0);
+
+      try (Stream<Long> items = client.request("/items").paginate(Pagination.linkHeader(Long.class)).build().stream()) {
+         assertEquals(Arrays.asList(0L, 1L, 10L, 11L, 20L, 21L), items.collect(Collectors.toList()));
+      }
+   }
+
+   @Test
+   public void cursor_stream_readsAllPages() {
+
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl("http://localhost:8080").executor(executor).transport(request -> {
+         String query = request.getUrl().getQuery();
+         if (query == null || !query.contains("cursor=")) {
+            return response(200, "{\"items\":[1,2],\"next\":\"a b\"}", "Content-Type", "application/json");
+         }
+         assertTrue(query, query.equals("size=2&cursor=a+b"));
+         return response(200, "{\"items\":[3],\"next\":null}", "Content-Type", "application/json");
+      }).build();
+
+      @SuppressWarnings("unchecked")
+      Pagination<Object> pagination = client.request("/items?size=2")
+                                            .paginate(Pagination.cursor(Map.class, page -> (List<Object>) page.get("items"),
+                                                                        page -> (String) page.get("next"), "cursor"))
+                                            .build();
+
+      try (Stream<Object> items = pagination.stream()) {
+         assertEquals(Arrays.asList(1L, 2L, 3L), items.collect(Collectors.toList()));
+      }
+   }
+
+   @Test
+   public void iterator_prefetchesUpToDepth() throws InterruptedException {
+
+      SimpleRestClient client = client(10, 0);
+
+      try (Pagination.PageIterator<Long> items = client.request("/items")
+                                                       .paginate(Pagination.linkHeader(Long.class))
+                                                       .prefetch(2)
+                                                       .build()
+                                                       .iterator()) {
+         assertEquals(Long.valueOf(0), items.next());
+         //the first page is consumed, the next two pages are fetched in the background
+         waitForFetches(3);
+         Thread.sleep(50);
+         assertEquals(3, fetches.size());
+
+         items.next();
+         items.next();
+         waitForFetches(4);
+         Thread.sleep(50);
+         assertEquals(4, fetches.size());
+      }
+   }
+
+   @Test
+   public void close_stopsFetching() throws InterruptedException {
+
+      SimpleRestClient client = client(10, 0);
+      Pagination.PageIterator<Long> items = client.request("/items").paginate(Pagination.linkHeader(Long.class)).build().iterator();
+      items.next();
+      waitForFetches(2);
+
+      items.close();
+      Thread.sleep(50);
+
+      assertEquals(2, fetches.size());
+   }
+
+   @Test
+   public void failedPage_isThrownAfterPreviousItems() {
+
+      SimpleRestClient client = client(10, 2);
+      Iterator<Long> items = client.request("/items").paginate(Pagination.linkHeader(Long.class)).build().iterator();
+
+      List<Long> read = new ArrayList<>();
+      try {
+         items.forEachRemaining(read::add);
+         fail("the failed page was not reported");
+      } catch (IllegalStateException e) {
+         assertEquals(Arrays.asList(0L, 1L, 10L, 11L), read);
+      }
+   }
+
+   @Test
+   public void pagination_isReusable() {
+
+      Pagination<Long> pagination = client(2, 0).request("/items").paginate(Pagination.linkHeader(Long.class)).build();
+
+      assertEquals(4, pagination.stream().count());
+      assertEquals(4, pagination.stream().count());
+   }
+
+   /**
+    * @param pages
+    *  the number of pages with two items each
+    * @param failingPage
+    *  the index of the page that fails with a server error, 0 if no page fails
+    */
+   private SimpleRestClient client(int pages, int failingPage) {
+      return SimpleRestClient.builder().baseUrl("http://localhost:8080").executor(executor).transport(request -> {
+         String query = request.getUrl().getQuery();
+         int page = query == null ? 0 : Integer.parseInt(query.substring("page=".length()));
+         fetches.computeIfAbsent(String.valueOf(page), p -> new AtomicInteger()).incrementAndGet();
+         if (failingPage != 0 && page == failingPage) {
+            return response(500, "");
+         }
+         String link = page + 1 < pages ? "</items?page=" + (page + 1) + ">; rel=\"next\"" : null;
+         return response(200, "[" + (page * 10) + "," + (page * 10 + 1) + "]", "Content-Type", "application/json", "Link", link);
+      }).build();
+   }
+
+   private void waitForFetches(int count) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (fetches.size() < count && System.nanoTime() < deadline) {
+         Thread.sleep(5);
+      }
+      assertEquals(count, fetches.size());
+   }
+}
@@ -0,0 +1,176 @@
+package io.devcon5.commons.rest;
+
+import static io.devcon5.commons.rest.Stubs.response;
+import static io.devcon5.commons.rest.Stubs.url;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+   private final URL url = url("http://localhost:8080/my/resource");
+
+   @Test
+   public void burst_isAvailableImmediately() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().perHost(1, 3).nonBlocking().build();
+
+      for (int i = 0; i < 3; i++) {
+         assertEquals(0, limiter.tryAcquire(url).delayNanos);
+      }
+   }
+
+   @Test(expected = RateLimitExceededException.class)
+   public void burstUsedUp_nonBlocking_rejects() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().perHost(1, 2).nonBlocking().build();
+      limiter.tryAcquire(url);
+      limiter.tryAcquire(url);
+
+      limiter.tryAcquire(url);
+   }
+
+   @Test
+   public void burstUsedUp_blocking_waitsForNextToken() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().perHost(10, 1).build();
+      limiter.acquire(url);
+
+      long delay = limiter.reserve(url).delayNanos;
+
+      assertTrue("delay " + delay, delay > TimeUnit.MILLISECONDS.toNanos(50) && delay <= TimeUnit.MILLISECONDS.toNanos(100));
+      assertEquals(1, limiter.getThrottled());
+   }
+
+   @Test
+   public void blocking_waitBeyondMaximum_rejects() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().perHost(1, 1).blocking(100, TimeUnit.MILLISECONDS).build();
+      limiter.acquire(url);
+
+      try {
+         limiter.reserve(url);
+         fail("RateLimitExceededException expected");
+      } catch (RateLimitExceededException e) {
+         assertEquals("localhost:8080", e.getBucket());
+      }
+      assertEquals(1, limiter.getRejected());
+   }
+
+   @Test
+   public void otherHost_hasOwnBucket() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().perHost(1, 1).nonBlocking().build();
+      limiter.tryAcquire(url);
+
+      limiter.tryAcquire(url("http://localhost:9090/my/resource"));
+   }
+
+   @Test
+   public void route_isLimitedInAdditionToHost() throws Exception {
+      RateLimiter limiter = RateLimiter.builder()
+                                       .perHost(100, 100)
+                                       .route("/search", 1, 1)
+                                       .route("/search/expensive", 1, 1)
+                                       .nonBlocking()
+                                       .build();
+      limiter.tryAcquire(url("http://localhost:8080/search?q=1"));
+      limiter.tryAcquire(url("http://localhost:8080/search/expensive"));
+      limiter.tryAcquire(url);
+
+      try {
+         limiter.tryAcquire(url("http://localhost:8080/search?q=2"));
+         fail("RateLimitExceededException expected");
+      } catch (RateLimitExceededException e) {
+         assertEquals("localhost:8080/search", e.getBucket());
+      }
+   }
+
+   @Test
+   public void status429_withRetryAfter_pauses() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().perHost(100, 100).build();
+
+      limiter.acquire(url).onResponse(response(429, "", "Retry-After", "2"));
+
+      long delay = limiter.reserve(url).delayNanos;
+      assertTrue("delay " + delay, delay > TimeUnit.MILLISECONDS.toNanos(1900));
+   }
+
+   @Test
+   public void status429_withoutRetryAfter_halvesRate() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().perHost(10, 1).build();
+
+      limiter.acquire(url).onResponse(response(429, ""));
+
+      limiter.reserve(url);
+      long delay = limiter.reserve(url).delayNanos;
+      //the second token after the response is available after 100ms plus one interval of 200ms instead of 100ms
+      assertTrue("delay " + delay, delay > TimeUnit.MILLISECONDS.toNanos(250));
+   }
+
+   @Test
+   public void rateLimitHeaders_quotaUsedUp_pausesUntilReset() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().build();
+
+      limiter.acquire(url).onResponse(response(200, "", "RateLimit-Remaining", "0", "RateLimit-Reset", "5"));
+
+      long delay = limiter.reserve(url).delayNanos;
+      assertTrue("delay " + delay, delay > TimeUnit.SECONDS.toNanos(4));
+   }
+
+   @Test
+   public void rateLimitHeaders_remainingQuota_isSpread() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().nonBlocking().build();
+
+      limiter.tryAcquire(url).onResponse(response(200, "", "X-RateLimit-Remaining", "2", "X-RateLimit-Reset", "10"));
+
+      limiter.tryAcquire(url);
+      try {
+         limiter.tryAcquire(url);
+         fail("RateLimitExceededException expected");
+      } catch (RateLimitExceededException e) {
+         //2 requests within 10 seconds allow the next request only after 5 seconds
+      }
+   }
+
+   @Test
+   public void notAdaptive_ignoresResponses() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().adaptive(false).nonBlocking().build();
+
+      limiter.tryAcquire(url).onResponse(response(429, "", "Retry-After", "10"));
+
+      limiter.tryAcquire(url);
+   }
+
+   @Test
+   public void concurrentRequests_grantBurstExactlyOnce() throws Exception {
+      RateLimiter limiter = RateLimiter.builder().perHost(0.1, 50).nonBlocking().build();
+      ExecutorService pool = Executors.newFixedThreadPool(8);
+      CountDownLatch done = new CountDownLatch(200);
+      AtomicInteger granted = new AtomicInteger();
+      try {
+         for (int i = 0; i < 200; i++) {
+            pool.execute(() -> {
+               try {
+                  limiter.tryAcquire(url);
+                  granted.incrementAndGet();
+               } catch (RateLimitExceededException e) {
+                  //expected for all requests beyond the burst
+               } finally {
+                  done.countDown();
+               }
+            });
+         }
+         done.await(10, TimeUnit.SECONDS);
+      } finally {
+         pool.shutdown();
+      }
+
+      assertEquals(50, granted.get());
+      assertEquals(150, limiter.getRejected());
+   }
+}
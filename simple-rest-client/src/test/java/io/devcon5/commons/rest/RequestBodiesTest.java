@@ -0,0 +1,148 @@
+package io.devcon5.commons.rest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class RequestBodiesTest {
+
+   @Test
+   public void of_bytes_hasFixedLength() throws IOException {
+
+      RequestBody body = RequestBodies.of("test".getBytes());
+
+      assertEquals(4, body.getContentLength());
+      assertArrayEquals("test".getBytes(), write(body));
+   }
+
+   @Test
+   public void of_directByteBuffer_isRepeatable() throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+      buffer.put("test".getBytes()).flip();
+
+      RequestBody body = RequestBodies.of(buffer);
+
+      assertEquals(4, body.getContentLength());
+      assertArrayEquals("test".getBytes(), write(body));
+      assertArrayEquals("test".getBytes(), write(body));
+      assertEquals(0, buffer.position());
+   }
+
+   @Test
+   public void of_file_hasLengthOfFile() throws IOException {
+      Path file = Files.createTempFile("body", ".txt");
+      try {
+         Files.write(file, "test content".getBytes());
+
+         RequestBody body = RequestBodies.of(file);
+
+         assertEquals(12, body.getContentLength());
+         assertArrayEquals("test content".getBytes(), write(body));
+      } finally {
+         Files.delete(file);
+      }
+   }
+
+   @Test
+   public void of_file_truncatedWhileWriting_fails() throws IOException {
+      Path file = Files.createTempFile("body", ".txt");
+      try {
+         Files.write(file, new byte[65536]);
+         OutputStream truncating = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(final byte[] b, final int off, final int len) {
+               super.write(b, off, len);
+               try {
+                  Files.write(file, new byte[10]);
+               } catch (IOException e) {
+                  throw new IllegalStateException(e);
+               }
+            }
+         };
+
+         try {
+            RequestBodies.of(file).writeTo(truncating);
+            fail("the truncated file was written");
+         } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("truncated"));
+         }
+      } finally {
+         Files.delete(file);
+      }
+   }
+
+   @Test
+   public void of_inputStream_hasUnknownLength() throws IOException {
+
+      RequestBody body = RequestBodies.of(new ByteArrayInputStream("test".getBytes()));
+
+      assertEquals(-1, body.getContentLength());
+      assertArrayEquals("test".getBytes(), write(body));
+   }
+
+   @Test
+   public void of_bytes_isRepeatable() {
+
+      assertTrue(RequestBodies.of("test".getBytes()).isRepeatable());
+      assertTrue(RequestBodies.gzip(RequestBodies.of("test".getBytes())).isRepeatable());
+      assertFalse(RequestBodies.of(new ByteArrayInputStream("test".getBytes())).isRepeatable());
+   }
+
+   @Test
+   public void replayable_inputStream_isWrittenAgain() throws IOException {
+
+      RequestBody body = RequestBodies.replayable(RequestBodies.of(new ByteArrayInputStream("test".getBytes())), 16);
+
+      assertArrayEquals("test".getBytes(), write(body));
+      assertTrue(body.isRepeatable());
+      assertArrayEquals("test".getBytes(), write(body));
+   }
+
+   @Test
+   public void replayable_targetFails_recordsCompleteBody() throws IOException {
+      RequestBody body = RequestBodies.replayable(RequestBodies.of(new ByteArrayInputStream("test".getBytes())), 16);
+
+      try {
+         body.writeTo(new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+               throw new IOException("connection reset");
+            }
+         });
+         fail("IOException expected");
+      } catch (IOException e) {
+         assertEquals("connection reset", e.getMessage());
+      }
+
+      assertTrue(body.isRepeatable());
+      assertArrayEquals("test".getBytes(), write(body));
+   }
+
+   @Test(expected = IOException.class)
+   public void replayable_exceedsBuffer_isNotWrittenAgain() throws IOException {
+      RequestBody body = RequestBodies.replayable(RequestBodies.of(new ByteArrayInputStream("test".getBytes())), 2);
+
+      assertArrayEquals("test".getBytes(), write(body));
+      assertFalse(body.isRepeatable());
+
+      write(body);
+   }
+
+   private static byte[] write(RequestBody body) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      body.writeTo(out);
+      return out.toByteArray();
+   }
+}
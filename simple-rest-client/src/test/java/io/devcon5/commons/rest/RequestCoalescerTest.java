@@ -0,0 +1,314 @@
+package io.devcon5.commons.rest;
+
+import static io.devcon5.commons.rest.Stubs.response;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+
+   private final ExecutorService executor = Executors.newCachedThreadPool();
+   private final AtomicInteger calls = new AtomicInteger();
+   private final CountDownLatch release = new CountDownLatch(1);
+
+   @After
+   public void shutdown() {
+      release.countDown();
+      executor.shutdownNow();
+   }
+
+   @Test
+   public void key_comparesConfiguredHeaders() throws Exception {
+
+      RequestCoalescer coalescer = RequestCoalescer.builder().headers("Accept").build();
+
+      String json = coalescer.key(request("GET", Collections.singletonMap("accept", "application/json")));
+      String xml = coalescer.key(request("GET", Collections.singletonMap("Accept", "application/xml")));
+      String traced = coalescer.key(request("GET", headers("Accept", "application/json", "X-Trace", "1")));
+
+      assertNotEquals(json, xml);
+      assertEquals(json, traced);
+      assertNotEquals(json, coalescer.key(request("HEAD", Collections.singletonMap("Accept", "application/json"))));
+   }
+
+   @Test
+   public void key_defaultHeaders_compareCredentials() throws Exception {
+
+      RequestCoalescer coalescer = RequestCoalescer.builder().build();
+
+      String alice = coalescer.key(request("GET", headers("Cookie", "session=alice", "Proxy-Authorization", "Basic a")));
+
+      assertNotEquals(alice, coalescer.key(request("GET", headers("Cookie", "session=bob", "Proxy-Authorization", "Basic a"))));
+      assertNotEquals(alice, coalescer.key(request("GET", headers("Cookie", "session=alice", "Proxy-Authorization", "Basic b"))));
+      assertEquals(alice, coalescer.key(request("GET", headers("cookie", "session=alice", "proxy-authorization", "Basic a"))));
+   }
+
+   @Test
+   public void concurrentRequests_areSentOnce() throws Exception {
+
+      RequestCoalescer coalescer = RequestCoalescer.builder().build();
+      SimpleRestClient client = client(coalescer, "[1,2,3]");
+
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+         results.add(executor.submit(() -> client.request("/items").accept("application/json").get().asString()));
+      }
+      awaitFirstCall(coalescer);
+      release.countDown();
+
+      for (Future<String> result : results) {
+         assertEquals("[1,2,3]", result.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(1, calls.get());
+      assertEquals(1, coalescer.getSent());
+      assertEquals(4, coalescer.getCollapsed());
+      assertTrue(coalescer.toString().contains("collapsed=4"));
+   }
+
+   @Test
+   public void singleRequest_isNotBuffered() throws Exception {
+
+      RequestCoalescer coalescer = RequestCoalescer.builder().build();
+      AtomicReference<TransportResponse> sent = new AtomicReference<>();
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl("http://localhost:8080").coalesce(coalescer).transport(request -> {
+         sent.set(response(200, "[1,2,3]", "Content-Type", "application/json"));
+         return sent.get();
+      }).build();
+
+      try (SimpleRestClient.Response response = client.request("/items").get()) {
+         assertEquals(7, sent.get().getBody().available());
+         assertEquals("[1,2,3]", response.asString());
+      }
+      assertEquals(1, coalescer.getSent());
+   }
+
+   @Test
+   public void differentHeaders_areSentSeparately() throws Exception {
+
+      RequestCoalescer coalescer = RequestCoalescer.builder().build();
+      SimpleRestClient client = client(coalescer, "{}");
+
+      Future<String> json = executor.submit(() -> client.request("/items").accept("application/json").get().asString());
+      Future<String> xml = executor.submit(() -> client.request("/items").accept("application/xml").get().asString());
+      awaitCalls(2);
+      release.countDown();
+
+      assertEquals("{}", json.get(5, TimeUnit.SECONDS));
+      assertEquals("{}", xml.get(5, TimeUnit.SECONDS));
+      assertEquals(0, coalescer.getCollapsed());
+   }
+
+   @Test
+   public void lateArrivals_beyondMaxWaiters_areSentOnTheirOwn() throws Exception {
+
+      RequestCoalescer coalescer = RequestCoalescer.builder().maxWaiters(1).build();
+      SimpleRestClient client = client(coalescer, "{}");
+
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+         results.add(executor.submit(() -> client.request("/items").get().asString()));
+      }
+      awaitCalls(2);
+      release.countDown();
+
+      for (Future<String> result : results) {
+         assertEquals("{}", result.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(2, calls.get());
+      assertEquals(1, coalescer.getCollapsed());
+      assertEquals(1, coalescer.getOverflows());
+   }
+
+   @Test
+   public void largeResponse_isNotShared() throws Exception {
+
+      RequestCoalescer coalescer = RequestCoalescer.builder().maxBodyBytes(4).build();
+      SimpleRestClient client = client(coalescer, "[1,2,3]");
+
+      Future<String> first = executor.submit(() -> client.request("/items").get().asString());
+      awaitCalls(1);
+      Future<String> second = executor.submit(() -> client.request("/items").get().asString());
+      awaitFirstCall(coalescer);
+      release.countDown();
+
+      assertEquals("[1,2,3]", first.get(5, TimeUnit.SECONDS));
+      assertEquals("[1,2,3]", second.get(5, TimeUnit.SECONDS));
+      assertEquals(2, calls.get());
+      assertEquals(1, coalescer.getFallbacks());
+   }
+
+   @Test
+   public void fallback_afterDeadline_closesLateResponse() throws Exception {
+
+      RequestCoalescer coalescer = RequestCoalescer.builder().maxBodyBytes(4).build();
+      CountDownLatch closed = new CountDownLatch(1);
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl("http://localhost:8080").coalesce(coalescer).transport(request -> {
+         int call = calls.incrementAndGet();
+         await();
+         TransportResponse response = response(200, "[1,2,3]", "Content-Type", "application/json");
+         //the second call is the fallback of the request whose deadline has passed
+         return call == 2 ? closing(response, closed) : response;
+      }).build();
+
+      Future<String> first = executor.submit(() -> client.request("/items").get().asString());
+      awaitCalls(1);
+      Future<?> second = client.request("/items").deadline(100, TimeUnit.MILLISECONDS).getAsync();
+      try {
+         second.get(5, TimeUnit.SECONDS);
+         fail("the deadline was not enforced");
+      } catch (ExecutionException e) {
+         assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof DeadlineExceededException);
+      }
+      release.countDown();
+
+      assertEquals("[1,2,3]", first.get(5, TimeUnit.SECONDS));
+      assertTrue("the late response was not closed", closed.await(5, TimeUnit.SECONDS));
+      assertEquals(2, calls.get());
+      assertEquals(1, coalescer.getFallbacks());
+   }
+
+   @Test
+   public void failure_isSharedWithWaitingRequests() throws Exception {
+
+      RequestCoalescer coalescer = RequestCoalescer.builder().build();
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl("http://localhost:8080").coalesce(coalescer).transport(request -> {
+         calls.incrementAndGet();
+         await();
+         throw new IOException("connection refused");
+      }).build();
+
+      Future<?> first = executor.submit(() -> client.request("/items").get());
+      awaitCalls(1);
+      Future<?> second = executor.submit(() -> client.request("/items").get());
+      awaitFirstCall(coalescer);
+      release.countDown();
+
+      for (Future<?> result : new Future<?>[] {first, second}) {
+         try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("the failure was not reported");
+         } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause().getCause() instanceof IOException);
+         }
+      }
+      assertEquals(1, calls.get());
+   }
+
+   @Test
+   public void postRequests_areNotCoalesced() {
+
+      RequestCoalescer coalescer = RequestCoalescer.builder().build();
+      release.countDown();
+      SimpleRestClient client = client(coalescer, "{}");
+
+      client.request("/items").contentType("application/json").post("{}".getBytes(StandardCharsets.UTF_8));
+      client.request("/items").contentType("application/json").post("{}".getBytes(StandardCharsets.UTF_8));
+
+      assertEquals(2, calls.get());
+      assertEquals(0, coalescer.getSent());
+   }
+
+   private SimpleRestClient client(RequestCoalescer coalescer, String body) {
+      return SimpleRestClient.builder().baseUrl("http://localhost:8080").coalesce(coalescer).transport(request -> {
+         calls.incrementAndGet();
+         await();
+         return response(200, body, "Content-Type", "application/json");
+      }).build();
+   }
+
+   private static TransportResponse closing(TransportResponse response, CountDownLatch closed) {
+      return new TransportResponse() {
+         @Override
+         public int getStatusCode() throws IOException {
+            return response.getStatusCode();
+         }
+
+         @Override
+         public String getMessage() throws IOException {
+            return response.getMessage();
+         }
+
+         @Override
+         public String getHeader(final String name) {
+            return response.getHeader(name);
+         }
+
+         @Override
+         public Map<String, List<String>> getHeaders() {
+            return response.getHeaders();
+         }
+
+         @Override
+         public InputStream getBody() throws IOException {
+            return response.getBody();
+         }
+
+         @Override
+         public void close() throws IOException {
+            closed.countDown();
+            response.close();
+         }
+      };
+   }
+
+   private void await() throws IOException {
+      try {
+         release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+         throw new IOException(e);
+      }
+   }
+
+   private void awaitCalls(int count) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (calls.get() < count && System.nanoTime() < deadline) {
+         Thread.sleep(5);
+      }
+      assertEquals(count, calls.get());
+   }
+
+   /**
+    * Waits until the first request is sent and gives the other requests time to join it, they can only be waiting for it
+    * as they are neither sent nor done
+    */
+   private void awaitFirstCall(RequestCoalescer coalescer) throws InterruptedException {
+      awaitCalls(1);
+      Thread.sleep(100);
+      assertEquals(1, calls.get());
+      assertEquals(0, coalescer.getCollapsed());
+   }
+
+   private static Map<String, String> headers(String... namesAndValues) {
+      Map<String, String> headers = new HashMap<>();
+      for (int i = 0; i < namesAndValues.length; i += 2) {
+         headers.put(namesAndValues[i], namesAndValues[i + 1]);
+      }
+      return headers;
+   }
+
+   private static TransportRequest request(String method, Map<String, String> headers) throws IOException {
+      return new TransportRequest(method, new URL("http://localhost:8080/items"), headers, null, 0, 0, true);
+   }
+}
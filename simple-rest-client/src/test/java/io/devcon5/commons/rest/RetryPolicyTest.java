@@ -0,0 +1,123 @@
+package io.devcon5.commons.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+   private final RetryPolicy policy = RetryPolicy.builder().backoff(100, 2, 1000, TimeUnit.MILLISECONDS).jitter(0).build();
+
+   @Test
+   public void isRetryable_idempotentMethod_retryableStatus() {
+
+      assertTrue(policy.isRetryable("GET", 503));
+      assertTrue(policy.isRetryable("PUT", 429));
+      assertFalse(policy.isRetryable("GET", 500));
+      assertFalse(policy.isRetryable("POST", 503));
+   }
+
+   @Test
+   public void isRetryable_exception() {
+
+      assertTrue(policy.isRetryable("GET", new SocketTimeoutException()));
+      assertTrue(policy.isRetryable("GET", new RuntimeException(new IOException())));
+      assertFalse(policy.isRetryable("GET", new IllegalStateException()));
+      assertFalse(policy.isRetryable("POST", new SocketTimeoutException()));
+   }
+
+   @Test
+   public void isRetryable_connectFailure_anyMethod() {
+
+      assertTrue(policy.isRetryable("POST", new ConnectException()));
+      assertTrue(policy.isRetryable("POST", new RuntimeException(new ConnectException())));
+   }
+
+   @Test
+   public void isRetryable_customMethods() {
+      RetryPolicy post = RetryPolicy.builder().methods("post").retryOnStatus(500).build();
+
+      assertTrue(post.isRetryable("POST", 500));
+      assertFalse(post.isRetryable("GET", 500));
+   }
+
+   @Test
+   public void isRetryableAfterSending_onlyRetryableMethods() {
+      RetryPolicy connectFailures = RetryPolicy.builder().retryOnStatus().retryOn(ConnectException.class).build();
+
+      assertTrue(policy.isRetryableAfterSending("PUT"));
+      assertFalse(policy.isRetryableAfterSending("POST"));
+      assertFalse(connectFailures.isRetryableAfterSending("PUT"));
+      assertFalse(RetryPolicy.none().isRetryableAfterSending("PUT"));
+   }
+
+   @Test
+   public void delayMillis_exponentialBackoff_limitedByMaxDelay() {
+
+      assertEquals(100, policy.delayMillis(1, null));
+      assertEquals(200, policy.delayMillis(2, null));
+      assertEquals(400, policy.delayMillis(3, null));
+      assertEquals(1000, policy.delayMillis(5, null));
+   }
+
+   @Test
+   public void delayMillis_jitter_reducesDelay() {
+      RetryPolicy jittered = RetryPolicy.builder().backoff(100, 2, 1000, TimeUnit.MILLISECONDS).jitter(1).build();
+
+      for (int i = 0; i < 100; i++) {
+         long delay = jittered.delayMillis(2, null);
+         assertTrue(delay >= 0 && delay <= 200);
+      }
+   }
+
+   @Test
+   public void delayMillis_retryAfter_isRespected() {
+
+      assertEquals(5000, policy.delayMillis(1, "5"));
+      assertEquals(100, policy.delayMillis(1, "invalid"));
+   }
+
+   @Test
+   public void delayMillis_retryAfterExceedsMaximum_isNotRetried() {
+
+      assertEquals(-1, policy.delayMillis(1, "120"));
+   }
+
+   @Test
+   public void none_hasSingleAttempt() {
+
+      assertEquals(1, RetryPolicy.none().getMaxAttempts());
+   }
+
+   @Test
+   public void budget_isExhausted() {
+      RetryBudget budget = RetryBudget.create(0, 0);
+
+      for (int i = 0; i < 10; i++) {
+         assertTrue(budget.tryWithdraw());
+      }
+      assertFalse(budget.tryWithdraw());
+      assertEquals(10, budget.getRetries());
+      assertEquals(1, budget.getExhausted());
+   }
+
+   @Test
+   public void budget_isRefilledByRequests() {
+      RetryBudget budget = RetryBudget.create(0.5, 0);
+      for (int i = 0; i < 10; i++) {
+         budget.tryWithdraw();
+      }
+
+      budget.deposit();
+      assertFalse(budget.tryWithdraw());
+      budget.deposit();
+      assertTrue(budget.tryWithdraw());
+   }
+}
@@ -1,9 +1,11 @@
 package io.devcon5.commons.rest;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
 import static com.github.tomakehurst.wiremock.client.WireMock.delete;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.head;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
@@ -14,14 +16,28 @@ import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import io.devcon5.commons.rest.SimpleRestClient.Response;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -52,6 +68,44 @@ public class SimpleRestClientTest {
       assertEquals("<response>Some content</response>", result);
    }
 
+   @Test
+   public void requestTo_get_asString_usesDeclaredCharset_preservesLineEndings() throws IOException {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200)
+                                                                    .withHeader("Content-Type", "text/plain; charset=ISO-8859-1")
+                                                                    .withBody("Gr\u00fc\u00dfe\r\nline2\n".getBytes(StandardCharsets.ISO_8859_1))));
+
+      String result = SimpleRestClient.requestTo(baseAddress + "/my/resource").get().asString();
+
+      assertEquals("Gr\u00fc\u00dfe\r\nline2\n", result);
+   }
+
+   @Test
+   public void requestTo_get_gzipEncoded_asString_isDecoded() throws IOException {
+      stubFor(get(urlEqualTo("/my/resource")).withHeader("Accept-Encoding", equalTo("gzip, deflate"))
+                                             .willReturn(aResponse().withStatus(200)
+                                                                    .withHeader("Content-Encoding", "gzip")
+                                                                    .withBody(ContentDecodersTest.gzip("Some content".getBytes()))));
+
+      String result = SimpleRestClient.requestTo(baseAddress + "/my/resource").get().asString();
+
+      assertEquals("Some content", result);
+   }
+
+   @Test
+   public void client_compressRequests_put_sendsGzipEncodedBody() throws IOException {
+      stubFor(put(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(204)));
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withBody("Some content")));
+      SimpleRestClient client = SimpleRestClient.builder().compressRequests(true).build();
+      SimpleRestClient.RequestBuilder request = client.request(baseAddress + "/my/resource");
+
+      request.put("Some content".getBytes()).close();
+      request.get().asString();
+
+      //the server decodes gzip encoded request bodies
+      verify(putRequestedFor(urlEqualTo("/my/resource")).withHeader("Content-Encoding", equalTo("gzip")).withRequestBody(equalTo("Some content")));
+      verify(getRequestedFor(urlEqualTo("/my/resource")).withHeader("Content-Encoding", absent()));
+   }
+
    @Test
    public void requestTo_acceptXml_get_asInputStream_returnsInputStream() throws IOException {
       stubFor(get(urlEqualTo("/my/resource")).withHeader("Accept", equalTo("text/xml"))
@@ -94,13 +148,59 @@ public class SimpleRestClientTest {
    }
 
    @Test
-   public void requestTo_acceptJson_get_asType_returnsEmptyOptional() throws IOException {
+   public void requestTo_acceptXml_get_asStream_returnsItems() throws IOException {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200)
+                                                                    .withHeader("Content-Type", "text/xml")
+                                                                    .withBody("<list><CustomEntity><body>first</body></CustomEntity>"
+                                                                              + "<CustomEntity><body>second</body></CustomEntity></list>")));
+      try (Stream<CustomEntity> items = SimpleRestClient.requestTo(baseAddress + "/my/resource").accept("text/xml").get().asStream(CustomEntity.class)) {
+         assertEquals(Arrays.asList("first", "second"), items.map(CustomEntity::getBody).collect(Collectors.toList()));
+      }
+   }
+
+   @Test
+   public void requestTo_get_transferToFile_returnsBytesWritten() throws IOException {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withBody("Some content")));
+      Path file = Files.createTempFile("download", ".txt");
+      try {
+         long written = SimpleRestClient.requestTo(baseAddress + "/my/resource").get().transferTo(file);
+
+         assertEquals(12, written);
+         assertArrayEquals("Some content".getBytes(), Files.readAllBytes(file));
+      } finally {
+         Files.delete(file);
+      }
+   }
+
+   @Test
+   public void requestTo_get_transferToOutputStream_returnsBytesWritten() throws IOException {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withBody("Some content")));
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      long written = SimpleRestClient.requestTo(baseAddress + "/my/resource").get().transferTo(out);
+
+      assertEquals(12, written);
+      assertArrayEquals("Some content".getBytes(), out.toByteArray());
+   }
+
+   @Test
+   public void requestTo_acceptJson_get_asType_returnsEntity() throws IOException {
       stubFor(get(urlEqualTo("/my/resource")).withHeader("Accept", equalTo("application/json"))
                                              .willReturn(aResponse().withStatus(200)
                                                                     .withHeader("Content-Type", "application/json")
                                                                     .withBody("{ \"body\": \"Some content\" }")));
       Optional<CustomEntity> result = SimpleRestClient.requestTo(baseAddress + "/my/resource").acceptJson().get().as(CustomEntity.class);
-      assertFalse(result.isPresent());
+      assertEquals("Some content", result.get().getBody());
+   }
+
+   @Test
+   public void requestTo_acceptJson_get_asStream_returnsItems() throws IOException {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200)
+                                                                    .withHeader("Content-Type", "application/json")
+                                                                    .withBody("[{ \"body\": \"first\" }, { \"body\": \"second\" }]")));
+      try (Stream<CustomEntity> items = SimpleRestClient.requestTo(baseAddress + "/my/resource").acceptJson().get().asStream(CustomEntity.class)) {
+         assertEquals(Arrays.asList("first", "second"), items.map(CustomEntity::getBody).collect(Collectors.toList()));
+      }
    }
 
 
@@ -142,6 +242,307 @@ public class SimpleRestClientTest {
       verify(putRequestedFor(urlEqualTo("/my/resource")).withRequestBody(equalTo("test")).withHeader("Content-Type", equalTo("text/plain")));
    }
 
+   @Test
+   public void client_baseUrl_defaultHeaders_get_asString() throws IOException {
+      stubFor(get(urlEqualTo("/api/my/resource")).withHeader("Accept", equalTo("text/plain"))
+                                                 .withHeader("X-Custom", equalTo("default"))
+                                                 .willReturn(aResponse().withStatus(200).withBody("Some content")));
+
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl(baseAddress + "/api").defaultHeader("X-Custom", "default").defaultHeader("Accept", "text/plain").build();
+
+      assertEquals("Some content", client.request("/my/resource").get().asString());
+      assertEquals("Some content", client.request("my/resource").get().asString());
+   }
+
+   @Test
+   public void client_requestHeader_overridesDefaultHeader() throws IOException {
+      stubFor(get(urlEqualTo("/my/resource")).withHeader("X-Custom", equalTo("override"))
+                                             .willReturn(aResponse().withStatus(200).withBody("Some content")));
+
+      SimpleRestClient client = SimpleRestClient.builder().defaultHeader("X-Custom", "default").build();
+
+      assertEquals("Some content", client.request(baseAddress + "/my/resource").addHeader("X-Custom", "override").get().asString());
+      verify(0, getRequestedFor(urlEqualTo("/my/resource")).withHeader("X-Custom", equalTo("default")));
+   }
+
+   @Test
+   public void requestTo_post_file_returnsOK() throws IOException {
+      stubFor(post(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withBody("created")));
+      Path file = Files.createTempFile("upload", ".txt");
+      try {
+         Files.write(file, "test".getBytes());
+
+         String result = SimpleRestClient.requestTo(baseAddress + "/my/resource").contentType("text/plain").post(file).asString();
+
+         assertEquals("created", result);
+         verify(postRequestedFor(urlEqualTo("/my/resource")).withRequestBody(equalTo("test")).withHeader("Content-Length", equalTo("4")));
+      } finally {
+         Files.delete(file);
+      }
+   }
+
+   @Test
+   public void requestTo_put_inputStream_isChunked() throws IOException {
+      stubFor(put(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withBody("updated")));
+
+      String result = SimpleRestClient.requestTo(baseAddress + "/my/resource").put(new ByteArrayInputStream("test".getBytes())).asString();
+
+      assertEquals("updated", result);
+      verify(putRequestedFor(urlEqualTo("/my/resource")).withRequestBody(equalTo("test")).withHeader("Transfer-Encoding", equalTo("chunked")));
+   }
+
+   @Test
+   public void requestTo_post_seeOther_followsRedirectWithGet() throws IOException {
+      stubFor(post(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(303).withHeader("Location", "/my/result")));
+      stubFor(get(urlEqualTo("/my/result")).willReturn(aResponse().withStatus(200).withBody("created")));
+
+      String result = SimpleRestClient.requestTo(baseAddress + "/my/resource").contentType("text/plain").post(os -> os.write("test".getBytes())).asString();
+
+      assertEquals("created", result);
+      verify(getRequestedFor(urlEqualTo("/my/result")).withHeader("Content-Type", absent()));
+   }
+
+   @Test
+   public void requestTo_put_temporaryRedirect_resendsBody() throws IOException {
+      stubFor(put(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(307).withHeader("Location", "/my/other")));
+      stubFor(put(urlEqualTo("/my/other")).willReturn(aResponse().withStatus(200).withBody("updated")));
+
+      String result = SimpleRestClient.requestTo(baseAddress + "/my/resource").put("test".getBytes()).asString();
+
+      assertEquals("updated", result);
+      verify(putRequestedFor(urlEqualTo("/my/other")).withRequestBody(equalTo("test")));
+   }
+
+   @Test
+   public void requestTo_get_followRedirectsDisabledAfterClassInit_returnsRedirect() throws IOException {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(302).withHeader("Location", "/my/other")));
+
+      HttpURLConnection.setFollowRedirects(false);
+      try (Response response = SimpleRestClient.requestTo(baseAddress + "/my/resource").get()) {
+         assertEquals(302, response.getStatusCode());
+      } finally {
+         HttpURLConnection.setFollowRedirects(true);
+      }
+   }
+
+   @Test
+   public void requestTo_getAsync_asStringAsync_returnsString() throws Exception {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withBody("Some content")));
+
+      String result = SimpleRestClient.requestTo(baseAddress + "/my/resource").getAsync().thenCompose(r -> r.asStringAsync()).get();
+
+      assertEquals("Some content", result);
+   }
+
+   @Test
+   public void requestTo_postAsync_returnsOK() throws Exception {
+      stubFor(post(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(201).withBody("created")));
+
+      Response response = SimpleRestClient.requestTo(baseAddress + "/my/resource").contentType("text/plain").postAsync(os -> os.write("test".getBytes())).get();
+
+      assertEquals(201, response.getStatusCode());
+      verify(postRequestedFor(urlEqualTo("/my/resource")).withRequestBody(equalTo("test")));
+   }
+
+   @Test
+   public void requestTo_putAsync_bytes_returnsOK() throws Exception {
+      stubFor(put(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200)));
+
+      Response response = SimpleRestClient.requestTo(baseAddress + "/my/resource").putAsync("Some content".getBytes()).get();
+
+      assertEquals(200, response.getStatusCode());
+      verify(putRequestedFor(urlEqualTo("/my/resource")).withRequestBody(equalTo("Some content")));
+   }
+
+   @Test
+   public void client_executor_runsAsyncRequests() throws Exception {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withBody("Some content")));
+      AtomicInteger executions = new AtomicInteger();
+      SimpleRestClient client = SimpleRestClient.builder().executor(r -> {
+         executions.incrementAndGet();
+         r.run();
+      }).build();
+
+      assertEquals(200, client.request(baseAddress + "/my/resource").getAsync().get().getStatusCode());
+      assertEquals(1, executions.get());
+   }
+
+   @Test
+   public void response_close_releasesConnection() {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withBody("Some content")));
+      UrlConnectionTransport transport = new UrlConnectionTransport();
+      SimpleRestClient client = SimpleRestClient.builder().transport(transport).build();
+
+      try (Response response = client.request(baseAddress + "/my/resource").get()) {
+         assertEquals(200, response.getStatusCode());
+      }
+
+      assertEquals(1, transport.getStats().getReleased());
+      assertEquals(0, transport.getStats().getDiscarded());
+   }
+
+   @Test
+   public void response_errorCode_drainsErrorStream() {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(500).withBody("Some error")));
+      UrlConnectionTransport transport = new UrlConnectionTransport();
+      SimpleRestClient client = SimpleRestClient.builder().transport(transport).build();
+
+      try {
+         client.request(baseAddress + "/my/resource").get().asString();
+         fail("the error response was read as valid response");
+      } catch (IllegalStateException e) {
+         assertTrue(e.getMessage().startsWith("Server returned 500"));
+      }
+
+      assertEquals(1, transport.getStats().getReleased());
+   }
+
+   @Test
+   public void response_close_bodyExceedsDrainLimit_discardsConnection() {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withBody("Some content")));
+      UrlConnectionTransport transport = new UrlConnectionTransport(4);
+      SimpleRestClient client = SimpleRestClient.builder().transport(transport).build();
+
+      client.request(baseAddress + "/my/resource").get().close();
+
+      assertEquals(0, transport.getStats().getReleased());
+      assertEquals(1, transport.getStats().getDiscarded());
+   }
+
+   @Test
+   public void client_cache_freshResponse_isServedFromCache() {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200)
+                                                                    .withHeader("Cache-Control", "max-age=60")
+                                                                    .withBody("Some content")));
+      HttpCache cache = HttpCache.builder().build();
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl(baseAddress).cache(cache).build();
+
+      assertEquals("Some content", client.request("/my/resource").get().asString());
+      assertEquals("Some content", client.request("/my/resource").get().asString());
+
+      verify(1, getRequestedFor(urlEqualTo("/my/resource")));
+      assertEquals(1, cache.getStats().getMisses());
+      assertEquals(1, cache.getStats().getHits());
+   }
+
+   @Test
+   public void client_cache_gzipEncodedResponse_isServedFromCache() throws IOException {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200)
+                                                                    .withHeader("Cache-Control", "max-age=60")
+                                                                    .withHeader("ETag", "\"v1\"")
+                                                                    .withHeader("Content-Encoding", "gzip")
+                                                                    .withBody(ContentDecodersTest.gzip("Some content".getBytes()))));
+      HttpCache cache = HttpCache.builder().build();
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl(baseAddress).cache(cache).build();
+
+      assertEquals("Some content", client.request("/my/resource").get().asString());
+      assertEquals("Some content", client.request("/my/resource").get().asString());
+      assertEquals("Some content", client.request("/my/resource").get().asString());
+
+      verify(1, getRequestedFor(urlEqualTo("/my/resource")));
+      assertEquals(1, cache.getStats().getMisses());
+      assertEquals(2, cache.getStats().getHits());
+   }
+
+   @Test
+   public void client_cache_staleResponse_isRevalidated() {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200)
+                                                                    .withHeader("Cache-Control", "no-cache")
+                                                                    .withHeader("ETag", "\"v1\"")
+                                                                    .withBody("Some content")));
+      stubFor(get(urlEqualTo("/my/resource")).withHeader("If-None-Match", equalTo("\"v1\""))
+                                             .willReturn(aResponse().withStatus(304)));
+      HttpCache cache = HttpCache.builder().build();
+      //the server appends --gzip to the ETag of compressed responses
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl(baseAddress).cache(cache).decoders(ContentDecoders.empty()).build();
+
+      assertEquals("Some content", client.request("/my/resource").get().asString());
+      assertEquals("Some content", client.request("/my/resource").get().asString());
+
+      verify(getRequestedFor(urlEqualTo("/my/resource")).withHeader("If-None-Match", equalTo("\"v1\"")));
+      assertEquals(1, cache.getStats().getMisses());
+      assertEquals(1, cache.getStats().getRevalidations());
+   }
+
+   @Test
+   public void client_retry_serviceUnavailable_isRetried() {
+      stubFor(get(urlEqualTo("/my/resource")).inScenario("retry")
+                                             .whenScenarioStateIs(Scenario.STARTED)
+                                             .willReturn(aResponse().withStatus(503).withHeader("Retry-After", "0"))
+                                             .willSetStateTo("recovered"));
+      stubFor(get(urlEqualTo("/my/resource")).inScenario("retry")
+                                             .whenScenarioStateIs("recovered")
+                                             .willReturn(aResponse().withStatus(200).withBody("Some content")));
+      SimpleRestClient client = SimpleRestClient.builder()
+                                                .baseUrl(baseAddress)
+                                                .retry(RetryPolicy.builder().backoff(1, 2, 10, TimeUnit.MILLISECONDS).build())
+                                                .build();
+
+      assertEquals("Some content", client.request("/my/resource").get().asString());
+
+      verify(2, getRequestedFor(urlEqualTo("/my/resource")));
+   }
+
+   @Test
+   public void request_retry_inputStream_isReplayed() {
+      stubFor(put(urlEqualTo("/my/resource")).inScenario("retry")
+                                             .whenScenarioStateIs(Scenario.STARTED)
+                                             .willReturn(aResponse().withStatus(503))
+                                             .willSetStateTo("recovered"));
+      stubFor(put(urlEqualTo("/my/resource")).inScenario("retry")
+                                             .whenScenarioStateIs("recovered")
+                                             .willReturn(aResponse().withStatus(200)));
+
+      int status = SimpleRestClient.requestTo(baseAddress + "/my/resource")
+                                   .retry(RetryPolicy.builder().backoff(1, 2, 10, TimeUnit.MILLISECONDS).build())
+                                   .put(new ByteArrayInputStream("Some content".getBytes()))
+                                   .getStatusCode();
+
+      assertEquals(200, status);
+      verify(2, putRequestedFor(urlEqualTo("/my/resource")).withRequestBody(equalTo("Some content")));
+   }
+
+   @Test(expected = RuntimeException.class)
+   public void request_readTimeout_slowServer_fails() {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200).withFixedDelay(2000)));
+
+      SimpleRestClient.requestTo(baseAddress + "/my/resource").readTimeout(100).get().getStatusCode();
+   }
+
+   @Test
+   public void request_deadline_slowBody_isAborted() {
+      stubFor(get(urlEqualTo("/my/resource")).willReturn(aResponse().withStatus(200)
+                                                                    .withBody("Some content that dribbles in")
+                                                                    .withChunkedDribbleDelay(10, 3000)));
+      long start = System.nanoTime();
+
+      try {
+         SimpleRestClient.requestTo(baseAddress + "/my/resource").deadline(500, TimeUnit.MILLISECONDS).get().asString();
+         fail("DeadlineExceededException expected");
+      } catch (RuntimeException e) {
+         assertTrue(e.getCause() instanceof DeadlineExceededException);
+      }
+      assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2000));
+   }
+
+   @Test
+   public void client_hedging_slowResponse_usesHedgedResponse() {
+      stubFor(get(urlEqualTo("/my/resource")).inScenario("hedging")
+                                             .whenScenarioStateIs(Scenario.STARTED)
+                                             .willReturn(aResponse().withStatus(200).withBody("slow").withFixedDelay(3000))
+                                             .willSetStateTo("hedged"));
+      stubFor(get(urlEqualTo("/my/resource")).inScenario("hedging")
+                                             .whenScenarioStateIs("hedged")
+                                             .willReturn(aResponse().withStatus(200).withBody("fast")));
+      HedgingPolicy hedging = HedgingPolicy.builder().fixedDelay(50, TimeUnit.MILLISECONDS).build();
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl(baseAddress).hedging(hedging).build();
+
+      assertEquals("fast", client.request("/my/resource").get().asString());
+
+      assertEquals(1, hedging.getHedged());
+      assertEquals(1, hedging.getHedgeWins());
+   }
+
    public static class CustomEntity {
 
       private String body;
@@ -0,0 +1,89 @@
+package io.devcon5.commons.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stubs shared by tests using a custom {@link Transport} instead of a server
+ */
+public final class Stubs {
+
+   private Stubs() {
+   }
+
+   /**
+    * Creates a response without I/O
+    * @param status
+    *  the status code of the response
+    * @param body
+    *  the body of the response, encoded as UTF-8
+    * @param headers
+    *  the names and values of the header fields, alternating. Fields with a null value are omitted.
+    * @return
+    *  a new response
+    */
+   public static TransportResponse response(int status, String body, String... headers) {
+      final Map<String, List<String>> fields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      for (int i = 0; i < headers.length; i += 2) {
+         if (headers[i + 1] != null) {
+            fields.put(headers[i], Collections.singletonList(headers[i + 1]));
+         }
+      }
+      return new TransportResponse() {
+         private final InputStream in = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+
+         @Override
+         public int getStatusCode() {
+            return status;
+         }
+
+         @Override
+         public String getMessage() {
+            return null;
+         }
+
+         @Override
+         public String getHeader(final String name) {
+            final List<String> values = fields.get(name);
+            return values == null ? null : values.get(0);
+         }
+
+         @Override
+         public Map<String, List<String>> getHeaders() {
+            return Collections.unmodifiableMap(fields);
+         }
+
+         @Override
+         public InputStream getBody() {
+            return in;
+         }
+
+         @Override
+         public void close() throws IOException {
+            in.close();
+         }
+      };
+   }
+
+   /**
+    * @param url
+    *  a valid URL
+    * @return
+    *  the URL
+    */
+   public static URL url(String url) {
+      try {
+         return new URL(url);
+      } catch (MalformedURLException e) {
+         throw new RuntimeException(e);
+      }
+   }
+}
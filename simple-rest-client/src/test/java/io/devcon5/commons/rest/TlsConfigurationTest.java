@@ -0,0 +1,89 @@
+package io.devcon5.commons.rest;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSocket;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class TlsConfigurationTest {
+
+   @Rule
+   public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().port(Ports.findAvailablePort()).httpsPort(Ports.findAvailablePort()));
+   private String baseAddress;
+
+   @Before
+   public void setUp() throws Exception {
+      this.baseAddress = "https://localhost:" + wireMockRule.getOptions().httpsSettings().port();
+      stubFor(get(urlEqualTo("/secure")).willReturn(aResponse().withStatus(200).withHeader("Connection", "close").withBody("secret")));
+   }
+
+   @Test
+   public void trustAll_newConnections_resumeSession() throws InterruptedException {
+
+      TlsConfiguration tls = TlsConfiguration.builder().trustAll().sessionCache(10, 5, TimeUnit.MINUTES).build();
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl(baseAddress).tls(tls).build();
+
+      for (int i = 0; i < 3; i++) {
+         assertEquals("secret", client.request("/secure").get().asString());
+      }
+
+      //the handshake listeners are notified asynchronously
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (tls.getFullHandshakes() + tls.getResumedHandshakes() < 3 && System.nanoTime() < deadline) {
+         Thread.sleep(10);
+      }
+      assertEquals(tls.toString(), 1, tls.getFullHandshakes());
+      assertEquals(tls.toString(), 2, tls.getResumedHandshakes());
+   }
+
+   @Test
+   public void defaultTrust_untrustedCertificate_fails() {
+
+      SimpleRestClient client = SimpleRestClient.builder().baseUrl(baseAddress).tls(TlsConfiguration.builder().build()).build();
+
+      try {
+         client.request("/secure").get().asString();
+         fail("the self-signed certificate was trusted");
+      } catch (RuntimeException e) {
+         assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof SSLHandshakeException);
+      }
+   }
+
+   @Test
+   public void socketFactory_appliesProtocolsAndCipherSuites() throws IOException {
+
+      TlsConfiguration tls = TlsConfiguration.builder()
+                                             .protocols("TLSv1.2")
+                                             .cipherSuites("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256")
+                                             .build();
+
+      try (SSLSocket socket = (SSLSocket) tls.getSocketFactory().createSocket()) {
+         assertArrayEquals(new String[] {"TLSv1.2"}, socket.getEnabledProtocols());
+         assertArrayEquals(new String[] {"TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"}, socket.getEnabledCipherSuites());
+      }
+      assertArrayEquals(new String[] {"TLSv1.2"}, tls.getSSLParameters().getProtocols());
+      assertEquals(1000, tls.getSSLContext().getClientSessionContext().getSessionCacheSize());
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void tls_customTransport_fails() {
+
+      SimpleRestClient.builder().transport(request -> null).tls(TlsConfiguration.builder().build()).build();
+   }
+}